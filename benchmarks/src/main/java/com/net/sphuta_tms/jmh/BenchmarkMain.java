@@ -0,0 +1,37 @@
+package com.net.sphuta_tms.jmh;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of {@code benchmarks.jar}: JMH's usual command line, with the GC
+ * profiler always on so every run reports {@code gc.alloc.rate.norm} (bytes per
+ * operation) next to throughput.
+ *
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar                         # everything
+ * java -jar benchmarks/target/benchmarks.jar TemplateRenderBenchmark -p reminderNumber=1,4
+ * java -jar benchmarks/target/benchmarks.jar -rf json -rff baseline.json
+ * </pre>
+ */
+public final class BenchmarkMain {
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cli = new CommandLineOptions(args);
+        if (cli.shouldHelp() || cli.shouldList() || cli.shouldListWithParams()
+                || cli.shouldListProfilers() || cli.shouldListResultFormats()) {
+            Main.main(args); // -h, -l, -lp, -lprof, -lrf
+            return;
+        }
+        new Runner(new OptionsBuilder()
+                .parent(cli)
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
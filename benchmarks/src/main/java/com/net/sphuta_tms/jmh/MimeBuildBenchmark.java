@@ -0,0 +1,105 @@
+package com.net.sphuta_tms.jmh;
+
+import com.net.sphuta_tms.mail.LeanMimeBuilder;
+import com.net.sphuta_tms.template.RecordContext;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mail.javamail.MimeMessageHelper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MimeMessage construction as done by {@code EmailService.sendHtml}, for each
+ * template's rendered body:
+ * <ul>
+ *   <li>{@code build}: createMimeMessage + MimeMessageHelper (mixed/related) + setText.</li>
+ *   <li>{@code buildAndWrite}: the same plus {@code saveChanges} and serialising the
+ *       message, which is what the SMTP transport does with it.</li>
+ *   <li>{@code buildLean} / {@code buildLeanAndWrite}: the same through {@link LeanMimeBuilder}.</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MimeBuildBenchmark {
+
+    @Param({"1", "2", "3", "4", "5", "6", "7", "8"})
+    public int reminderNumber;
+
+    private Pipeline pipeline;
+    private LeanMimeBuilder leanMime;
+    private String templatePath;
+    private String to;
+    private String subject;
+    private String html;
+
+    @Setup
+    public void setUp() {
+        pipeline = Pipeline.create();
+        leanMime = new LeanMimeBuilder(4, 262_144);
+        templatePath = pipeline.templatePath(reminderNumber);
+        Object dto = pipeline.payloadMapper.toDto(Pipeline.type(reminderNumber), pipeline.payload(reminderNumber));
+        RecordContext ctx = new RecordContext(dto, Locale.getDefault());
+        to = String.valueOf(ctx.getVariable("to"));
+        subject = pipeline.subjectRenderer.render(templatePath, ctx);
+        html = pipeline.templateEngine.process(templatePath, ctx);
+    }
+
+    @Benchmark
+    public MimeMessage build() throws MessagingException {
+        return buildMessage();
+    }
+
+    @Benchmark
+    public MimeMessage buildAndWrite() throws MessagingException, IOException {
+        MimeMessage msg = buildMessage();
+        msg.saveChanges();
+        msg.writeTo(OutputStream.nullOutputStream());
+        return msg;
+    }
+
+    @Benchmark
+    public MimeMessage buildLean() throws MessagingException {
+        return leanMime.build(pipeline.mailSender, templatePath, to, subject, html);
+    }
+
+    @Benchmark
+    public MimeMessage buildLeanAndWrite() throws MessagingException, IOException {
+        MimeMessage msg = leanMime.build(pipeline.mailSender, templatePath, to, subject, html);
+        msg.saveChanges();
+        msg.writeTo(OutputStream.nullOutputStream());
+        return msg;
+    }
+
+    // copy of the MimeMessageHelper path in EmailService.buildMessage
+    private MimeMessage buildMessage() throws MessagingException {
+        MimeMessage msg = pipeline.mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(
+                msg,
+                MimeMessageHelper.MULTIPART_MODE_MIXED_RELATED,
+                StandardCharsets.UTF_8.name()
+        );
+        helper.setTo(to);
+        if (subject != null && !subject.isBlank()) helper.setSubject(subject);
+        helper.setText(html, true);
+        return msg;
+    }
+}
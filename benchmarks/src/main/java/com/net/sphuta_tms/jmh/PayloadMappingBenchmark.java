@@ -0,0 +1,69 @@
+package com.net.sphuta_tms.jmh;
+
+import com.net.sphuta_tms.enums.ReminderType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Payload to DTO and DTO to variable map, per reminder number:
+ * <ul>
+ *   <li>{@code toDto}: {@code ReminderPayloadMapper.toDto}, the Map payload path.</li>
+ *   <li>{@code readDto}: {@code ReminderPayloadMapper.readDto}, the streamed request body path.</li>
+ *   <li>{@code convertValueToMap}: {@code objectMapper.convertValue(dto, Map.class)},
+ *       what {@code EmailService.bindContext} does for non-record DTOs.</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PayloadMappingBenchmark {
+
+    @Param({"1", "2", "3", "4", "5", "6", "7", "8"})
+    public int reminderNumber;
+
+    private Pipeline pipeline;
+    private ReminderType type;
+    private Map<String, Object> payload;
+    private byte[] body;
+    private Object dto;
+
+    @Setup
+    public void setUp() throws Exception {
+        pipeline = Pipeline.create();
+        type = Pipeline.type(reminderNumber);
+        payload = pipeline.payload(reminderNumber);
+        body = pipeline.objectMapper.writeValueAsBytes(payload);
+        dto = pipeline.payloadMapper.toDto(type, payload);
+    }
+
+    @Benchmark
+    public Object toDto() {
+        return pipeline.payloadMapper.toDto(type, payload);
+    }
+
+    @Benchmark
+    public Object readDto() {
+        return pipeline.payloadMapper.readDto(type, new ByteArrayInputStream(body));
+    }
+
+    @Benchmark
+    public Map<?, ?> convertValueToMap() {
+        return pipeline.objectMapper.convertValue(dto, Map.class);
+    }
+}
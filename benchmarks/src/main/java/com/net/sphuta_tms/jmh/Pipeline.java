@@ -0,0 +1,125 @@
+package com.net.sphuta_tms.jmh;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.net.sphuta_tms.constants.TemplateRegistry;
+import com.net.sphuta_tms.enums.ReminderType;
+import com.net.sphuta_tms.template.EmailTemplateCacheManager;
+import com.net.sphuta_tms.template.EmailTemplateResolver;
+import com.net.sphuta_tms.template.RecordEngineContextFactory;
+import com.net.sphuta_tms.template.SubjectRenderer;
+import com.net.sphuta_tms.util.ReminderPayloadMapper;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The application's rendering components wired by hand the way Spring wires them
+ * (see {@code TemplateCacheConfig}), without starting a context.
+ */
+final class Pipeline {
+
+    final ObjectMapper objectMapper;
+    final TemplateRegistry templateRegistry;
+    final ReminderPayloadMapper payloadMapper;
+    final SpringTemplateEngine templateEngine;
+    final SubjectRenderer subjectRenderer;
+    final JavaMailSenderImpl mailSender;
+
+    // the template files as stored, subject meta tag included
+    final SpringTemplateEngine rawEngine;
+
+    private Pipeline() {
+        // Boot's auto-configured mapper does not fail on unknown properties
+        objectMapper = JsonMapper.builder().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES).build();
+
+        templateRegistry = new TemplateRegistry();
+        ReflectionTestUtils.setField(templateRegistry, "resourceLoader", new DefaultResourceLoader());
+        ReflectionTestUtils.setField(templateRegistry, "templatePrefix", "classpath:/templates/");
+        ReflectionTestUtils.setField(templateRegistry, "templateSuffix", ".html");
+        templateRegistry.init();
+
+        payloadMapper = new ReminderPayloadMapper();
+        ReflectionTestUtils.setField(payloadMapper, "objectMapper", objectMapper);
+        ReflectionTestUtils.invokeMethod(payloadMapper, "init");
+
+        EmailTemplateResolver resolver = new EmailTemplateResolver();
+        ReflectionTestUtils.setField(resolver, "templateRegistry", templateRegistry);
+        templateEngine = new SpringTemplateEngine();
+        templateEngine.setTemplateResolver(resolver);
+        templateEngine.setCacheManager(new EmailTemplateCacheManager(64, 500));
+        templateEngine.setEngineContextFactory(new RecordEngineContextFactory());
+
+        subjectRenderer = new SubjectRenderer();
+        ReflectionTestUtils.setField(subjectRenderer, "templateEngine", templateEngine);
+        ReflectionTestUtils.setField(subjectRenderer, "templateRegistry", templateRegistry);
+        subjectRenderer.init();
+
+        ClassLoaderTemplateResolver rawResolver = new ClassLoaderTemplateResolver();
+        rawResolver.setPrefix("templates/");
+        rawResolver.setSuffix(".html");
+        rawResolver.setTemplateMode(TemplateMode.HTML);
+        rawResolver.setCharacterEncoding("UTF-8");
+        rawEngine = new SpringTemplateEngine();
+        rawEngine.setTemplateResolver(rawResolver);
+
+        // never connects: only used to create MimeMessages
+        mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+    }
+
+    static Pipeline create() {
+        return new Pipeline();
+    }
+
+    String templatePath(int reminderNumber) {
+        return templateRegistry.getByReminderNumber(reminderNumber).getTemplatePath();
+    }
+
+    static ReminderType type(int reminderNumber) {
+        return ReminderType.fromCode(reminderNumber);
+    }
+
+    /**
+     * Request payload for the reminder: every sample field its DTO declares.
+     */
+    Map<String, Object> payload(int reminderNumber) {
+        Object dto = payloadMapper.toDto(type(reminderNumber), sampleVariables());
+        Map<String, Object> payload = new LinkedHashMap<>();
+        for (var component : dto.getClass().getRecordComponents()) {
+            payload.put(component.getName(), sampleVariables().get(component.getName()));
+        }
+        return payload;
+    }
+
+    private static Map<String, Object> sampleVariables() {
+        Map<String, Object> vars = new HashMap<>();
+        vars.put("to", "employee@example.com");
+        vars.put("employeeName", "John Doe");
+        vars.put("managerName", "Sarah Wilson");
+        vars.put("adminName", "Admin");
+        vars.put("hrContactName", "HR Team");
+        vars.put("teamName", "Development Team");
+        vars.put("weekDate", "Jan 15-21, 2024");
+        vars.put("deadlineDate", "Jan 22, 2024");
+        vars.put("deadlineTime", "5:00 PM");
+        vars.put("deadlineDateTime", "Jan 22, 2024, 5:00 PM");
+        vars.put("managerApprovalDeadline", "Jan 22, 2024, 3:00 PM");
+        vars.put("timesheetLink", "https://sphuta-app.com/timesheet");
+        vars.put("managerDashboardLink", "https://sphuta-app.com/manager");
+        vars.put("adminDashboardLink", "https://sphuta-app.com/admin");
+        vars.put("hrDashboardLink", "https://sphuta-app.com/hr");
+        vars.put("supportContact", "support-number");
+        vars.put("helpLink", "https://help.example");
+        vars.put("itSupportEmail", "it-support@example.com");
+        return vars;
+    }
+}
@@ -0,0 +1,102 @@
+package com.net.sphuta_tms.jmh;
+
+import com.net.sphuta_tms.template.CompiledTemplate;
+import com.net.sphuta_tms.template.RecordContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.thymeleaf.context.Context;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * {@code templateEngine.process} and subject extraction for each of the 8 templates
+ * in {@code TemplateRegistry}:
+ * <ul>
+ *   <li>{@code renderRecord}: pre-split body bound to the DTO record, as sent today.</li>
+ *   <li>{@code renderMap}: same body bound to a {@code convertValue} map, the non-record path.</li>
+ *   <li>{@code renderCompiled}: the same body through {@link CompiledTemplate}; a template it
+ *       does not compile measures the engine instead.</li>
+ *   <li>{@code subjectPreParsed}: {@code SubjectRenderer.render} on the pre-parsed expression.</li>
+ *   <li>{@code subjectRegex}: the meta-tag regex {@code EmailService} applies to templates it
+ *       does not pre-parse, run on the rendered raw file.</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TemplateRenderBenchmark {
+
+    // copy of EmailService.META_SUBJECT
+    private static final Pattern META_SUBJECT =
+            Pattern.compile("<meta\\s+[^>]*name\\s*=\\s*['\"]subject['\"][^>]*content\\s*=\\s*['\"](.*?)['\"][^>]*/?>",
+                    Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    @Param({"1", "2", "3", "4", "5", "6", "7", "8"})
+    public int reminderNumber;
+
+    private Pipeline pipeline;
+    private String templatePath;
+    private Object dto;
+    private Map<String, Object> variables;
+    private RecordContext recordContext;
+    private String rawHtml;
+    private CompiledTemplate compiled;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        pipeline = Pipeline.create();
+        templatePath = pipeline.templatePath(reminderNumber);
+        dto = pipeline.payloadMapper.toDto(Pipeline.type(reminderNumber), pipeline.payload(reminderNumber));
+        variables = pipeline.objectMapper.convertValue(dto, Map.class);
+        recordContext = new RecordContext(dto, Locale.getDefault());
+        try {
+            compiled = CompiledTemplate.compile(templatePath, pipeline.templateRegistry.getSource(templatePath).body());
+        } catch (IllegalArgumentException ex) {
+            compiled = null;
+        }
+        rawHtml = pipeline.rawEngine.process(templatePath, new Context(Locale.getDefault(), variables));
+    }
+
+    @Benchmark
+    public String renderRecord() {
+        return pipeline.templateEngine.process(templatePath, new RecordContext(dto, Locale.getDefault()));
+    }
+
+    @Benchmark
+    public String renderMap() {
+        return pipeline.templateEngine.process(templatePath, new Context(Locale.getDefault(), variables));
+    }
+
+    @Benchmark
+    public String renderCompiled() {
+        return compiled != null ? compiled.render(dto) : renderRecord();
+    }
+
+    @Benchmark
+    public String subjectPreParsed() {
+        return pipeline.subjectRenderer.render(templatePath, recordContext);
+    }
+
+    @Benchmark
+    public String subjectRegex() {
+        Matcher m = META_SUBJECT.matcher(rawHtml);
+        return m.find() ? m.group(1).trim() : null;
+    }
+}
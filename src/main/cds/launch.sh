@@ -0,0 +1,16 @@
+#!/bin/sh
+# Starts the application built by `mvn -Pcds package`: sh target/application/launch.sh
+# Runs the AOT-processed, extracted jar with the AppCDS archive from the training run.
+# Falls back to a normal start when the archive is missing or was built by another JVM
+# (-Xshare:auto). Extra arguments are passed to the application, e.g. --server.port=8081.
+# The profiles are the ones the AOT processing was done with (cds.app.profiles).
+APP_DIR=$(cd "$(dirname "$0")" && pwd)
+JAVA=${JAVA_HOME:+$JAVA_HOME/bin/}java
+
+# must be the same jar path the archive was trained with, hence the cd
+cd "$APP_DIR" || exit 1
+exec "$JAVA" $JAVA_OPTS \
+    -XX:SharedArchiveFile=application.jsa -Xshare:auto \
+    -Dspring.aot.enabled=true \
+    -Dspring.profiles.active=@cds.app.profiles@ \
+    -jar @project.build.finalName@.jar "$@"
@@ -0,0 +1,137 @@
+package com.net.sphuta_tms.config;
+
+import com.net.sphuta_tms.mail.RoutingMailSender;
+import com.net.sphuta_tms.mail.SmtpMailSender;
+import com.net.sphuta_tms.mail.SmtpMetrics;
+import com.net.sphuta_tms.mail.SmtpRateLimiter;
+import com.net.sphuta_tms.mail.SmtpRoutingProperties;
+import com.net.sphuta_tms.mail.SmtpTransportPool;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.mail.MailProperties;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Mail sender wiring.
+ *
+ * <p>Replaces Boot's auto-configured {@code JavaMailSenderImpl} with
+ * {@link SmtpMailSender}, built from the same {@code spring.mail.*} properties,
+ * so concurrent SMTP sessions per host can be capped and connections pooled
+ * ({@code sphuta.mail.smtp.pool.*}, size 0 disables pooling), and sends paced
+ * by an adaptive per-host rate limit ({@code sphuta.mail.smtp.rate.*},
+ * {@code per-second} 0 disables it).</p>
+ *
+ * <p>With relays under {@code sphuta.mail.routing.relays} the bean is a
+ * {@link RoutingMailSender} instead, holding one such sender per relay.</p>
+ *
+ * <p>When {@code spring.threads.virtual.enabled=true} on Java 21 (see the
+ * {@code java21} Maven profile and {@code application-virtual.yml}),
+ * a virtual-thread {@code mailDispatchExecutor} is also registered and used by the
+ * async queue and batch fan-out instead of platform threads.</p>
+ */
+@Configuration
+@EnableConfigurationProperties({MailProperties.class, SmtpRoutingProperties.class})
+public class MailSenderConfig {
+
+    @Bean
+    public JavaMailSenderImpl mailSender(MailProperties properties,
+                                         SmtpRoutingProperties routing,
+                                         @Value("${sphuta.mail.smtp.max-concurrent-per-host:16}") int maxConcurrentPerHost,
+                                         @Value("${sphuta.mail.smtp.pool.size:4}") int poolSize,
+                                         @Value("${sphuta.mail.smtp.pool.max-messages-per-connection:100}") int maxMessagesPerConnection,
+                                         @Value("${sphuta.mail.smtp.pool.max-lifetime-ms:300000}") long maxLifetimeMs,
+                                         @Value("${sphuta.mail.smtp.pool.validate-after-idle-ms:30000}") long validateAfterIdleMs,
+                                         @Value("${sphuta.mail.smtp.rate.per-second:0}") double ratePerSecond,
+                                         @Value("${sphuta.mail.smtp.rate.burst:10}") int rateBurst,
+                                         @Value("${sphuta.mail.smtp.rate.min-per-second:0.5}") double minRatePerSecond,
+                                         @Value("${sphuta.mail.smtp.rate.decrease-factor:0.5}") double decreaseFactor,
+                                         @Value("${sphuta.mail.smtp.rate.increase-per-second:0.1}") double increasePerSecond,
+                                         @Value("${sphuta.mail.smtp.rate.max-throttle-retries:3}") int maxThrottleRetries) {
+        SmtpTransportPool.Settings pool = new SmtpTransportPool.Settings(poolSize, maxMessagesPerConnection, maxLifetimeMs, validateAfterIdleMs);
+        SmtpRateLimiter.Settings rate = new SmtpRateLimiter.Settings(ratePerSecond, rateBurst, minRatePerSecond,
+                decreaseFactor, increasePerSecond, maxThrottleRetries);
+        if (!routing.enabled()) {
+            SmtpMailSender sender = new SmtpMailSender(maxConcurrentPerHost);
+            applyProperties(properties, sender);
+            sender.enablePooling(pool);
+            sender.enableRateLimit(rate);
+            return sender;
+        }
+
+        List<RoutingMailSender.Relay> relays = routing.relays().stream()
+                .map(relay -> new RoutingMailSender.Relay(relay.name() != null ? relay.name() : relay.host(), relay.weight(),
+                        relaySender(properties, relay, maxConcurrentPerHost, pool, rate)))
+                .toList();
+        RoutingMailSender router = new RoutingMailSender(relays, new RoutingMailSender.Settings(
+                routing.failureThreshold(), routing.cooldownMs(), routing.maxAttempts(), routing.smoothing()));
+        applyProperties(properties, router); // session and encoding for createMimeMessage()
+        return router;
+    }
+
+    @Bean
+    public MeterBinder smtpMailSenderMetrics(JavaMailSenderImpl mailSender) {
+        return registry -> {
+            if (mailSender instanceof RoutingMailSender router) SmtpMetrics.bind(router, registry);
+            else if (mailSender instanceof SmtpMailSender sender) SmtpMetrics.bind(sender, registry);
+        };
+    }
+
+    // not a default candidate, so Boot keeps its applicationTaskExecutor for Spring MVC async;
+    // EmailService and MailDispatchQueue inject this one by name
+    @Bean(defaultCandidate = false)
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public TaskExecutor mailDispatchExecutor() {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("mail-dispatch-");
+        executor.setVirtualThreads(true);
+        return executor;
+    }
+
+    // spring.mail.* with the relay's own host, port, credentials and caps on top
+    static SmtpMailSender relaySender(MailProperties properties, SmtpRoutingProperties.Relay relay, int maxConcurrentPerHost,
+                                      SmtpTransportPool.Settings pool, SmtpRateLimiter.Settings rate) {
+        if (relay.host() == null || relay.host().isBlank()) {
+            throw new IllegalArgumentException("SMTP relay " + relay.name() + " has no host");
+        }
+        SmtpMailSender sender = new SmtpMailSender(relay.maxConcurrent() != null ? relay.maxConcurrent() : maxConcurrentPerHost);
+        applyProperties(properties, sender);
+        sender.setHost(relay.host());
+        if (relay.port() != null) sender.setPort(relay.port());
+        if (relay.username() != null) sender.setUsername(relay.username());
+        if (relay.password() != null) sender.setPassword(relay.password());
+        sender.enablePooling(pool);
+        sender.enableRateLimit(new SmtpRateLimiter.Settings(
+                relay.ratePerSecond() != null ? relay.ratePerSecond() : rate.ratePerSecond(),
+                relay.rateBurst() != null ? relay.rateBurst() : rate.burst(),
+                rate.minRatePerSecond(), rate.decreaseFactor(), rate.increasePerSecond(), rate.maxThrottleRetries()));
+        return sender;
+    }
+
+    // same mapping Boot's MailSenderPropertiesConfiguration applies
+    static void applyProperties(MailProperties properties, JavaMailSenderImpl sender) {
+        sender.setHost(properties.getHost());
+        if (properties.getPort() != null) {
+            sender.setPort(properties.getPort());
+        }
+        sender.setUsername(properties.getUsername());
+        sender.setPassword(properties.getPassword());
+        sender.setProtocol(properties.getProtocol());
+        if (properties.getDefaultEncoding() != null) {
+            sender.setDefaultEncoding(properties.getDefaultEncoding().name());
+        }
+        if (!properties.getProperties().isEmpty()) {
+            Properties javaMailProperties = new Properties();
+            javaMailProperties.putAll(properties.getProperties());
+            sender.setJavaMailProperties(javaMailProperties);
+        }
+    }
+}
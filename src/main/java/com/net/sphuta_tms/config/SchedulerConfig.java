@@ -0,0 +1,47 @@
+package com.net.sphuta_tms.config;
+
+import com.net.sphuta_tms.scheduler.FileShardLeaseStore;
+import com.net.sphuta_tms.scheduler.ScheduledJobProperties;
+import com.net.sphuta_tms.scheduler.ShardLeaseStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+
+import java.nio.file.Paths;
+
+/**
+ * Scheduler wiring: per-job recipient sources ({@link ScheduledJobProperties}), the
+ * lease store for sharded scheduling ({@code sphuta.scheduler.sharding.enabled=true}) and
+ * the thread pre-rendering runs on ({@code sphuta.scheduler.prerender.enabled=true}).
+ * Pre-rendering a large recipient list takes minutes, so it does not run on Spring's single
+ * scheduling thread, which the cron runs, digest flush, outbox replay and rebalancing share.
+ *
+ * <p>The default lease store is a {@link FileShardLeaseStore} under
+ * {@code sharding.file.dir}; replicas must share that directory. Declaring another
+ * {@link ShardLeaseStore} bean (e.g. backed by a database table) replaces it.</p>
+ */
+@Configuration
+@EnableConfigurationProperties(ScheduledJobProperties.class)
+public class SchedulerConfig {
+
+    @Bean
+    @ConditionalOnProperty(prefix = "sphuta.scheduler.sharding", name = "enabled", havingValue = "true")
+    @ConditionalOnMissingBean(ShardLeaseStore.class)
+    public ShardLeaseStore fileShardLeaseStore(@Value("${sphuta.scheduler.sharding.file.dir:./data/leases}") String dir,
+                                               @Value("${sphuta.scheduler.sharding.file.retention-ms:86400000}") long retentionMs) {
+        return new FileShardLeaseStore(Paths.get(dir), retentionMs);
+    }
+
+    // not a default candidate: an Executor bean would make Boot back off its applicationTaskExecutor,
+    // which Spring MVC async requests run on; TimesheetEmailScheduler injects this one by name
+    @Bean(defaultCandidate = false)
+    @ConditionalOnProperty(prefix = "sphuta.scheduler.prerender", name = "enabled", havingValue = "true")
+    public TaskExecutor prerenderExecutor() {
+        return new SimpleAsyncTaskExecutor("prerender-");
+    }
+}
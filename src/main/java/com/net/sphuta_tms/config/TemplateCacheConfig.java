@@ -0,0 +1,62 @@
+package com.net.sphuta_tms.config;
+
+import com.net.sphuta_tms.constants.TemplateRegistry;
+import com.net.sphuta_tms.template.EmailTemplateCacheManager;
+import com.net.sphuta_tms.template.RecordEngineContextFactory;
+import com.net.sphuta_tms.template.TemplateCacheMetrics;
+import com.net.sphuta_tms.template.TemplateWatcher;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+
+/**
+ * Template cache wiring.
+ *
+ * <p>Installs {@link EmailTemplateCacheManager} on Boot's {@link SpringTemplateEngine}
+ * before the engine initializes (its cache manager cannot be changed afterwards),
+ * bounded by {@code sphuta.mail.templates.cache.*}. Hot reload is handled by
+ * {@link TemplateWatcher} when {@code sphuta.mail.templates.watch.enabled=true}.</p>
+ *
+ * <p>Also installs {@link RecordEngineContextFactory}, so DTO records passed as a
+ * {@code RecordContext} are read through their accessors instead of copied into
+ * the engine context's variable map.</p>
+ */
+@Configuration
+public class TemplateCacheConfig {
+
+    @Bean
+    public EmailTemplateCacheManager emailTemplateCacheManager(
+            @Value("${sphuta.mail.templates.cache.max-templates:64}") int maxTemplates,
+            @Value("${sphuta.mail.templates.cache.max-expressions:500}") int maxExpressions) {
+        return new EmailTemplateCacheManager(maxTemplates, maxExpressions);
+    }
+
+    @Bean
+    static BeanPostProcessor templateEngineCustomizer(ObjectProvider<EmailTemplateCacheManager> cacheManager) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof SpringTemplateEngine engine) {
+                    engine.setCacheManager(cacheManager.getObject());
+                    engine.setEngineContextFactory(new RecordEngineContextFactory());
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public MeterBinder templateCacheMetrics(EmailTemplateCacheManager cacheManager,
+                                            ObjectProvider<TemplateWatcher> watcher) {
+        return registry -> TemplateCacheMetrics.bind(cacheManager, watcher.getIfAvailable(), registry);
+    }
+
+    @Bean
+    public MeterBinder templateSizeMetrics(TemplateRegistry templateRegistry) {
+        return registry -> TemplateCacheMetrics.bind(templateRegistry, registry);
+    }
+}
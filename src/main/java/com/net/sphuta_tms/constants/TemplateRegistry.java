@@ -2,22 +2,65 @@ package com.net.sphuta_tms.constants;
 
 
 import com.net.sphuta_tms.dto.TemplateInfo;
+import com.net.sphuta_tms.template.EmailTemplateSource;
+import com.net.sphuta_tms.template.TemplateOptimizer;
 import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
 import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * TemplateRegistry builds a Map<reminderNumber, TemplateInfo>
  * at startup and exposes lookup methods.
+ *
+ * It also reads every registered template once and splits it into
+ * subject and body ({@link EmailTemplateSource}), so the subject can be
+ * evaluated on its own and the engine renders a body without the meta tag.
+ *
+ * With {@code sphuta.mail.templates.optimize.enabled=true} each body is also run through
+ * {@link TemplateOptimizer} (CSS inlined, comments and whitespace removed) when it is
+ * loaded or reloaded, and the size before and after is logged and kept per template.
  */
+@Slf4j
 @Component
 public class TemplateRegistry {
 
+    // not tied to a reminder number: rendered by ReminderCoalescer for buffered manager reminders
+    public static final String MANAGER_DIGEST_TEMPLATE = "emails/manager/timesheet-approval-digest";
+
     private final Map<Integer, TemplateInfo> registry = new HashMap<>();
 
+    // templatePath -> parsed source
+    private final Map<String, EmailTemplateSource> sources = new ConcurrentHashMap<>();
+
+    // templatePath -> size reduction of the loaded body, only when optimizing
+    private final Map<String, TemplateOptimizer.Result> optimizations = new ConcurrentHashMap<>();
+
+    @Autowired
+    private ResourceLoader resourceLoader;
+
+    @Value("${spring.thymeleaf.prefix:classpath:/templates/}")
+    private String templatePrefix;
+
+    @Value("${spring.thymeleaf.suffix:.html}")
+    private String templateSuffix;
+
+    @Value("${sphuta.mail.templates.optimize.enabled:false}")
+    private boolean optimize;
+
     @PostConstruct
     public void init() {
         // employee
@@ -33,6 +76,9 @@ public class TemplateRegistry {
         // admin / hr
         registry.put(7, new TemplateInfo(7, "Admin Escalation", "emails/admin/timesheet-admin-escalation"));
         registry.put(8, new TemplateInfo(8, "HR Escalation", "emails/hr/timesheet-hr-escalation"));
+
+        registry.values().forEach(info -> loadSource(info.getTemplatePath()));
+        loadSource(MANAGER_DIGEST_TEMPLATE);
     }
 
     public Map<Integer, TemplateInfo> getAll() {
@@ -42,4 +88,62 @@ public class TemplateRegistry {
     public TemplateInfo getByReminderNumber(int reminderNumber) {
         return registry.get(reminderNumber); // null if missing
     }
+
+    /**
+     * Parsed source for a registered template path, or null if the path is not registered.
+     */
+    public EmailTemplateSource getSource(String templatePath) {
+        return sources.get(templatePath);
+    }
+
+    public Collection<EmailTemplateSource> getSources() {
+        return Collections.unmodifiableCollection(sources.values());
+    }
+
+    /**
+     * Sizes before and after optimizing the template's body, or null when it was not optimized.
+     */
+    public TemplateOptimizer.Result getOptimization(String templatePath) {
+        return optimizations.get(templatePath);
+    }
+
+    /**
+     * Re-read a registered template from {@code resource}, e.g. after its file changed.
+     * Returns false, keeping the previous source, when the path is not registered or the read fails.
+     */
+    public boolean reload(String templatePath, Resource resource) {
+        boolean registered = MANAGER_DIGEST_TEMPLATE.equals(templatePath)
+                || registry.values().stream().anyMatch(info -> info.getTemplatePath().equals(templatePath));
+        return registered && loadSource(templatePath, resource);
+    }
+
+    private void loadSource(String templatePath) {
+        loadSource(templatePath, resourceLoader.getResource(templatePrefix + templatePath + templateSuffix));
+    }
+
+    private boolean loadSource(String templatePath, Resource resource) {
+        try (InputStream in = resource.getInputStream()) {
+            String raw = StreamUtils.copyToString(in, StandardCharsets.UTF_8);
+            EmailTemplateSource source = EmailTemplateSource.parse(templatePath, raw);
+            if (optimize) source = optimized(source);
+            sources.put(templatePath, source);
+            if (!source.hasSubject()) {
+                log.warn("Template '{}' has no subject meta tag", templatePath);
+            }
+            return true;
+        } catch (IOException ex) {
+            // leave it to the default resolver; EmailService falls back to scanning the rendered HTML
+            log.warn("Could not pre-load template '{}': {}", templatePath, ex.getMessage());
+            return false;
+        }
+    }
+
+    private EmailTemplateSource optimized(EmailTemplateSource source) {
+        TemplateOptimizer.Result result = TemplateOptimizer.optimize(source.body());
+        optimizations.put(source.templatePath(), result);
+        log.info("Template '{}' optimized: {} -> {} bytes (-{}%), {} CSS rules inlined, {} kept in <style>",
+                source.templatePath(), result.originalBytes(), result.optimizedBytes(),
+                Math.round(result.savedRatio() * 100), result.inlinedRules(), result.keptRules());
+        return new EmailTemplateSource(source.templatePath(), source.staticSubject(), source.subjectExpression(), result.html());
+    }
 }
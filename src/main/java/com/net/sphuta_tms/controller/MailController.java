@@ -1,12 +1,20 @@
 package com.net.sphuta_tms.controller;
 
+import com.net.sphuta_tms.dto.BatchSendReport;
+import com.net.sphuta_tms.dto.DispatchJobStatus;
+import com.net.sphuta_tms.dto.ReminderRequest;
+import com.net.sphuta_tms.dto.SendOutcome;
 import com.net.sphuta_tms.service.EmailService; // now has facade
+import com.net.sphuta_tms.service.MailDispatchQueue;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.InputStream;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -18,6 +26,11 @@ import java.util.Map;
  *
  * <p><b>Responsibilities:</b></p>
  * - Handle requests to send email reminders. <br>
+ * - Bind single-send bodies straight into the reminder's DTO (no intermediate Map). <br>
+ * - Handle batch requests that send one reminder to many recipients. <br>
+ * - Accept asynchronous sends (202 + job id) and report their status. <br>
+ * - Answer a repeated single send ({@code Idempotency-Key} header or same reminder,
+ *   recipient and week) with the earlier result instead of sending again. <br>
  * - Delegate email sending logic to {@link EmailService}. <br>
  *
  * <p><b>Design:</b></p>
@@ -29,17 +42,65 @@ import java.util.Map;
 @RequestMapping("/api/mail")
 public class MailController {
 
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String IDEMPOTENT_REPLAYED_HEADER = "Idempotent-Replayed";
+
     @Autowired
     private EmailService emailService;
 
-    @PostMapping("/send/{reminderNumber}")
+    @Autowired
+    private MailDispatchQueue dispatchQueue;
+
+    @PostMapping(value = "/send/{reminderNumber}", consumes = MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<String> sendByNumber(@PathVariable int reminderNumber,
-                                               @RequestBody Map<String, Object> payload) throws Exception {
-        log.info("Received send request for reminderNumber={}, payloadKeys={}", reminderNumber, payload == null ? "null" : payload.keySet());
+                                               @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+                                               InputStream body) throws Exception {
+        log.info("Received send request for reminderNumber={}", reminderNumber);
+
+        // body is parsed straight into the DTO for this reminder number, then rendered and sent
+        ReminderRequest request = emailService.prepareReminder(reminderNumber, body);
+        SendOutcome outcome = emailService.sendPrepared(request, idempotencyKey);
+
+        return toResponse(outcome);
+    }
+
+    // 202 for a reminder only queued for a digest, so callers can tell it from one that was sent
+    static ResponseEntity<String> toResponse(SendOutcome outcome) {
+        if (outcome.buffered()) {
+            return ResponseEntity.accepted().body(outcome.message());
+        }
+        if (outcome.replayed()) {
+            return ResponseEntity.ok().header(IDEMPOTENT_REPLAYED_HEADER, "true").body(outcome.message());
+        }
+        return ResponseEntity.ok(outcome.message());
+    }
 
-        // delegate entirely to EmailService facade
-        emailService.sendReminderByNumber(reminderNumber, payload);
+    @PostMapping("/send/{reminderNumber}/batch")
+    public ResponseEntity<BatchSendReport> sendBatchByNumber(@PathVariable int reminderNumber,
+                                                             @RequestBody List<Map<String, Object>> payloads) {
+        log.info("Received batch send request for reminderNumber={}, size={}", reminderNumber, payloads == null ? "null" : payloads.size());
+
+        // per-recipient failures are part of the report; only invalid batches raise
+        BatchSendReport report = emailService.sendReminderBatch(reminderNumber, payloads);
+
+        return ResponseEntity.ok(report);
+    }
+
+    @PostMapping(value = "/send/{reminderNumber}/async", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<DispatchJobStatus> sendAsyncByNumber(@PathVariable int reminderNumber,
+                                                               InputStream body) {
+        log.info("Received async send request for reminderNumber={}", reminderNumber);
+
+        // validate on the request thread so bad input still gets a 400; rendering + SMTP happen on a worker
+        ReminderRequest request = emailService.prepareReminder(reminderNumber, body);
+        DispatchJobStatus job = dispatchQueue.submit(request);
+
+        return ResponseEntity.accepted().body(job);
+    }
 
-        return ResponseEntity.ok("Triggered reminder " + reminderNumber);
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<DispatchJobStatus> getJobStatus(@PathVariable String jobId) {
+        DispatchJobStatus status = dispatchQueue.getStatus(jobId);
+        return status == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(status);
     }
 }
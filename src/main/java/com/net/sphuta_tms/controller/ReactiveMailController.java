@@ -0,0 +1,106 @@
+package com.net.sphuta_tms.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.net.sphuta_tms.dto.BatchSendReport;
+import com.net.sphuta_tms.dto.RecipientResult;
+import com.net.sphuta_tms.dto.ReminderRequest;
+import com.net.sphuta_tms.service.EmailService;
+import com.net.sphuta_tms.service.ReactiveEmailService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+/**
+ * ==========================================================
+ * {@code ReactiveMailController}
+ * ==========================================================
+ *
+ * Non-blocking variant of {@link MailController} under {@code /api/reactive/mail}.
+ *
+ * <p><b>Responsibilities:</b></p>
+ * - Single sends answered by a {@link Mono}: the request thread is released while the
+ *   reminder renders and goes out on {@link ReactiveEmailService}'s schedulers. <br>
+ * - Send streams: an NDJSON body of payloads, read as the send pipeline asks for more,
+ *   answered with one NDJSON {@link RecipientResult} per payload as it is delivered. <br>
+ * - The same stream collected into a {@link BatchSendReport}. <br>
+ *
+ * <p><b>Design:</b></p>
+ * - Served by Spring MVC's reactive return value support; bad input still gets a 400
+ *   because the reminder number and single-send body are checked before returning. <br>
+ * - Registered with {@code sphuta.mail.reactive.enabled=true}. <br>
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/reactive/mail")
+@ConditionalOnProperty(prefix = "sphuta.mail.reactive", name = "enabled", havingValue = "true")
+public class ReactiveMailController {
+
+    private static final TypeReference<Map<String, Object>> PAYLOAD = new TypeReference<>() { };
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private ReactiveEmailService reactiveEmailService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PostMapping(value = "/send/{reminderNumber}", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<String>> sendByNumber(@PathVariable int reminderNumber,
+                                                     @RequestHeader(value = MailController.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+                                                     InputStream body) {
+        log.info("Received reactive send request for reminderNumber={}", reminderNumber);
+
+        ReminderRequest request = emailService.prepareReminder(reminderNumber, body);
+        return reactiveEmailService.send(request, idempotencyKey)
+                .map(MailController::toResponse);
+    }
+
+    @PostMapping(value = "/send/{reminderNumber}/stream",
+            consumes = MediaType.APPLICATION_NDJSON_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<RecipientResult> sendStream(@PathVariable int reminderNumber, InputStream body) {
+        log.info("Received send stream for reminderNumber={}", reminderNumber);
+        return reactiveEmailService.sendStream(reminderNumber, payloads(body));
+    }
+
+    @PostMapping(value = "/send/{reminderNumber}/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public Mono<BatchSendReport> sendBatch(@PathVariable int reminderNumber, InputStream body) {
+        log.info("Received reactive batch for reminderNumber={}", reminderNumber);
+        return reactiveEmailService.sendBatch(reminderNumber, payloads(body));
+    }
+
+    // one payload per line, parsed only when requested; blocking reads stay off the send schedulers
+    private Flux<Map<String, Object>> payloads(InputStream body) {
+        return Flux.<Map<String, Object>, MappingIterator<Map<String, Object>>>using(
+                        () -> objectMapper.readerFor(PAYLOAD).readValues(body),
+                        lines -> Flux.generate(sink -> {
+                            try {
+                                if (lines.hasNextValue()) sink.next(lines.nextValue());
+                                else sink.complete();
+                            } catch (IOException ex) {
+                                sink.error(new IllegalArgumentException("Invalid NDJSON body: " + ex.getMessage(), ex));
+                            }
+                        }),
+                        lines -> {
+                            try {
+                                lines.close();
+                            } catch (IOException ex) {
+                                log.debug("Closing request body failed: {}", ex.getMessage());
+                            }
+                        })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+}
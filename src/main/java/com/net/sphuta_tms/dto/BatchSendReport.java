@@ -0,0 +1,27 @@
+package com.net.sphuta_tms.dto;
+
+import com.net.sphuta_tms.enums.DeliveryStatus;
+
+import java.util.List;
+
+/**
+ * Per-recipient report returned by the batch send API.
+ */
+public record BatchSendReport(
+        int reminderNumber,
+        int total,
+        int sent,
+        int failed,
+        int skipped,
+        List<RecipientResult> results
+) {
+    public static BatchSendReport of(int reminderNumber, List<RecipientResult> results) {
+        int sent = 0, failed = 0, skipped = 0;
+        for (RecipientResult r : results) {
+            if (r.status() == DeliveryStatus.SENT) sent++;
+            else if (r.status() == DeliveryStatus.FAILED) failed++;
+            else skipped++;
+        }
+        return new BatchSendReport(reminderNumber, results.size(), sent, failed, skipped, List.copyOf(results));
+    }
+}
@@ -0,0 +1,26 @@
+package com.net.sphuta_tms.dto;
+
+import com.net.sphuta_tms.enums.DispatchState;
+
+import java.time.Instant;
+
+/**
+ * Snapshot of an asynchronous send job as reported by the status endpoint.
+ */
+public record DispatchJobStatus(
+        String jobId,
+        int reminderNumber,
+        DispatchState state,
+        String detail,
+        Instant submittedAt,
+        Instant finishedAt
+) {
+    public static DispatchJobStatus queued(String jobId, int reminderNumber) {
+        return new DispatchJobStatus(jobId, reminderNumber, DispatchState.QUEUED, null, Instant.now(), null);
+    }
+
+    public DispatchJobStatus withState(DispatchState newState, String newDetail) {
+        return new DispatchJobStatus(jobId, reminderNumber, newState, newDetail, submittedAt,
+                newState.isFinished() ? Instant.now() : null);
+    }
+}
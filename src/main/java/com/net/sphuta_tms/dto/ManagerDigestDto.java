@@ -0,0 +1,15 @@
+package com.net.sphuta_tms.dto;
+
+import java.util.List;
+
+/**
+ * Model of the manager digest: every approval reminder buffered for one manager
+ * within the coalescing window, rendered as a single email.
+ */
+public record ManagerDigestDto(
+        String to,
+        String managerName,
+        String managerDashboardLink,
+        int itemCount,
+        List<ManagerDigestItem> items
+) { }
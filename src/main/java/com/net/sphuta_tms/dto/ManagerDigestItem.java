@@ -0,0 +1,12 @@
+package com.net.sphuta_tms.dto;
+
+/**
+ * One employee's line in a manager digest.
+ */
+public record ManagerDigestItem(
+        String status,
+        String employeeName,
+        String teamName,
+        String weekDate,
+        String deadline
+) { }
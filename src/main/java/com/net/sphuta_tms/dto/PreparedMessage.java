@@ -0,0 +1,14 @@
+package com.net.sphuta_tms.dto;
+
+import jakarta.mail.internet.MimeMessage;
+
+/**
+ * A reminder rendered into its final MIME form ahead of delivery.
+ * {@code idempotencyKey} is null when none could be derived from the payload.
+ */
+public record PreparedMessage(
+        String to,
+        String templatePath,
+        String idempotencyKey,
+        MimeMessage message
+) { }
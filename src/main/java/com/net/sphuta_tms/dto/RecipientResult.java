@@ -0,0 +1,25 @@
+package com.net.sphuta_tms.dto;
+
+import com.net.sphuta_tms.enums.DeliveryStatus;
+
+/**
+ * Outcome of one entry of a batch send, in request order.
+ */
+public record RecipientResult(
+        int index,
+        String to,
+        DeliveryStatus status,
+        String detail
+) {
+    public static RecipientResult sent(int index, String to) {
+        return new RecipientResult(index, to, DeliveryStatus.SENT, null);
+    }
+
+    public static RecipientResult skipped(int index, String to, String detail) {
+        return new RecipientResult(index, to, DeliveryStatus.SKIPPED, detail);
+    }
+
+    public static RecipientResult failed(int index, String to, String detail) {
+        return new RecipientResult(index, to, DeliveryStatus.FAILED, detail);
+    }
+}
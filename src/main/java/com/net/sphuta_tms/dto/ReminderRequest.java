@@ -0,0 +1,14 @@
+package com.net.sphuta_tms.dto;
+
+import com.net.sphuta_tms.enums.ReminderType;
+
+/**
+ * A validated reminder: template resolved and payload already
+ * converted to the DTO for its {@link ReminderType}.
+ */
+public record ReminderRequest(
+        int reminderNumber,
+        ReminderType type,
+        String templatePath,
+        Object dto
+) { }
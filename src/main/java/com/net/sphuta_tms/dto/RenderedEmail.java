@@ -0,0 +1,17 @@
+package com.net.sphuta_tms.dto;
+
+/**
+ * Result of rendering a template for a single recipient:
+ * the resolved recipient, the subject taken from the template
+ * meta tag and the HTML body with the meta tag removed.
+ */
+public record RenderedEmail(
+        String templatePath,
+        String to,
+        String subject,
+        String html
+) {
+    public boolean hasRecipient() {
+        return to != null && !to.isBlank();
+    }
+}
@@ -0,0 +1,25 @@
+package com.net.sphuta_tms.dto;
+
+/**
+ * Result of a single send. {@code replayed} is true when the send was a duplicate
+ * within the idempotency window and {@code message} is the earlier result.
+ * {@code buffered} is true when the reminder was only queued for a later digest
+ * and has not been sent yet.
+ */
+public record SendOutcome(
+        String message,
+        boolean replayed,
+        boolean buffered
+) {
+    public static SendOutcome sent(String message) {
+        return new SendOutcome(message, false, false);
+    }
+
+    public static SendOutcome replayed(String message) {
+        return new SendOutcome(message, true, false);
+    }
+
+    public static SendOutcome buffered(String message) {
+        return new SendOutcome(message, false, true);
+    }
+}
@@ -0,0 +1,13 @@
+package com.net.sphuta_tms.enums;
+
+/**
+ * Delivery outcome of a single message.
+ *
+ * <p>{@code SKIPPED} is used when a message was never handed to
+ * the mail server, e.g. because the payload has no recipient.</p>
+ */
+public enum DeliveryStatus {
+    SENT,
+    FAILED,
+    SKIPPED
+}
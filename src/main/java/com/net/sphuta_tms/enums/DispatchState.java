@@ -0,0 +1,15 @@
+package com.net.sphuta_tms.enums;
+
+/**
+ * Lifecycle of an asynchronous send job.
+ */
+public enum DispatchState {
+    QUEUED,
+    RUNNING,
+    SENT,
+    FAILED;
+
+    public boolean isFinished() {
+        return this == SENT || this == FAILED;
+    }
+}
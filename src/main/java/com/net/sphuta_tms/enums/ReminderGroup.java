@@ -0,0 +1,12 @@
+package com.net.sphuta_tms.enums;
+
+/**
+ * Audience a {@link ReminderType} belongs to. Reminders of one group share a DTO
+ * type, so they can be combined into a single digest for the same recipient.
+ */
+public enum ReminderGroup {
+    EMPLOYEE,
+    MANAGER,
+    ADMIN,
+    HR
+}
@@ -16,31 +16,37 @@ import java.util.stream.Stream;
  */
 public enum ReminderType {
     // Employee-level
-    EMPLOYEE_REMINDER(1),
-    EMPLOYEE_FINAL_REMINDER(2),
-    EMPLOYEE_MISSED_DEADLINE(3),
+    EMPLOYEE_REMINDER(1, ReminderGroup.EMPLOYEE),
+    EMPLOYEE_FINAL_REMINDER(2, ReminderGroup.EMPLOYEE),
+    EMPLOYEE_MISSED_DEADLINE(3, ReminderGroup.EMPLOYEE),
 
     // Manager-level
-    MANAGER_READY_FOR_APPROVAL(4),
-    MANAGER_APPROVAL_OVERDUE(5),
-    MANAGER_ESCALATION(6),
+    MANAGER_READY_FOR_APPROVAL(4, ReminderGroup.MANAGER),
+    MANAGER_APPROVAL_OVERDUE(5, ReminderGroup.MANAGER),
+    MANAGER_ESCALATION(6, ReminderGroup.MANAGER),
 
     // Admin-level
-    ADMIN_ESCALATION(7),
+    ADMIN_ESCALATION(7, ReminderGroup.ADMIN),
 
     // HR-level
-    HR_ESCALATION(8);
+    HR_ESCALATION(8, ReminderGroup.HR);
 
     private final int code;
+    private final ReminderGroup group;
 
-    ReminderType(int code) {
+    ReminderType(int code, ReminderGroup group) {
         this.code = code;
+        this.group = group;
     }
 
     public int getCode() {
         return code;
     }
 
+    public ReminderGroup getGroup() {
+        return group;
+    }
+
     // fast reverse lookup map
     private static final Map<Integer, ReminderType> BY_CODE =
             Stream.of(values()).collect(Collectors.toMap(ReminderType::getCode, r -> r));
@@ -0,0 +1,12 @@
+package com.net.sphuta_tms.exceptions;
+
+/**
+ * Thrown when an asynchronous send cannot be accepted because
+ * the dispatch queue is at capacity. Mapped to 429 Too Many Requests.
+ */
+public class DispatchQueueFullException extends RuntimeException {
+
+    public DispatchQueueFullException(String message) {
+        super(message);
+    }
+}
@@ -2,6 +2,7 @@ package com.net.sphuta_tms.exceptions;
 
 import jakarta.mail.MessagingException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -17,6 +18,8 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
  * Features:
  * - Handles IllegalArgumentException for bad requests (400).
  * - Handles MessagingException for email-related errors (500).
+ * - Handles DispatchQueueFullException when the async queue is full (429).
+ * - Handles SendInProgressException for a duplicate of a running send (409).
  * - Catches all other exceptions as internal server errors (500).
  *
  * Logging:
@@ -38,6 +41,24 @@ public class GlobalExceptionHandler {
                 .body("Invalid request: " + ex.getMessage());
     }
 
+    @ExceptionHandler(DispatchQueueFullException.class)
+    public ResponseEntity<String> handleQueueFull(DispatchQueueFullException ex) {
+        log.warn("Rejected async send: {}", ex.getMessage());
+        return ResponseEntity
+                .status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body("Too many requests: " + ex.getMessage());
+    }
+
+    @ExceptionHandler(SendInProgressException.class)
+    public ResponseEntity<String> handleSendInProgress(SendInProgressException ex) {
+        log.info("Rejected duplicate send: {}", ex.getMessage());
+        return ResponseEntity
+                .status(HttpStatus.CONFLICT)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body("Conflict: " + ex.getMessage());
+    }
+
     @ExceptionHandler(MessagingException.class)
     public ResponseEntity<String> handleMessagingError(MessagingException ex) {
         log.error("Email sending error: {}", ex.getMessage(), ex);
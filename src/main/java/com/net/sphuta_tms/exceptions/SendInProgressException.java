@@ -0,0 +1,12 @@
+package com.net.sphuta_tms.exceptions;
+
+/**
+ * Thrown when a send arrives with the idempotency key of a send that is
+ * still running. Mapped to 409 Conflict; a later retry gets the result.
+ */
+public class SendInProgressException extends RuntimeException {
+
+    public SendInProgressException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,335 @@
+package com.net.sphuta_tms.mail;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import jakarta.mail.internet.MimeUtility;
+import jakarta.mail.util.SharedByteArrayInputStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.lang.Nullable;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.stereotype.Component;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ==========================================================
+ * {@code LeanMimeBuilder}
+ * ==========================================================
+ *
+ * <p>Builds the single-part HTML messages every template sends by writing the
+ * RFC 5322 header block and the encoded body straight into a byte buffer, instead
+ * of nesting the body in {@code MimeMessageHelper}'s mixed/related multiparts.
+ * The bytes are then handed to {@link JavaMailSender#createMimeMessage(java.io.InputStream)},
+ * which keeps them as the message content, so the transport writes them out as they are.</p>
+ *
+ * <p>Rules:
+ * <ul>
+ *   <li>Bodies that are 7-bit ASCII with lines of at most 998 characters go out as
+ *       {@code 7bit}; anything else is UTF-8 encoded and quoted-printable encoded
+ *       in one pass over the {@code String}.</li>
+ *   <li>The fixed headers and the encoded {@code Subject} line are kept per template
+ *       and reused while the template renders the same subject.</li>
+ *   <li>Buffers come from a pool of {@code pool-size}; buffers that grew beyond
+ *       {@code max-retained-bytes} are dropped instead of returned.</li>
+ *   <li>Bodies referencing inline parts ({@code cid:}) need a multipart/related
+ *       container: {@link #build} returns null and the caller uses the full helper.</li>
+ * </ul>
+ *
+ * <p>Enabled with {@code sphuta.mail.mime.lean.enabled=true}.</p>
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "sphuta.mail.mime.lean", name = "enabled", havingValue = "true")
+public class LeanMimeBuilder implements MeterBinder {
+
+    // RFC 5321 line limit, without the CRLF
+    private static final int MAX_LINE = 998;
+    // quoted-printable output lines, not counting the soft break '='
+    private static final int QP_LINE = 75;
+    private static final int INITIAL_BUFFER_BYTES = 16 * 1024;
+
+    private static final byte[] FIXED_HEADERS =
+            "MIME-Version: 1.0\r\nContent-Type: text/html; charset=UTF-8\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] SEVEN_BIT =
+            "Content-Transfer-Encoding: 7bit\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] QUOTED_PRINTABLE =
+            "Content-Transfer-Encoding: quoted-printable\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] HEX = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+
+    // last subject seen for a template and the header block it encodes to
+    private record TemplateHeaders(@Nullable String subject, byte[] block) { }
+
+    private final Map<String, TemplateHeaders> headers = new ConcurrentHashMap<>();
+    private final ArrayBlockingQueue<Buffer> pool;
+    private final int maxRetainedBytes;
+
+    private final LongAdder built = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+    private final LongAdder allocatedBuffers = new LongAdder();
+
+    @Autowired
+    public LeanMimeBuilder(@Value("${sphuta.mail.mime.lean.pool-size:16}") int poolSize,
+                           @Value("${sphuta.mail.mime.lean.max-retained-bytes:262144}") int maxRetainedBytes) {
+        if (poolSize <= 0) throw new IllegalArgumentException("mime.lean.pool-size must be positive");
+        this.pool = new ArrayBlockingQueue<>(poolSize);
+        this.maxRetainedBytes = maxRetainedBytes;
+        log.info("LeanMimeBuilder: pool={} buffers, retained up to {} KiB each", poolSize, maxRetainedBytes / 1024);
+    }
+
+    /**
+     * Message for {@code to} with {@code subject} (none when null or blank) and the HTML body,
+     * created by {@code sender} so it uses the sender's session. Returns null when the body
+     * needs a multipart message.
+     *
+     * Throws AddressException (a MessagingException) for an unparseable recipient
+     */
+    @Nullable
+    public MimeMessage build(JavaMailSender sender, String templatePath, String to, @Nullable String subject, String html)
+            throws MessagingException {
+        if (referencesInlineParts(html)) {
+            fallbacks.increment();
+            return null;
+        }
+        InternetAddress[] recipients = InternetAddress.parse(to);
+
+        byte[] mime;
+        Buffer buf = acquire();
+        try {
+            buf.write(headerBlock(templatePath, subject));
+            buf.writeUtf8("To: " + InternetAddress.toString(recipients, 4));
+            buf.writeCrlf();
+            if (isSevenBit(html)) {
+                buf.write(SEVEN_BIT);
+                writeSevenBit(html, buf);
+            } else {
+                buf.write(QUOTED_PRINTABLE);
+                writeQuotedPrintable(html, buf);
+            }
+            mime = buf.toByteArray();
+        } finally {
+            release(buf);
+        }
+        built.increment();
+        // a SharedInputStream lets the parsed message reference the bytes instead of copying them
+        return sender.createMimeMessage(new SharedByteArrayInputStream(mime));
+    }
+
+    public long builtMessages() {
+        return built.sum();
+    }
+
+    public long fallbacks() {
+        return fallbacks.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("sphuta.mime.lean.built", this, LeanMimeBuilder::builtMessages)
+                .description("Messages written directly as single-part MIME")
+                .register(registry);
+        FunctionCounter.builder("sphuta.mime.lean.fallbacks", this, LeanMimeBuilder::fallbacks)
+                .description("Messages left to MimeMessageHelper because they reference inline parts")
+                .register(registry);
+        FunctionCounter.builder("sphuta.mime.lean.buffers.allocated", allocatedBuffers, LongAdder::sum)
+                .description("Build buffers allocated because the pool was empty")
+                .register(registry);
+    }
+
+    private byte[] headerBlock(String templatePath, @Nullable String subject) {
+        String effective = subject == null || subject.isBlank() ? null : subject;
+        TemplateHeaders cached = headers.get(templatePath);
+        if (cached != null && Objects.equals(cached.subject(), effective)) return cached.block();
+
+        byte[] block = FIXED_HEADERS;
+        if (effective != null) {
+            byte[] line = ("Subject: " + MimeUtility.fold(9, encodeText(effective)) + "\r\n")
+                    .getBytes(StandardCharsets.US_ASCII);
+            block = Arrays.copyOf(FIXED_HEADERS, FIXED_HEADERS.length + line.length);
+            System.arraycopy(line, 0, block, FIXED_HEADERS.length, line.length);
+        }
+        headers.put(templatePath, new TemplateHeaders(effective, block));
+        return block;
+    }
+
+    private static String encodeText(String text) {
+        try {
+            return MimeUtility.encodeText(text, StandardCharsets.UTF_8.name(), null);
+        } catch (UnsupportedEncodingException ex) {
+            throw new IllegalStateException("UTF-8 not supported", ex);
+        }
+    }
+
+    static boolean referencesInlineParts(String html) {
+        for (int i = html.indexOf(':'); i >= 0; i = html.indexOf(':', i + 1)) {
+            if (i >= 3 && html.regionMatches(true, i - 3, "cid", 0, 3)) return true;
+        }
+        return false;
+    }
+
+    // ASCII only, no NUL or bare CR, no line longer than SMTP allows
+    static boolean isSevenBit(String html) {
+        int lineLength = 0;
+        for (int i = 0; i < html.length(); i++) {
+            char c = html.charAt(i);
+            if (c == '\n') {
+                lineLength = 0;
+            } else if (c == '\r') {
+                if (i + 1 >= html.length() || html.charAt(i + 1) != '\n') return false;
+            } else if (c == 0 || c >= 0x80 || ++lineLength > MAX_LINE) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeSevenBit(String html, Buffer buf) {
+        for (int i = 0; i < html.length(); i++) {
+            char c = html.charAt(i);
+            if (c == '\r') continue; // always followed by '\n' here
+            if (c == '\n') buf.writeCrlf();
+            else buf.write(c);
+        }
+    }
+
+    // UTF-8 and quoted-printable (RFC 2045 6.7) in a single pass; line breaks become CRLF
+    static void writeQuotedPrintable(String html, Buffer buf) {
+        int column = 0;
+        byte[] utf8 = new byte[4];
+        int length = html.length();
+        for (int i = 0; i < length; i++) {
+            char c = html.charAt(i);
+            if (c == '\r' && i + 1 < length && html.charAt(i + 1) == '\n') continue;
+            if (c == '\n') {
+                buf.writeCrlf();
+                column = 0;
+                continue;
+            }
+
+            int n;
+            if (c < 0x80) {
+                utf8[0] = (byte) c;
+                n = 1;
+            } else if (c < 0x800) {
+                utf8[0] = (byte) (0xC0 | (c >> 6));
+                utf8[1] = (byte) (0x80 | (c & 0x3F));
+                n = 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(html.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, html.charAt(++i));
+                utf8[0] = (byte) (0xF0 | (cp >> 18));
+                utf8[1] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                utf8[2] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                utf8[3] = (byte) (0x80 | (cp & 0x3F));
+                n = 4;
+            } else if (Character.isSurrogate(c)) {
+                utf8[0] = '?'; // unpaired surrogate, as String.getBytes does
+                n = 1;
+            } else {
+                utf8[0] = (byte) (0xE0 | (c >> 12));
+                utf8[1] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                utf8[2] = (byte) (0x80 | (c & 0x3F));
+                n = 3;
+            }
+
+            // whitespace right before a line break would be stripped in transit
+            boolean lineEnds = i + 1 >= length || html.charAt(i + 1) == '\n' || html.charAt(i + 1) == '\r';
+            for (int k = 0; k < n; k++) {
+                int b = utf8[k] & 0xFF;
+                boolean literal = (b >= 33 && b <= 126 && b != '=') || ((b == ' ' || b == '\t') && !lineEnds);
+                int width = literal ? 1 : 3;
+                if (column + width > QP_LINE) {
+                    buf.write('=');
+                    buf.writeCrlf();
+                    column = 0;
+                }
+                if (literal) {
+                    buf.write(b);
+                } else {
+                    buf.write('=');
+                    buf.write(HEX[b >> 4]);
+                    buf.write(HEX[b & 0x0F]);
+                }
+                column += width;
+            }
+        }
+    }
+
+    private Buffer acquire() {
+        Buffer buf = pool.poll();
+        if (buf == null) {
+            allocatedBuffers.increment();
+            return new Buffer(INITIAL_BUFFER_BYTES);
+        }
+        return buf;
+    }
+
+    private void release(Buffer buf) {
+        if (buf.capacity() > maxRetainedBytes) return;
+        buf.reset();
+        pool.offer(buf);
+    }
+
+    /**
+     * Growable byte buffer without the synchronisation of {@code ByteArrayOutputStream}.
+     */
+    static final class Buffer {
+        private byte[] bytes;
+        private int size;
+
+        Buffer(int capacity) {
+            this.bytes = new byte[capacity];
+        }
+
+        void write(int b) {
+            ensure(1);
+            bytes[size++] = (byte) b;
+        }
+
+        void write(byte[] b) {
+            ensure(b.length);
+            System.arraycopy(b, 0, bytes, size, b.length);
+            size += b.length;
+        }
+
+        void writeUtf8(String s) {
+            write(s.getBytes(StandardCharsets.UTF_8));
+        }
+
+        void writeCrlf() {
+            ensure(2);
+            bytes[size++] = '\r';
+            bytes[size++] = '\n';
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, size);
+        }
+
+        int capacity() {
+            return bytes.length;
+        }
+
+        void reset() {
+            size = 0;
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+            }
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package com.net.sphuta_tms.mail;
+
+import jakarta.mail.SendFailedException;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.lang.Nullable;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * ==========================================================
+ * {@code RoutingMailSender}
+ * ==========================================================
+ *
+ * <p>{@link JavaMailSenderImpl} that spreads sends over several SMTP relays. Each
+ * relay is a full {@link SmtpMailSender} with its own host, credentials, session
+ * cap, connection pool and rate limit; this class only creates messages and picks
+ * the relay for each {@code send(...)} call (one SMTP session).</p>
+ *
+ * <p>Rules:
+ * <ul>
+ *   <li>A relay is chosen at random with probability proportional to
+ *       {@code weight * (1 - errorRate) / latency}, both smoothed over recent sends;
+ *       relays with no free session slot count for a tenth.</li>
+ *   <li>After {@code failureThreshold} consecutive failed sessions a relay is
+ *       unhealthy for {@code cooldownMs}; it then gets traffic again and one more
+ *       failure trips it straight back. When every relay is unhealthy the one that
+ *       recovers first is still used, so sends never stop entirely.</li>
+ *   <li>Messages a relay could not take (connection or authentication failure, 4xx)
+ *       are retried on another relay, up to {@code maxAttempts} relays per message.
+ *       Permanent rejections (5xx for the recipient) would fail everywhere and are
+ *       reported as they are.</li>
+ * </ul>
+ */
+@Slf4j
+public class RoutingMailSender extends JavaMailSenderImpl implements DisposableBean {
+
+    public record Settings(
+            int failureThreshold,
+            long cooldownMs,
+            int maxAttempts,
+            double smoothing
+    ) { }
+
+    // latency assumed for a relay before it has sent anything
+    private static final double INITIAL_LATENCY_MS = 200;
+    private static final double MIN_SUCCESS_SHARE = 0.05;
+    private static final double SATURATED_SHARE = 0.1;
+
+    /**
+     * One relay and its observed health.
+     */
+    public static final class Relay {
+        private final String name;
+        private final double weight;
+        private final SmtpMailSender sender;
+
+        private double latencyMs = INITIAL_LATENCY_MS;
+        private double errorRate;
+        private int consecutiveFailures;
+        private long unhealthyUntil;
+
+        private long sent;
+        private long failedSessions;
+        private long failovers;
+
+        public Relay(String name, double weight, SmtpMailSender sender) {
+            if (weight <= 0) throw new IllegalArgumentException("Relay weight must be positive: " + name);
+            this.name = name;
+            this.weight = weight;
+            this.sender = sender;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public SmtpMailSender sender() {
+            return sender;
+        }
+    }
+
+    private final List<Relay> relays;
+    private final Settings settings;
+    private final LongSupplier clock;
+    private final DoubleSupplier random;
+
+    public RoutingMailSender(List<Relay> relays, Settings settings) {
+        this(relays, settings, System::currentTimeMillis, () -> ThreadLocalRandom.current().nextDouble());
+    }
+
+    RoutingMailSender(List<Relay> relays, Settings settings, LongSupplier clock, DoubleSupplier random) {
+        if (relays.isEmpty()) throw new IllegalArgumentException("At least one SMTP relay is required");
+        this.relays = List.copyOf(relays);
+        this.settings = settings;
+        this.clock = clock;
+        this.random = random;
+    }
+
+    @Override
+    protected void doSend(MimeMessage[] mimeMessages, @Nullable Object[] originalMessages) throws MailException {
+        Map<Object, Exception> failedMessages = new LinkedHashMap<>();
+        MimeMessage[] pending = mimeMessages;
+        Object[] pendingOriginals = originalMessages != null ? originalMessages : mimeMessages;
+        Set<Relay> tried = new HashSet<>();
+
+        for (int attempt = 1; pending.length > 0; attempt++) {
+            Relay relay = choose(tried);
+            if (relay == null) break;
+            tried.add(relay);
+            boolean lastAttempt = attempt >= settings.maxAttempts() || tried.size() == relays.size();
+
+            List<MimeMessage> retry = new ArrayList<>();
+            List<Object> retryOriginals = new ArrayList<>();
+            Exception lastError = null;
+            long start = System.nanoTime();
+            try {
+                relay.sender.send(pending);
+                onSuccess(relay, pending.length, System.nanoTime() - start);
+                pending = new MimeMessage[0];
+                break;
+            } catch (MailSendException ex) {
+                Map<Object, Exception> failed = ex.getFailedMessages();
+                boolean relayFault = failed.isEmpty();
+                for (int i = 0; i < pending.length; i++) {
+                    Exception cause = failed.isEmpty() ? ex : failed.get(pending[i]);
+                    if (cause == null) continue;
+                    if (isRelayFault(cause)) {
+                        relayFault = true;
+                        retry.add(pending[i]);
+                        retryOriginals.add(pendingOriginals[i]);
+                    } else {
+                        failedMessages.put(pendingOriginals[i], cause);
+                    }
+                }
+                lastError = ex;
+                if (relayFault) onFailure(relay, ex);
+                else onSuccess(relay, pending.length, System.nanoTime() - start);
+            } catch (MailException ex) {
+                // authentication or connection trouble: nothing went out through this relay
+                onFailure(relay, ex);
+                for (int i = 0; i < pending.length; i++) {
+                    retry.add(pending[i]);
+                    retryOriginals.add(pendingOriginals[i]);
+                }
+                lastError = ex;
+            }
+
+            if (retry.isEmpty()) {
+                pending = new MimeMessage[0];
+            } else if (lastAttempt) {
+                for (Object original : retryOriginals) failedMessages.put(original, lastError);
+                pending = new MimeMessage[0];
+            } else {
+                synchronized (this) {
+                    relay.failovers += retry.size();
+                }
+                log.warn("Relay {} could not take {} messages ({}); retrying on another relay",
+                        relay.name, retry.size(), lastError.getMessage());
+                pending = retry.toArray(new MimeMessage[0]);
+                pendingOriginals = retryOriginals.toArray();
+            }
+        }
+
+        if (!failedMessages.isEmpty()) {
+            throw new MailSendException(failedMessages);
+        }
+    }
+
+    // a 5xx rejection of the recipient is the message's fault and would fail on every relay
+    static boolean isRelayFault(Exception cause) {
+        return !(cause instanceof SendFailedException) || SmtpRateLimiter.isTemporaryFailure(cause);
+    }
+
+    @Nullable
+    synchronized Relay choose(Set<Relay> exclude) {
+        long now = clock.getAsLong();
+        List<Relay> healthy = new ArrayList<>(relays.size());
+        Relay soonest = null;
+        for (Relay relay : relays) {
+            if (exclude.contains(relay)) continue;
+            if (now >= relay.unhealthyUntil) healthy.add(relay);
+            else if (soonest == null || relay.unhealthyUntil < soonest.unhealthyUntil) soonest = relay;
+        }
+        if (healthy.isEmpty()) return soonest;
+        if (healthy.size() == 1) return healthy.get(0);
+
+        double[] scores = new double[healthy.size()];
+        double total = 0;
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = score(healthy.get(i));
+            total += scores[i];
+        }
+        double pick = random.getAsDouble() * total;
+        for (int i = 0; i < scores.length; i++) {
+            pick -= scores[i];
+            if (pick < 0) return healthy.get(i);
+        }
+        return healthy.get(healthy.size() - 1);
+    }
+
+    private static double score(Relay relay) {
+        double score = relay.weight * Math.max(MIN_SUCCESS_SHARE, 1 - relay.errorRate) / Math.max(1, relay.latencyMs);
+        SmtpMailSender sender = relay.sender;
+        if (sender.getActiveSessions() >= sender.getMaxConcurrentSessions()) score *= SATURATED_SHARE;
+        return score;
+    }
+
+    private synchronized void onSuccess(Relay relay, int messages, long elapsedNanos) {
+        double alpha = settings.smoothing();
+        double perMessageMs = elapsedNanos / 1e6 / Math.max(1, messages);
+        relay.latencyMs += alpha * (perMessageMs - relay.latencyMs);
+        relay.errorRate += alpha * (0 - relay.errorRate);
+        relay.consecutiveFailures = 0;
+        relay.sent += messages;
+    }
+
+    private synchronized void onFailure(Relay relay, Exception ex) {
+        relay.errorRate += settings.smoothing() * (1 - relay.errorRate);
+        relay.consecutiveFailures++;
+        relay.failedSessions++;
+        // a relay back from its cooldown has one failure left before it trips again
+        if (relay.consecutiveFailures >= settings.failureThreshold()) {
+            relay.unhealthyUntil = clock.getAsLong() + settings.cooldownMs();
+            relay.consecutiveFailures = settings.failureThreshold() - 1;
+            log.warn("Relay {} marked unhealthy for {} ms: {}", relay.name, settings.cooldownMs(), ex.getMessage());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        relays.forEach(relay -> relay.sender.destroy());
+    }
+
+    public List<Relay> getRelays() {
+        return relays;
+    }
+
+    public synchronized boolean isHealthy(Relay relay) {
+        return clock.getAsLong() >= relay.unhealthyUntil;
+    }
+
+    public synchronized double latencyMs(Relay relay) {
+        return relay.latencyMs;
+    }
+
+    public synchronized double errorRate(Relay relay) {
+        return relay.errorRate;
+    }
+
+    public synchronized long sent(Relay relay) {
+        return relay.sent;
+    }
+
+    public synchronized long failedSessions(Relay relay) {
+        return relay.failedSessions;
+    }
+
+    public synchronized long failovers(Relay relay) {
+        return relay.failovers;
+    }
+}
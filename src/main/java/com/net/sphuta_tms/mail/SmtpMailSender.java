@@ -0,0 +1,293 @@
+package com.net.sphuta_tms.mail;
+
+import jakarta.mail.Address;
+import jakarta.mail.AuthenticationFailedException;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.lang.Nullable;
+import org.springframework.mail.MailAuthenticationException;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+
+/**
+ * ==========================================================
+ * {@code SmtpMailSender}
+ * ==========================================================
+ *
+ * <p>{@link JavaMailSenderImpl} bound to a single SMTP host that caps the
+ * number of concurrent SMTP sessions opened against that host.</p>
+ *
+ * <p>Every {@code send(...)} variant ends up in {@link #doSend}, so the cap
+ * applies to the web request path, the scheduler, batch chunks and async
+ * workers alike. With virtual threads this is what bounds the load on the
+ * relay instead of a sized platform thread pool.</p>
+ *
+ * <p>When pooling is enabled ({@link #enablePooling}), sessions run on long-lived
+ * connections from a {@link SmtpTransportPool} instead of a connect/STARTTLS/AUTH
+ * per {@code send(...)}. A connection that drops mid-session is replaced and the
+ * message retried once on the new connection.</p>
+ *
+ * <p>With a {@link SmtpRateLimiter} ({@link #enableRateLimit}), every message
+ * takes a token right before it goes out in its session, so callers are slowed to
+ * the host's rate instead of being rejected, and a chunk is spread over time
+ * rather than sent as one burst. Messages the server answers with a 4xx (421/454 throttling) lower
+ * that rate and are retried up to {@code maxThrottleRetries} times before they
+ * are reported as failed.</p>
+ */
+@Slf4j
+public class SmtpMailSender extends JavaMailSenderImpl implements DisposableBean {
+
+    private final Semaphore sessionPermits;
+    private final int maxConcurrentSessions;
+
+    @Nullable
+    private SmtpTransportPool pool;
+
+    @Nullable
+    private SmtpRateLimiter rateLimiter;
+
+    public SmtpMailSender(int maxConcurrentSessions) {
+        this.maxConcurrentSessions = Math.max(1, maxConcurrentSessions);
+        this.sessionPermits = new Semaphore(this.maxConcurrentSessions, true);
+    }
+
+    /**
+     * Switch to pooled connections. Call after host and credentials are set.
+     */
+    public void enablePooling(SmtpTransportPool.Settings settings) {
+        if (settings.size() <= 0) return;
+        this.pool = new SmtpTransportPool(getHost(), this::connectTransport, settings);
+        log.info("SMTP connection pooling enabled for {} size={} maxMessages={} maxLifetimeMs={}",
+                getHost(), settings.size(), settings.maxMessagesPerConnection(), settings.maxLifetimeMs());
+    }
+
+    /**
+     * Pace sends with a token bucket that backs off when the server throttles.
+     */
+    public void enableRateLimit(SmtpRateLimiter.Settings settings) {
+        if (settings.ratePerSecond() <= 0) return;
+        this.rateLimiter = new SmtpRateLimiter(getHost(), settings);
+        log.info("SMTP rate limit enabled for {} rate={}/s burst={}", getHost(), settings.ratePerSecond(), settings.burst());
+    }
+
+    @Override
+    protected void doSend(MimeMessage[] mimeMessages, @Nullable Object[] originalMessages) throws MailException {
+        try {
+            sessionPermits.acquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new MailSendException("Interrupted while waiting for an SMTP session slot on " + getHost(), ex);
+        }
+        try {
+            if (rateLimiter != null) {
+                doSendRateLimited(mimeMessages, originalMessages != null ? originalMessages : mimeMessages);
+            } else if (pool != null) {
+                doSendPooled(mimeMessages, originalMessages);
+            } else {
+                super.doSend(mimeMessages, originalMessages);
+            }
+        } finally {
+            sessionPermits.release();
+        }
+    }
+
+    // send, and re-send whatever the server throttled once the (lowered) rate allows it
+    private void doSendRateLimited(MimeMessage[] mimeMessages, Object[] originalMessages) {
+        Map<Object, Exception> failedMessages = new LinkedHashMap<>();
+        MimeMessage[] pending = mimeMessages;
+        Object[] pendingOriginals = originalMessages;
+
+        for (int attempt = 0; pending.length > 0; attempt++) {
+            try {
+                // both take a token per message inside the session, so a chunk is paced, not burst
+                if (pool == null) doSendPaced(pending, pendingOriginals);
+                else doSendPooled(pending, pendingOriginals);
+                break;
+            } catch (MailSendException ex) {
+                List<MimeMessage> throttled = new ArrayList<>();
+                List<Object> throttledOriginals = new ArrayList<>();
+                Map<Object, Exception> failed = ex.getFailedMessages();
+                for (int i = 0; i < pending.length; i++) {
+                    Exception cause = failed.get(pendingOriginals[i]);
+                    if (cause == null) continue;
+                    if (SmtpRateLimiter.isTemporaryFailure(cause) && attempt < rateLimiter.maxThrottleRetries()) {
+                        throttled.add(pending[i]);
+                        throttledOriginals.add(pendingOriginals[i]);
+                    } else {
+                        failedMessages.put(pendingOriginals[i], cause);
+                    }
+                }
+                if (failed.isEmpty()) throw ex; // not a per-message failure; nothing to retry
+                if (!throttled.isEmpty()) {
+                    rateLimiter.onThrottle();
+                    log.info("Retrying {} throttled messages on {} (attempt {})", throttled.size(), getHost(), attempt + 1);
+                }
+                pending = throttled.toArray(new MimeMessage[0]);
+                pendingOriginals = throttledOriginals.toArray();
+            }
+        }
+
+        if (!failedMessages.isEmpty()) {
+            throw new MailSendException(failedMessages);
+        }
+    }
+
+    // mirrors JavaMailSenderImpl.doSend on one new connection, taking a token before each message
+    private void doSendPaced(MimeMessage[] mimeMessages, Object[] originalMessages) {
+        Map<Object, Exception> failedMessages = new LinkedHashMap<>();
+
+        Transport transport;
+        try {
+            transport = connectTransport();
+        } catch (AuthenticationFailedException ex) {
+            throw new MailAuthenticationException(ex);
+        } catch (Exception ex) {
+            for (Object original : originalMessages) failedMessages.put(original, ex);
+            throw new MailSendException("Mail server connection failed", ex, failedMessages);
+        }
+
+        try {
+            for (int i = 0; i < mimeMessages.length; i++) {
+                MimeMessage mimeMessage = mimeMessages[i];
+                try {
+                    rateLimiter.acquire(1);
+                    prepareForSend(mimeMessage);
+                    Address[] addresses = mimeMessage.getAllRecipients();
+                    transport.sendMessage(mimeMessage, addresses != null ? addresses : new Address[0]);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    for (int j = i; j < mimeMessages.length; j++) failedMessages.put(originalMessages[j], ex);
+                    break;
+                } catch (Exception ex) {
+                    failedMessages.put(originalMessages[i], ex);
+                }
+            }
+        } finally {
+            try {
+                transport.close();
+            } catch (MessagingException ex) {
+                log.debug("Ignoring error closing SMTP connection to {}: {}", getHost(), ex.getMessage());
+            }
+        }
+
+        if (!failedMessages.isEmpty()) {
+            throw new MailSendException(failedMessages);
+        }
+    }
+
+    // mirrors JavaMailSenderImpl.doSend, with the transport borrowed from the pool
+    private void doSendPooled(MimeMessage[] mimeMessages, @Nullable Object[] originalMessages) {
+        Map<Object, Exception> failedMessages = new LinkedHashMap<>();
+
+        SmtpTransportPool.PooledTransport pt;
+        try {
+            pt = pool.borrow();
+        } catch (MessagingException ex) {
+            for (int i = 0; i < mimeMessages.length; i++) {
+                failedMessages.put(originalMessages != null ? originalMessages[i] : mimeMessages[i], ex);
+            }
+            throw new MailSendException("Mail server connection failed", ex, failedMessages);
+        }
+
+        boolean broken = false;
+        try {
+            for (int i = 0; i < mimeMessages.length; i++) {
+                MimeMessage mimeMessage = mimeMessages[i];
+                Object original = originalMessages != null ? originalMessages[i] : mimeMessage;
+                try {
+                    if (rateLimiter != null) rateLimiter.acquire(1);
+                    Address[] addresses;
+                    try {
+                        prepareForSend(mimeMessage);
+                        addresses = mimeMessage.getAllRecipients();
+                    } catch (MessagingException ex) {
+                        // this message is malformed (e.g. a bad address); the connection was not touched
+                        failedMessages.put(original, ex);
+                        continue;
+                    }
+                    pt = pool.rotateIfExpired(pt);
+                    try {
+                        pt.transport().sendMessage(mimeMessage, addresses != null ? addresses : new Address[0]);
+                    } catch (SendFailedException ex) {
+                        throw ex; // rejected by the server; the connection itself is fine
+                    } catch (MessagingException | IllegalStateException ex) {
+                        // connection dropped mid-session: reconnect and retry this message once
+                        pt = pool.reconnect(pt);
+                        pt.transport().sendMessage(mimeMessage, addresses != null ? addresses : new Address[0]);
+                    }
+                    pt.markUsed();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    for (int j = i; j < mimeMessages.length; j++) {
+                        failedMessages.put(originalMessages != null ? originalMessages[j] : mimeMessages[j], ex);
+                    }
+                    break;
+                } catch (MessagingException ex) {
+                    failedMessages.put(original, ex);
+                    if (!(ex instanceof SendFailedException) || SmtpRateLimiter.isTemporaryFailure(ex)) {
+                        // no usable connection left, or the server is throttling us:
+                        // the rest of this session fails too (throttled ones are retried by the caller)
+                        broken = true;
+                        for (int j = i + 1; j < mimeMessages.length; j++) {
+                            failedMessages.put(originalMessages != null ? originalMessages[j] : mimeMessages[j], ex);
+                        }
+                        break;
+                    }
+                }
+            }
+        } finally {
+            pool.giveBack(pt, broken);
+        }
+
+        if (!failedMessages.isEmpty()) {
+            throw new MailSendException(failedMessages);
+        }
+    }
+
+    private static void prepareForSend(MimeMessage mimeMessage) throws MessagingException {
+        if (mimeMessage.getSentDate() == null) {
+            mimeMessage.setSentDate(new Date());
+        }
+        String messageId = mimeMessage.getMessageID();
+        mimeMessage.saveChanges();
+        if (messageId != null) {
+            // preserve explicitly specified message id
+            mimeMessage.setHeader("Message-ID", messageId);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (pool != null) pool.close();
+    }
+
+    @Nullable
+    public SmtpTransportPool getPool() {
+        return pool;
+    }
+
+    @Nullable
+    public SmtpRateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    public int getMaxConcurrentSessions() {
+        return maxConcurrentSessions;
+    }
+
+    public int getActiveSessions() {
+        return maxConcurrentSessions - sessionPermits.availablePermits();
+    }
+}
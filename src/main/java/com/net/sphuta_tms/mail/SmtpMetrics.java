@@ -0,0 +1,109 @@
+package com.net.sphuta_tms.mail;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Micrometer bindings for {@link SmtpMailSender}, its connection pool and rate limiter,
+ * and for the relays of a {@link RoutingMailSender}.
+ * All meters read existing counters lazily, so nothing is recorded on the send path.
+ */
+public final class SmtpMetrics {
+
+    private SmtpMetrics() {
+    }
+
+    public static void bind(RoutingMailSender router, MeterRegistry registry) {
+        for (RoutingMailSender.Relay relay : router.getRelays()) {
+            bind(relay.sender(), registry);
+            String name = relay.name();
+
+            Gauge.builder("sphuta.smtp.relay.healthy", relay, r -> router.isHealthy(r) ? 1 : 0)
+                    .description("1 while the relay takes traffic, 0 during its cooldown after repeated failures")
+                    .tag("relay", name)
+                    .register(registry);
+            Gauge.builder("sphuta.smtp.relay.latency.ms", relay, router::latencyMs)
+                    .description("Smoothed per-message send time through the relay")
+                    .tag("relay", name)
+                    .register(registry);
+            Gauge.builder("sphuta.smtp.relay.error.rate", relay, router::errorRate)
+                    .description("Smoothed share of sessions on the relay that failed")
+                    .tag("relay", name)
+                    .register(registry);
+            FunctionCounter.builder("sphuta.smtp.relay.sent", relay, router::sent)
+                    .description("Messages accepted by the relay")
+                    .tag("relay", name)
+                    .register(registry);
+            FunctionCounter.builder("sphuta.smtp.relay.failed.sessions", relay, router::failedSessions)
+                    .description("Sessions on the relay that failed with a relay-side error")
+                    .tag("relay", name)
+                    .register(registry);
+            FunctionCounter.builder("sphuta.smtp.relay.failovers", relay, router::failovers)
+                    .description("Messages moved from the relay to another one")
+                    .tag("relay", name)
+                    .register(registry);
+        }
+    }
+
+    public static void bind(SmtpMailSender sender, MeterRegistry registry) {
+        String host = String.valueOf(sender.getHost());
+
+        Gauge.builder("sphuta.smtp.sessions.active", sender, SmtpMailSender::getActiveSessions)
+                .description("SMTP sessions currently open against the host")
+                .tag("host", host)
+                .register(registry);
+        Gauge.builder("sphuta.smtp.sessions.max", sender, SmtpMailSender::getMaxConcurrentSessions)
+                .description("Cap on concurrent SMTP sessions per host")
+                .tag("host", host)
+                .register(registry);
+
+        SmtpRateLimiter limiter = sender.getRateLimiter();
+        if (limiter != null) {
+            Gauge.builder("sphuta.smtp.rate.current", limiter, SmtpRateLimiter::currentRate)
+                    .description("Messages per second currently allowed after throttling back-off")
+                    .tag("host", host)
+                    .register(registry);
+            FunctionCounter.builder("sphuta.smtp.rate.throttles", limiter, SmtpRateLimiter::throttles)
+                    .description("Temporary (4xx) replies that lowered the send rate")
+                    .tag("host", host)
+                    .register(registry);
+            FunctionCounter.builder("sphuta.smtp.rate.waits", limiter, SmtpRateLimiter::waits)
+                    .description("Sends that had to wait for a rate-limit token")
+                    .tag("host", host)
+                    .register(registry);
+            FunctionCounter.builder("sphuta.smtp.rate.wait.seconds", limiter, SmtpRateLimiter::waitedSeconds)
+                    .description("Total time senders spent waiting for rate-limit tokens")
+                    .tag("host", host)
+                    .register(registry);
+        }
+
+        SmtpTransportPool pool = sender.getPool();
+        if (pool == null) return;
+
+        Gauge.builder("sphuta.smtp.pool.size", pool, SmtpTransportPool::maxSize)
+                .description("Configured number of pooled SMTP connections")
+                .tag("host", host)
+                .register(registry);
+        Gauge.builder("sphuta.smtp.pool.idle", pool, SmtpTransportPool::idleCount)
+                .description("Idle pooled SMTP connections")
+                .tag("host", host)
+                .register(registry);
+        FunctionCounter.builder("sphuta.smtp.pool.hits", pool, SmtpTransportPool::hits)
+                .description("Sessions served by an already open connection")
+                .tag("host", host)
+                .register(registry);
+        FunctionCounter.builder("sphuta.smtp.pool.misses", pool, SmtpTransportPool::misses)
+                .description("Sessions that had to open a new connection")
+                .tag("host", host)
+                .register(registry);
+        FunctionCounter.builder("sphuta.smtp.pool.reconnects", pool, SmtpTransportPool::reconnects)
+                .description("Connections replaced after failing mid-session")
+                .tag("host", host)
+                .register(registry);
+        FunctionCounter.builder("sphuta.smtp.pool.retired", pool, SmtpTransportPool::retired)
+                .description("Connections closed because they expired, broke or were surplus")
+                .tag("host", host)
+                .register(registry);
+    }
+}
@@ -0,0 +1,189 @@
+package com.net.sphuta_tms.mail;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.AddressException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.Nullable;
+import org.springframework.mail.MailSendException;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+
+/**
+ * ==========================================================
+ * {@code SmtpRateLimiter}
+ * ==========================================================
+ *
+ * <p>Token bucket for one SMTP host with an AIMD-adjusted rate.</p>
+ *
+ * <p>Rules:
+ * <ul>
+ *   <li>Tokens refill at the current rate up to {@code burst}. A caller that finds
+ *       the bucket empty reserves its tokens anyway and sleeps until they would
+ *       have accrued, so concurrent senders queue up in order and callers are
+ *       slowed down instead of failed.</li>
+ *   <li>When the server answers with a temporary failure (4xx, typically 421 or
+ *       454), {@link #onThrottle()} multiplies the rate by {@code decreaseFactor}
+ *       (not below {@code minRatePerSecond}) and empties the bucket.</li>
+ *   <li>Otherwise the rate grows back by {@code increasePerSecond} for every second
+ *       that passes, up to the configured rate.</li>
+ * </ul>
+ */
+@Slf4j
+public class SmtpRateLimiter {
+
+    public record Settings(
+            double ratePerSecond,
+            int burst,
+            double minRatePerSecond,
+            double decreaseFactor,
+            double increasePerSecond,
+            int maxThrottleRetries
+    ) { }
+
+    // reply code at the start of the server response, e.g. "421 4.7.0 Try again later"
+    private static final Pattern TEMPORARY_REPLY = Pattern.compile("^\\s*4\\d\\d[\\s-].*", Pattern.DOTALL);
+    private static final Pattern PERMANENT_REPLY = Pattern.compile("^\\s*5\\d\\d[\\s-].*", Pattern.DOTALL);
+
+    private final String host;
+    private final Settings settings;
+    private final LongSupplier nanoClock;
+
+    private double rate;
+    private double tokens;
+    private long lastRefillNanos;
+
+    private long throttles;
+    private long waits;
+    private long waitedNanos;
+
+    public SmtpRateLimiter(String host, Settings settings) {
+        this(host, settings, System::nanoTime);
+    }
+
+    SmtpRateLimiter(String host, Settings settings, LongSupplier nanoClock) {
+        if (settings.ratePerSecond() <= 0 || settings.burst() <= 0) {
+            throw new IllegalArgumentException("SMTP rate and burst must be positive");
+        }
+        this.host = host;
+        this.settings = settings;
+        this.nanoClock = nanoClock;
+        this.rate = settings.ratePerSecond();
+        this.tokens = settings.burst();
+        this.lastRefillNanos = nanoClock.getAsLong();
+    }
+
+    /**
+     * Take {@code permits} tokens, sleeping as long as needed.
+     */
+    public void acquire(int permits) throws InterruptedException {
+        long waitNanos = reserve(permits);
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Take the tokens now and return how long the caller must wait before using them.
+     */
+    synchronized long reserve(int permits) {
+        refill();
+        tokens -= permits;
+        if (tokens >= 0) return 0;
+        long waitNanos = (long) (-tokens / rate * 1_000_000_000L);
+        waits++;
+        waitedNanos += waitNanos;
+        return waitNanos;
+    }
+
+    /**
+     * The server pushed back: cut the rate and drop any accumulated burst.
+     */
+    public synchronized void onThrottle() {
+        refill();
+        double previous = rate;
+        rate = Math.max(settings.minRatePerSecond(), rate * settings.decreaseFactor());
+        tokens = Math.min(tokens, 0);
+        throttles++;
+        log.warn("SMTP server {} is throttling; rate {} -> {} msg/s", host, round(previous), round(rate));
+    }
+
+    public int maxThrottleRetries() {
+        return settings.maxThrottleRetries();
+    }
+
+    public synchronized double currentRate() {
+        refill();
+        return rate;
+    }
+
+    public synchronized long throttles() {
+        return throttles;
+    }
+
+    public synchronized long waits() {
+        return waits;
+    }
+
+    public synchronized double waitedSeconds() {
+        return waitedNanos / 1e9;
+    }
+
+    /**
+     * True if the exception, or one it wraps, carries a 4xx SMTP reply: the server
+     * is asking us to slow down or retry later rather than rejecting the message.
+     */
+    public static boolean isTemporaryFailure(Throwable ex) {
+        Throwable t = ex;
+        for (int depth = 0; t != null && depth < 10; depth++, t = next(t)) {
+            String message = t.getMessage();
+            if (message != null && TEMPORARY_REPLY.matcher(message).matches()) return true;
+        }
+        return false;
+    }
+
+    /**
+     * True if the exception, or one it wraps, means the message can never be delivered
+     * as it is: a 5xx SMTP reply or an unparseable address. Failed messages reported
+     * by a {@link MailSendException} are checked as well.
+     */
+    public static boolean isPermanentFailure(Throwable ex) {
+        Throwable t = ex;
+        for (int depth = 0; t != null && depth < 10; depth++, t = next(t)) {
+            if (t instanceof AddressException) return true;
+            if (t instanceof MailSendException send && !send.getFailedMessages().isEmpty()) {
+                return send.getFailedMessages().values().stream().allMatch(SmtpRateLimiter::isPermanentFailure);
+            }
+            if (isPermanentReply(t.getMessage())) return true;
+        }
+        return false;
+    }
+
+    /**
+     * True if {@code reply}, e.g. the detail of a failed batch entry, starts with a 5xx SMTP reply code.
+     */
+    public static boolean isPermanentReply(@Nullable String reply) {
+        return reply != null && PERMANENT_REPLY.matcher(reply).matches();
+    }
+
+    private static Throwable next(Throwable t) {
+        if (t instanceof MessagingException mex && mex.getNextException() != null && mex.getNextException() != t) {
+            return mex.getNextException();
+        }
+        return t.getCause() == t ? null : t.getCause();
+    }
+
+    private void refill() {
+        long now = nanoClock.getAsLong();
+        double elapsedSeconds = (now - lastRefillNanos) / 1e9;
+        if (elapsedSeconds <= 0) return;
+        lastRefillNanos = now;
+        rate = Math.min(settings.ratePerSecond(), rate + settings.increasePerSecond() * elapsedSeconds);
+        tokens = Math.min(settings.burst(), tokens + elapsedSeconds * rate);
+    }
+
+    private static String round(double value) {
+        return String.format("%.2f", value);
+    }
+}
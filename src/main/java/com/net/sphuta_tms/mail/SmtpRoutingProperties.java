@@ -0,0 +1,45 @@
+package com.net.sphuta_tms.mail;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.List;
+
+/**
+ * SMTP relays for {@link RoutingMailSender}. Without relays the single
+ * {@code spring.mail.*} host is used, as before.
+ *
+ * <pre>
+ * sphuta.mail.routing.relays[0].name: primary
+ * sphuta.mail.routing.relays[0].host: smtp.example.com
+ * sphuta.mail.routing.relays[0].username: reminders
+ * sphuta.mail.routing.relays[0].rate-per-second: 20
+ * </pre>
+ *
+ * <p>Unset relay fields fall back to {@code spring.mail.*} (port, credentials,
+ * JavaMail properties) and {@code sphuta.mail.smtp.*} (session cap, rate).</p>
+ */
+@ConfigurationProperties(prefix = "sphuta.mail.routing")
+public record SmtpRoutingProperties(
+        List<Relay> relays,
+        @DefaultValue("3") int failureThreshold,
+        @DefaultValue("30000") long cooldownMs,
+        @DefaultValue("3") int maxAttempts,
+        @DefaultValue("0.2") double smoothing
+) {
+    public record Relay(
+            String name,
+            String host,
+            Integer port,
+            String username,
+            String password,
+            Integer maxConcurrent,
+            Double ratePerSecond,
+            Integer rateBurst,
+            @DefaultValue("1") double weight
+    ) { }
+
+    public boolean enabled() {
+        return relays != null && !relays.isEmpty();
+    }
+}
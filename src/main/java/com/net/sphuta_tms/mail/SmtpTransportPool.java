@@ -0,0 +1,215 @@
+package com.net.sphuta_tms.mail;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.Transport;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ==========================================================
+ * {@code SmtpTransportPool}
+ * ==========================================================
+ *
+ * <p>Keeps up to {@code size} authenticated SMTP {@link Transport}s open for one
+ * host so the steady-state send path skips connect, STARTTLS and AUTH.</p>
+ *
+ * <p>Rules:
+ * <ul>
+ *   <li>Idle connections are reused most-recently-used first.</li>
+ *   <li>A connection idle longer than {@code validateAfterIdleMs} is checked with
+ *       {@link Transport#isConnected()}, which issues an SMTP NOOP, before reuse;
+ *       a background task does the same for connections sitting in the pool.</li>
+ *   <li>A connection is retired after {@code maxMessagesPerConnection} messages or
+ *       {@code maxLifetimeMs}, whichever comes first.</li>
+ *   <li>Connections returned as broken, or beyond the pool size, are closed. The idle
+ *       deque is bounded to {@code size}, so concurrent returns cannot overfill it.</li>
+ * </ul>
+ *
+ * <p>Concurrency is not limited here; {@link SmtpMailSender} caps concurrent
+ * sessions per host before a transport is borrowed.</p>
+ */
+@Slf4j
+public class SmtpTransportPool implements AutoCloseable {
+
+    /**
+     * Opens a new, connected and authenticated transport.
+     */
+    @FunctionalInterface
+    public interface Connector {
+        Transport connect() throws MessagingException;
+    }
+
+    public record Settings(
+            int size,
+            int maxMessagesPerConnection,
+            long maxLifetimeMs,
+            long validateAfterIdleMs
+    ) { }
+
+    /**
+     * A pooled connection; {@link #markUsed()} is called once per message sent on it.
+     */
+    public static final class PooledTransport {
+        private final Transport transport;
+        private final long createdAt = System.currentTimeMillis();
+        private long lastUsedAt = createdAt;
+        private int messages;
+
+        private PooledTransport(Transport transport) {
+            this.transport = transport;
+        }
+
+        public Transport transport() {
+            return transport;
+        }
+
+        public void markUsed() {
+            messages++;
+            lastUsedAt = System.currentTimeMillis();
+        }
+    }
+
+    private final String host;
+    private final Connector connector;
+    private final Settings settings;
+    private final BlockingDeque<PooledTransport> idle;
+    private final ScheduledExecutorService validator;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong reconnects = new AtomicLong();
+    private final AtomicLong retired = new AtomicLong();
+
+    public SmtpTransportPool(String host, Connector connector, Settings settings) {
+        this.host = host;
+        this.connector = connector;
+        this.settings = settings;
+        this.idle = new LinkedBlockingDeque<>(Math.max(1, settings.size()));
+        this.validator = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "smtp-pool-validator-" + host);
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1_000, settings.validateAfterIdleMs());
+        validator.scheduleWithFixedDelay(this::validateIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrow a connected transport, reusing an idle one when possible.
+     */
+    public PooledTransport borrow() throws MessagingException {
+        PooledTransport pt;
+        while ((pt = idle.pollFirst()) != null) {
+            if (isExpired(pt)) {
+                close(pt);
+                continue;
+            }
+            if (System.currentTimeMillis() - pt.lastUsedAt > settings.validateAfterIdleMs() && !pt.transport.isConnected()) {
+                close(pt);
+                continue;
+            }
+            hits.incrementAndGet();
+            return pt;
+        }
+        misses.incrementAndGet();
+        return new PooledTransport(connector.connect());
+    }
+
+    /**
+     * Replace a transport that failed mid-session with a fresh connection.
+     */
+    public PooledTransport reconnect(PooledTransport broken) throws MessagingException {
+        close(broken);
+        reconnects.incrementAndGet();
+        log.info("SMTP connection to {} dropped; reconnecting", host);
+        return new PooledTransport(connector.connect());
+    }
+
+    /**
+     * Swap a connection that reached its message or lifetime cap in the middle of a session.
+     */
+    public PooledTransport rotateIfExpired(PooledTransport pt) throws MessagingException {
+        if (!isExpired(pt)) return pt;
+        close(pt);
+        return borrow();
+    }
+
+    /**
+     * Return a transport after use. Broken, expired or surplus transports are closed.
+     */
+    public void giveBack(PooledTransport pt, boolean broken) {
+        if (pt == null) return;
+        // no NOOP here: the caller reports breakage, and idle connections are validated lazily
+        if (broken || isExpired(pt) || !idle.offerFirst(pt)) {
+            close(pt);
+        }
+    }
+
+    @Override
+    public void close() {
+        validator.shutdownNow();
+        PooledTransport pt;
+        while ((pt = idle.pollFirst()) != null) close(pt);
+    }
+
+    public int idleCount() {
+        return idle.size();
+    }
+
+    public int maxSize() {
+        return settings.size();
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+    public long reconnects() {
+        return reconnects.get();
+    }
+
+    public long retired() {
+        return retired.get();
+    }
+
+    private boolean isExpired(PooledTransport pt) {
+        return pt.messages >= settings.maxMessagesPerConnection()
+                || System.currentTimeMillis() - pt.createdAt >= settings.maxLifetimeMs();
+    }
+
+    // NOOP-check connections that sit idle so dead ones are dropped before a send needs them;
+    // only the connection being checked leaves the pool, the others stay available to borrow()
+    private void validateIdle() {
+        long now = System.currentTimeMillis();
+        for (PooledTransport pt : idle) {
+            boolean stale = now - pt.lastUsedAt > settings.validateAfterIdleMs();
+            if (!stale && !isExpired(pt)) continue;
+            if (!idle.removeFirstOccurrence(pt)) continue; // borrowed meanwhile
+            if (isExpired(pt) || !pt.transport.isConnected()) {
+                close(pt);
+            } else {
+                pt.lastUsedAt = now;
+                if (!idle.offerLast(pt)) close(pt);
+            }
+        }
+    }
+
+    private void close(PooledTransport pt) {
+        retired.incrementAndGet();
+        try {
+            pt.transport.close();
+        } catch (MessagingException ex) {
+            log.debug("Ignoring error closing SMTP connection to {}: {}", host, ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,628 @@
+package com.net.sphuta_tms.outbox;
+
+import com.net.sphuta_tms.dto.RenderedEmail;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * ==========================================================
+ * {@code MailOutbox}
+ * ==========================================================
+ *
+ * <p>Crash-safe outbox for rendered emails, backed by an append-only
+ * write-ahead log of segment files under {@code sphuta.mail.outbox.dir}.</p>
+ *
+ * <p>Lifecycle of an entry:
+ * <ul>
+ *   <li>{@link #append} writes an ENQUEUED record and returns once it is on disk.</li>
+ *   <li>The caller sends the message and calls {@link #markDelivered}, which writes a
+ *       DELIVERED record, or {@link #recordFailure} when the send failed.</li>
+ *   <li>A failure writes a FAILED record with the attempt count and holds the entry back
+ *       for an exponentially growing delay ({@code backoff-initial-ms} up to
+ *       {@code backoff-max-ms}) before it is retried.</li>
+ *   <li>A permanent failure, or the {@code max-attempts}-th one, dead-letters the entry:
+ *       the email and the reason are appended to {@code dead-letters.log} in the same
+ *       directory, and a DEAD_LETTERED record ends it like a DELIVERED one.</li>
+ *   <li>A caller that reports the failure itself and leaves the retry to its own client
+ *       calls {@link #abandon} instead; an ABANDONED record ends the entry without a re-send.</li>
+ *   <li>On startup all segments are replayed; entries without a DELIVERED, DEAD_LETTERED or
+ *       ABANDONED record are pending again, with their attempt count, and picked up by {@link OutboxReplayer}.</li>
+ * </ul>
+ *
+ * <p>Throughput: a single writer thread drains all queued records, writes them and
+ * calls {@code fsync} once per group (group commit), so many concurrent appends share
+ * one disk flush. DELIVERED records are not waited for; losing one in a crash means
+ * the message is sent again (at-least-once).</p>
+ *
+ * <p>Compaction: segments are removed oldest-first once none of their entries is
+ * pending. Dead-lettered entries do not count as pending. An oldest segment that is mostly delivered has its few pending entries
+ * re-appended to the active segment and is then removed. Removing strictly in order
+ * guarantees a DELIVERED record is never dropped while its ENQUEUED record survives.</p>
+ *
+ * <p>Record layout: {@code [int length][int crc32][body]}, body = {@code [byte type][long id]...}.
+ * A torn or corrupt tail (crash during write) is truncated on recovery. Recovery stops at
+ * the first bad record, so a group whose write or fsync fails is cut off the segment
+ * again (or, if that fails too, the writer moves on to a new segment) before anything else
+ * is appended behind it.</p>
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "sphuta.mail.outbox", name = "enabled", havingValue = "true")
+public class MailOutbox {
+
+    private static final byte ENQUEUED = 1;
+    private static final byte DELIVERED = 2;
+    private static final byte FAILED = 3;
+    private static final byte DEAD_LETTERED = 4;
+    private static final byte ABANDONED = 5;
+    private static final int MAX_RECORD_BYTES = 16 * 1024 * 1024;
+    private static final String SEGMENT_PREFIX = "outbox-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String DEAD_LETTER_FILE = "dead-letters.log";
+
+    interface SegmentChannels {
+        FileChannel open(Path file) throws IOException;
+    }
+
+    @Value("${sphuta.mail.outbox.dir:./data/outbox}")
+    private String dir;
+
+    @Value("${sphuta.mail.outbox.segment-max-bytes:67108864}")
+    private long segmentMaxBytes;
+
+    @Value("${sphuta.mail.outbox.group-commit-max-records:512}")
+    private int groupCommitMaxRecords;
+
+    // rewrite the oldest segment when fewer than this share of its entries is still pending
+    @Value("${sphuta.mail.outbox.compaction-live-ratio:0.1}")
+    private double compactionLiveRatio;
+
+    @Value("${sphuta.mail.outbox.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${sphuta.mail.outbox.backoff-initial-ms:60000}")
+    private long backoffInitialMs;
+
+    @Value("${sphuta.mail.outbox.backoff-max-ms:3600000}")
+    private long backoffMaxMs;
+
+    private final Map<Long, OutboxEntry> pending = new ConcurrentHashMap<>();
+    private final Set<Long> claimed = ConcurrentHashMap.newKeySet();
+    private final BlockingQueue<WriteRequest> writes = new LinkedBlockingQueue<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final AtomicLong deadLettered = new AtomicLong();
+    private final Object deadLetterLock = new Object();
+
+    // owned by the writer thread after init()
+    private final List<Segment> segments = new ArrayList<>();
+    private final Map<Long, Segment> segmentOf = new ConcurrentHashMap<>();
+    private Segment active;
+    private long nextSegmentNo = 1;
+    // set when a failed group could not be cut off the active segment; the next group starts a new one
+    private boolean activeTorn;
+
+    private SegmentChannels segmentChannels =
+            file -> FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+
+    private volatile boolean running;
+    private Thread writer;
+
+    @PostConstruct
+    public void init() throws IOException {
+        Path root = Paths.get(dir);
+        Files.createDirectories(root);
+
+        List<Path> files;
+        try (Stream<Path> list = Files.list(root)) {
+            files = list.filter(p -> p.getFileName().toString().startsWith(SEGMENT_PREFIX)
+                            && p.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+        for (Path file : files) {
+            Segment seg = new Segment(file, segmentNo(file));
+            recover(seg);
+            segments.add(seg);
+            nextSegmentNo = Math.max(nextSegmentNo, seg.no + 1);
+        }
+
+        openNewSegment();
+        compact();
+
+        running = true;
+        writer = new Thread(this::writerLoop, "mail-outbox-writer");
+        writer.setDaemon(true);
+        writer.start();
+        log.info("MailOutbox opened dir={} segments={} pending={}", root.toAbsolutePath(), segments.size(), pending.size());
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        running = false;
+        if (writer != null) writer.join(TimeUnit.SECONDS.toMillis(10));
+        closeQuietly(active);
+    }
+
+    /**
+     * Record a rendered email durably before it is dispatched.
+     * The entry is claimed by the caller until {@link #markDelivered} or {@link #release}.
+     */
+    public long append(RenderedEmail email) {
+        return appendAll(List.of(email)).get(0);
+    }
+
+    /**
+     * Record several emails; all of them share the same group commit.
+     */
+    public List<Long> appendAll(List<RenderedEmail> emails) {
+        if (!running) throw new IllegalStateException("Mail outbox is closed");
+        List<Long> ids = new ArrayList<>(emails.size());
+        List<CompletableFuture<Void>> durable = new ArrayList<>(emails.size());
+        for (RenderedEmail email : emails) {
+            OutboxEntry entry = new OutboxEntry(nextId.getAndIncrement(), System.currentTimeMillis(), email);
+            claimed.add(entry.id());
+            pending.put(entry.id(), entry);
+            WriteRequest request = new WriteRequest(entry.id(), ENQUEUED, encodeEnqueued(entry), new CompletableFuture<>());
+            writes.add(request);
+            ids.add(entry.id());
+            durable.add(request.done());
+        }
+
+        try {
+            CompletableFuture.allOf(durable.toArray(new CompletableFuture[0])).get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while writing to the mail outbox", ex);
+        } catch (ExecutionException ex) {
+            ids.forEach(id -> {
+                pending.remove(id);
+                claimed.remove(id);
+            });
+            throw new UncheckedIOException("Mail outbox append failed", asIOException(ex.getCause()));
+        }
+        return ids;
+    }
+
+    /**
+     * Confirm delivery. Not waited for: a lost marker only causes a re-send after a crash.
+     */
+    public void markDelivered(long id) {
+        if (pending.remove(id) != null) {
+            writes.add(new WriteRequest(id, DELIVERED, encodeDelivered(id), new CompletableFuture<>()));
+        }
+        claimed.remove(id);
+    }
+
+    /**
+     * Give up the claim without a send attempt; the entry stays pending as it was.
+     */
+    public void release(long id) {
+        claimed.remove(id);
+    }
+
+    /**
+     * Drop the entry after a failed send whose failure the caller reports to its own client,
+     * which then owns the retry; replaying it as well would deliver it twice. Not waited for,
+     * like {@link #markDelivered}.
+     */
+    public void abandon(long id) {
+        if (pending.remove(id) != null) {
+            writes.add(new WriteRequest(id, ABANDONED, encodeMarker(ABANDONED, id), new CompletableFuture<>()));
+        }
+        claimed.remove(id);
+    }
+
+    /**
+     * Record a failed send and give up the claim. The entry is retried after a backoff, or
+     * dead-lettered when the failure is {@code permanent} or it has failed {@code max-attempts} times.
+     * Returns true when the entry was dead-lettered.
+     */
+    public boolean recordFailure(long id, boolean permanent, String reason) {
+        try {
+            OutboxEntry entry = pending.get(id);
+            if (entry == null) return false;
+            int attempts = entry.attempts() + 1;
+            if (permanent || attempts >= maxAttempts) {
+                deadLetter(entry, attempts, reason);
+                return true;
+            }
+            long delay = Math.min(backoffMaxMs, backoffInitialMs << Math.min(attempts - 1, 20));
+            pending.put(id, entry.retryAt(attempts, System.currentTimeMillis() + delay));
+            writes.add(new WriteRequest(id, FAILED, encodeFailed(id, attempts), new CompletableFuture<>()));
+            return false;
+        } finally {
+            claimed.remove(id);
+        }
+    }
+
+    /**
+     * Claim up to {@code max} pending entries that nobody is currently sending
+     * and whose retry delay has passed.
+     */
+    public List<OutboxEntry> claimPending(int max) {
+        List<OutboxEntry> result = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (OutboxEntry entry : pending.values()) {
+            if (result.size() >= max) break;
+            if (entry.nextAttemptAtMillis() > now) continue;
+            if (claimed.add(entry.id())) result.add(entry);
+        }
+        result.sort((a, b) -> Long.compare(a.id(), b.id()));
+        return result;
+    }
+
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    public long deadLetterCount() {
+        return deadLettered.get();
+    }
+
+    public int segmentCount() {
+        synchronized (segments) {
+            return segments.size();
+        }
+    }
+
+    // ---------------------------------------------------------------- writer thread
+
+    private void writerLoop() {
+        List<WriteRequest> batch = new ArrayList<>(groupCommitMaxRecords);
+        while (running || !writes.isEmpty()) {
+            try {
+                WriteRequest first = writes.poll(200, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    compact(); // idle: drop segments that became fully delivered
+                    continue;
+                }
+                batch.add(first);
+                writes.drainTo(batch, groupCommitMaxRecords - 1);
+
+                try {
+                    writeGroup(batch);
+                } catch (IOException | RuntimeException ex) {
+                    log.error("MailOutbox write failed for {} records: {}", batch.size(), ex.getMessage(), ex);
+                    batch.forEach(w -> w.done().completeExceptionally(ex));
+                    continue;
+                }
+                batch.forEach(w -> w.done().complete(null));
+
+                if (active.size >= segmentMaxBytes) {
+                    openNewSegment();
+                    compact();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException | RuntimeException ex) {
+                log.error("MailOutbox segment maintenance failed: {}", ex.getMessage(), ex);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    // appends the records with one fsync (group commit); they are tracked only once durable
+    private void writeGroup(List<WriteRequest> group) throws IOException {
+        if (activeTorn) {
+            openNewSegment();
+            activeTorn = false;
+        }
+        Segment seg = active;
+        long start = seg.size;
+        try {
+            for (WriteRequest w : group) {
+                ByteBuffer buf = w.bytes().duplicate();
+                while (buf.hasRemaining()) seg.channel.write(buf);
+                seg.size += w.bytes().remaining();
+            }
+            seg.channel.force(false);
+        } catch (IOException | RuntimeException ex) {
+            cutBack(seg, start);
+            throw ex;
+        }
+        for (WriteRequest w : group) track(seg, w.type(), w.id());
+    }
+
+    // drop whatever part of a failed group reached the file, so no acknowledged record lands behind a torn one
+    private void cutBack(Segment seg, long size) {
+        try {
+            seg.channel.truncate(size);
+            seg.channel.force(false);
+            seg.size = size;
+        } catch (IOException | RuntimeException ex) {
+            log.error("MailOutbox cannot truncate {} after a failed write; continuing in a new segment: {}",
+                    seg.path.getFileName(), ex.getMessage());
+            activeTorn = true;
+        }
+    }
+
+    // segment bookkeeping shared by the writer and by recovery
+    private void track(Segment seg, byte type, long id) {
+        if (type == FAILED) return; // attempt count only, the entry stays where it was enqueued
+        if (type == ENQUEUED) {
+            seg.enqueued++;
+            seg.liveIds.add(id);
+            Segment previous = segmentOf.put(id, seg);
+            if (previous != null && previous != seg) previous.liveIds.remove(id);
+        } else {
+            Segment owner = segmentOf.remove(id);
+            if (owner != null) owner.liveIds.remove(id);
+        }
+    }
+
+    private void openNewSegment() throws IOException {
+        if (active != null) closeQuietly(active);
+        Path file = Paths.get(dir).resolve(String.format("%s%020d%s", SEGMENT_PREFIX, nextSegmentNo, SEGMENT_SUFFIX));
+        Segment seg = new Segment(file, nextSegmentNo++);
+        seg.channel = segmentChannels.open(file);
+        seg.size = seg.channel.size();
+        synchronized (segments) {
+            segments.add(seg);
+        }
+        active = seg;
+    }
+
+    private void compact() throws IOException {
+        while (true) {
+            Segment oldest;
+            synchronized (segments) {
+                if (segments.size() < 2) return;
+                oldest = segments.get(0);
+            }
+            if (!oldest.liveIds.isEmpty()) {
+                double live = oldest.enqueued == 0 ? 0 : (double) oldest.liveIds.size() / oldest.enqueued;
+                if (live >= compactionLiveRatio) return;
+                // carry the few pending entries forward, then drop the segment
+                List<WriteRequest> carried = new ArrayList<>();
+                for (Long id : new ArrayList<>(oldest.liveIds)) {
+                    OutboxEntry entry = pending.get(id);
+                    if (entry == null) continue;
+                    carried.add(new WriteRequest(id, ENQUEUED, encodeEnqueued(entry), null));
+                    if (entry.attempts() > 0) carried.add(new WriteRequest(id, FAILED, encodeFailed(id, entry.attempts()), null));
+                }
+                writeGroup(carried);
+            }
+            synchronized (segments) {
+                segments.remove(0);
+            }
+            Files.deleteIfExists(oldest.path);
+            log.info("MailOutbox compacted segment {} (enqueued={})", oldest.path.getFileName(), oldest.enqueued);
+        }
+    }
+
+    // ---------------------------------------------------------------- dead letters
+
+    // rare: written by the failing caller, durable before the entry leaves the log
+    private void deadLetter(OutboxEntry entry, int attempts, String reason) {
+        try {
+            synchronized (deadLetterLock) {
+                Path file = Paths.get(dir).resolve(DEAD_LETTER_FILE);
+                try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                    ByteBuffer buf = encodeDeadLetter(entry, attempts, reason);
+                    while (buf.hasRemaining()) ch.write(buf);
+                    ch.force(false);
+                }
+            }
+        } catch (IOException ex) {
+            // keep it pending rather than lose it; it is retried after the longest backoff
+            log.error("MailOutbox could not dead-letter entry {}: {}", entry.id(), ex.getMessage(), ex);
+            pending.put(entry.id(), entry.retryAt(attempts, System.currentTimeMillis() + backoffMaxMs));
+            return;
+        }
+        pending.remove(entry.id());
+        writes.add(new WriteRequest(entry.id(), DEAD_LETTERED, encodeMarker(DEAD_LETTERED, entry.id()), new CompletableFuture<>()));
+        deadLettered.incrementAndGet();
+        log.error("MailOutbox dead-lettered entry {} to {} template={} after {} attempts: {}",
+                entry.id(), entry.email().to(), entry.email().templatePath(), attempts, reason);
+    }
+
+    // ---------------------------------------------------------------- recovery
+
+    private void recover(Segment seg) throws IOException {
+        long valid = 0;
+        long fileSize = Files.size(seg.path);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(seg.path)))) {
+            while (valid < fileSize) {
+                int length = in.readInt();
+                int crc = in.readInt();
+                if (length <= 0 || length > MAX_RECORD_BYTES) break;
+                byte[] body = new byte[length];
+                in.readFully(body);
+                if (crc32(body) != crc) break;
+                apply(seg, body);
+                valid += 8 + length;
+            }
+        } catch (EOFException ex) {
+            // torn record at the tail, truncated below
+        }
+
+        if (valid < fileSize) {
+            log.warn("MailOutbox truncating torn tail of {} at {} of {} bytes", seg.path.getFileName(), valid, fileSize);
+            try (FileChannel ch = FileChannel.open(seg.path, StandardOpenOption.WRITE)) {
+                ch.truncate(valid);
+                ch.force(true);
+            }
+        }
+        seg.size = valid;
+    }
+
+    private void apply(Segment seg, byte[] body) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+        byte type = in.readByte();
+        long id = in.readLong();
+        nextId.accumulateAndGet(id + 1, Math::max);
+        if (type == ENQUEUED) {
+            long createdAt = in.readLong();
+            RenderedEmail email = new RenderedEmail(readString(in), readString(in), readString(in), readString(in));
+            pending.put(id, new OutboxEntry(id, createdAt, email));
+        } else if (type == FAILED) {
+            int attempts = in.readInt();
+            pending.computeIfPresent(id, (k, entry) -> entry.retryAt(attempts, 0));
+        } else {
+            pending.remove(id);
+        }
+        track(seg, type, id);
+    }
+
+    // ---------------------------------------------------------------- encoding
+
+    private static ByteBuffer encodeEnqueued(OutboxEntry entry) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(256 + lengthHint(entry.email().html()));
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(ENQUEUED);
+            out.writeLong(entry.id());
+            out.writeLong(entry.createdAtMillis());
+            writeString(out, entry.email().templatePath());
+            writeString(out, entry.email().to());
+            writeString(out, entry.email().subject());
+            writeString(out, entry.email().html());
+            return frame(bytes.toByteArray());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static ByteBuffer encodeDelivered(long id) {
+        return encodeMarker(DELIVERED, id);
+    }
+
+    private static ByteBuffer encodeMarker(byte type, long id) {
+        ByteBuffer body = ByteBuffer.allocate(9);
+        body.put(type).putLong(id);
+        return frame(body.array());
+    }
+
+    private static ByteBuffer encodeFailed(long id, int attempts) {
+        ByteBuffer body = ByteBuffer.allocate(13);
+        body.put(FAILED).putLong(id).putInt(attempts);
+        return frame(body.array());
+    }
+
+    // same layout as ENQUEUED with attempts and reason after the timestamp
+    private static ByteBuffer encodeDeadLetter(OutboxEntry entry, int attempts, String reason) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(256 + lengthHint(entry.email().html()));
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(DEAD_LETTERED);
+            out.writeLong(entry.id());
+            out.writeLong(entry.createdAtMillis());
+            out.writeInt(attempts);
+            writeString(out, reason);
+            writeString(out, entry.email().templatePath());
+            writeString(out, entry.email().to());
+            writeString(out, entry.email().subject());
+            writeString(out, entry.email().html());
+            return frame(bytes.toByteArray());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static ByteBuffer frame(byte[] body) {
+        ByteBuffer buf = ByteBuffer.allocate(8 + body.length);
+        buf.putInt(body.length).putInt(crc32(body)).put(body);
+        buf.flip();
+        return buf;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) return null;
+        byte[] utf8 = new byte[length];
+        in.readFully(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private static int crc32(byte[] body) {
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        return (int) crc.getValue();
+    }
+
+    private static int lengthHint(String s) {
+        return s == null ? 0 : s.length() * 2;
+    }
+
+    private static long segmentNo(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static IOException asIOException(Throwable t) {
+        return t instanceof IOException io ? io : new IOException(t);
+    }
+
+    private static void closeQuietly(Segment seg) {
+        if (seg == null || seg.channel == null) return;
+        try {
+            seg.channel.force(false);
+            seg.channel.close();
+        } catch (IOException ex) {
+            log.warn("MailOutbox failed to close {}: {}", seg.path.getFileName(), ex.getMessage());
+        }
+    }
+
+    private record WriteRequest(long id, byte type, ByteBuffer bytes, CompletableFuture<Void> done) { }
+
+    private static final class Segment {
+        final Path path;
+        final long no;
+        final Set<Long> liveIds = Collections.synchronizedSet(new HashSet<>());
+        FileChannel channel;
+        long size;
+        long enqueued;
+
+        Segment(Path path, long no) {
+            this.path = path;
+            this.no = no;
+        }
+    }
+}
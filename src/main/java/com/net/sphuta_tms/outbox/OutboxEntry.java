@@ -0,0 +1,25 @@
+package com.net.sphuta_tms.outbox;
+
+import com.net.sphuta_tms.dto.RenderedEmail;
+
+/**
+ * A rendered email recorded in the outbox and not yet confirmed as delivered.
+ * {@code attempts} counts failed sends; the entry is not handed out again before
+ * {@code nextAttemptAtMillis}.
+ */
+public record OutboxEntry(
+        long id,
+        long createdAtMillis,
+        RenderedEmail email,
+        int attempts,
+        long nextAttemptAtMillis
+) {
+
+    public OutboxEntry(long id, long createdAtMillis, RenderedEmail email) {
+        this(id, createdAtMillis, email, 0, 0);
+    }
+
+    OutboxEntry retryAt(int attempts, long nextAttemptAtMillis) {
+        return new OutboxEntry(id, createdAtMillis, email, attempts, nextAttemptAtMillis);
+    }
+}
@@ -0,0 +1,75 @@
+package com.net.sphuta_tms.outbox;
+
+import com.net.sphuta_tms.mail.SmtpRateLimiter;
+import com.net.sphuta_tms.service.EmailService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Re-sends outbox entries that were never confirmed as delivered:
+ * everything left over from a previous run once the application is ready,
+ * and afterwards, periodically, entries whose send attempt failed and whose
+ * backoff has passed. Failures are recorded with {@link MailOutbox#recordFailure},
+ * which dead-letters permanent rejections and entries out of attempts.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "sphuta.mail.outbox", name = "enabled", havingValue = "true")
+public class OutboxReplayer {
+
+    @Autowired
+    private MailOutbox outbox;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Value("${sphuta.mail.outbox.replay-batch-size:200}")
+    private int replayBatchSize;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void replayOnStartup() {
+        if (outbox.pendingCount() > 0) {
+            log.info("OutboxReplayer: {} unsent emails from previous run", outbox.pendingCount());
+        }
+        replay();
+    }
+
+    @Scheduled(fixedDelayString = "${sphuta.mail.outbox.retry-interval-ms:60000}",
+            initialDelayString = "${sphuta.mail.outbox.retry-interval-ms:60000}")
+    public void retryFailed() {
+        replay();
+    }
+
+    private void replay() {
+        int sent = 0, failed = 0, deadLettered = 0;
+        List<OutboxEntry> batch;
+        do {
+            batch = outbox.claimPending(replayBatchSize);
+            for (OutboxEntry entry : batch) {
+                try {
+                    emailService.deliverRendered(entry.email());
+                    outbox.markDelivered(entry.id());
+                    sent++;
+                } catch (Exception ex) {
+                    log.warn("OutboxReplayer: entry {} to {} failed again (attempt {}): {}",
+                            entry.id(), entry.email().to(), entry.attempts() + 1, ex.getMessage());
+                    if (outbox.recordFailure(entry.id(), SmtpRateLimiter.isPermanentFailure(ex), ex.getMessage())) deadLettered++;
+                    else failed++;
+                }
+            }
+        } while (!batch.isEmpty() && failed == 0);
+
+        if (sent > 0 || failed > 0 || deadLettered > 0) {
+            log.info("OutboxReplayer: replayed sent={} failed={} deadLettered={} stillPending={}",
+                    sent, failed, deadLettered, outbox.pendingCount());
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.net.sphuta_tms.recipient;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * CSV export with a header row naming the payload fields, e.g.
+ * {@code to,employeeName,weekDate}.
+ *
+ * <p>Lines are streamed with {@link Files#lines}, so only the current line is held.
+ * Fields may be double-quoted ({@code ""} for a literal quote) but may not span lines.
+ * Empty cells are left out of the payload.</p>
+ */
+@Slf4j
+public class CsvRecipientSource implements RecipientSource {
+
+    private final Path path;
+
+    public CsvRecipientSource(Path path) {
+        this.path = path;
+    }
+
+    @Override
+    public Stream<Map<String, Object>> open() throws IOException {
+        Stream<String> lines = Files.lines(path, StandardCharsets.UTF_8);
+        Iterator<String> it = lines.iterator();
+        if (!it.hasNext()) {
+            lines.close();
+            return Stream.empty();
+        }
+        String headerLine = it.next();
+        if (headerLine.startsWith("\uFEFF")) headerLine = headerLine.substring(1);
+        List<String> header = parseLine(headerLine).stream().map(String::trim).toList();
+
+        // continue on the same iterator so the header is not read twice
+        Iterable<String> rest = () -> it;
+        return StreamSupport.stream(rest.spliterator(), false)
+                .filter(line -> !line.isBlank())
+                .map(line -> toRecord(header, line))
+                .filter(Objects::nonNull)
+                .onClose(lines::close);
+    }
+
+    @Override
+    public String describe() {
+        return "csv:" + path;
+    }
+
+    private Map<String, Object> toRecord(List<String> header, String line) {
+        List<String> cells;
+        try {
+            cells = parseLine(line);
+        } catch (IllegalArgumentException ex) {
+            log.warn("CsvRecipientSource: skipping malformed line in {}: {}", path, ex.getMessage());
+            return null;
+        }
+        Map<String, Object> record = new LinkedHashMap<>();
+        for (int i = 0; i < header.size() && i < cells.size(); i++) {
+            String value = cells.get(i).trim();
+            if (!value.isEmpty()) record.put(header.get(i), value);
+        }
+        return record;
+    }
+
+    static List<String> parseLine(String line) {
+        List<String> cells = new ArrayList<>();
+        StringBuilder cell = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        cell.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    cell.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                cells.add(cell.toString());
+                cell.setLength(0);
+            } else {
+                cell.append(c);
+            }
+        }
+        if (quoted) throw new IllegalArgumentException("unterminated quote");
+        cells.add(cell.toString());
+        return cells;
+    }
+}
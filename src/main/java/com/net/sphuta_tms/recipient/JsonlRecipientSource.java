@@ -0,0 +1,61 @@
+package com.net.sphuta_tms.recipient;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * JSON Lines export: one payload object per line.
+ *
+ * <p>Lines are streamed with {@link Files#lines} and bound one at a time with a
+ * shared {@link ObjectReader}. Malformed lines are logged and skipped.</p>
+ */
+@Slf4j
+public class JsonlRecipientSource implements RecipientSource {
+
+    private static final TypeReference<Map<String, Object>> RECORD = new TypeReference<>() { };
+
+    private final Path path;
+    private final ObjectReader reader;
+
+    public JsonlRecipientSource(Path path, ObjectMapper objectMapper) {
+        this.path = path;
+        this.reader = objectMapper.readerFor(RECORD);
+    }
+
+    @Override
+    public Stream<Map<String, Object>> open() throws IOException {
+        AtomicLong lineNumber = new AtomicLong();
+        Stream<String> lines = Files.lines(path, StandardCharsets.UTF_8);
+        return lines
+                .peek(line -> lineNumber.incrementAndGet())
+                .filter(line -> !line.isBlank())
+                .map(line -> toRecord(line, lineNumber.get()))
+                .filter(Objects::nonNull);
+    }
+
+    @Override
+    public String describe() {
+        return "jsonl:" + path;
+    }
+
+    private Map<String, Object> toRecord(String line, long lineNumber) {
+        try {
+            return reader.readValue(line);
+        } catch (JsonProcessingException ex) {
+            log.warn("JsonlRecipientSource: skipping line {} of {}: {}", lineNumber, path, ex.getOriginalMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.net.sphuta_tms.recipient;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Recipients of a scheduled campaign, read lazily one record at a time.
+ *
+ * <p>Each record is a reminder payload as accepted by
+ * {@code EmailService.prepareReminder(int, Map)}; it must carry a {@code to} field.
+ * Callers must close the returned stream.</p>
+ */
+public interface RecipientSource {
+
+    Stream<Map<String, Object>> open() throws IOException;
+
+    String describe();
+
+    /**
+     * Source for a file, chosen by extension: {@code .jsonl}/{@code .ndjson} or {@code .csv}.
+     */
+    static RecipientSource forPath(Path path, ObjectMapper objectMapper) {
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".jsonl") || name.endsWith(".ndjson")) {
+            return new JsonlRecipientSource(path, objectMapper);
+        }
+        if (name.endsWith(".csv")) {
+            return new CsvRecipientSource(path);
+        }
+        throw new IllegalArgumentException("Unsupported recipient file (expected .csv or .jsonl): " + path);
+    }
+}
@@ -0,0 +1,546 @@
+package com.net.sphuta_tms.scheduler;
+
+import com.net.sphuta_tms.constants.TemplateRegistry;
+import com.net.sphuta_tms.dto.BatchSendReport;
+import com.net.sphuta_tms.dto.PreparedMessage;
+import com.net.sphuta_tms.dto.RecipientResult;
+import com.net.sphuta_tms.dto.TemplateInfo;
+import com.net.sphuta_tms.enums.DeliveryStatus;
+import com.net.sphuta_tms.mail.SmtpRateLimiter;
+import com.net.sphuta_tms.recipient.RecipientSource;
+import com.net.sphuta_tms.service.EmailService;
+import com.net.sphuta_tms.template.EmailTemplateSource;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.lang.Nullable;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * ==========================================================
+ * {@code CampaignSpool}
+ * ==========================================================
+ *
+ * <p>Scheduled runs rendered ahead of their send time. {@link TimesheetEmailScheduler}
+ * calls {@link #prepare} {@code lead-ms} before a run of a job that has a recipient
+ * source: every recipient is rendered into a complete MIME message and appended to
+ * {@code <dir>/<job>/<run>.spool}. When the cron fires, {@link #deliver} only reads the
+ * messages back and hands them to the relay in chunks, so the Thymeleaf work happens
+ * before the send spike instead of inside it.</p>
+ *
+ * <p>Rules:
+ * <ul>
+ *   <li>A spool is written to a temporary file and renamed once complete; a run that
+ *       finds no complete spool renders live, as before.</li>
+ *   <li>The header records the reminder number, the template (path and a hash of its
+ *       current source) and the recipient source's size and modification time. If any
+ *       of them changed since, the spool is discarded and the run renders live.</li>
+ *   <li>Recipients whose render failed are kept as failure records, so the run still
+ *       reports them as failed.</li>
+ *   <li>Each shard of a sharded run reads the whole spool and sends only the recipients
+ *       it owns; the others are skipped without parsing their MIME bytes.</li>
+ *   <li>Messages the relay did not accept are appended, with their MIME bytes, to
+ *       {@code <run>.spool.retry}. {@link #retryFailed} re-sends them after a backoff
+ *       ({@code retry-backoff-ms}, doubling) until they go out, the server rejects them
+ *       with a 5xx reply, or {@code retry-max-attempts} is reached.</li>
+ *   <li>Spools are kept for {@code retention-ms} after their run, then deleted.</li>
+ * </ul>
+ *
+ * <p>Layout: header {@code [int magic][int reminderNumber][utf templatePath][int templateHash]
+ * [long sourceSize][long sourceModified]}, then per recipient {@code [utf to][utf idempotencyKey]
+ * [int length][MIME bytes]}, or {@code length = -1} followed by {@code [utf error]}. Retry file:
+ * per message {@code [int reminderNumber][utf templatePath][utf to][utf idempotencyKey][int attempts]
+ * [long notBeforeMillis][int length][MIME bytes]}.</p>
+ *
+ * <p>Spools are local to each instance. Enabled with {@code sphuta.scheduler.prerender.enabled=true}.</p>
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "sphuta.scheduler.prerender", name = "enabled", havingValue = "true")
+public class CampaignSpool implements MeterBinder {
+
+    /**
+     * Outcome of delivering one spool, or one shard of it.
+     */
+    public record Totals(long sent, long failed, long skipped) { }
+
+    private record Header(int reminderNumber, String templatePath, int templateHash, long sourceSize, long sourceModified) { }
+
+    private record Retry(int reminderNumber, String templatePath, String to, String key, int attempts,
+                         long notBefore, byte[] mime) { }
+
+    private static final int MAGIC = 0x53504c31; // "SPL1"
+    private static final int RENDER_FAILED = -1;
+    private static final String SUFFIX = ".spool";
+    private static final String TMP_SUFFIX = ".tmp";
+    private static final String RETRY_SUFFIX = SUFFIX + ".retry";
+    private static final String SENDING_SUFFIX = ".sending";
+    private static final DateTimeFormatter RUN_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmm");
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private JavaMailSender mailSender;
+
+    @Autowired
+    private TemplateRegistry templateRegistry;
+
+    @Value("${sphuta.scheduler.prerender.dir:./data/spool}")
+    private String dir;
+
+    @Value("${sphuta.scheduler.prerender.retention-ms:86400000}")
+    private long retentionMs;
+
+    @Value("${sphuta.scheduler.prerender.retry-max-attempts:5}")
+    private int retryMaxAttempts;
+
+    @Value("${sphuta.scheduler.prerender.retry-backoff-ms:60000}")
+    private long retryBackoffMs;
+
+    private final AtomicLong rendered = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong discarded = new AtomicLong();
+    private final AtomicLong redelivered = new AtomicLong();
+    private final AtomicLong abandoned = new AtomicLong();
+
+    // deliver() appends to retry files while retryFailed() takes them over
+    private final Object retryLock = new Object();
+
+    /**
+     * True if a complete, current spool exists for this run. A stale one is deleted.
+     */
+    public boolean isReady(String job, LocalDateTime runAt, int reminderNumber, Path source) {
+        Path file = file(job, runAt);
+        if (!Files.isRegularFile(file)) return false;
+        try (DataInputStream in = open(file)) {
+            Header spooled = readHeader(in);
+            if (spooled.equals(header(reminderNumber, source))) return true;
+            log.info("CampaignSpool: {} is stale (template or recipients changed), discarding", file);
+        } catch (IOException | IllegalArgumentException ex) {
+            log.warn("CampaignSpool: cannot read {}: {}", file, ex.getMessage());
+        }
+        delete(file);
+        discarded.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Render every recipient of {@code recipients} for the run of {@code job} at {@code runAt}.
+     * Returns the number of recipients written.
+     */
+    public int prepare(String job, LocalDateTime runAt, int reminderNumber, Path source,
+                       RecipientSource recipients) throws IOException {
+        Path file = file(job, runAt);
+        Files.createDirectories(file.getParent());
+        Path tmp = file.resolveSibling(file.getFileName() + TMP_SUFFIX);
+        Header header = header(reminderNumber, source);
+
+        long start = System.nanoTime();
+        int count = 0;
+        int failed = 0;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16));
+             Stream<Map<String, Object>> records = recipients.open()) {
+            writeHeader(out, header);
+            ByteArrayOutputStream mime = new ByteArrayOutputStream(16 * 1024);
+            for (Iterator<Map<String, Object>> it = records.iterator(); it.hasNext(); ) {
+                Map<String, Object> payload = it.next();
+                String to = String.valueOf(payload.get("to")); // same shard key as the live path
+                try {
+                    PreparedMessage message = emailService.renderMessage(reminderNumber, payload);
+                    if (message == null) continue; // no recipient: skipped, as in a live run
+                    mime.reset();
+                    message.message().writeTo(mime);
+                    out.writeUTF(to);
+                    out.writeUTF(message.idempotencyKey() == null ? "" : message.idempotencyKey());
+                    out.writeInt(mime.size());
+                    mime.writeTo(out);
+                } catch (MessagingException | RuntimeException ex) {
+                    log.warn("CampaignSpool: {} recipient {} could not be rendered: {}", job, to, ex.getMessage());
+                    out.writeUTF(to);
+                    out.writeUTF("");
+                    out.writeInt(RENDER_FAILED);
+                    out.writeUTF(String.valueOf(ex.getMessage()));
+                    failed++;
+                }
+                count++;
+            }
+        } catch (IOException | RuntimeException ex) {
+            Files.deleteIfExists(tmp);
+            throw ex;
+        }
+        Files.move(tmp, file, ATOMIC_MOVE, REPLACE_EXISTING);
+        rendered.addAndGet(count - failed);
+
+        log.info("CampaignSpool: pre-rendered {} recipients ({} failed) of {} for {} into {} ({} KiB) in {} ms",
+                count, failed, job, runAt, file, Files.size(file) / 1024, (System.nanoTime() - start) / 1_000_000);
+        return count;
+    }
+
+    /**
+     * Send the spooled messages of this run whose recipient {@code owns} accepts, in chunks of
+     * {@code chunkSize}, checking {@code lease} before each chunk. Returns null when there is no
+     * usable spool, so the caller renders live. Failed messages are counted and kept for {@link #retryFailed}.
+     */
+    @Nullable
+    public Totals deliver(String job, LocalDateTime runAt, int reminderNumber, Path source, int chunkSize,
+                          Predicate<String> owns, ShardCoordinator.Lease lease) throws IOException {
+        if (!isReady(job, runAt, reminderNumber, source)) return null;
+
+        long sent = 0, failed = 0, skipped = 0;
+        Path retryFile = retryFile(job, runAt);
+        try (DataInputStream in = open(file(job, runAt))) {
+            Header header = readHeader(in);
+            List<PreparedMessage> chunk = new ArrayList<>(chunkSize);
+            List<byte[]> mime = new ArrayList<>(chunkSize);
+            while (true) {
+                String to;
+                try {
+                    to = in.readUTF();
+                } catch (EOFException end) {
+                    break;
+                }
+                String key = in.readUTF();
+                int length = in.readInt();
+                if (length == RENDER_FAILED) {
+                    String error = in.readUTF();
+                    if (owns.test(to)) {
+                        log.warn("CampaignSpool: {} recipient {} was not rendered: {}", job, to, error);
+                        failed++;
+                    }
+                    continue;
+                }
+                if (!owns.test(to)) {
+                    in.skipNBytes(length);
+                    continue;
+                }
+                byte[] bytes = in.readNBytes(length);
+                MimeMessage message = mailSender.createMimeMessage(new ByteArrayInputStream(bytes));
+                chunk.add(new PreparedMessage(to, header.templatePath(), key.isEmpty() ? null : key, message));
+                mime.add(bytes);
+
+                if (chunk.size() >= chunkSize) {
+                    if (!lease.keepAlive()) return new Totals(sent, failed, skipped);
+                    BatchSendReport report = emailService.deliverPrepared(reminderNumber, chunk);
+                    holdFailed(retryFile, reminderNumber, chunk, mime, report);
+                    sent += report.sent();
+                    failed += report.failed();
+                    skipped += report.skipped();
+                    chunk = new ArrayList<>(chunkSize);
+                    mime = new ArrayList<>(chunkSize);
+                }
+            }
+            if (!chunk.isEmpty() && lease.keepAlive()) {
+                BatchSendReport report = emailService.deliverPrepared(reminderNumber, chunk);
+                holdFailed(retryFile, reminderNumber, chunk, mime, report);
+                sent += report.sent();
+                failed += report.failed();
+                skipped += report.skipped();
+            }
+        }
+        delivered.addAndGet(sent);
+        return new Totals(sent, failed, skipped);
+    }
+
+    /**
+     * Re-send spooled messages that failed and whose backoff has passed. Returns what this pass did;
+     * {@code failed} counts messages given up on.
+     */
+    public Totals retryFailed() {
+        Path root = Paths.get(dir);
+        if (!Files.isDirectory(root)) return new Totals(0, 0, 0);
+        List<Path> files;
+        try (Stream<Path> all = Files.walk(root, 2)) {
+            // a .sending file is left over when a pass was interrupted; it is picked up again
+            files = all.map(f -> f.getFileName().toString().endsWith(RETRY_SUFFIX + SENDING_SUFFIX)
+                            ? f.resolveSibling(f.getFileName().toString().replace(SENDING_SUFFIX, "")) : f)
+                    .filter(f -> f.getFileName().toString().endsWith(RETRY_SUFFIX))
+                    .distinct()
+                    .toList();
+        } catch (IOException ex) {
+            log.warn("CampaignSpool: cannot list {}: {}", root, ex.getMessage());
+            return new Totals(0, 0, 0);
+        }
+
+        long sent = 0, failed = 0, skipped = 0;
+        for (Path file : files) {
+            try {
+                Totals totals = retry(file);
+                sent += totals.sent();
+                failed += totals.failed();
+                skipped += totals.skipped();
+            } catch (IOException | RuntimeException ex) {
+                log.error("CampaignSpool: retrying {} failed: {}", file, ex.getMessage(), ex);
+            }
+        }
+        return new Totals(sent, failed, skipped);
+    }
+
+    /**
+     * Delete spools whose run is more than {@code retention-ms} in the past, and abandoned temporary files.
+     */
+    public void purgeExpired(LocalDateTime now) {
+        Path root = Paths.get(dir);
+        if (!Files.isDirectory(root)) return;
+        LocalDateTime cutoff = now.minusNanos(retentionMs * 1_000_000L);
+        try (Stream<Path> files = Files.walk(root, 2)) {
+            files.filter(Files::isRegularFile).forEach(file -> {
+                LocalDateTime runAt = runOf(file);
+                if (runAt != null && runAt.isBefore(cutoff)) delete(file);
+            });
+        } catch (IOException ex) {
+            log.warn("CampaignSpool: cannot list {}: {}", root, ex.getMessage());
+        }
+    }
+
+    public long renderedMessages() {
+        return rendered.get();
+    }
+
+    public long deliveredMessages() {
+        return delivered.get();
+    }
+
+    public long discardedSpools() {
+        return discarded.get();
+    }
+
+    public long redeliveredMessages() {
+        return redelivered.get();
+    }
+
+    public long abandonedMessages() {
+        return abandoned.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("sphuta.prerender.rendered", this, CampaignSpool::renderedMessages)
+                .description("Messages rendered into a spool ahead of their scheduled run")
+                .register(registry);
+        FunctionCounter.builder("sphuta.prerender.delivered", this, CampaignSpool::deliveredMessages)
+                .description("Messages sent from a spool at trigger time")
+                .register(registry);
+        FunctionCounter.builder("sphuta.prerender.discarded", this, CampaignSpool::discardedSpools)
+                .description("Spools dropped because the template or recipients changed after pre-rendering")
+                .register(registry);
+        FunctionCounter.builder("sphuta.prerender.redelivered", this, CampaignSpool::redeliveredMessages)
+                .description("Spooled messages sent on a retry after their run failed to send them")
+                .register(registry);
+        FunctionCounter.builder("sphuta.prerender.abandoned", this, CampaignSpool::abandonedMessages)
+                .description("Spooled messages given up on after a permanent rejection or the last retry")
+                .register(registry);
+    }
+
+    // the failures of one chunk, in report order, go to the run's retry file
+    private void holdFailed(Path retryFile, int reminderNumber, List<PreparedMessage> chunk, List<byte[]> mime,
+                            BatchSendReport report) {
+        List<Retry> retries = new ArrayList<>();
+        for (RecipientResult result : report.results()) {
+            if (result.status() != DeliveryStatus.FAILED) continue;
+            PreparedMessage m = chunk.get(result.index());
+            Retry retry = new Retry(reminderNumber, m.templatePath(), m.to(),
+                    m.idempotencyKey() == null ? "" : m.idempotencyKey(), 0, 0, mime.get(result.index()));
+            Retry next = nextAttempt(retry, result.detail());
+            if (next != null) retries.add(next);
+        }
+        try {
+            appendRetries(retryFile, retries);
+        } catch (IOException ex) {
+            // the rest of the run still goes out; only these messages lose their retry
+            log.error("CampaignSpool: cannot keep {} failed messages in {}: {}", retries.size(), retryFile, ex.getMessage(), ex);
+            abandoned.addAndGet(retries.size());
+        }
+    }
+
+    private Totals retry(Path file) throws IOException {
+        Path sending = file.resolveSibling(file.getFileName() + SENDING_SUFFIX);
+        synchronized (retryLock) {
+            if (!Files.exists(sending)) Files.move(file, sending, ATOMIC_MOVE);
+        }
+
+        List<Retry> waiting = new ArrayList<>();
+        Map<Integer, List<Retry>> due = new LinkedHashMap<>();
+        long now = System.currentTimeMillis();
+        try (DataInputStream in = open(sending)) {
+            while (true) {
+                Retry retry;
+                try {
+                    retry = readRetry(in);
+                } catch (EOFException end) {
+                    break;
+                }
+                if (retry.notBefore() > now) waiting.add(retry);
+                else due.computeIfAbsent(retry.reminderNumber(), n -> new ArrayList<>()).add(retry);
+            }
+        }
+
+        long sent = 0, failed = 0, skipped = 0;
+        for (Map.Entry<Integer, List<Retry>> group : due.entrySet()) {
+            List<Retry> retries = group.getValue();
+            List<PreparedMessage> messages = new ArrayList<>(retries.size());
+            for (Retry r : retries) {
+                MimeMessage message = mailSender.createMimeMessage(new ByteArrayInputStream(r.mime()));
+                messages.add(new PreparedMessage(r.to(), r.templatePath(), r.key().isEmpty() ? null : r.key(), message));
+            }
+            BatchSendReport report = emailService.deliverPrepared(group.getKey(), messages);
+            for (RecipientResult result : report.results()) {
+                if (result.status() == DeliveryStatus.SENT) sent++;
+                if (result.status() == DeliveryStatus.SKIPPED) skipped++;
+                if (result.status() != DeliveryStatus.FAILED) continue;
+                Retry next = nextAttempt(retries.get(result.index()), result.detail());
+                if (next != null) waiting.add(next);
+                else failed++;
+            }
+        }
+        redelivered.addAndGet(sent);
+
+        synchronized (retryLock) {
+            appendRetries(file, waiting);
+            Files.delete(sending);
+        }
+        if (sent + failed > 0) {
+            log.info("CampaignSpool: retried {}: sent={} given up={} still waiting={}", file, sent, failed, waiting.size());
+        }
+        return new Totals(sent, failed, skipped);
+    }
+
+    // null when the message is given up on
+    @Nullable
+    private Retry nextAttempt(Retry retry, @Nullable String detail) {
+        int attempts = retry.attempts() + 1;
+        if (SmtpRateLimiter.isPermanentReply(detail) || attempts >= retryMaxAttempts) {
+            log.error("CampaignSpool: giving up on {} after {} attempts: {}", retry.to(), attempts, detail);
+            abandoned.incrementAndGet();
+            return null;
+        }
+        long delay = retryBackoffMs << Math.min(attempts - 1, 20);
+        return new Retry(retry.reminderNumber(), retry.templatePath(), retry.to(), retry.key(), attempts,
+                System.currentTimeMillis() + delay, retry.mime());
+    }
+
+    private void appendRetries(Path file, List<Retry> retries) throws IOException {
+        if (retries.isEmpty()) return;
+        synchronized (retryLock) {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND), 1 << 16))) {
+                for (Retry r : retries) {
+                    out.writeInt(r.reminderNumber());
+                    out.writeUTF(r.templatePath());
+                    out.writeUTF(r.to());
+                    out.writeUTF(r.key());
+                    out.writeInt(r.attempts());
+                    out.writeLong(r.notBefore());
+                    out.writeInt(r.mime().length);
+                    out.write(r.mime());
+                }
+            }
+        }
+    }
+
+    private static Retry readRetry(DataInputStream in) throws IOException {
+        int reminderNumber = in.readInt();
+        String templatePath = in.readUTF();
+        String to = in.readUTF();
+        String key = in.readUTF();
+        int attempts = in.readInt();
+        long notBefore = in.readLong();
+        byte[] mime = in.readNBytes(in.readInt());
+        return new Retry(reminderNumber, templatePath, to, key, attempts, notBefore, mime);
+    }
+
+    private Path file(String job, LocalDateTime runAt) {
+        return Paths.get(dir, job, RUN_FORMAT.format(runAt) + SUFFIX);
+    }
+
+    private Path retryFile(String job, LocalDateTime runAt) {
+        return Paths.get(dir, job, RUN_FORMAT.format(runAt) + RETRY_SUFFIX);
+    }
+
+    @Nullable
+    private static LocalDateTime runOf(Path file) {
+        String name = file.getFileName().toString();
+        int end = name.indexOf(SUFFIX);
+        if (end < 0) return null;
+        try {
+            return LocalDateTime.parse(name.substring(0, end), RUN_FORMAT);
+        } catch (DateTimeParseException ex) {
+            return null;
+        }
+    }
+
+    private Header header(int reminderNumber, Path source) {
+        TemplateInfo tinfo = templateRegistry.getByReminderNumber(reminderNumber);
+        String templatePath = tinfo == null ? "" : tinfo.getTemplatePath();
+        EmailTemplateSource template = templateRegistry.getSource(templatePath);
+        int templateHash = template == null ? 0
+                : Objects.hash(template.staticSubject(), template.subjectExpression(), template.body());
+        try {
+            return new Header(reminderNumber, templatePath, templateHash,
+                    Files.size(source), Files.getLastModifiedTime(source).toMillis());
+        } catch (IOException ex) {
+            throw new IllegalArgumentException("Recipient source not readable: " + source, ex);
+        }
+    }
+
+    private static void writeHeader(DataOutputStream out, Header header) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(header.reminderNumber());
+        out.writeUTF(header.templatePath());
+        out.writeInt(header.templateHash());
+        out.writeLong(header.sourceSize());
+        out.writeLong(header.sourceModified());
+    }
+
+    private static Header readHeader(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) throw new IOException("not a spool file");
+        return new Header(in.readInt(), in.readUTF(), in.readInt(), in.readLong(), in.readLong());
+    }
+
+    private static DataInputStream open(Path file) throws IOException {
+        return new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16));
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ex) {
+            log.warn("CampaignSpool: cannot delete {}: {}", file, ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.net.sphuta_tms.scheduler;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+
+/**
+ * ==========================================================
+ * {@code FileShardLeaseStore}
+ * ==========================================================
+ *
+ * <p>{@link ShardLeaseStore} on a directory shared by the replicas (local disk for
+ * several instances on one host, or a shared mount).</p>
+ *
+ * <p>Each run has one file, {@code <runId>.lease}, with a line per shard:
+ * {@code shard owner expiresAtMillis done}. Every operation takes an exclusive
+ * {@link FileLock} on that file, reads it, applies the change and rewrites it, so
+ * claims are atomic across processes. Lease files older than {@code retentionMs}
+ * are deleted when a new run starts.</p>
+ */
+@Slf4j
+public class FileShardLeaseStore implements ShardLeaseStore {
+
+    private record Lease(String owner, long expiresAt, boolean done) { }
+
+    private interface Update {
+        // returns the result of the operation; may modify the map in place
+        boolean apply(Map<Integer, Lease> leases);
+    }
+
+    private final Path dir;
+    private final long retentionMs;
+    private final LongSupplier clock;
+
+    public FileShardLeaseStore(Path dir, long retentionMs) {
+        this(dir, retentionMs, System::currentTimeMillis);
+    }
+
+    FileShardLeaseStore(Path dir, long retentionMs, LongSupplier clock) {
+        this.dir = dir;
+        this.retentionMs = retentionMs;
+        this.clock = clock;
+        try {
+            Files.createDirectories(dir);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot create lease directory " + dir, ex);
+        }
+    }
+
+    @Override
+    public boolean tryAcquire(String runId, int shard, String owner, long ttlMs) {
+        return update(runId, leases -> {
+            long now = clock.getAsLong();
+            Lease lease = leases.get(shard);
+            if (lease != null) {
+                if (lease.done()) return false;
+                if (!lease.owner().equals(owner) && lease.expiresAt() > now) return false;
+                if (!lease.owner().equals(owner)) {
+                    log.info("FileShardLeaseStore: {} takes over shard {} of {} from {} (lease expired)",
+                            owner, shard, runId, lease.owner());
+                }
+            }
+            leases.put(shard, new Lease(owner, now + ttlMs, false));
+            return true;
+        });
+    }
+
+    @Override
+    public boolean renew(String runId, int shard, String owner, long ttlMs) {
+        return update(runId, leases -> {
+            Lease lease = leases.get(shard);
+            if (lease == null || lease.done() || !lease.owner().equals(owner)) return false;
+            leases.put(shard, new Lease(owner, clock.getAsLong() + ttlMs, false));
+            return true;
+        });
+    }
+
+    @Override
+    public boolean complete(String runId, int shard, String owner) {
+        return update(runId, leases -> {
+            long now = clock.getAsLong();
+            Lease lease = leases.get(shard);
+            if (lease == null || lease.done() || !lease.owner().equals(owner) || lease.expiresAt() <= now) return false;
+            leases.put(shard, new Lease(owner, now, true));
+            return true;
+        });
+    }
+
+    @Override
+    public boolean release(String runId, int shard, String owner) {
+        return update(runId, leases -> {
+            Lease lease = leases.get(shard);
+            if (lease == null || lease.done() || !lease.owner().equals(owner)) return false;
+            leases.remove(shard);
+            return true;
+        });
+    }
+
+    @Override
+    public boolean isComplete(String runId, int shard) {
+        return update(runId, leases -> {
+            Lease lease = leases.get(shard);
+            return lease != null && lease.done();
+        });
+    }
+
+    // FileLock is per process, so threads of this JVM are serialised here first
+    private synchronized boolean update(String runId, Update update) {
+        Path file = dir.resolve(fileName(runId));
+        boolean created = !Files.exists(file);
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+             FileLock ignored = channel.lock()) {
+
+            Map<Integer, Lease> leases = read(channel);
+            Map<Integer, Lease> before = new HashMap<>(leases);
+            boolean result = update.apply(leases);
+            if (!leases.equals(before)) write(channel, leases);
+            if (created) purgeStale(file);
+            return result;
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Lease file " + file + " is not accessible", ex);
+        }
+    }
+
+    private static Map<Integer, Lease> read(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+        channel.read(buffer, 0);
+        Map<Integer, Lease> leases = new HashMap<>();
+        for (String line : new String(buffer.array(), StandardCharsets.UTF_8).split("\n")) {
+            String[] parts = line.trim().split(" ");
+            if (parts.length != 4) continue;
+            leases.put(Integer.parseInt(parts[0]),
+                    new Lease(parts[1], Long.parseLong(parts[2]), Boolean.parseBoolean(parts[3])));
+        }
+        return leases;
+    }
+
+    private static void write(FileChannel channel, Map<Integer, Lease> leases) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        leases.forEach((shard, lease) -> sb.append(shard).append(' ').append(lease.owner()).append(' ')
+                .append(lease.expiresAt()).append(' ').append(lease.done()).append('\n'));
+        byte[] bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
+        channel.truncate(0);
+        channel.write(ByteBuffer.wrap(bytes), 0);
+        channel.force(false);
+    }
+
+    private void purgeStale(Path current) {
+        long cutoff = clock.getAsLong() - retentionMs;
+        try (Stream<Path> files = Files.list(dir)) {
+            files.filter(f -> !f.equals(current) && f.getFileName().toString().endsWith(".lease"))
+                    .filter(f -> lastModified(f) < cutoff)
+                    .forEach(f -> {
+                        try {
+                            Files.deleteIfExists(f);
+                        } catch (IOException ex) {
+                            log.debug("FileShardLeaseStore: cannot delete {}: {}", f, ex.getMessage());
+                        }
+                    });
+        } catch (IOException ex) {
+            log.warn("FileShardLeaseStore: cannot list {}: {}", dir, ex.getMessage());
+        }
+    }
+
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException ex) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private static String fileName(String runId) {
+        return runId.replaceAll("[^A-Za-z0-9._-]", "_") + ".lease";
+    }
+}
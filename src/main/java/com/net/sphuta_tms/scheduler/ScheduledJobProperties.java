@@ -0,0 +1,29 @@
+package com.net.sphuta_tms.scheduler;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.Map;
+
+/**
+ * Per-job overrides for {@link TimesheetEmailScheduler}, keyed by job name
+ * ({@code month-end}, {@code week-end}, {@code mid-month}, {@code every-minute}):
+ *
+ * <pre>
+ * sphuta.scheduler.jobs.week-end.source: ./data/recipients/employees.csv
+ * sphuta.scheduler.jobs.week-end.reminder-number: 1
+ * </pre>
+ *
+ * <p>A job without a {@code source} sends to its built-in single recipient.</p>
+ */
+@ConfigurationProperties(prefix = "sphuta.scheduler")
+public record ScheduledJobProperties(
+        Map<String, Job> jobs,
+        @DefaultValue("500") int chunkSize
+) {
+    public record Job(String source, Integer reminderNumber) { }
+
+    public Job job(String name) {
+        return jobs != null ? jobs.get(name) : null;
+    }
+}
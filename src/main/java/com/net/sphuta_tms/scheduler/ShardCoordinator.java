@@ -0,0 +1,341 @@
+package com.net.sphuta_tms.scheduler;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * ==========================================================
+ * {@code ShardCoordinator}
+ * ==========================================================
+ *
+ * <p>Splits a scheduled run into {@code shards} parts and lets each replica
+ * process only the shards it can lease from the shared {@link ShardLeaseStore},
+ * so a run scales out across nodes instead of being repeated on each of them.</p>
+ *
+ * <p>Flow:
+ * <ul>
+ *   <li>Every replica's {@code @Scheduled} method calls {@link #run} with the time the
+ *       trigger was scheduled to fire. The run id is the job name plus that time, so all
+ *       replicas agree on it even if one of them starts the job late.</li>
+ *   <li>Each replica walks the shards starting at an offset derived from its node
+ *       id, claims what it can, processes it, and marks it complete if it still holds the
+ *       lease. While its shard is being processed a heartbeat renews the lease every
+ *       quarter TTL, so a chunk that takes longer than the TTL (a slow or rate-limited
+ *       relay) does not lose it; tasks check {@link Lease#keepAlive()} between chunks.</li>
+ *   <li>A shard whose task throws is released, not completed, so that any replica can
+ *       retry it; each replica gives up on it after {@code max-attempts} failures.</li>
+ *   <li>Runs with shards still held by others, or released after a failure, are
+ *       remembered; {@link #rebalance()} retries them periodically until the run's
+ *       {@code max-run-ms} deadline, so a shard whose owner died is taken over once its
+ *       lease expires.</li>
+ * </ul>
+ *
+ * <p>Without a {@link ShardLeaseStore} bean ({@code sphuta.scheduler.sharding.enabled=false})
+ * the task runs once locally with {@link #ALL_SHARDS}, as before.</p>
+ */
+@Slf4j
+@Component
+public class ShardCoordinator implements MeterBinder {
+
+    /**
+     * Work for one shard. Long tasks should call {@link Lease#keepAlive()} between
+     * units of work and stop when it returns false.
+     */
+    @FunctionalInterface
+    public interface ShardTask {
+        void process(int shard, Lease lease) throws Exception;
+    }
+
+    /**
+     * Handle on the lease a task is running under.
+     */
+    public interface Lease {
+        /**
+         * Renew the lease if half its TTL has passed. False once it is lost to another node.
+         * Also called by the heartbeat while the task runs.
+         */
+        boolean keepAlive();
+    }
+
+    /**
+     * Shard number passed to the task when sharding is off: it owns everything.
+     */
+    public static final int ALL_SHARDS = -1;
+
+    private static final Lease LOCAL = () -> true;
+
+    private final class Run {
+        final String runId;
+        final ShardTask task;
+        final long deadline;
+        final TreeSet<Integer> remaining = new TreeSet<>();
+        final Map<Integer, Integer> failures = new HashMap<>();
+
+        Run(String runId, int shards, ShardTask task, long deadline) {
+            this.runId = runId;
+            this.task = task;
+            this.deadline = deadline;
+            for (int i = 0; i < shards; i++) remaining.add(i);
+        }
+    }
+
+    @Autowired(required = false)
+    private ShardLeaseStore leaseStore;
+
+    @Value("${sphuta.scheduler.sharding.shards:8}")
+    private int shards;
+
+    @Value("${sphuta.scheduler.sharding.lease-ttl-ms:60000}")
+    private long leaseTtlMs;
+
+    @Value("${sphuta.scheduler.sharding.max-run-ms:3600000}")
+    private long maxRunMs;
+
+    // failed attempts at one shard on this node before it gives the shard up for the run
+    @Value("${sphuta.scheduler.sharding.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${sphuta.scheduler.sharding.node-id:}")
+    private String nodeId;
+
+    private LongSupplier clock = System::currentTimeMillis;
+
+    // renews the leases of shards being processed; created with the first lease
+    private ScheduledExecutorService heartbeat;
+
+    private final Map<String, Run> pending = new ConcurrentHashMap<>();
+    private final AtomicLong shardsProcessed = new AtomicLong();
+    private final AtomicLong shardsTakenOver = new AtomicLong();
+
+    /**
+     * Process this node's share of {@code job} for the trigger scheduled at {@code firedAt}
+     * (not the time the job actually started, which differs between replicas).
+     */
+    public void run(String job, LocalDateTime firedAt, ShardTask task) {
+        if (leaseStore == null) {
+            process(job, ALL_SHARDS, task, LOCAL);
+            return;
+        }
+        String runId = job + "@" + firedAt.truncatedTo(ChronoUnit.SECONDS);
+        Run run = new Run(runId, shardCount(), task, clock.getAsLong() + maxRunMs);
+        claimAndProcess(run, false);
+        if (!run.remaining.isEmpty()) {
+            pending.put(runId, run);
+            log.debug("ShardCoordinator: {} shards of {} held by other nodes", run.remaining.size(), runId);
+        }
+    }
+
+    /**
+     * True if {@code key} (e.g. a recipient address) belongs to {@code shard}.
+     * Tasks stream their whole input and keep only what this returns true for.
+     */
+    public boolean owns(int shard, String key) {
+        return shard == ALL_SHARDS || shardOf(key, shardCount()) == shard;
+    }
+
+    public static int shardOf(String key, int shards) {
+        return Math.floorMod(key.hashCode(), shards);
+    }
+
+    /**
+     * Pick up shards of recent runs whose owner stopped renewing its lease.
+     */
+    @Scheduled(fixedDelayString = "${sphuta.scheduler.sharding.rebalance-interval-ms:15000}")
+    public void rebalance() {
+        Iterator<Run> it = pending.values().iterator();
+        while (it.hasNext()) {
+            Run run = it.next();
+            if (clock.getAsLong() > run.deadline) {
+                log.warn("ShardCoordinator: giving up on {} with {} shards unfinished", run.runId, run.remaining.size());
+                it.remove();
+                continue;
+            }
+            claimAndProcess(run, true);
+            if (run.remaining.isEmpty()) it.remove();
+        }
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (heartbeat != null) heartbeat.shutdownNow();
+    }
+
+    public String nodeId() {
+        if (nodeId == null || nodeId.isBlank()) {
+            nodeId = defaultNodeId();
+        }
+        return nodeId.replaceAll("\\s", "_"); // stored space-separated by FileShardLeaseStore
+    }
+
+    public long shardsProcessed() {
+        return shardsProcessed.get();
+    }
+
+    public long shardsTakenOver() {
+        return shardsTakenOver.get();
+    }
+
+    public int pendingRuns() {
+        return pending.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("sphuta.scheduler.shards.processed", this, ShardCoordinator::shardsProcessed)
+                .description("Shards of scheduled runs processed on this node")
+                .register(registry);
+        FunctionCounter.builder("sphuta.scheduler.shards.taken.over", this, ShardCoordinator::shardsTakenOver)
+                .description("Shards claimed by rebalancing after another node's lease expired")
+                .register(registry);
+        Gauge.builder("sphuta.scheduler.runs.pending", this, ShardCoordinator::pendingRuns)
+                .description("Scheduled runs with shards still held by other nodes")
+                .register(registry);
+    }
+
+    private synchronized void claimAndProcess(Run run, boolean takeover) {
+        String owner = nodeId();
+        int start = shardOf(owner, shardCount());
+        // start at this node's offset so replicas do not all contend for shard 0
+        Iterable<Integer> order = concat(run.remaining.tailSet(start, true), run.remaining.headSet(start, false));
+        for (Integer shard : order) {
+            if (leaseStore.isComplete(run.runId, shard)) {
+                run.remaining.remove(shard);
+                continue;
+            }
+            if (!leaseStore.tryAcquire(run.runId, shard, owner, leaseTtlMs)) continue;
+            if (takeover && !run.failures.containsKey(shard)) shardsTakenOver.incrementAndGet();
+
+            StoreLease lease = new StoreLease(run.runId, shard, owner);
+            long period = Math.max(1, leaseTtlMs / 4);
+            ScheduledFuture<?> beat = heartbeat().scheduleAtFixedRate(() -> {
+                try {
+                    lease.keepAlive();
+                } catch (RuntimeException ex) {
+                    // an exception would cancel the heartbeat; the next beat retries before the lease runs out
+                    log.warn("ShardCoordinator: renewing shard {} of {} failed: {}", shard, run.runId, ex.getMessage());
+                }
+            }, period, period, TimeUnit.MILLISECONDS);
+            boolean processed;
+            try {
+                processed = process(run.runId, shard, run.task, lease);
+            } finally {
+                beat.cancel(false);
+            }
+            if (!processed) {
+                // not complete: leave the shard to a retry here or on another node
+                leaseStore.release(run.runId, shard, owner);
+                int failures = run.failures.merge(shard, 1, Integer::sum);
+                if (failures >= Math.max(1, maxAttempts)) {
+                    log.error("ShardCoordinator: giving up on shard {} of {} after {} failed attempts on this node",
+                            shard, run.runId, failures);
+                    run.remaining.remove(shard);
+                }
+                continue;
+            }
+            // the lease may have run out during the last stretch of work; only the current owner completes
+            if (lease.keepAlive() && leaseStore.complete(run.runId, shard, owner)) {
+                run.remaining.remove(shard);
+            } else {
+                log.warn("ShardCoordinator: shard {} of {} finished after its lease was lost; not marked complete",
+                        shard, run.runId);
+            }
+        }
+    }
+
+    // false if the task threw; without a lease store there is no one to retry it, so it is only logged
+    private boolean process(String runId, int shard, ShardTask task, Lease lease) {
+        try {
+            task.process(shard, lease);
+            shardsProcessed.incrementAndGet();
+            return true;
+        } catch (Exception ex) {
+            log.error("ShardCoordinator: shard {} of {} failed: {}", shard, runId, ex.getMessage(), ex);
+            return false;
+        }
+    }
+
+    private final class StoreLease implements Lease {
+        private final String runId;
+        private final int shard;
+        private final String owner;
+        private long renewedAt = clock.getAsLong();
+        private boolean lost;
+
+        StoreLease(String runId, int shard, String owner) {
+            this.runId = runId;
+            this.shard = shard;
+            this.owner = owner;
+        }
+
+        @Override
+        public synchronized boolean keepAlive() {
+            if (lost) return false;
+            long now = clock.getAsLong();
+            if (now - renewedAt < leaseTtlMs / 2) return true;
+            if (leaseStore.renew(runId, shard, owner, leaseTtlMs)) {
+                renewedAt = now;
+                return true;
+            }
+            log.warn("ShardCoordinator: lost lease on shard {} of {}; another node has taken it over", shard, runId);
+            lost = true;
+            return false;
+        }
+    }
+
+    private ScheduledExecutorService heartbeat() {
+        if (heartbeat == null) {
+            heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "shard-lease-heartbeat");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        return heartbeat;
+    }
+
+    private int shardCount() {
+        return Math.max(1, shards);
+    }
+
+    private static Iterable<Integer> concat(Iterable<Integer> first, Iterable<Integer> second) {
+        List<Integer> all = new ArrayList<>();
+        first.forEach(all::add);
+        second.forEach(all::add);
+        return all;
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception ex) {
+            host = "node";
+        }
+        return host + "-" + ProcessHandle.current().pid();
+    }
+}
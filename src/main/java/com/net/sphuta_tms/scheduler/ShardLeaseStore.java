@@ -0,0 +1,38 @@
+package com.net.sphuta_tms.scheduler;
+
+/**
+ * Shared lease table used by {@link ShardCoordinator} so that each shard of a
+ * scheduled run is processed by exactly one replica.
+ *
+ * <p>A lease is identified by {@code (runId, shard)}. Implementations must make
+ * {@link #tryAcquire} atomic across every replica that shares the store.</p>
+ */
+public interface ShardLeaseStore {
+
+    /**
+     * Claim the shard for {@code owner} until {@code ttlMs} from now. Succeeds when the
+     * shard is unclaimed, its lease has expired, or {@code owner} already holds it;
+     * never for a shard that is already complete.
+     */
+    boolean tryAcquire(String runId, int shard, String owner, long ttlMs);
+
+    /**
+     * Extend a lease that {@code owner} still holds. Returns false if it was lost.
+     */
+    boolean renew(String runId, int shard, String owner, long ttlMs);
+
+    /**
+     * Record that the shard has been processed, so no replica takes it again. Only
+     * succeeds while {@code owner} holds an unexpired lease on it; false means another
+     * replica may have taken the shard over.
+     */
+    boolean complete(String runId, int shard, String owner);
+
+    /**
+     * Give up a lease {@code owner} holds without completing the shard, so any replica
+     * can claim it again at once. False if {@code owner} no longer held it.
+     */
+    boolean release(String runId, int shard, String owner);
+
+    boolean isComplete(String runId, int shard);
+}
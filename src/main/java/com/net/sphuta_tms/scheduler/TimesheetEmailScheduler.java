@@ -1,25 +1,96 @@
 package com.net.sphuta_tms.scheduler;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.net.sphuta_tms.dto.BatchSendReport;
+import com.net.sphuta_tms.recipient.RecipientSource;
 import com.net.sphuta_tms.service.EmailService;
-import jakarta.mail.MessagingException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.lang.Nullable;
 import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.support.CronExpression;
 import org.springframework.stereotype.Component;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.DayOfWeek;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
 
+/**
+ * Cron-driven reminder runs.
+ *
+ * <p>A job sends to its built-in recipient unless {@link ScheduledJobProperties}
+ * points it at a {@link RecipientSource}; the source is then streamed and sent as
+ * batches of {@code sphuta.scheduler.chunk-size}, so only one chunk is in memory
+ * however long the list is. With {@code sphuta.scheduler.sharding.enabled=true}
+ * each run's recipients are split across replicas by {@link ShardCoordinator}
+ * instead of every replica sending to all of them.</p>
+ *
+ * <p>With {@code sphuta.scheduler.prerender.enabled=true}, jobs with a recipient
+ * source are rendered {@code lead-ms} before their next run into a {@link CampaignSpool};
+ * the run itself then only streams the stored messages to the relay.</p>
+ */
 @Slf4j
 @Component
 public class TimesheetEmailScheduler {
 
+    private static final String MONTH_END_CRON = "0 0 10 * * *";
+    private static final String WEEK_END_CRON = "0 0 17 * * FRI";
+    private static final String MID_MONTH_CRON = "0 0 10 15 * ?";
+    private static final String EVERY_MINUTE_CRON = "0 */1 * * * *";
+
+    private record JobSpec(String name, String cron, int defaultReminderNumber, String defaultRecipient) { }
+
+    private static final JobSpec MONTH_END = new JobSpec("month-end", MONTH_END_CRON, 1, "accounts@example.com");
+    private static final JobSpec WEEK_END = new JobSpec("week-end", WEEK_END_CRON, 2, "team@example.com");
+    private static final JobSpec MID_MONTH = new JobSpec("mid-month", MID_MONTH_CRON, 3, "hr@example.com");
+    private static final JobSpec EVERY_MINUTE = new JobSpec("every-minute", EVERY_MINUTE_CRON, 1, "test@example.com");
+
+    private static final List<JobSpec> JOBS = List.of(MONTH_END, WEEK_END, MID_MONTH, EVERY_MINUTE);
+
+    private static final List<Duration> FIRE_LOOKBACK =
+            List.of(Duration.ofMinutes(1), Duration.ofHours(1), Duration.ofDays(1), Duration.ofDays(32));
+
     @Autowired
     private EmailService emailService;
 
+    @Autowired
+    private ShardCoordinator shardCoordinator;
+
+    @Autowired
+    private ScheduledJobProperties jobProperties;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // only registered when sphuta.scheduler.prerender.enabled=true
+    @Autowired(required = false)
+    private CampaignSpool spool;
+
+    // only registered when sphuta.scheduler.prerender.enabled=true
+    @Autowired(required = false)
+    @Qualifier("prerenderExecutor")
+    private TaskExecutor prerenderExecutor;
+
+    private final AtomicBoolean prerendering = new AtomicBoolean();
+
+    @Value("${sphuta.scheduler.prerender.lead-ms:1800000}")
+    private long prerenderLeadMs;
+
     private Map<String, Object> buildPayload(String recipient) {
         Map<String, Object> payload = new HashMap<>();
         payload.put("to", recipient);
@@ -29,49 +100,180 @@ public class TimesheetEmailScheduler {
     }
 
     // Runs every day at 10 AM and sends reminder on last working day of month
-    @Scheduled(cron = "0 0 10 * * *")
+    @Scheduled(cron = MONTH_END_CRON)
     public void sendMonthEndReminder() {
         LocalDate today = LocalDate.now();
-        YearMonth ym = YearMonth.now();
-        LocalDate lastDay = ym.atEndOfMonth();
-
-        DayOfWeek dow = lastDay.getDayOfWeek();
-        if (dow == DayOfWeek.SATURDAY) lastDay = lastDay.minusDays(1);
-        else if (dow == DayOfWeek.SUNDAY) lastDay = lastDay.minusDays(2);
-
-        if (today.equals(lastDay)) {
+        if (isLastWorkingDayOfMonth(today)) {
             log.info("Running Month End Reminder for date: {}", today);
-            triggerReminder(1, "accounts@example.com");
+            triggerReminder(MONTH_END);
         }
     }
 
     // Runs every Friday at 5 PM
-    @Scheduled(cron = "0 0 17 * * FRI")
+    @Scheduled(cron = WEEK_END_CRON)
     public void sendWeekEndReminder() {
         log.info("Running End-of-Week Reminder (Friday)");
-        triggerReminder(2, "team@example.com");
+        triggerReminder(WEEK_END);
     }
 
     // Runs on 15th day of every month at 10 AM
-    @Scheduled(cron = "0 0 10 15 * ?")
+    @Scheduled(cron = MID_MONTH_CRON)
     public void sendMidMonthReminder() {
         log.info("Running Mid-Month Reminder for 15th");
-        triggerReminder(3, "hr@example.com");
+        triggerReminder(MID_MONTH);
     }
 
     // Runs every minute at second 0
-    @Scheduled(cron = "0 */1 * * * *")
+    @Scheduled(cron = EVERY_MINUTE_CRON)
     public void sendEveryMinuteReminder() {
         log.info("Running Every Minute Reminder");
-        triggerReminder(1, "test@example.com"); // use a test reminder number
+        triggerReminder(EVERY_MINUTE); // use a test reminder number
     }
 
-    private void triggerReminder(int reminderNumber, String toMail) {
+    /**
+     * Render the next run of every job with a recipient source into the spool once it is
+     * less than {@code lead-ms} away. Runs that already have a current spool are left alone.
+     * Spooled messages that failed at their run are retried first.
+     *
+     * <p>The pass runs on {@code prerenderExecutor}, not on the scheduling thread the cron
+     * runs share; a tick that finds the previous pass still running is skipped.</p>
+     */
+    @Scheduled(fixedDelayString = "${sphuta.scheduler.prerender.check-interval-ms:60000}")
+    public void prerenderUpcoming() {
+        if (spool == null || !prerendering.compareAndSet(false, true)) return;
         try {
-            Map<String, Object> payload = buildPayload(toMail);
-            emailService.sendReminderByNumber(reminderNumber, payload);
-        } catch (MessagingException e) {
-            log.error("Failed to send reminder {}: {}", reminderNumber, e.getMessage(), e);
+            prerenderExecutor.execute(() -> {
+                try {
+                    prerender(LocalDateTime.now());
+                } finally {
+                    prerendering.set(false);
+                }
+            });
+        } catch (RuntimeException ex) {
+            prerendering.set(false);
+            log.error("Pre-render pass could not be started: {}", ex.getMessage(), ex);
         }
     }
+
+    private void prerender(LocalDateTime now) {
+        spool.purgeExpired(now);
+        spool.retryFailed();
+
+        for (JobSpec spec : JOBS) {
+            ScheduledJobProperties.Job config = jobProperties.job(spec.name());
+            Path sourcePath = sourcePath(config);
+            if (sourcePath == null) continue; // a single built-in recipient is not worth spooling
+
+            LocalDateTime runAt = nextRun(spec, now);
+            if (runAt == null || Duration.between(now, runAt).toMillis() > prerenderLeadMs) continue;
+
+            int reminderNumber = reminderNumber(spec, config);
+            try {
+                if (!spool.isReady(spec.name(), runAt, reminderNumber, sourcePath)) {
+                    spool.prepare(spec.name(), runAt, reminderNumber, sourcePath, RecipientSource.forPath(sourcePath, objectMapper));
+                }
+            } catch (Exception ex) {
+                log.error("Pre-rendering {} for {} failed; it will render at send time: {}", spec.name(), runAt, ex.getMessage(), ex);
+            }
+        }
+    }
+
+    private void triggerReminder(JobSpec spec) {
+        String job = spec.name();
+        ScheduledJobProperties.Job config = jobProperties.job(job);
+        int reminderNumber = reminderNumber(spec, config);
+        Path sourcePath = sourcePath(config);
+        RecipientSource source = sourcePath != null
+                ? RecipientSource.forPath(sourcePath, objectMapper)
+                : singleRecipient(spec.defaultRecipient());
+        LocalDateTime runAt = lastFire(spec, LocalDateTime.now());
+
+        shardCoordinator.run(job, runAt, (shard, lease) -> {
+            int chunkSize = Math.max(1, jobProperties.chunkSize());
+            if (spool != null && sourcePath != null) {
+                CampaignSpool.Totals totals = spool.deliver(job, runAt, reminderNumber, sourcePath, chunkSize,
+                        to -> shardCoordinator.owns(shard, to), lease);
+                if (totals != null) {
+                    log.info("Job {} shard {} from spool: sent={} failed={} skipped={}",
+                            job, shard, totals.sent(), totals.failed(), totals.skipped());
+                    return;
+                }
+            }
+
+            long sent = 0, failed = 0, skipped = 0;
+            try (Stream<Map<String, Object>> records = source.open()) {
+                Iterator<Map<String, Object>> it = records
+                        .filter(r -> shardCoordinator.owns(shard, String.valueOf(r.get("to"))))
+                        .iterator();
+                while (it.hasNext()) {
+                    List<Map<String, Object>> chunk = new ArrayList<>(chunkSize);
+                    while (it.hasNext() && chunk.size() < chunkSize) chunk.add(it.next());
+                    if (!lease.keepAlive()) return;
+
+                    BatchSendReport report = emailService.sendReminderBatch(reminderNumber, chunk);
+                    sent += report.sent();
+                    failed += report.failed();
+                    skipped += report.skipped();
+                }
+            }
+            log.info("Job {} shard {} from {}: sent={} failed={} skipped={}", job, shard, source.describe(), sent, failed, skipped);
+        });
+    }
+
+    private static int reminderNumber(JobSpec spec, @Nullable ScheduledJobProperties.Job config) {
+        return config != null && config.reminderNumber() != null ? config.reminderNumber() : spec.defaultReminderNumber();
+    }
+
+    @Nullable
+    private static Path sourcePath(@Nullable ScheduledJobProperties.Job config) {
+        return config != null && config.source() != null && !config.source().isBlank() ? Paths.get(config.source()) : null;
+    }
+
+    // the latest fire time at or before now: the one this invocation was scheduled for, even if the
+    // single scheduling thread started it late; widen the window until the cron has fired in it
+    private static LocalDateTime lastFire(JobSpec spec, LocalDateTime now) {
+        CronExpression cron = CronExpression.parse(spec.cron());
+        for (Duration window : FIRE_LOOKBACK) {
+            LocalDateTime fire = null;
+            for (LocalDateTime next = cron.next(now.minus(window)); next != null && !next.isAfter(now); next = cron.next(next)) {
+                fire = next;
+            }
+            if (fire != null) return fire;
+        }
+        return now.truncatedTo(ChronoUnit.MINUTES);
+    }
+
+    // month-end fires daily but only sends on the last working day, so skip ahead to that day
+    @Nullable
+    private static LocalDateTime nextRun(JobSpec spec, LocalDateTime after) {
+        CronExpression cron = CronExpression.parse(spec.cron());
+        LocalDateTime next = cron.next(after);
+        for (int day = 0; spec == MONTH_END && next != null && day < 31; day++) {
+            if (isLastWorkingDayOfMonth(next.toLocalDate())) return next;
+            next = cron.next(next);
+        }
+        return spec == MONTH_END ? null : next;
+    }
+
+    private static boolean isLastWorkingDayOfMonth(LocalDate date) {
+        LocalDate lastDay = YearMonth.from(date).atEndOfMonth();
+        DayOfWeek dow = lastDay.getDayOfWeek();
+        if (dow == DayOfWeek.SATURDAY) lastDay = lastDay.minusDays(1);
+        else if (dow == DayOfWeek.SUNDAY) lastDay = lastDay.minusDays(2);
+        return date.equals(lastDay);
+    }
+
+    private RecipientSource singleRecipient(String recipient) {
+        return new RecipientSource() {
+            @Override
+            public Stream<Map<String, Object>> open() {
+                return Stream.of(buildPayload(recipient));
+            }
+
+            @Override
+            public String describe() {
+                return recipient;
+            }
+        };
+    }
 }
@@ -1,22 +1,49 @@
 package com.net.sphuta_tms.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.net.sphuta_tms.dto.BatchSendReport;
+import com.net.sphuta_tms.dto.PreparedMessage;
+import com.net.sphuta_tms.dto.RecipientResult;
+import com.net.sphuta_tms.dto.ReminderRequest;
+import com.net.sphuta_tms.dto.RenderedEmail;
+import com.net.sphuta_tms.dto.SendOutcome;
 import com.net.sphuta_tms.dto.TemplateInfo;
+import com.net.sphuta_tms.enums.DeliveryStatus;
 import com.net.sphuta_tms.enums.ReminderType;
+import com.net.sphuta_tms.exceptions.SendInProgressException;
 import com.net.sphuta_tms.constants.TemplateRegistry;
+import com.net.sphuta_tms.mail.LeanMimeBuilder;
+import com.net.sphuta_tms.mail.SmtpRateLimiter;
+import com.net.sphuta_tms.outbox.MailOutbox;
+import com.net.sphuta_tms.template.CompiledTemplates;
+import com.net.sphuta_tms.template.RecordContext;
+import com.net.sphuta_tms.template.RenderedEmailCache;
+import com.net.sphuta_tms.template.SubjectRenderer;
 import com.net.sphuta_tms.util.ReminderPayloadMapper;
 import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 import org.thymeleaf.context.Context;
+import org.thymeleaf.context.IContext;
 import org.thymeleaf.spring6.SpringTemplateEngine;
 
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -34,9 +61,19 @@ import java.util.regex.Pattern;
  *   <li>Mapping numeric reminder codes to reminder types.</li>
  *   <li>Resolving appropriate email templates for each reminder type via TemplateRegistry.</li>
  *   <li>Converting raw payload maps into strongly-typed DTOs.</li>
- *   <li>Rendering email content using Thymeleaf templates.</li>
- *   <li>Extracting email subjects from template metadata.</li>
+ *   <li>Rendering email content using Thymeleaf templates, binding record DTOs directly.</li>
+ *   <li>Evaluating email subjects from template metadata pre-parsed at startup.</li>
  *   <li>Sending HTML emails via JavaMailSender.</li>
+ *   <li>Sending one reminder to many recipients in chunks that share an SMTP connection.</li>
+ *   <li>Recording rendered emails in the {@link MailOutbox} before dispatch, when enabled.</li>
+ *   <li>Reusing identical renders from the {@link RenderedEmailCache}, when enabled.</li>
+ *   <li>Combining manager reminders per recipient into a digest via {@link ReminderCoalescer}, when enabled.</li>
+ *   <li>Timing each stage and counting outcomes per reminder and template via {@link SendPipelineMetrics}.</li>
+ *   <li>Rendering MIME messages ahead of a scheduled run and delivering them later.</li>
+ *   <li>Suppressing repeated sends of the same reminder within a window via {@link IdempotencyStore}, when enabled.</li>
+ *   <li>Writing single-part HTML messages directly via {@link LeanMimeBuilder}, when enabled.</li>
+ *   <li>Rendering supported templates without the engine via {@link CompiledTemplates}, when enabled.</li>
+ *   <li>Splitting a single send at the SMTP hand-off, so {@link ReactiveEmailService} can run the halves on different schedulers.</li>
  * </ul>
  *
  * <p>This service uses:
@@ -69,10 +106,53 @@ public class EmailService {
     @Autowired
     private TemplateRegistry templateRegistry; // NEW: registry by reminder number
 
-    // existing META pattern (or use Jsoup as you prefer)
+    @Autowired
+    private SubjectRenderer subjectRenderer;
+
+    // number of messages handed to a single JavaMailSender.send(...) call (one SMTP connection)
+    @Value("${sphuta.mail.batch.chunk-size:50}")
+    private int batchChunkSize;
+
+    // only registered in virtual-thread mode: batch chunks are then sent concurrently,
+    // bounded by the mail sender's per-host session cap
+    @Autowired(required = false)
+    @Qualifier("mailDispatchExecutor")
+    private TaskExecutor fanOutExecutor;
+
+    // only registered when sphuta.mail.outbox.enabled=true
+    @Autowired(required = false)
+    private MailOutbox outbox;
+
+    // only registered when sphuta.mail.digest.enabled=true
+    @Autowired(required = false)
+    private ReminderCoalescer coalescer;
+
+    // only registered when sphuta.mail.render-cache.enabled=true
+    @Autowired(required = false)
+    private RenderedEmailCache renderCache;
+
+    // only registered when sphuta.mail.idempotency.enabled=true
+    @Autowired(required = false)
+    private IdempotencyStore idempotency;
+
+    // only registered when sphuta.mail.mime.lean.enabled=true
+    @Autowired(required = false)
+    private LeanMimeBuilder leanMime;
+
+    // only registered when sphuta.mail.templates.compiled.enabled=true
+    @Autowired(required = false)
+    private CompiledTemplates compiledTemplates;
+
+    // replaced by the Micrometer-backed bean at runtime; no-op in plain unit tests
+    @Autowired
+    private SendPipelineMetrics metrics = SendPipelineMetrics.NOOP;
+
+    // existing META pattern, only used for templates not pre-parsed by TemplateRegistry
     private static final Pattern META_SUBJECT =
             Pattern.compile("<meta\\s+[^>]*name\\s*=\\s*['\"]subject['\"][^>]*content\\s*=\\s*['\"](.*?)['\"][^>]*/?>",
                     Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    private static final Pattern META_SUBJECT_TAG =
+            Pattern.compile("(?i)<meta[^>]*?name\\s*=\\s*['\"]subject['\"][^>]*?>");
 
     /**
      * Facade: accept numeric reminder code + raw payload map,
@@ -84,62 +164,515 @@ public class EmailService {
     public void sendReminderByNumber(int reminderNumber, Map<String, Object> payload) throws MessagingException {
         log.info("EmailService.sendReminderByNumber number={} payloadKeys={}", reminderNumber, payload == null ? "null" : payload.keySet());
 
+        ReminderRequest request = prepareReminder(reminderNumber, payload);
+        sendPrepared(request);
+    }
+
+    /**
+     * Validation half of {@link #sendReminderByNumber}: resolve template and type
+     * and convert the payload, without rendering or sending anything.
+     * Used by callers that hand the actual send to another thread.
+     *
+     * Throws IllegalArgumentException for bad input (invalid number, missing template, invalid payload)
+     */
+    public ReminderRequest prepareReminder(int reminderNumber, Map<String, Object> payload) {
+        long start = System.nanoTime();
+
         // 1) lookup template info by reminderNumber (fast map lookup)
+        TemplateInfo tinfo = requireTemplate(reminderNumber);
+
+        // 2) resolve ReminderType from numeric code (preserves existing mapper API)
+        ReminderType type = requireType(reminderNumber);
+
+        SendPipelineMetrics.TemplateMeters meters = metrics.forTemplate(tinfo.getTemplatePath());
+        long mapStart = System.nanoTime();
+        meters.lookup(mapStart - start);
+
+        // 3) payload -> DTO conversion using existing mapper
+        Object dto;
+        try {
+            dto = payloadMapper.toDto(type, payload);
+        } catch (IllegalArgumentException ex) {
+            log.warn("Payload -> DTO conversion failed for reminderNumber={}: {}", reminderNumber, ex.getMessage());
+            throw ex;
+        }
+        meters.map(System.nanoTime() - mapStart);
+
+        return new ReminderRequest(reminderNumber, type, tinfo.getTemplatePath(), dto);
+    }
+
+    /**
+     * Same as {@link #prepareReminder(int, Map)}, but the DTO is parsed straight from the
+     * JSON request body, chosen by reminder number, without building a payload Map first.
+     *
+     * Throws IllegalArgumentException for bad input (invalid number, missing template, invalid payload)
+     */
+    public ReminderRequest prepareReminder(int reminderNumber, InputStream body) {
+        long start = System.nanoTime();
+        TemplateInfo tinfo = requireTemplate(reminderNumber);
+        ReminderType type = requireType(reminderNumber);
+
+        SendPipelineMetrics.TemplateMeters meters = metrics.forTemplate(tinfo.getTemplatePath());
+        long mapStart = System.nanoTime();
+        meters.lookup(mapStart - start);
+
+        Object dto;
+        try {
+            dto = payloadMapper.readDto(type, body);
+        } catch (IllegalArgumentException ex) {
+            log.warn("Request body -> DTO binding failed for reminderNumber={}: {}", reminderNumber, ex.getMessage());
+            throw ex;
+        }
+        meters.map(System.nanoTime() - mapStart);
+
+        return new ReminderRequest(reminderNumber, type, tinfo.getTemplatePath(), dto);
+    }
+
+    /**
+     * Sending half of {@link #sendReminderByNumber} for a request built by {@link #prepareReminder}.
+     */
+    public void sendPrepared(ReminderRequest request) throws MessagingException {
+        sendPrepared(request, null);
+    }
+
+    /**
+     * Same as {@link #sendPrepared(ReminderRequest)}, deduplicated by {@code idempotencyKey}
+     * or, without one, by a key derived from reminder number, recipient and week. A repeat
+     * within the window returns the earlier result without rendering or sending.
+     *
+     * Throws SendInProgressException when the earlier send with that key is still running
+     */
+    public SendOutcome sendPrepared(ReminderRequest request, @Nullable String idempotencyKey) throws MessagingException {
+        return completeSend(stageSend(request, idempotencyKey));
+    }
+
+    /**
+     * First half of {@link #sendPrepared(ReminderRequest, String)}, everything before the SMTP
+     * hand-off: deduplication, digest buffering, rendering, MIME building and the outbox record.
+     * The returned send must be passed to {@link #completeSend}, which may run on another thread.
+     *
+     * Throws SendInProgressException when the earlier send with that key is still running
+     */
+    public StagedSend stageSend(ReminderRequest request, @Nullable String idempotencyKey) throws MessagingException {
+        String key = idempotency == null ? null : idempotency.keyFor(request, idempotencyKey);
+        IdempotencyStore.Claim claim = key == null ? null : idempotency.claim(key);
+        if (claim != null && claim.isDuplicate()) {
+            log.info("EmailService: reminderNumber={} already sent for key '{}', not sending again",
+                    request.reminderNumber(), key);
+            metrics.forTemplate(request.templatePath()).duplicate(1);
+            if (claim.inProgress()) throw new SendInProgressException("A send with this key is still in progress");
+            return new StagedSend(request, SendOutcome.replayed(claim.previousResult()), null, null);
+        }
+
+        String result = "Triggered reminder " + request.reminderNumber();
+        StagedEmail email;
+        try {
+            if (coalescer != null && coalescer.accepts(request)) {
+                // durable while buffered; the coalescer settles the record and the claim with the digest
+                long outboxId = outbox == null ? -1
+                        : outbox.append(render(request.templatePath(), request.dto(), metrics.forTemplate(request.templatePath())));
+                coalescer.offer(request, outboxId, claim);
+                log.info("EmailService: reminderNumber={} buffered for a digest", request.reminderNumber());
+                return new StagedSend(request, SendOutcome.buffered("Queued reminder " + request.reminderNumber() + " for a digest"), null, null);
+            }
+            // 4) reuse existing rendering & sending, but use templatePath from registry
+            email = stage(request.templatePath(), request.dto(), true);
+        } catch (MessagingException | RuntimeException ex) {
+            if (claim != null) claim.release(); // failed sends may be retried with the same key
+            throw ex;
+        }
+        if (email == null) {
+            // nothing to send without a recipient
+            if (claim != null) claim.complete(result);
+            return new StagedSend(request, SendOutcome.sent(result), null, null);
+        }
+        return new StagedSend(request, null, email, claim);
+    }
+
+    /**
+     * Second half of {@link #sendPrepared(ReminderRequest, String)}: hand a send staged by
+     * {@link #stageSend} to SMTP and record the result. Returns at once when nothing is left to deliver.
+     *
+     * A failure is thrown to the caller, who owns the retry: the outbox entry is abandoned rather
+     * than left for {@code OutboxReplayer}, and the idempotency claim is released so that a retry
+     * with the same key is accepted. Only one of them ever re-sends the message.
+     */
+    public SendOutcome completeSend(StagedSend staged) {
+        if (staged.outcome != null) return staged.outcome;
+        ReminderRequest request = staged.request;
+        try {
+            dispatch(staged.email, metrics.forTemplate(request.templatePath()), false);
+        } catch (RuntimeException ex) {
+            if (staged.claim != null) staged.claim.release(); // failed sends may be retried with the same key
+            throw ex;
+        }
+        log.info("EmailService: triggered send for reminderNumber={} type={} templatePath={}",
+                request.reminderNumber(), request.type(), request.templatePath());
+        String result = "Triggered reminder " + request.reminderNumber();
+        if (staged.claim != null) staged.claim.complete(result);
+        return SendOutcome.sent(result);
+    }
+
+    /**
+     * Batch facade: render the reminder for every payload and deliver the messages
+     * in chunks of {@code sphuta.mail.batch.chunk-size}. Each chunk goes through a single
+     * {@link JavaMailSender#send(MimeMessage...)} call, so one SMTP connect/STARTTLS/AUTH
+     * is paid per chunk instead of per recipient.
+     *
+     * Throws IllegalArgumentException when the reminder number or the batch itself is invalid;
+     * per-recipient problems are reported in the returned {@link BatchSendReport}.
+     */
+    public BatchSendReport sendReminderBatch(int reminderNumber, List<Map<String, Object>> payloads) {
+        log.info("EmailService.sendReminderBatch number={} size={}", reminderNumber, payloads == null ? "null" : payloads.size());
+
+        if (payloads == null || payloads.isEmpty()) {
+            throw new IllegalArgumentException("Batch must contain at least one payload");
+        }
+
+        TemplateInfo tinfo = requireTemplate(reminderNumber);
+        ReminderType type = requireType(reminderNumber);
+        SendPipelineMetrics.TemplateMeters meters = metrics.forTemplate(tinfo.getTemplatePath());
+
+        // 1) render every payload; bad entries are recorded and do not stop the batch
+        RecipientResult[] results = new RecipientResult[payloads.size()];
+        List<PendingMessage> pending = new ArrayList<>(payloads.size());
+        int duplicates = 0;
+        for (int i = 0; i < payloads.size(); i++) {
+            Map<String, Object> payload = payloads.get(i);
+            String to = payload != null && payload.get("to") != null ? payload.get("to").toString() : null;
+            IdempotencyStore.Claim claim = null;
+            try {
+                Object dto = payloadMapper.toDto(type, payload);
+                claim = claimFor(reminderNumber, dto);
+                if (claim != null && claim.isDuplicate()) {
+                    results[i] = RecipientResult.skipped(i, to, claim.inProgress()
+                            ? "Duplicate of a send in progress" : "Duplicate of an earlier send: " + claim.previousResult());
+                    duplicates++;
+                    continue;
+                }
+                RenderedEmail email = render(tinfo.getTemplatePath(), dto, meters);
+                if (!email.hasRecipient()) {
+                    results[i] = RecipientResult.skipped(i, to, "Recipient 'to' missing");
+                    if (claim != null) claim.release();
+                    continue;
+                }
+                pending.add(new PendingMessage(i, email.to(), email, buildMessage(email), -1, claim));
+            } catch (MessagingException | RuntimeException ex) {
+                log.warn("Batch entry {} for reminderNumber={} could not be prepared: {}", i, reminderNumber, ex.getMessage());
+                results[i] = RecipientResult.failed(i, to, ex.getMessage());
+                if (claim != null) claim.release();
+            }
+        }
+
+        // 2) record everything in the outbox with one group commit before anything goes out
+        if (outbox != null && !pending.isEmpty()) {
+            List<Long> ids;
+            try {
+                ids = outbox.appendAll(pending.stream().map(PendingMessage::email).toList());
+            } catch (RuntimeException ex) {
+                // nothing is sent unrecorded; the claims are released so that a retry is accepted
+                log.error("Batch for reminderNumber={} could not be recorded in the outbox: {}", reminderNumber, ex.getMessage(), ex);
+                for (PendingMessage p : pending) {
+                    results[p.index()] = RecipientResult.failed(p.index(), p.to(), "Not recorded in the outbox: " + ex.getMessage());
+                    if (p.claim() != null) p.claim().release();
+                }
+                pending.clear();
+                ids = List.of();
+            }
+            for (int i = 0; i < pending.size(); i++) {
+                PendingMessage p = pending.get(i);
+                pending.set(i, new PendingMessage(p.index(), p.to(), p.email(), p.message(), ids.get(i), p.claim()));
+            }
+        }
+
+        // 3) deliver in chunks, one SMTP session per chunk
+        deliver(reminderNumber, pending, results);
+
+        BatchSendReport report = BatchSendReport.of(reminderNumber, Arrays.asList(results));
+        meters.sent(report.sent());
+        meters.failed(report.failed());
+        meters.skippedMissingTo(report.skipped() - duplicates);
+        meters.duplicate(duplicates);
+        log.info("EmailService: batch for reminderNumber={} finished total={} sent={} failed={} skipped={}",
+                reminderNumber, report.total(), report.sent(), report.failed(), report.skipped());
+        return report;
+    }
+
+    /**
+     * Render one reminder into a complete MIME message without sending it, e.g. for a
+     * scheduled run spooled ahead of its send time. Returns null when the rendered email
+     * has no recipient.
+     *
+     * Throws IllegalArgumentException for bad input (invalid number, missing template, invalid payload)
+     */
+    @Nullable
+    public PreparedMessage renderMessage(int reminderNumber, Map<String, Object> payload) throws MessagingException {
+        TemplateInfo tinfo = requireTemplate(reminderNumber);
+        ReminderType type = requireType(reminderNumber);
+        SendPipelineMetrics.TemplateMeters meters = metrics.forTemplate(tinfo.getTemplatePath());
+
+        Object dto = payloadMapper.toDto(type, payload);
+        RenderedEmail email = render(tinfo.getTemplatePath(), dto, meters);
+        if (!email.hasRecipient()) {
+            meters.skippedMissingTo(1);
+            return null;
+        }
+        return new PreparedMessage(email.to(), tinfo.getTemplatePath(), IdempotencyStore.deriveKey(reminderNumber, dto),
+                buildMessage(email));
+    }
+
+    /**
+     * Render {@code dto} with any registered template, the digest included, into a MIME
+     * message without sending or recording it, e.g. for the CDS training run. Returns null
+     * when the rendered email has no recipient.
+     */
+    @Nullable
+    public MimeMessage renderTemplate(String templatePath, Object dto) throws MessagingException {
+        RenderedEmail email = render(templatePath, dto, metrics.forTemplate(templatePath));
+        return email.hasRecipient() ? buildMessage(email) : null;
+    }
+
+    /**
+     * Delivery half of {@link #sendReminderBatch} for messages built by {@link #renderMessage}:
+     * chunked the same way, nothing is rendered. Messages whose idempotency key was already
+     * sent are skipped. They are not recorded in the outbox; the caller keeps them and retries failures itself.
+     */
+    public BatchSendReport deliverPrepared(int reminderNumber, List<PreparedMessage> messages) {
+        TemplateInfo tinfo = requireTemplate(reminderNumber);
+        SendPipelineMetrics.TemplateMeters meters = metrics.forTemplate(tinfo.getTemplatePath());
+
+        RecipientResult[] results = new RecipientResult[messages.size()];
+        List<PendingMessage> pending = new ArrayList<>(messages.size());
+        int duplicates = 0;
+        for (int i = 0; i < messages.size(); i++) {
+            PreparedMessage m = messages.get(i);
+            IdempotencyStore.Claim claim = idempotency == null || m.idempotencyKey() == null
+                    ? null : idempotency.claim(m.idempotencyKey());
+            if (claim != null && claim.isDuplicate()) {
+                results[i] = RecipientResult.skipped(i, m.to(), "Duplicate of an earlier send");
+                duplicates++;
+                continue;
+            }
+            pending.add(new PendingMessage(i, m.to(), null, m.message(), -1, claim));
+        }
+
+        deliver(reminderNumber, pending, results);
+
+        BatchSendReport report = BatchSendReport.of(reminderNumber, Arrays.asList(results));
+        meters.sent(report.sent());
+        meters.failed(report.failed());
+        meters.duplicate(duplicates);
+        log.info("EmailService: pre-rendered batch for reminderNumber={} finished total={} sent={} failed={} skipped={}",
+                reminderNumber, report.total(), report.sent(), report.failed(), report.skipped());
+        return report;
+    }
+
+    // chunks go out concurrently in virtual-thread mode; results are filled in per message
+    private void deliver(int reminderNumber, List<PendingMessage> pending, RecipientResult[] results) {
+        int chunkSize = Math.max(1, batchChunkSize);
+        Exception[] causes = new Exception[results.length];
+        List<CompletableFuture<Void>> inFlight = new ArrayList<>();
+        for (int from = 0; from < pending.size(); from += chunkSize) {
+            List<PendingMessage> chunk = pending.subList(from, Math.min(from + chunkSize, pending.size()));
+            if (fanOutExecutor == null) {
+                sendChunk(chunk, results, causes);
+            } else {
+                inFlight.add(CompletableFuture.runAsync(() -> sendChunk(chunk, results, causes), fanOutExecutor));
+            }
+        }
+        CompletableFuture.allOf(inFlight.toArray(new CompletableFuture[0])).join();
+
+        for (PendingMessage p : pending) {
+            boolean sent = results[p.index()].status() == DeliveryStatus.SENT;
+            if (outbox != null && p.outboxId() >= 0) {
+                if (sent) outbox.markDelivered(p.outboxId());
+                else outbox.recordFailure(p.outboxId(), SmtpRateLimiter.isPermanentFailure(causes[p.index()]),
+                        results[p.index()].detail());
+            }
+            if (p.claim() != null) {
+                if (sent) p.claim().complete("Sent reminder " + reminderNumber + " to " + p.to());
+                else p.claim().release();
+            }
+        }
+    }
+
+    // causes[i] is set for every failed message, for classifying the failure later
+    private void sendChunk(List<PendingMessage> chunk, RecipientResult[] results, Exception[] causes) {
+        MimeMessage[] messages = chunk.stream().map(PendingMessage::message).toArray(MimeMessage[]::new);
+        try {
+            mailSender.send(messages);
+            chunk.forEach(p -> results[p.index()] = RecipientResult.sent(p.index(), p.to()));
+        } catch (MailSendException ex) {
+            // failedMessages is keyed by the MimeMessage instances we handed over
+            Map<Object, Exception> failed = ex.getFailedMessages();
+            for (PendingMessage p : chunk) {
+                Exception cause = failed.get(p.message());
+                causes[p.index()] = cause;
+                results[p.index()] = cause == null
+                        ? RecipientResult.sent(p.index(), p.to())
+                        : RecipientResult.failed(p.index(), p.to(), cause.getMessage());
+            }
+            log.warn("Batch chunk of {} messages had {} failures: {}", chunk.size(), failed.size(), ex.getMessage());
+        } catch (RuntimeException ex) {
+            // MailException or anything else from the sender: only this chunk fails, the batch goes on
+            log.error("Batch chunk of {} messages failed: {}", chunk.size(), ex.getMessage(), ex);
+            for (PendingMessage p : chunk) {
+                causes[p.index()] = ex;
+                results[p.index()] = RecipientResult.failed(p.index(), p.to(), ex.getMessage());
+            }
+        }
+    }
+
+    @Nullable
+    private IdempotencyStore.Claim claimFor(int reminderNumber, Object dto) {
+        String key = idempotency == null ? null : IdempotencyStore.deriveKey(reminderNumber, dto);
+        return key == null ? null : idempotency.claim(key);
+    }
+
+    private TemplateInfo requireTemplate(int reminderNumber) {
         TemplateInfo tinfo = templateRegistry.getByReminderNumber(reminderNumber);
         if (tinfo == null) {
             log.error("No template configured for reminderNumber={}", reminderNumber);
             throw new IllegalArgumentException("Template not configured for reminder number: " + reminderNumber);
         }
+        return tinfo;
+    }
 
-        // 2) resolve ReminderType from numeric code (preserves existing mapper API)
+    private ReminderType requireType(int reminderNumber) {
         ReminderType type = ReminderType.fromCode(reminderNumber);
         if (type == null) {
             log.warn("Unsupported reminder number (no enum mapping): {}", reminderNumber);
             throw new IllegalArgumentException("Unsupported reminder number (no enum mapping): " + reminderNumber);
         }
+        return type;
+    }
 
-        // 3) payload -> DTO conversion using existing mapper
-        Object dto;
+    // --- rendering & sending ---
+    public void sendUsingTemplate(String templatePath, Object dto) throws MessagingException {
+        StagedEmail email = stage(templatePath, dto, true);
+        if (email != null) dispatch(email, metrics.forTemplate(templatePath), true);
+    }
+
+    /**
+     * Send a digest or single reminder for {@link ReminderCoalescer} without an outbox record
+     * of its own: the buffered reminders it stands for are in the outbox until the coalescer settles them.
+     */
+    public void sendBuffered(String templatePath, Object dto) throws MessagingException {
+        StagedEmail email = stage(templatePath, dto, false);
+        if (email != null) dispatch(email, metrics.forTemplate(templatePath), true);
+    }
+
+    // render, build and, if asked to, record in the outbox; null when the email has no recipient
+    @Nullable
+    private StagedEmail stage(String templatePath, Object dto, boolean record) throws MessagingException {
+        log.info("Preparing email using template '{}'", templatePath);
+        SendPipelineMetrics.TemplateMeters meters = metrics.forTemplate(templatePath);
+
+        RenderedEmail email;
+        MimeMessage message;
         try {
-            dto = payloadMapper.toDto(type, payload);
-        } catch (IllegalArgumentException ex) {
-            log.warn("Payload -> DTO conversion failed for reminderNumber={}: {}", reminderNumber, ex.getMessage());
+            email = render(templatePath, dto, meters);
+            if (!email.hasRecipient()) {
+                log.error("Recipient 'to' missing for template '{}'. Aborting send.", templatePath);
+                meters.skippedMissingTo(1);
+                return null;
+            }
+            message = buildMessage(email);
+        } catch (MessagingException | RuntimeException ex) {
+            meters.failed(1);
             throw ex;
         }
 
-        // 4) reuse existing rendering & sending, but use templatePath from registry
-        sendUsingTemplate(tinfo.getTemplatePath(), dto);
-        log.info("EmailService: triggered send for reminderNumber={} type={} templatePath={}",
-                reminderNumber, type, tinfo.getTemplatePath());
+        // durable before dispatch: a crash from here on leaves the email pending for replay
+        long outboxId = outbox == null || !record ? -1 : outbox.append(email);
+        return new StagedEmail(email, message, outboxId);
     }
 
-    // --- existing sendUsingTemplate / extractSubject / sendHtml methods remain unchanged ---
-    public void sendUsingTemplate(String templatePath, Object dto) throws MessagingException {
-        log.info("Preparing email using template '{}'", templatePath);
+    // replayOnFailure=false: the caller reports the failure and owns the retry
+    private void dispatch(StagedEmail staged, SendPipelineMetrics.TemplateMeters meters, boolean replayOnFailure) {
+        long start = System.nanoTime();
+        try {
+            mailSender.send(staged.message());
+        } catch (RuntimeException ex) {
+            meters.failed(1);
+            if (outbox != null && staged.outboxId() >= 0) {
+                if (replayOnFailure) {
+                    // stays pending for OutboxReplayer unless the server rejected it for good
+                    outbox.recordFailure(staged.outboxId(), SmtpRateLimiter.isPermanentFailure(ex), ex.getMessage());
+                } else {
+                    outbox.abandon(staged.outboxId());
+                }
+            }
+            throw ex;
+        }
+        meters.delivered(System.nanoTime() - start);
+        if (outbox != null && staged.outboxId() >= 0) outbox.markDelivered(staged.outboxId());
+        log.info("Email sent to {} using template '{}'", staged.email().to(), staged.email().templatePath());
+    }
 
-        Map<String, Object> variables = objectMapper.convertValue(dto, Map.class);
-        Context ctx = new Context();
-        if (variables != null) ctx.setVariables(variables);
-        String html = templateEngine.process(templatePath, ctx);
+    /**
+     * Send an email that was already rendered, e.g. one replayed from the outbox.
+     */
+    public void deliverRendered(RenderedEmail email) throws MessagingException {
+        sendHtml(email);
+    }
+
+    private RenderedEmail render(String templatePath, Object dto, SendPipelineMetrics.TemplateMeters meters) {
+        boolean cacheable = renderCache != null && RenderedEmailCache.cacheable(dto);
+        if (cacheable) {
+            RenderedEmail cached = renderCache.get(templatePath, dto);
+            if (cached != null) {
+                log.debug("Reusing rendered email for template '{}'", templatePath);
+                return cached;
+            }
+        }
+
+        long start = System.nanoTime();
+        IContext ctx = bindContext(dto);
+        String html = compiledTemplates == null
+                ? templateEngine.process(templatePath, ctx)
+                : compiledTemplates.render(templatePath, dto, () -> templateEngine.process(templatePath, ctx));
+        long subjectStart = System.nanoTime();
+        meters.render(subjectStart - start);
         log.debug("Rendered template '{}' ({} chars)", templatePath, html == null ? 0 : html.length());
 
-        String subject = extractSubject(html);
+        String subject;
+        String body;
+        if (subjectRenderer.handles(templatePath)) {
+            // registered template: body was compiled without the meta tag, subject comes from its pre-parsed expression
+            subject = subjectRenderer.render(templatePath, ctx);
+            body = html == null ? "" : html;
+        } else {
+            subject = extractSubject(html);
+            body = html == null ? "" : META_SUBJECT_TAG.matcher(html).replaceAll("");
+        }
+        meters.subject(System.nanoTime() - subjectStart);
+
         if (subject != null && !subject.isBlank()) {
-            log.info("Extracted subject: {}", subject);
+            log.debug("Resolved subject: {}", subject);
         } else {
             log.warn("No subject found in template '{}'; sending without subject", templatePath);
             subject = null;
         }
 
-        String cleanedHtml = html == null ? "" : html.replaceAll("(?i)<meta[^>]*?name\\s*=\\s*['\"]subject['\"][^>]*?>", "");
-        String to = variables != null && variables.get("to") != null ? variables.get("to").toString() : null;
-        if (to == null || to.isBlank()) {
-            log.error("Recipient 'to' missing for template '{}'. Aborting send.", templatePath);
-            return;
-        }
+        Object to = ctx.getVariable("to");
+        RenderedEmail email = new RenderedEmail(templatePath, to == null ? null : to.toString(), subject, body);
+        if (cacheable) renderCache.put(templatePath, dto, email);
+        return email;
+    }
 
-        sendHtml(to, subject, cleanedHtml);
-        log.info("Email sent to {} using template '{}'", to, templatePath);
+    /**
+     * Template context for a DTO. Records are bound through their accessors
+     * ({@link RecordContext}); anything else is converted to a map first, as before.
+     */
+    private IContext bindContext(Object dto) {
+        if (RecordContext.supports(dto)) {
+            return new RecordContext(dto, Locale.getDefault());
+        }
+        Map<String, Object> variables = objectMapper.convertValue(dto, Map.class);
+        Context ctx = new Context();
+        if (variables != null) ctx.setVariables(variables);
+        return ctx;
     }
 
     private String extractSubject(String html) {
@@ -148,7 +681,20 @@ public class EmailService {
         return m.find() ? m.group(1).trim() : null;
     }
 
-    private void sendHtml(String to, String subject, String html) throws MessagingException {
+    private void sendHtml(RenderedEmail email) throws MessagingException {
+        mailSender.send(buildMessage(email));
+    }
+
+    private MimeMessage buildMessage(RenderedEmail email) throws MessagingException {
+        String to = email.to();
+        String subject = email.subject();
+        String html = email.html();
+        if (leanMime != null) {
+            MimeMessage lean = leanMime.build(mailSender, email.templatePath(), to, subject, html);
+            if (lean != null) return lean;
+        }
+
+        // multipart only needed for inline resources; kept as the general fallback
         MimeMessage msg = mailSender.createMimeMessage();
         MimeMessageHelper helper = new MimeMessageHelper(
                 msg,
@@ -159,7 +705,43 @@ public class EmailService {
         helper.setTo(to);
         if (subject != null && !subject.isBlank()) helper.setSubject(subject);
         helper.setText(html, true);
+        return msg;
+    }
+
+    /**
+     * A single send staged by {@link #stageSend}, to be completed by {@link #completeSend}.
+     */
+    public static final class StagedSend {
+        private final ReminderRequest request;
+        @Nullable private final SendOutcome outcome;
+        @Nullable private final StagedEmail email;
+        @Nullable private final IdempotencyStore.Claim claim;
+
+        private StagedSend(ReminderRequest request, @Nullable SendOutcome outcome,
+                           @Nullable StagedEmail email, @Nullable IdempotencyStore.Claim claim) {
+            this.request = request;
+            this.outcome = outcome;
+            this.email = email;
+            this.claim = claim;
+        }
 
-        mailSender.send(msg);
+        public ReminderRequest request() {
+            return request;
+        }
+
+        /**
+         * Result when there is nothing left to deliver (duplicate, digest, no recipient), otherwise null.
+         */
+        @Nullable
+        public SendOutcome outcome() {
+            return outcome;
+        }
     }
+
+    // outboxId is -1 when not recorded
+    private record StagedEmail(RenderedEmail email, MimeMessage message, long outboxId) { }
+
+    // email is null for messages rendered ahead of time; outboxId is -1 when not recorded
+    private record PendingMessage(int index, String to, @Nullable RenderedEmail email, MimeMessage message,
+                                  long outboxId, @Nullable IdempotencyStore.Claim claim) { }
 }
@@ -0,0 +1,340 @@
+package com.net.sphuta_tms.service;
+
+import com.net.sphuta_tms.dto.ReminderRequest;
+import com.net.sphuta_tms.template.RecordAccessors;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.function.LongSupplier;
+
+/**
+ * ==========================================================
+ * {@code IdempotencyStore}
+ * ==========================================================
+ *
+ * <p>Remembers which sends already happened within {@code window-ms}, so a retried
+ * REST call or a cron run that fires again does not mail the same person twice.</p>
+ *
+ * <p>Keys are the caller's {@code Idempotency-Key} header, or derived from the
+ * reminder number, recipient, week and (for manager reminders) employee.</p>
+ *
+ * <p>Rules:
+ * <ul>
+ *   <li>{@link #claim} on an unseen key reserves it; the caller sends and then calls
+ *       {@link Claim#complete} with its result, or {@link Claim#release} when the send
+ *       failed so that a retry goes through.</li>
+ *   <li>A claim on a completed key returns the earlier result; one on a key whose send
+ *       is still running is reported as in progress. Neither renders nor sends.</li>
+ *   <li>Results of the latest {@code max-keys} keys are kept exactly. Completed keys are
+ *       also added to two rotating Bloom filters (a generation each half window) that
+ *       cover the whole window at a fixed size, so a key whose result was already
+ *       evicted is still recognised as a duplicate. Sized for {@code expected-keys}
+ *       per generation at {@code false-positive-rate}.</li>
+ * </ul>
+ *
+ * <p>State is per instance and in memory. Enabled with
+ * {@code sphuta.mail.idempotency.enabled=true}.</p>
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "sphuta.mail.idempotency", name = "enabled", havingValue = "true")
+public class IdempotencyStore implements MeterBinder {
+
+    public static final int MAX_KEY_LENGTH = 255;
+
+    static final String RESULT_NOT_RETAINED = "Already sent; the earlier result is no longer retained";
+
+    private static final class Entry {
+        final long createdAt;
+        @Nullable String result; // null while the send is running
+
+        Entry(long createdAt) {
+            this.createdAt = createdAt;
+        }
+    }
+
+    /**
+     * Outcome of {@link #claim}: either the caller owns the key and must complete or
+     * release it, or the key was seen before.
+     */
+    public final class Claim {
+        private final String key;
+        @Nullable private final Entry entry;
+        @Nullable private final String previousResult;
+
+        private Claim(String key, @Nullable Entry entry, @Nullable String previousResult) {
+            this.key = key;
+            this.entry = entry;
+            this.previousResult = previousResult;
+        }
+
+        public String key() {
+            return key;
+        }
+
+        public boolean isDuplicate() {
+            return entry == null;
+        }
+
+        /**
+         * A send for this key is still running; there is no result to return yet.
+         */
+        public boolean inProgress() {
+            return entry == null && previousResult == null;
+        }
+
+        @Nullable
+        public String previousResult() {
+            return previousResult;
+        }
+
+        public void complete(String result) {
+            if (entry != null) IdempotencyStore.this.complete(key, entry, result);
+        }
+
+        public void release() {
+            if (entry != null) IdempotencyStore.this.release(key, entry);
+        }
+    }
+
+    private final long windowMs;
+    private final int maxKeys;
+    private final LongSupplier clock;
+
+    // insertion-ordered, so iteration starts at the oldest key
+    private final LinkedHashMap<String, Entry> recent = new LinkedHashMap<>();
+    private BloomFilter current;
+    private BloomFilter previous;
+    private long rotatedAt;
+
+    private long duplicates;
+    private long bloomDuplicates;
+    private long inProgressDuplicates;
+
+    @Autowired
+    public IdempotencyStore(@Value("${sphuta.mail.idempotency.window-ms:86400000}") long windowMs,
+                            @Value("${sphuta.mail.idempotency.max-keys:100000}") int maxKeys,
+                            @Value("${sphuta.mail.idempotency.expected-keys:200000}") int expectedKeys,
+                            @Value("${sphuta.mail.idempotency.false-positive-rate:0.000001}") double falsePositiveRate) {
+        this(windowMs, maxKeys, expectedKeys, falsePositiveRate, System::currentTimeMillis);
+    }
+
+    IdempotencyStore(long windowMs, int maxKeys, int expectedKeys, double falsePositiveRate, LongSupplier clock) {
+        if (windowMs <= 0 || maxKeys <= 0 || expectedKeys <= 0) {
+            throw new IllegalArgumentException("idempotency window-ms, max-keys and expected-keys must be positive");
+        }
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("idempotency false-positive-rate must be between 0 and 1");
+        }
+        this.windowMs = windowMs;
+        this.maxKeys = maxKeys;
+        this.clock = clock;
+        this.current = new BloomFilter(expectedKeys, falsePositiveRate);
+        this.previous = new BloomFilter(expectedKeys, falsePositiveRate);
+        this.rotatedAt = clock.getAsLong();
+        log.info("IdempotencyStore: window={}ms maxKeys={} bloom={} KiB per generation",
+                windowMs, maxKeys, current.sizeBytes() / 1024);
+    }
+
+    /**
+     * Key for a prepared reminder: the caller's key if given, otherwise one derived from
+     * the DTO. Returns null when neither is available (no recipient), so nothing is deduplicated.
+     *
+     * Throws IllegalArgumentException for a blank or oversized caller key.
+     */
+    @Nullable
+    public String keyFor(ReminderRequest request, @Nullable String idempotencyKey) {
+        if (idempotencyKey != null) {
+            String trimmed = idempotencyKey.trim();
+            if (trimmed.isEmpty() || trimmed.length() > MAX_KEY_LENGTH) {
+                throw new IllegalArgumentException("Idempotency-Key must be 1-" + MAX_KEY_LENGTH + " characters");
+            }
+            return "h:" + trimmed;
+        }
+        return deriveKey(request.reminderNumber(), request.dto());
+    }
+
+    /**
+     * {@code reminderNumber|to|weekDate}, plus the employee for DTOs that carry one
+     * (a manager gets one reminder per employee for the same week).
+     */
+    @Nullable
+    public static String deriveKey(int reminderNumber, @Nullable Object dto) {
+        if (dto == null || !dto.getClass().isRecord()) return null;
+        RecordAccessors accessors = RecordAccessors.of(dto.getClass());
+        Object to = accessors.get(dto, "to");
+        if (to == null || to.toString().isBlank()) return null;
+
+        StringBuilder key = new StringBuilder("d:").append(reminderNumber)
+                .append('|').append(to.toString().trim().toLowerCase(Locale.ROOT))
+                .append('|').append(accessors.get(dto, "weekDate"));
+        if (accessors.has("employeeName")) {
+            key.append('|').append(accessors.get(dto, "employeeName"));
+        }
+        return key.toString();
+    }
+
+    /**
+     * Reserve {@code key}, or report it as a duplicate with the earlier result.
+     */
+    public synchronized Claim claim(String key) {
+        long now = clock.getAsLong();
+        rotateIfDue(now);
+        purgeExpired(now);
+
+        Entry existing = recent.get(key);
+        if (existing != null) {
+            duplicates++;
+            if (existing.result == null) inProgressDuplicates++;
+            return new Claim(key, null, existing.result);
+        }
+        long hash = hash64(key);
+        if (current.mightContain(hash) || previous.mightContain(hash)) {
+            duplicates++;
+            bloomDuplicates++;
+            return new Claim(key, null, RESULT_NOT_RETAINED);
+        }
+
+        Entry entry = new Entry(now);
+        recent.put(key, entry);
+        if (recent.size() > maxKeys) {
+            Iterator<Entry> it = recent.values().iterator();
+            it.next();
+            it.remove();
+        }
+        return new Claim(key, entry, null);
+    }
+
+    public synchronized int retainedKeys() {
+        return recent.size();
+    }
+
+    public synchronized long duplicates() {
+        return duplicates;
+    }
+
+    public synchronized long bloomDuplicates() {
+        return bloomDuplicates;
+    }
+
+    public synchronized long inProgressDuplicates() {
+        return inProgressDuplicates;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("sphuta.idempotency.keys", this, IdempotencyStore::retainedKeys)
+                .description("Keys whose result is retained exactly")
+                .register(registry);
+        FunctionCounter.builder("sphuta.idempotency.duplicates", this, IdempotencyStore::duplicates)
+                .description("Sends suppressed because their idempotency key was already seen")
+                .register(registry);
+        FunctionCounter.builder("sphuta.idempotency.duplicates.bloom", this, IdempotencyStore::bloomDuplicates)
+                .description("Duplicates recognised only by the Bloom filter, after their result was evicted")
+                .register(registry);
+        FunctionCounter.builder("sphuta.idempotency.duplicates.in.progress", this, IdempotencyStore::inProgressDuplicates)
+                .description("Duplicates that arrived while the first send was still running")
+                .register(registry);
+    }
+
+    private synchronized void complete(String key, Entry entry, String result) {
+        entry.result = result;
+        rotateIfDue(clock.getAsLong());
+        current.put(hash64(key)); // even if the exact entry was evicted meanwhile
+    }
+
+    private synchronized void release(String key, Entry entry) {
+        recent.remove(key, entry);
+    }
+
+    // a completed key stays in the filters for between half a window and a full window
+    private void rotateIfDue(long now) {
+        long half = Math.max(1, windowMs / 2);
+        long elapsed = now - rotatedAt;
+        if (elapsed < half) return;
+        BloomFilter recycled = previous;
+        recycled.clear();
+        if (elapsed >= 2 * half) current.clear(); // idle for a whole window: nothing in it is live any more
+        previous = current;
+        current = recycled;
+        rotatedAt = now;
+    }
+
+    private void purgeExpired(long now) {
+        Iterator<Entry> it = recent.values().iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            if (now - entry.createdAt < windowMs) break;
+            it.remove();
+        }
+    }
+
+    // FNV-1a over the UTF-16 chars, finished with the murmur3 64-bit mixer
+    static long hash64(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Fixed-size Bloom filter over pre-hashed keys, probed with double hashing.
+     */
+    static final class BloomFilter {
+        private final long[] words;
+        private final long bits;
+        private final int hashes;
+
+        BloomFilter(int expectedKeys, double falsePositiveRate) {
+            double ln2 = Math.log(2);
+            long m = (long) Math.ceil(-expectedKeys * Math.log(falsePositiveRate) / (ln2 * ln2));
+            this.words = new long[(int) Math.max(1, (m + 63) / 64)];
+            this.bits = words.length * 64L;
+            this.hashes = Math.max(1, (int) Math.round((double) bits / expectedKeys * ln2));
+        }
+
+        void put(long hash) {
+            long h2 = (hash >>> 32) | 1;
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(hash + i * h2, bits);
+                words[(int) (bit >>> 6)] |= 1L << bit;
+            }
+        }
+
+        boolean mightContain(long hash) {
+            long h2 = (hash >>> 32) | 1;
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(hash + i * h2, bits);
+                if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0) return false;
+            }
+            return true;
+        }
+
+        void clear() {
+            Arrays.fill(words, 0L);
+        }
+
+        long sizeBytes() {
+            return words.length * 8L;
+        }
+    }
+}
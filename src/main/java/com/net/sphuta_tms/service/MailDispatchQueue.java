@@ -0,0 +1,192 @@
+package com.net.sphuta_tms.service;
+
+import com.net.sphuta_tms.dto.DispatchJobStatus;
+import com.net.sphuta_tms.dto.ReminderRequest;
+import com.net.sphuta_tms.enums.DispatchState;
+import com.net.sphuta_tms.exceptions.DispatchQueueFullException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ==========================================================
+ * {@code MailDispatchQueue}
+ * ==========================================================
+ *
+ * <p>Bounded in-process queue for asynchronous reminder sends.
+ * Requests are validated by the caller ({@link EmailService#prepareReminder}),
+ * queued here and drained by a fixed pool of worker threads that call
+ * {@link EmailService#sendPrepared}.</p>
+ *
+ * <p>When the queue is full, {@link #submit} fails fast with
+ * {@link DispatchQueueFullException} instead of growing without limit.
+ * Job outcomes are kept for the most recent
+ * {@code sphuta.mail.async.retained-jobs} finished jobs.</p>
+ *
+ * <p>In virtual-thread mode (a {@code mailDispatchExecutor} bean is present) every
+ * job gets its own virtual thread and {@code queue-capacity} bounds the number of
+ * jobs in flight; the per-host session cap in the mail sender limits actual SMTP
+ * concurrency, so no worker pool needs sizing.</p>
+ */
+@Slf4j
+@Component
+public class MailDispatchQueue {
+
+    @Autowired
+    private EmailService emailService;
+
+    @Value("${sphuta.mail.async.workers:4}")
+    private int workers;
+
+    @Value("${sphuta.mail.async.queue-capacity:500}")
+    private int queueCapacity;
+
+    @Value("${sphuta.mail.async.retained-jobs:10000}")
+    private int retainedJobs;
+
+    // only registered when spring.threads.virtual.enabled=true on Java 21
+    @Autowired(required = false)
+    @Qualifier("mailDispatchExecutor")
+    private TaskExecutor virtualExecutor;
+
+    private final Map<String, DispatchJobStatus> jobs = new ConcurrentHashMap<>();
+    private final Queue<String> finishedJobs = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger finishedCount = new AtomicInteger();
+
+    private ThreadPoolExecutor executor;   // platform-thread mode
+    private Semaphore inFlight;            // virtual-thread mode
+
+    @PostConstruct
+    public void init() {
+        if (virtualExecutor != null) {
+            inFlight = new Semaphore(queueCapacity);
+            log.info("MailDispatchQueue started on virtual threads maxInFlight={}", queueCapacity);
+            return;
+        }
+
+        AtomicInteger threadNo = new AtomicInteger();
+        executor = new ThreadPoolExecutor(
+                workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "mail-dispatch-" + threadNo.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        log.info("MailDispatchQueue started workers={} queueCapacity={}", workers, queueCapacity);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (executor == null) return;
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("MailDispatchQueue did not drain within 30s; {} jobs still queued", executor.getQueue().size());
+        }
+    }
+
+    /**
+     * Queue a validated reminder for sending.
+     *
+     * Throws DispatchQueueFullException when the queue is at capacity.
+     */
+    public DispatchJobStatus submit(ReminderRequest request) {
+        String jobId = UUID.randomUUID().toString();
+        DispatchJobStatus queued = DispatchJobStatus.queued(jobId, request.reminderNumber());
+        jobs.put(jobId, queued);
+
+        if (!enqueue(jobId, request)) {
+            jobs.remove(jobId);
+            log.warn("Dispatch queue full; rejecting reminderNumber={}", request.reminderNumber());
+            throw new DispatchQueueFullException("Dispatch queue is full (capacity " + queueCapacity + "), retry later");
+        }
+
+        log.debug("Queued job {} for reminderNumber={} (queued={})", jobId, request.reminderNumber(), queuedJobs());
+        return queued;
+    }
+
+    /**
+     * Current status of a job, or null when the id is unknown or already evicted.
+     */
+    public DispatchJobStatus getStatus(String jobId) {
+        return jobs.get(jobId);
+    }
+
+    public int queuedJobs() {
+        return executor != null ? executor.getQueue().size() : queueCapacity - inFlight.availablePermits();
+    }
+
+    private boolean enqueue(String jobId, ReminderRequest request) {
+        if (executor != null) {
+            try {
+                executor.execute(() -> run(jobId, request));
+                return true;
+            } catch (RejectedExecutionException ex) {
+                return false;
+            }
+        }
+
+        if (!inFlight.tryAcquire()) return false;
+        try {
+            virtualExecutor.execute(() -> {
+                try {
+                    run(jobId, request);
+                } finally {
+                    inFlight.release();
+                }
+            });
+            return true;
+        } catch (RuntimeException ex) {
+            // executor shutting down or rejecting; treat like a full queue
+            inFlight.release();
+            return false;
+        }
+    }
+
+    private void run(String jobId, ReminderRequest request) {
+        update(jobId, DispatchState.RUNNING, null);
+        try {
+            emailService.sendPrepared(request);
+            update(jobId, DispatchState.SENT, null);
+        } catch (Exception ex) {
+            log.error("Async job {} for reminderNumber={} failed: {}", jobId, request.reminderNumber(), ex.getMessage(), ex);
+            update(jobId, DispatchState.FAILED, ex.getMessage());
+        } finally {
+            retire(jobId);
+        }
+    }
+
+    private void update(String jobId, DispatchState state, String detail) {
+        jobs.computeIfPresent(jobId, (id, status) -> status.withState(state, detail));
+    }
+
+    // keep only the most recent finished jobs so the status map stays bounded
+    private void retire(String jobId) {
+        finishedJobs.add(jobId);
+        if (finishedCount.incrementAndGet() > retainedJobs) {
+            String oldest = finishedJobs.poll();
+            if (oldest != null) {
+                jobs.remove(oldest);
+                finishedCount.decrementAndGet();
+            }
+        }
+    }
+}
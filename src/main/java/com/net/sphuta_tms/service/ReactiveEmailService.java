@@ -0,0 +1,250 @@
+package com.net.sphuta_tms.service;
+
+import com.net.sphuta_tms.constants.TemplateRegistry;
+import com.net.sphuta_tms.dto.BatchSendReport;
+import com.net.sphuta_tms.dto.PreparedMessage;
+import com.net.sphuta_tms.dto.RecipientResult;
+import com.net.sphuta_tms.dto.ReminderRequest;
+import com.net.sphuta_tms.dto.SendOutcome;
+import com.net.sphuta_tms.enums.ReminderType;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ==========================================================
+ * {@code ReactiveEmailService}
+ * ==========================================================
+ *
+ * <p>Non-blocking facade over {@link EmailService}: every call returns a {@link Mono}
+ * or {@link Flux} at once, and the blocking work runs on two dedicated schedulers.</p>
+ *
+ * <p>Rules:
+ * <ul>
+ *   <li>Rendering and MIME building run on {@code mail-render}, bounded to
+ *       {@code render-threads} threads.</li>
+ *   <li>SMTP delivery runs on {@code mail-smtp}, an elastic pool of at most
+ *       {@code smtp-threads} threads that are released when idle.</li>
+ *   <li>Single sends keep the blocking API's semantics (idempotency, digest buffering,
+ *       outbox), split at the SMTP hand-off via {@link EmailService#stageSend}.</li>
+ *   <li>Streams are pulled by demand: at most {@code 2 * render-threads} payloads
+ *       are rendering and {@code max-chunks-in-flight} chunks of
+ *       {@code sphuta.mail.batch.chunk-size} are waiting for or in SMTP, so a slow relay
+ *       slows the reading of the source instead of filling memory. Like pre-rendered
+ *       batches they are not recorded in the outbox; the caller gets every recipient's result.</li>
+ *   <li>A single send, once subscribed, and a chunk, once handed to SMTP, are finished even
+ *       if the subscriber cancels, because the idempotency claim and outbox record are taken
+ *       and the message may be on the wire.</li>
+ * </ul>
+ *
+ * <p>Enabled with {@code sphuta.mail.reactive.enabled=true}.</p>
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "sphuta.mail.reactive", name = "enabled", havingValue = "true")
+public class ReactiveEmailService implements MeterBinder {
+
+    // one stream entry after rendering: a message to deliver, or its final result
+    private record Entry(int index, @Nullable PreparedMessage message, @Nullable RecipientResult result) { }
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private TemplateRegistry templateRegistry;
+
+    // 0 = one per available processor
+    @Value("${sphuta.mail.reactive.render-threads:0}")
+    private int renderThreads;
+
+    @Value("${sphuta.mail.reactive.smtp-threads:16}")
+    private int smtpThreads;
+
+    // tasks each scheduler queues beyond its busy threads before rejecting
+    @Value("${sphuta.mail.reactive.queued-tasks:10000}")
+    private int queuedTasks;
+
+    @Value("${sphuta.mail.reactive.max-chunks-in-flight:4}")
+    private int maxChunksInFlight;
+
+    // a partly filled chunk goes out after this long instead of waiting for more payloads
+    @Value("${sphuta.mail.reactive.chunk-linger-ms:100}")
+    private long chunkLingerMs;
+
+    @Value("${sphuta.mail.batch.chunk-size:50}")
+    private int chunkSize;
+
+    private Scheduler renderScheduler;
+    private Scheduler smtpScheduler;
+
+    private final AtomicInteger pending = new AtomicInteger();
+    private final LongAdder sends = new LongAdder();
+    private final LongAdder streamed = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        if (renderThreads <= 0) renderThreads = Runtime.getRuntime().availableProcessors();
+        renderScheduler = Schedulers.newBoundedElastic(renderThreads, queuedTasks, "mail-render", 60, true);
+        smtpScheduler = Schedulers.newBoundedElastic(smtpThreads, queuedTasks, "mail-smtp", 60, true);
+        log.info("ReactiveEmailService started renderThreads={} smtpThreads={} chunkSize={} maxChunksInFlight={}",
+                renderThreads, smtpThreads, chunkSize, maxChunksInFlight);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        renderScheduler.dispose();
+        smtpScheduler.dispose();
+    }
+
+    /**
+     * Send one reminder validated by {@link EmailService#prepareReminder}; completes with the
+     * same outcome as {@link EmailService#sendPrepared(ReminderRequest, String)}.
+     */
+    public Mono<SendOutcome> send(ReminderRequest request, @Nullable String idempotencyKey) {
+        // staging records the send in the outbox and takes its idempotency claim,
+        // so staging and delivery run as one unit that a cancel cannot split
+        return uncancellable(Mono.fromCallable(() -> emailService.stageSend(request, idempotencyKey))
+                        .subscribeOn(renderScheduler)
+                        .flatMap(staged -> staged.outcome() != null
+                                ? Mono.just(staged.outcome())
+                                : Mono.fromCallable(() -> emailService.completeSend(staged)).subscribeOn(smtpScheduler)))
+                .doOnSubscribe(s -> pending.incrementAndGet())
+                .doOnSuccess(outcome -> sends.increment())
+                .doFinally(signal -> pending.decrementAndGet());
+    }
+
+    /**
+     * Send {@code reminderNumber} to every payload of {@code payloads} as it arrives, in
+     * chunks sharing an SMTP session. Emits one result per payload, in payload order.
+     *
+     * Throws IllegalArgumentException at once for an invalid reminder number;
+     * problems with single payloads are reported in their result.
+     */
+    public Flux<RecipientResult> sendStream(int reminderNumber, Flux<Map<String, Object>> payloads) {
+        if (templateRegistry.getByReminderNumber(reminderNumber) == null || ReminderType.fromCode(reminderNumber) == null) {
+            throw new IllegalArgumentException("Template not configured for reminder number: " + reminderNumber);
+        }
+        int renderConcurrency = 2 * renderThreads;
+        AtomicInteger open = new AtomicInteger();
+
+        return payloads
+                .index()
+                .flatMapSequential(indexed -> Mono.fromCallable(() -> {
+                            open.incrementAndGet();
+                            pending.incrementAndGet();
+                            return render(reminderNumber, indexed.getT1().intValue(), indexed.getT2());
+                        }).subscribeOn(renderScheduler),
+                        renderConcurrency, 1)
+                .bufferTimeout(Math.max(1, chunkSize), Duration.ofMillis(chunkLingerMs), true)
+                .flatMapSequential(chunk -> onSmtp(() -> deliver(reminderNumber, chunk)), maxChunksInFlight, 1)
+                .flatMapIterable(results -> results)
+                .doOnNext(result -> {
+                    open.decrementAndGet();
+                    pending.decrementAndGet();
+                    streamed.increment();
+                })
+                .doFinally(signal -> pending.addAndGet(-open.getAndSet(0)));
+    }
+
+    /**
+     * {@link #sendStream} collected into one report, for callers that want the totals.
+     */
+    public Mono<BatchSendReport> sendBatch(int reminderNumber, Flux<Map<String, Object>> payloads) {
+        return sendStream(reminderNumber, payloads)
+                .collectList()
+                .map(results -> BatchSendReport.of(reminderNumber, results));
+    }
+
+    public int pending() {
+        return pending.get();
+    }
+
+    public long sends() {
+        return sends.sum();
+    }
+
+    public long streamed() {
+        return streamed.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("sphuta.mail.reactive.pending", this, ReactiveEmailService::pending)
+                .description("Reactive sends and stream entries accepted but not yet answered")
+                .register(registry);
+        FunctionCounter.builder("sphuta.mail.reactive.sends", this, ReactiveEmailService::sends)
+                .description("Single sends completed through the reactive API")
+                .register(registry);
+        FunctionCounter.builder("sphuta.mail.reactive.stream.results", this, ReactiveEmailService::streamed)
+                .description("Per-recipient results emitted by reactive send streams")
+                .register(registry);
+    }
+
+    private Entry render(int reminderNumber, int index, @Nullable Map<String, Object> payload) {
+        String to = payload != null && payload.get("to") != null ? payload.get("to").toString() : null;
+        try {
+            PreparedMessage message = emailService.renderMessage(reminderNumber, payload);
+            return message == null
+                    ? new Entry(index, null, RecipientResult.skipped(index, to, "Recipient 'to' missing"))
+                    : new Entry(index, message, null);
+        } catch (MessagingException | RuntimeException ex) {
+            log.warn("Stream entry {} for reminderNumber={} could not be prepared: {}", index, reminderNumber, ex.getMessage());
+            return new Entry(index, null, RecipientResult.failed(index, to, ex.getMessage()));
+        }
+    }
+
+    // one deliverPrepared call per chunk; its chunk-local results are mapped back to stream indexes
+    private List<RecipientResult> deliver(int reminderNumber, List<Entry> chunk) {
+        List<PreparedMessage> messages = new ArrayList<>(chunk.size());
+        for (Entry entry : chunk) {
+            if (entry.message() != null) messages.add(entry.message());
+        }
+        List<RecipientResult> delivered = messages.isEmpty()
+                ? List.of()
+                : emailService.deliverPrepared(reminderNumber, messages).results();
+
+        List<RecipientResult> results = new ArrayList<>(chunk.size());
+        int next = 0;
+        for (Entry entry : chunk) {
+            if (entry.result() != null) {
+                results.add(entry.result());
+            } else {
+                RecipientResult r = delivered.get(next++);
+                results.add(new RecipientResult(entry.index(), r.to(), r.status(), r.detail()));
+            }
+        }
+        return results;
+    }
+
+    // work handed to SMTP runs to completion even if the subscriber cancels meanwhile
+    private <T> Mono<T> onSmtp(Callable<T> work) {
+        return uncancellable(Mono.fromCallable(work).subscribeOn(smtpScheduler));
+    }
+
+    // started once subscribed and run to completion; a cancel only drops the result
+    private static <T> Mono<T> uncancellable(Mono<T> work) {
+        return Mono.defer(() -> Mono.fromFuture(work.toFuture(), true));
+    }
+}
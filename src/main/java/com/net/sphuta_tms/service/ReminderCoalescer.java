@@ -0,0 +1,271 @@
+package com.net.sphuta_tms.service;
+
+import com.net.sphuta_tms.constants.TemplateRegistry;
+import com.net.sphuta_tms.dto.ManagerApprovalDto;
+import com.net.sphuta_tms.dto.ManagerDigestDto;
+import com.net.sphuta_tms.dto.ManagerDigestItem;
+import com.net.sphuta_tms.dto.ReminderRequest;
+import com.net.sphuta_tms.enums.ReminderGroup;
+import com.net.sphuta_tms.enums.ReminderType;
+import com.net.sphuta_tms.mail.SmtpRateLimiter;
+import com.net.sphuta_tms.outbox.MailOutbox;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.lang.Nullable;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * ==========================================================
+ * {@code ReminderCoalescer}
+ * ==========================================================
+ *
+ * <p>Combines manager reminders (4, 5, 6) addressed to the same manager into one
+ * digest email instead of one SMTP transaction per employee.</p>
+ *
+ * <p>Flow:
+ * <ul>
+ *   <li>{@link EmailService#sendPrepared} offers each reminder here first; manager
+ *       reminders are buffered per (recipient, {@link ReminderGroup}).</li>
+ *   <li>A buffer is flushed {@code window-ms} after its first reminder arrived, or
+ *       as soon as it holds {@code max-items} employees.</li>
+ *   <li>A buffer with a single reminder is sent with its own template, unchanged;
+ *       otherwise {@link TemplateRegistry#MANAGER_DIGEST_TEMPLATE} is rendered with
+ *       one line per employee.</li>
+ *   <li>A later reminder for the same employee and week replaces the earlier one,
+ *       so an escalation supersedes a "ready for approval".</li>
+ * </ul>
+ *
+ * <p>Ownership: {@link EmailService} records each buffered reminder in the outbox and
+ * hands its outbox entry and idempotency claim to the buffer. When the buffer is sent
+ * they are settled together: delivered and completed on success. On failure the entries
+ * are left to {@link com.net.sphuta_tms.outbox.OutboxReplayer}, which re-sends them one
+ * by one, and the claims are completed since the replay owns the send; a claim is only
+ * released when there is nothing to replay (no outbox, or dead-lettered). A crash while
+ * buffered leaves the entries pending for replay as well.</p>
+ *
+ * <p>Buffers are held in memory and flushed on shutdown. Enabled with
+ * {@code sphuta.mail.digest.enabled=true}.</p>
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "sphuta.mail.digest", name = "enabled", havingValue = "true")
+public class ReminderCoalescer implements MeterBinder {
+
+    private record BufferKey(String recipient, ReminderGroup group) { }
+
+    // what a buffered reminder leaves to settle once its buffer is sent; outboxId is -1 when not recorded
+    private record Held(int reminderNumber, long outboxId, @Nullable IdempotencyStore.Claim claim) { }
+
+    private static final class Buffer {
+        final long openedAt;
+        // employee + week -> latest reminder for them
+        final Map<String, ReminderRequest> reminders = new LinkedHashMap<>();
+        // every reminder offered, replaced ones included
+        final List<Held> held = new ArrayList<>();
+
+        Buffer(long openedAt) {
+            this.openedAt = openedAt;
+        }
+    }
+
+    private static final Map<ReminderType, String> STATUS_LABELS = Map.of(
+            ReminderType.MANAGER_READY_FOR_APPROVAL, "Ready for approval",
+            ReminderType.MANAGER_APPROVAL_OVERDUE, "Approval overdue",
+            ReminderType.MANAGER_ESCALATION, "Escalated"
+    );
+
+    // EmailService depends on this component; resolve it lazily to avoid a cycle
+    @Autowired
+    private ObjectProvider<EmailService> emailService;
+
+    // only registered when sphuta.mail.outbox.enabled=true
+    @Autowired(required = false)
+    private MailOutbox outbox;
+
+    @Value("${sphuta.mail.digest.window-ms:300000}")
+    private long windowMs;
+
+    @Value("${sphuta.mail.digest.max-items:50}")
+    private int maxItems;
+
+    private LongSupplier clock = System::currentTimeMillis;
+
+    private final Map<BufferKey, Buffer> buffers = new HashMap<>();
+
+    private final AtomicLong buffered = new AtomicLong();
+    private final AtomicLong digestsSent = new AtomicLong();
+
+    /**
+     * True if the reminder can be part of a digest.
+     */
+    public boolean accepts(ReminderRequest request) {
+        return request.type() != null && request.type().getGroup() == ReminderGroup.MANAGER
+                && request.dto() instanceof ManagerApprovalDto dto && dto.to() != null && !dto.to().isBlank();
+    }
+
+    /**
+     * Buffer the reminder if it can be part of a digest.
+     * Returns false when the caller should send it right away.
+     */
+    public boolean offer(ReminderRequest request) {
+        return offer(request, -1, null);
+    }
+
+    /**
+     * Same as {@link #offer(ReminderRequest)}; when buffered, the outbox entry and the claim
+     * are settled by this coalescer once the buffer has been sent.
+     */
+    public boolean offer(ReminderRequest request, long outboxId, @Nullable IdempotencyStore.Claim claim) {
+        if (!accepts(request)) return false;
+        ManagerApprovalDto dto = (ManagerApprovalDto) request.dto();
+
+        BufferKey key = new BufferKey(dto.to().trim().toLowerCase(Locale.ROOT), ReminderGroup.MANAGER);
+        Buffer full = null;
+        synchronized (buffers) {
+            Buffer buffer = buffers.computeIfAbsent(key, k -> new Buffer(clock.getAsLong()));
+            buffer.reminders.remove(itemKey(dto)); // re-insert so the latest status is listed last
+            buffer.reminders.put(itemKey(dto), request);
+            buffer.held.add(new Held(request.reminderNumber(), outboxId, claim));
+            if (buffer.reminders.size() >= maxItems) {
+                full = buffers.remove(key);
+            }
+        }
+        buffered.incrementAndGet();
+        log.debug("ReminderCoalescer: buffered reminderNumber={} for {}", request.reminderNumber(), key.recipient());
+
+        if (full != null) send(full);
+        return true;
+    }
+
+    /**
+     * Send every buffer whose window has elapsed.
+     */
+    @Scheduled(fixedDelayString = "${sphuta.mail.digest.flush-interval-ms:10000}")
+    public void flushDue() {
+        long now = clock.getAsLong();
+        List<Buffer> due = new ArrayList<>();
+        synchronized (buffers) {
+            Iterator<Buffer> it = buffers.values().iterator();
+            while (it.hasNext()) {
+                Buffer buffer = it.next();
+                if (now - buffer.openedAt >= windowMs) {
+                    due.add(buffer);
+                    it.remove();
+                }
+            }
+        }
+        due.forEach(this::send);
+    }
+
+    // on context close, before beans (mail sender, pool) are destroyed
+    @EventListener(ContextClosedEvent.class)
+    public void flushAll() {
+        List<Buffer> all;
+        synchronized (buffers) {
+            all = new ArrayList<>(buffers.values());
+            buffers.clear();
+        }
+        if (!all.isEmpty()) log.info("ReminderCoalescer: flushing {} open digests on shutdown", all.size());
+        all.forEach(this::send);
+    }
+
+    public int openDigests() {
+        synchronized (buffers) {
+            return buffers.size();
+        }
+    }
+
+    public long bufferedReminders() {
+        return buffered.get();
+    }
+
+    public long digestsSent() {
+        return digestsSent.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("sphuta.digest.open", this, ReminderCoalescer::openDigests)
+                .description("Recipients with reminders waiting in a digest buffer")
+                .register(registry);
+        FunctionCounter.builder("sphuta.digest.buffered", this, ReminderCoalescer::bufferedReminders)
+                .description("Reminders taken into a digest buffer instead of being sent individually")
+                .register(registry);
+        FunctionCounter.builder("sphuta.digest.sent", this, ReminderCoalescer::digestsSent)
+                .description("Digest emails sent")
+                .register(registry);
+    }
+
+    private void send(Buffer buffer) {
+        List<ReminderRequest> reminders = new ArrayList<>(buffer.reminders.values());
+        EmailService service = emailService.getObject();
+        try {
+            if (reminders.size() == 1) {
+                ReminderRequest single = reminders.get(0);
+                service.sendBuffered(single.templatePath(), single.dto());
+            } else {
+                ManagerDigestDto digest = toDigest(reminders);
+                service.sendBuffered(TemplateRegistry.MANAGER_DIGEST_TEMPLATE, digest);
+                digestsSent.incrementAndGet();
+                log.info("ReminderCoalescer: sent digest of {} reminders to {}", reminders.size(), digest.to());
+            }
+        } catch (Exception ex) {
+            log.error("ReminderCoalescer: failed to send {} buffered reminders: {}", reminders.size(), ex.getMessage(), ex);
+            settle(buffer, ex);
+            return;
+        }
+        settle(buffer, null);
+    }
+
+    // the buffered reminders' outbox entries and claims follow the result of the buffer's send
+    private void settle(Buffer buffer, @Nullable Exception failure) {
+        for (Held h : buffer.held) {
+            boolean delivered = failure == null;
+            boolean replayed = false; // left to OutboxReplayer, which now owns the send
+            if (outbox != null && h.outboxId() >= 0) {
+                if (delivered) outbox.markDelivered(h.outboxId());
+                else replayed = !outbox.recordFailure(h.outboxId(), SmtpRateLimiter.isPermanentFailure(failure), failure.getMessage());
+            }
+            if (h.claim() != null) {
+                if (delivered || replayed) h.claim().complete("Triggered reminder " + h.reminderNumber());
+                else h.claim().release(); // lost or dead-lettered: a retry with the same key goes through
+            }
+        }
+    }
+
+    private static ManagerDigestDto toDigest(List<ReminderRequest> reminders) {
+        ManagerApprovalDto latest = (ManagerApprovalDto) reminders.get(reminders.size() - 1).dto();
+        List<ManagerDigestItem> items = new ArrayList<>(reminders.size());
+        for (ReminderRequest r : reminders) {
+            ManagerApprovalDto dto = (ManagerApprovalDto) r.dto();
+            String deadline = dto.managerApprovalDeadline() != null ? dto.managerApprovalDeadline() : dto.deadlineDateTime();
+            items.add(new ManagerDigestItem(STATUS_LABELS.getOrDefault(r.type(), r.type().name()),
+                    dto.employeeName(), dto.teamName(), dto.weekDate(), deadline));
+        }
+        return new ManagerDigestDto(latest.to(), latest.managerName(), latest.managerDashboardLink(), items.size(), List.copyOf(items));
+    }
+
+    private static String itemKey(ManagerApprovalDto dto) {
+        return dto.employeeName() + '\u0000' + dto.weekDate();
+    }
+}
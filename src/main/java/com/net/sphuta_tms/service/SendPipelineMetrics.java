@@ -0,0 +1,166 @@
+package com.net.sphuta_tms.service;
+
+import com.net.sphuta_tms.constants.TemplateRegistry;
+import com.net.sphuta_tms.dto.TemplateInfo;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ==========================================================
+ * {@code SendPipelineMetrics}
+ * ==========================================================
+ *
+ * <p>Per-stage timers and outcome counters for {@link EmailService}, tagged by
+ * {@code reminder} number and {@code template} path:</p>
+ * <ul>
+ *   <li>{@code sphuta.mail.stage} timer (with percentile histogram), {@code stage} =
+ *       {@code lookup} (registry and type), {@code map} (payload or body to DTO),
+ *       {@code render} (Thymeleaf body), {@code subject}, {@code deliver} (MIME build and SMTP).</li>
+ *   <li>{@code sphuta.mail.messages} counter, {@code outcome} = {@code sent}, {@code failed},
+ *       {@code skipped_missing_to} or {@code duplicate} (suppressed by {@link IdempotencyStore}).</li>
+ * </ul>
+ *
+ * <p>Meters are registered once per template, up front for every registered
+ * template, and looked up by path on the send path; recording is a
+ * {@code System.nanoTime()} delta, so nothing is allocated per call.</p>
+ */
+@Component
+public class SendPipelineMetrics {
+
+    /**
+     * Records nothing; used when no registry is wired (plain unit tests).
+     */
+    public static final SendPipelineMetrics NOOP = new SendPipelineMetrics(new CompositeMeterRegistry(), Map.of());
+
+    private static final String NO_REMINDER = "none";
+
+    /**
+     * All meters for one template.
+     */
+    public static final class TemplateMeters {
+        private final Timer lookup;
+        private final Timer map;
+        private final Timer render;
+        private final Timer subject;
+        private final Timer deliver;
+        private final Counter sent;
+        private final Counter failed;
+        private final Counter skippedMissingTo;
+        private final Counter duplicate;
+
+        private TemplateMeters(MeterRegistry registry, String reminder, String template) {
+            this.lookup = timer(registry, "lookup", reminder, template);
+            this.map = timer(registry, "map", reminder, template);
+            this.render = timer(registry, "render", reminder, template);
+            this.subject = timer(registry, "subject", reminder, template);
+            this.deliver = timer(registry, "deliver", reminder, template);
+            this.sent = counter(registry, "sent", reminder, template);
+            this.failed = counter(registry, "failed", reminder, template);
+            this.skippedMissingTo = counter(registry, "skipped_missing_to", reminder, template);
+            this.duplicate = counter(registry, "duplicate", reminder, template);
+        }
+
+        public void lookup(long nanos) {
+            lookup.record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        public void map(long nanos) {
+            map.record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        public void render(long nanos) {
+            render.record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        public void subject(long nanos) {
+            subject.record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * A message handed to SMTP successfully after {@code nanos}.
+         */
+        public void delivered(long nanos) {
+            deliver.record(nanos, TimeUnit.NANOSECONDS);
+            sent.increment();
+        }
+
+        public void sent(int count) {
+            if (count > 0) sent.increment(count);
+        }
+
+        public void failed(int count) {
+            if (count > 0) failed.increment(count);
+        }
+
+        public void skippedMissingTo(int count) {
+            if (count > 0) skippedMissingTo.increment(count);
+        }
+
+        public void duplicate(int count) {
+            if (count > 0) duplicate.increment(count);
+        }
+    }
+
+    private final MeterRegistry registry;
+    private final Map<String, String> reminderByTemplate;
+    private final Map<String, TemplateMeters> meters = new ConcurrentHashMap<>();
+
+    @Autowired
+    public SendPipelineMetrics(MeterRegistry registry, TemplateRegistry templateRegistry) {
+        this(registry, reminderTags(templateRegistry));
+        reminderByTemplate.keySet().forEach(this::forTemplate);
+    }
+
+    private SendPipelineMetrics(MeterRegistry registry, Map<String, String> reminderByTemplate) {
+        this.registry = registry;
+        this.reminderByTemplate = reminderByTemplate;
+    }
+
+    public TemplateMeters forTemplate(String templatePath) {
+        TemplateMeters m = meters.get(templatePath);
+        if (m != null) return m;
+        // first use of a template outside the registry: register once
+        return meters.computeIfAbsent(templatePath,
+                path -> new TemplateMeters(registry, reminderByTemplate.getOrDefault(path, NO_REMINDER), path));
+    }
+
+    private static Map<String, String> reminderTags(TemplateRegistry templateRegistry) {
+        Map<String, String> tags = new HashMap<>();
+        for (TemplateInfo info : templateRegistry.getAll().values()) {
+            tags.put(info.getTemplatePath(), String.valueOf(info.getTemplateId()));
+        }
+        tags.put(TemplateRegistry.MANAGER_DIGEST_TEMPLATE, NO_REMINDER);
+        return Map.copyOf(tags);
+    }
+
+    private static Timer timer(MeterRegistry registry, String stage, String reminder, String template) {
+        return Timer.builder("sphuta.mail.stage")
+                .description("Time spent in one stage of preparing and sending a reminder")
+                .tag("stage", stage)
+                .tag("reminder", reminder)
+                .tag("template", template)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(10_000))
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .register(registry);
+    }
+
+    private static Counter counter(MeterRegistry registry, String outcome, String reminder, String template) {
+        return Counter.builder("sphuta.mail.messages")
+                .description("Reminder emails by outcome")
+                .tag("outcome", outcome)
+                .tag("reminder", reminder)
+                .tag("template", template)
+                .register(registry);
+    }
+}
@@ -0,0 +1,161 @@
+package com.net.sphuta_tms.startup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.net.sphuta_tms.constants.TemplateRegistry;
+import com.net.sphuta_tms.dto.ManagerDigestDto;
+import com.net.sphuta_tms.dto.ManagerDigestItem;
+import com.net.sphuta_tms.dto.PreparedMessage;
+import com.net.sphuta_tms.dto.TemplateInfo;
+import com.net.sphuta_tms.service.EmailService;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ==========================================================
+ * {@code CdsTrainingRun}
+ * ==========================================================
+ *
+ * <p>Training workload for the AppCDS archive built by the {@code cds} Maven profile:
+ * once the application has started, it drives {@link EmailService} through every
+ * registered template, so the classes a first real send needs are loaded while the
+ * JVM records the archive, then shuts the application down.</p>
+ *
+ * <p>Per template and iteration:
+ * <ul>
+ *   <li>binds a JSON body to the reminder DTO, as {@code POST /api/mail/send/{n}} does;</li>
+ *   <li>renders it into a MIME message and writes that out, as the SMTP transport would;</li>
+ *   <li>renders the manager digest the same way.</li>
+ * </ul>
+ * Iterations use different recipients so the render cache does not short-cut them,
+ * and run past the compiled templates' verification renders. Nothing is sent; one
+ * request to the health endpoint initialises the web stack.</p>
+ *
+ * <p>Enabled with {@code sphuta.cds.training.enabled=true} (the {@code cds-training}
+ * profile). The switch is read at run time rather than as a bean condition because
+ * AOT processing fixes bean conditions at build time, and the training run must
+ * use the same AOT-processed application as production.</p>
+ */
+@Slf4j
+@Component
+public class CdsTrainingRun implements ApplicationRunner {
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private TemplateRegistry templateRegistry;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ConfigurableApplicationContext context;
+
+    @Autowired
+    private Environment environment;
+
+    @Value("${sphuta.cds.training.enabled:false}")
+    private boolean enabled;
+
+    @Value("${sphuta.cds.training.iterations:5}")
+    private int iterations;
+
+    @Value("${sphuta.cds.training.exit:true}")
+    private boolean exitWhenDone;
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        if (!enabled) return;
+
+        long start = System.nanoTime();
+        int rendered = 0;
+        for (int i = 0; i < iterations; i++) {
+            for (TemplateInfo info : templateRegistry.getAll().values()) {
+                Map<String, Object> payload = samplePayload(i);
+                emailService.prepareReminder(info.getTemplateId(), new ByteArrayInputStream(objectMapper.writeValueAsBytes(payload)));
+                PreparedMessage prepared = emailService.renderMessage(info.getTemplateId(), payload);
+                if (prepared != null) {
+                    prepared.message().writeTo(OutputStream.nullOutputStream());
+                    rendered++;
+                }
+            }
+            MimeMessage digest = emailService.renderTemplate(TemplateRegistry.MANAGER_DIGEST_TEMPLATE, sampleDigest(i));
+            if (digest != null) {
+                digest.writeTo(OutputStream.nullOutputStream());
+                rendered++;
+            }
+        }
+        warmUpWeb();
+        log.info("CdsTrainingRun: rendered {} messages over {} iterations in {} ms",
+                rendered, iterations, (System.nanoTime() - start) / 1_000_000);
+
+        if (exitWhenDone) {
+            // the JVM writes the archive on exit (-XX:ArchiveClassesAtExit)
+            System.exit(SpringApplication.exit(context));
+        }
+    }
+
+    private void warmUpWeb() {
+        Integer port = environment.getProperty("local.server.port", Integer.class);
+        if (port == null) return;
+        try {
+            HttpClient client = HttpClient.newHttpClient();
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + "/actuator/health")).build();
+            client.send(request, HttpResponse.BodyHandlers.discarding());
+        } catch (IOException ex) {
+            log.warn("CdsTrainingRun: health request failed: {}", ex.getMessage());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Map<String, Object> samplePayload(int iteration) {
+        Map<String, Object> vars = new HashMap<>();
+        vars.put("to", "training" + iteration + "@example.invalid");
+        vars.put("employeeName", "Training Employee " + iteration);
+        vars.put("managerName", "Training Manager");
+        vars.put("adminName", "Training Admin");
+        vars.put("hrContactName", "HR Team");
+        vars.put("teamName", "Training Team");
+        vars.put("weekDate", "Jan 15-21, 2024");
+        vars.put("deadlineDate", "Jan 22, 2024");
+        vars.put("deadlineTime", "5:00 PM");
+        vars.put("deadlineDateTime", "Jan 22, 2024, 5:00 PM");
+        vars.put("managerApprovalDeadline", "Jan 22, 2024, 3:00 PM");
+        vars.put("timesheetLink", "https://sphuta-app.com/timesheet");
+        vars.put("managerDashboardLink", "https://sphuta-app.com/manager");
+        vars.put("adminDashboardLink", "https://sphuta-app.com/admin");
+        vars.put("hrDashboardLink", "https://sphuta-app.com/hr");
+        vars.put("helpLink", "https://sphuta-app.com/help");
+        vars.put("supportContact", "support@sphuta.com");
+        vars.put("itSupportEmail", "itsupport@sphuta.com");
+        return vars;
+    }
+
+    private static ManagerDigestDto sampleDigest(int iteration) {
+        List<ManagerDigestItem> items = List.of(
+                new ManagerDigestItem("Ready for approval", "Training Employee " + iteration, "Training Team", "Jan 15-21, 2024", "Jan 22, 2024"),
+                new ManagerDigestItem("Overdue", "Training Employee", "Training Team", "Jan 8-14, 2024", "Jan 15, 2024"));
+        return new ManagerDigestDto("training" + iteration + "@example.invalid", "Training Manager",
+                "https://sphuta-app.com/manager", items.size(), items);
+    }
+}
@@ -0,0 +1,123 @@
+package com.net.sphuta_tms.template;
+
+import org.thymeleaf.cache.ICache;
+import org.thymeleaf.cache.ICacheEntryValidityChecker;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Size-bounded Thymeleaf {@link ICache} with hit/miss/eviction counters.
+ *
+ * <p>Reads are lock-free. When a put takes the cache over {@code maxSize}, the
+ * least recently read entry is evicted; that scan only runs on inserts beyond
+ * capacity, which with a fixed set of templates is rare.</p>
+ */
+public class BoundedCache<K, V> implements ICache<K, V> {
+
+    private static final class Entry<V> {
+        final V value;
+        final long createdAt = System.currentTimeMillis();
+        volatile long lastReadAt = System.nanoTime();
+
+        Entry(V value) {
+            this.value = value;
+        }
+    }
+
+    private final int maxSize;
+    private final ICacheEntryValidityChecker<? super K, ? super V> validityChecker;
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public BoundedCache(int maxSize, ICacheEntryValidityChecker<? super K, ? super V> validityChecker) {
+        if (maxSize <= 0) throw new IllegalArgumentException("maxSize must be positive");
+        this.maxSize = maxSize;
+        this.validityChecker = validityChecker;
+    }
+
+    @Override
+    public void put(K key, V value) {
+        entries.put(key, new Entry<>(value));
+        while (entries.size() > maxSize) {
+            evictLeastRecentlyRead();
+        }
+    }
+
+    @Override
+    public V get(K key) {
+        return get(key, validityChecker);
+    }
+
+    @Override
+    public V get(K key, ICacheEntryValidityChecker<? super K, ? super V> checker) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (checker != null && !checker.checkIsValueStillValid(key, entry.value, entry.createdAt)) {
+            entries.remove(key, entry);
+            misses.increment();
+            return null;
+        }
+        entry.lastReadAt = System.nanoTime();
+        hits.increment();
+        return entry.value;
+    }
+
+    @Override
+    public void clear() {
+        entries.clear();
+    }
+
+    @Override
+    public void clearKey(K key) {
+        entries.remove(key);
+    }
+
+    @Override
+    public Set<K> keySet() {
+        return new HashSet<>(entries.keySet());
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public int maxSize() {
+        return maxSize;
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    private void evictLeastRecentlyRead() {
+        K oldestKey = null;
+        Entry<V> oldest = null;
+        for (Map.Entry<K, Entry<V>> e : entries.entrySet()) {
+            if (oldest == null || e.getValue().lastReadAt - oldest.lastReadAt < 0) {
+                oldestKey = e.getKey();
+                oldest = e.getValue();
+            }
+        }
+        if (oldestKey != null && entries.remove(oldestKey, oldest)) {
+            evictions.increment();
+        }
+    }
+}
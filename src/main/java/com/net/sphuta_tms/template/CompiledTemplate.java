@@ -0,0 +1,328 @@
+package com.net.sphuta_tms.template;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An email template turned into a renderer that writes the static markup as
+ * precomputed constants and evaluates only the expressions, reading the DTO record
+ * through {@link RecordAccessors}, instead of walking the engine's parsed model.
+ *
+ * <p>Only the subset of Thymeleaf the email templates use is compiled; it mirrors the
+ * markup the engine produces for it:
+ * <ul>
+ *   <li>{@code th:text} / {@code th:utext} replace the element body with the value,
+ *       HTML-escaped for {@code th:text}; null renders as nothing.</li>
+ *   <li>{@code th:href} becomes an escaped {@code href} attribute in its place; when the
+ *       value is null or empty the attribute is left out, with the whitespace in front of it.</li>
+ *   <li>{@code xmlns:th} and the processed attributes are removed together with the
+ *       whitespace in front of them.</li>
+ *   <li>Expressions are {@code ${component}}, {@code 'literal'}, {@code +} of those,
+ *       and {@code |literal ${component}|}.</li>
+ * </ul>
+ * {@link #compile} throws IllegalArgumentException for anything else (iteration,
+ * conditionals, inline expressions, other {@code th:} attributes, ...); such templates
+ * stay with the engine.</p>
+ */
+public final class CompiledTemplate {
+
+    private static final Pattern VARIABLE = Pattern.compile("\\$\\{\\s*([A-Za-z_][A-Za-z0-9_]*)\\s*}");
+    private static final Pattern LITERAL = Pattern.compile("'([^'\\\\]*)'");
+
+    /**
+     * One expression: a concatenation of literals and record components.
+     * A lone component that is null renders as nothing; inside a concatenation as "null".
+     * For an attribute, {@code before} and {@code after} surround the value and are only
+     * written when the value is not empty.
+     */
+    private record Expression(String source, String[] literals, String[] components, boolean escape,
+                              String before, String after) {
+
+        Expression inAttribute(String before, String after) {
+            return new Expression(source, literals, components, escape, before, after);
+        }
+
+        void write(Object dto, RecordAccessors accessors, Appendable out) throws IOException {
+            if (before.isEmpty() && after.isEmpty()) {
+                writeValue(dto, accessors, out);
+                return;
+            }
+            StringBuilder value = new StringBuilder();
+            writeValue(dto, accessors, value);
+            if (value.isEmpty()) return; // the engine removes an attribute whose value is null or empty
+            out.append(before).append(value).append(after);
+        }
+
+        private void writeValue(Object dto, RecordAccessors accessors, Appendable out) throws IOException {
+            if (literals.length == 0 && components.length == 1) {
+                Object value = accessors.get(dto, components[0]);
+                if (value != null) append(String.valueOf(value), out);
+                return;
+            }
+            for (int i = 0; i < components.length; i++) {
+                append(literals[i], out);
+                append(String.valueOf(accessors.get(dto, components[i])), out);
+            }
+            if (literals.length > components.length) append(literals[literals.length - 1], out);
+        }
+
+        private void append(String text, Appendable out) throws IOException {
+            if (escape) escapeHtml4Xml(text, out);
+            else out.append(text);
+        }
+    }
+
+    private final String templatePath;
+    // constants[i] is written before expressions[i]; the last constant closes the document
+    private final String[] constants;
+    private final Expression[] expressions;
+    private final int constantLength;
+
+    private CompiledTemplate(String templatePath, List<String> constants, List<Expression> expressions) {
+        this.templatePath = templatePath;
+        this.constants = constants.toArray(new String[0]);
+        this.expressions = expressions.toArray(new Expression[0]);
+        this.constantLength = constants.stream().mapToInt(String::length).sum();
+    }
+
+    public String templatePath() {
+        return templatePath;
+    }
+
+    public int expressionCount() {
+        return expressions.length;
+    }
+
+    /**
+     * Compile the template body.
+     *
+     * Throws IllegalArgumentException, naming the construct, when the body uses anything
+     * outside the supported subset.
+     */
+    public static CompiledTemplate compile(String templatePath, String body) {
+        if (body.contains("[[") || body.contains("[(")) {
+            throw new IllegalArgumentException("inline expressions are not compiled");
+        }
+        List<String> constants = new ArrayList<>();
+        List<Expression> expressions = new ArrayList<>();
+        StringBuilder constant = new StringBuilder(body.length());
+
+        int i = 0;
+        int n = body.length();
+        while (i < n) {
+            int lt = body.indexOf('<', i);
+            if (lt < 0) {
+                constant.append(body, i, n);
+                break;
+            }
+            constant.append(body, i, lt);
+            if (body.startsWith("<!--", lt)) {
+                if (body.startsWith("<!--/*", lt)) throw new IllegalArgumentException("Thymeleaf comment blocks are not compiled");
+                int end = body.indexOf("-->", lt + 4);
+                end = end < 0 ? n : end + 3;
+                constant.append(body, lt, end);
+                i = end;
+                continue;
+            }
+            int end = TemplateOptimizer.tagEnd(body, lt);
+            if (lt + 1 >= n || !Character.isLetter(body.charAt(lt + 1))) {
+                constant.append(body, lt, end + 1); // end tag, doctype
+                i = end + 1;
+                continue;
+            }
+
+            String tag = body.substring(lt, end + 1);
+            int nameEnd = 1;
+            while (nameEnd < tag.length() && (Character.isLetterOrDigit(tag.charAt(nameEnd)) || tag.charAt(nameEnd) == '-')) nameEnd++;
+            String name = tag.substring(1, nameEnd).toLowerCase(Locale.ROOT);
+            if (nameEnd < tag.length() && tag.charAt(nameEnd) == ':') {
+                throw new IllegalArgumentException("element <" + tag.substring(1, tag.indexOf(':') + 1) + "...> is not compiled");
+            }
+
+            Map<String, int[]> attributes = TemplateOptimizer.attributes(tag, nameEnd);
+            Expression text = null;
+            int written = 0;
+            for (Map.Entry<String, int[]> attribute : attributes.entrySet()) {
+                String attr = attribute.getKey();
+                int[] at = attribute.getValue();
+                int wsStart = at[0];
+                while (wsStart > nameEnd && Character.isWhitespace(tag.charAt(wsStart - 1))) wsStart--;
+                String value = tag.substring(at[2], at[3]);
+
+                switch (attr) {
+                    case "xmlns:th" -> {
+                        constant.append(tag, written, wsStart);
+                        written = at[1];
+                    }
+                    case "th:text", "th:utext" -> {
+                        text = expression(value, attr.equals("th:text"));
+                        constant.append(tag, written, wsStart);
+                        written = at[1];
+                    }
+                    case "th:href" -> {
+                        if (attributes.containsKey("href")) throw new IllegalArgumentException("th:href next to href is not compiled");
+                        char quote = at[2] > 0 && tag.charAt(at[2] - 1) == '\'' ? '\'' : '"';
+                        constant.append(tag, written, wsStart);
+                        constants.add(constant.toString());
+                        constant.setLength(0);
+                        expressions.add(expression(value, true)
+                                .inAttribute(tag.substring(wsStart, at[0]) + "href=" + quote, String.valueOf(quote)));
+                        written = at[1];
+                    }
+                    default -> {
+                        if (attr.startsWith("th:") || attr.startsWith("data-th-")) {
+                            throw new IllegalArgumentException(attr + " is not compiled");
+                        }
+                    }
+                }
+            }
+            constant.append(tag, written, tag.length());
+            i = end + 1;
+
+            if (text != null) {
+                if (tag.endsWith("/>")) throw new IllegalArgumentException("th:text on an empty element is not compiled");
+                constants.add(constant.toString());
+                constant.setLength(0);
+                expressions.add(text);
+                i = closingTag(body, name, i);
+            }
+        }
+        constants.add(constant.toString());
+        return new CompiledTemplate(templatePath, constants, expressions);
+    }
+
+    public String render(Object dto) {
+        StringBuilder out = new StringBuilder(constantLength + 32 * expressions.length);
+        try {
+            render(dto, out);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex); // not thrown by StringBuilder
+        }
+        return out.toString();
+    }
+
+    /**
+     * Write the template for {@code dto}, a record, to {@code out}.
+     */
+    public void render(Object dto, Appendable out) throws IOException {
+        RecordAccessors accessors = RecordAccessors.of(dto.getClass());
+        for (int i = 0; i < expressions.length; i++) {
+            out.append(constants[i]);
+            expressions[i].write(dto, accessors, out);
+        }
+        out.append(constants[constants.length - 1]);
+    }
+
+    private static Expression expression(String source, boolean escape) {
+        String text = source.trim();
+        List<String> literals = new ArrayList<>();
+        List<String> components = new ArrayList<>();
+
+        if (text.length() >= 2 && text.startsWith("|") && text.endsWith("|")) {
+            // literal substitution: |Escalation for ${employeeName}|
+            String inner = text.substring(1, text.length() - 1);
+            if (inner.contains("'") || inner.contains("#") || inner.contains("*{")) {
+                throw new IllegalArgumentException("expression " + source + " is not compiled");
+            }
+            Matcher m = VARIABLE.matcher(inner);
+            int last = 0;
+            while (m.find()) {
+                literals.add(inner.substring(last, m.start()));
+                components.add(m.group(1));
+                last = m.end();
+            }
+            if (inner.indexOf('$', last) >= 0) throw new IllegalArgumentException("expression " + source + " is not compiled");
+            literals.add(inner.substring(last));
+            return expression(source, literals, components, escape);
+        }
+
+        StringBuilder pendingLiteral = new StringBuilder();
+        for (String term : splitConcatenation(text, source)) {
+            Matcher variable = VARIABLE.matcher(term);
+            Matcher literal = LITERAL.matcher(term);
+            if (variable.matches()) {
+                literals.add(pendingLiteral.toString());
+                pendingLiteral.setLength(0);
+                components.add(variable.group(1));
+            } else if (literal.matches()) {
+                pendingLiteral.append(literal.group(1));
+            } else {
+                throw new IllegalArgumentException("expression " + source + " is not compiled");
+            }
+        }
+        if (components.size() == 1 && literals.get(0).isEmpty() && pendingLiteral.isEmpty()) {
+            return new Expression(source, new String[0], components.toArray(new String[0]), escape, "", "");
+        }
+        literals.add(pendingLiteral.toString());
+        return expression(source, literals, components, escape);
+    }
+
+    private static Expression expression(String source, List<String> literals, List<String> components, boolean escape) {
+        return new Expression(source, literals.toArray(new String[0]), components.toArray(new String[0]), escape, "", "");
+    }
+
+    // terms of a + b + c, split outside quotes and braces
+    private static List<String> splitConcatenation(String text, String source) {
+        List<String> terms = new ArrayList<>();
+        boolean quoted = false;
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\'') quoted = !quoted;
+            else if (!quoted && c == '{') depth++;
+            else if (!quoted && c == '}') depth--;
+            else if (!quoted && depth == 0 && c == '+') {
+                terms.add(text.substring(start, i).trim());
+                start = i + 1;
+            }
+        }
+        terms.add(text.substring(start).trim());
+        if (quoted || depth != 0 || terms.contains("")) throw new IllegalArgumentException("expression " + source + " is not compiled");
+        return terms;
+    }
+
+    // start of the end tag matching the element opened just before from
+    private static int closingTag(String body, String name, int from) {
+        int depth = 1;
+        int i = from;
+        while (true) {
+            int lt = body.indexOf('<', i);
+            if (lt < 0) throw new IllegalArgumentException("<" + name + "> is not closed");
+            boolean closing = body.startsWith("/", lt + 1);
+            int nameStart = closing ? lt + 2 : lt + 1;
+            int nameEnd = nameStart + name.length();
+            boolean same = body.regionMatches(true, nameStart, name, 0, name.length())
+                    && nameEnd < body.length() && !Character.isLetterOrDigit(body.charAt(nameEnd));
+            int end = TemplateOptimizer.tagEnd(body, lt);
+            if (same && closing && --depth == 0) return lt;
+            if (same && !closing && body.charAt(end - 1) != '/') depth++;
+            i = end + 1;
+        }
+    }
+
+    // what the engine's th:text does: & < > " ' as entity references, everything else as is
+    static void escapeHtml4Xml(String text, Appendable out) throws IOException {
+        int last = 0;
+        for (int i = 0; i < text.length(); i++) {
+            String replacement = switch (text.charAt(i)) {
+                case '&' -> "&amp;";
+                case '<' -> "&lt;";
+                case '>' -> "&gt;";
+                case '"' -> "&quot;";
+                case '\'' -> "&#39;";
+                default -> null;
+            };
+            if (replacement == null) continue;
+            out.append(text, last, i).append(replacement);
+            last = i + 1;
+        }
+        out.append(text, last, text.length());
+    }
+}
@@ -0,0 +1,161 @@
+package com.net.sphuta_tms.template;
+
+import com.net.sphuta_tms.constants.TemplateRegistry;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * ==========================================================
+ * {@code CompiledTemplates}
+ * ==========================================================
+ *
+ * <p>Holds a {@link CompiledTemplate} for every registered template that can be
+ * compiled, built from the body {@link TemplateRegistry} serves to the engine, and
+ * renders with it instead of the engine.</p>
+ *
+ * <p>Rules:
+ * <ul>
+ *   <li>Templates are compiled at startup and again after a reload changed their
+ *       source; templates outside the compiled subset (e.g. the digest with
+ *       {@code th:each}) and non-record DTOs are always rendered by the engine.</li>
+ *   <li>The first {@code verify-renders} renders of each template are also rendered
+ *       by the engine and compared. On any difference the template goes back to the
+ *       engine for good and the engine output is used.</li>
+ * </ul>
+ *
+ * <p>Enabled with {@code sphuta.mail.templates.compiled.enabled=true}.</p>
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "sphuta.mail.templates.compiled", name = "enabled", havingValue = "true")
+public class CompiledTemplates implements MeterBinder {
+
+    private static final class Entry {
+        final EmailTemplateSource source;
+        @Nullable final CompiledTemplate template;
+        final AtomicInteger verified = new AtomicInteger();
+        volatile boolean mismatched;
+
+        Entry(EmailTemplateSource source, @Nullable CompiledTemplate template) {
+            this.source = source;
+            this.template = template;
+        }
+    }
+
+    @Autowired
+    private TemplateRegistry templateRegistry;
+
+    @Value("${sphuta.mail.templates.compiled.verify-renders:3}")
+    private int verifyRenders;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private final LongAdder compiledRenders = new LongAdder();
+    private final LongAdder engineRenders = new LongAdder();
+    private final LongAdder mismatches = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        long compiled = templateRegistry.getSources().stream()
+                .map(source -> entryFor(source.templatePath()))
+                .filter(entry -> entry != null && entry.template != null)
+                .count();
+        log.info("CompiledTemplates: {} of {} templates compiled", compiled, templateRegistry.getSources().size());
+    }
+
+    /**
+     * HTML for {@code templatePath} and {@code dto}: from the compiled renderer when there is
+     * one, otherwise from {@code engine}.
+     */
+    public String render(String templatePath, Object dto, Supplier<String> engine) {
+        Entry entry = RecordContext.supports(dto) ? entryFor(templatePath) : null;
+        if (entry == null || entry.template == null || entry.mismatched) {
+            engineRenders.increment();
+            return engine.get();
+        }
+
+        String html = entry.template.render(dto);
+        if (entry.verified.get() < verifyRenders) {
+            String expected = engine.get();
+            if (!expected.equals(html)) {
+                entry.mismatched = true;
+                mismatches.increment();
+                engineRenders.increment();
+                log.warn("Compiled renderer for '{}' differs from the engine output; rendering it with the engine from now on",
+                        templatePath);
+                return expected;
+            }
+            entry.verified.incrementAndGet();
+        }
+        compiledRenders.increment();
+        return html;
+    }
+
+    /**
+     * Compiled renderer currently used for {@code templatePath}, or null when the engine renders it.
+     */
+    @Nullable
+    public CompiledTemplate get(String templatePath) {
+        Entry entry = entryFor(templatePath);
+        return entry == null || entry.mismatched ? null : entry.template;
+    }
+
+    public long compiledRenders() {
+        return compiledRenders.sum();
+    }
+
+    public long engineRenders() {
+        return engineRenders.sum();
+    }
+
+    public long mismatches() {
+        return mismatches.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("sphuta.template.compiled.renders", this, CompiledTemplates::compiledRenders)
+                .description("Renders served by a compiled template")
+                .register(registry);
+        FunctionCounter.builder("sphuta.template.compiled.engine.renders", this, CompiledTemplates::engineRenders)
+                .description("Renders left to the template engine")
+                .register(registry);
+        FunctionCounter.builder("sphuta.template.compiled.mismatches", this, CompiledTemplates::mismatches)
+                .description("Compiled templates dropped because their output differed from the engine's")
+                .register(registry);
+    }
+
+    // recompiles when the registry holds a different source, i.e. after a hot reload
+    @Nullable
+    private Entry entryFor(String templatePath) {
+        EmailTemplateSource source = templateRegistry.getSource(templatePath);
+        if (source == null) return null;
+        Entry entry = entries.get(templatePath);
+        if (entry != null && entry.source == source) return entry;
+
+        CompiledTemplate template = null;
+        try {
+            template = CompiledTemplate.compile(templatePath, source.body());
+            log.debug("Template '{}' compiled with {} expressions", templatePath, template.expressionCount());
+        } catch (IllegalArgumentException ex) {
+            log.info("Template '{}' stays with the engine: {}", templatePath, ex.getMessage());
+        }
+        Entry compiled = new Entry(source, template);
+        entries.put(templatePath, compiled);
+        return compiled;
+    }
+}
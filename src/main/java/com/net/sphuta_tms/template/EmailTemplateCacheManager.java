@@ -0,0 +1,65 @@
+package com.net.sphuta_tms.template;
+
+import org.thymeleaf.cache.ExpressionCacheKey;
+import org.thymeleaf.cache.ICache;
+import org.thymeleaf.cache.ICacheManager;
+import org.thymeleaf.cache.TemplateCacheKey;
+import org.thymeleaf.engine.TemplateModel;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * ==========================================================
+ * {@code EmailTemplateCacheManager}
+ * ==========================================================
+ *
+ * <p>Thymeleaf cache manager installed on the template engine (see
+ * {@code TemplateCacheConfig}). It holds one compiled {@link TemplateModel} per
+ * template in a {@link BoundedCache}, so renders skip resolving and parsing,
+ * and counts hits and misses for the metrics endpoint.</p>
+ *
+ * <p>Entries stay until evicted for size, their resolver reports them stale, or
+ * {@link TemplateWatcher} clears them after the template file changed.</p>
+ */
+public class EmailTemplateCacheManager implements ICacheManager {
+
+    private final BoundedCache<TemplateCacheKey, TemplateModel> templateCache;
+    private final BoundedCache<ExpressionCacheKey, Object> expressionCache;
+
+    public EmailTemplateCacheManager(int templateCacheMaxSize, int expressionCacheMaxSize) {
+        this.templateCache = new BoundedCache<>(templateCacheMaxSize,
+                (key, model, createdAt) -> model.getValidity().isCacheStillValid());
+        this.expressionCache = new BoundedCache<>(expressionCacheMaxSize, null);
+    }
+
+    @Override
+    public ICache<TemplateCacheKey, TemplateModel> getTemplateCache() {
+        return templateCache;
+    }
+
+    @Override
+    public ICache<ExpressionCacheKey, Object> getExpressionCache() {
+        return expressionCache;
+    }
+
+    @Override
+    public <K, V> ICache<K, V> getSpecificCache(String name) {
+        return null;
+    }
+
+    @Override
+    public List<String> getAllSpecificCacheNames() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public void clearAllCaches() {
+        templateCache.clear();
+        expressionCache.clear();
+    }
+
+    public BoundedCache<TemplateCacheKey, TemplateModel> templates() {
+        return templateCache;
+    }
+}
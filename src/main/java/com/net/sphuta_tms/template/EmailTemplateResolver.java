@@ -0,0 +1,47 @@
+package com.net.sphuta_tms.template;
+
+import com.net.sphuta_tms.constants.TemplateRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.thymeleaf.IEngineConfiguration;
+import org.thymeleaf.cache.AlwaysValidCacheEntryValidity;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ITemplateResolver;
+import org.thymeleaf.templateresolver.TemplateResolution;
+import org.thymeleaf.templateresource.StringTemplateResource;
+
+import java.util.Map;
+
+/**
+ * Thymeleaf resolver for the registered email templates.
+ *
+ * <p>Serves the body prepared by {@link TemplateRegistry} (subject meta tag removed)
+ * instead of the raw file, and marks it always valid so the engine parses it once
+ * and keeps the parsed form in its template cache. Unknown names return
+ * {@code null} and fall through to the default classpath resolver.</p>
+ */
+@Component
+public class EmailTemplateResolver implements ITemplateResolver {
+
+    @Autowired
+    private TemplateRegistry templateRegistry;
+
+    @Override
+    public String getName() {
+        return getClass().getSimpleName();
+    }
+
+    @Override
+    public Integer getOrder() {
+        return 0; // ahead of Boot's default resolver
+    }
+
+    @Override
+    public TemplateResolution resolveTemplate(IEngineConfiguration configuration, String ownerTemplate,
+                                              String template, Map<String, Object> templateResolutionAttributes) {
+        EmailTemplateSource source = templateRegistry.getSource(template);
+        if (source == null) return null;
+        return new TemplateResolution(new StringTemplateResource(source.body()), TemplateMode.HTML,
+                AlwaysValidCacheEntryValidity.INSTANCE);
+    }
+}
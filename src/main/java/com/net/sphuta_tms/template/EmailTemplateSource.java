@@ -0,0 +1,57 @@
+package com.net.sphuta_tms.template;
+
+import org.springframework.web.util.HtmlUtils;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An email template split once, at load time, into its subject and its body.
+ *
+ * <p>The {@code <meta name="subject">} tag is taken out of the source:
+ * a plain {@code content="..."} becomes {@link #staticSubject()}, a
+ * {@code th:content="..."} becomes {@link #subjectExpression()} to be evaluated
+ * per send. {@link #body()} is the template without the tag, so neither the
+ * rendered HTML nor the subject needs a regex pass per message.</p>
+ */
+public record EmailTemplateSource(
+        String templatePath,
+        String staticSubject,
+        String subjectExpression,
+        String body
+) {
+
+    private static final Pattern META_SUBJECT_TAG =
+            Pattern.compile("[ \\t]*<meta\\s+[^>]*name\\s*=\\s*['\"]subject['\"][^>]*>[ \\t]*(\\r?\\n)?",
+                    Pattern.CASE_INSENSITIVE);
+    private static final Pattern TH_CONTENT =
+            Pattern.compile("th:content\\s*=\\s*(?:\"([^\"]*)\"|'([^']*)')", Pattern.CASE_INSENSITIVE);
+    private static final Pattern CONTENT =
+            Pattern.compile("(?<![:\\w-])content\\s*=\\s*(?:\"([^\"]*)\"|'([^']*)')", Pattern.CASE_INSENSITIVE);
+
+    public static EmailTemplateSource parse(String templatePath, String source) {
+        Matcher tag = META_SUBJECT_TAG.matcher(source);
+        if (!tag.find()) {
+            return new EmailTemplateSource(templatePath, null, null, source);
+        }
+
+        String meta = tag.group();
+        String body = source.substring(0, tag.start()) + source.substring(tag.end());
+
+        Matcher th = TH_CONTENT.matcher(meta);
+        if (th.find()) {
+            return new EmailTemplateSource(templatePath, null, HtmlUtils.htmlUnescape(value(th)).trim(), body);
+        }
+        Matcher plain = CONTENT.matcher(meta);
+        String subject = plain.find() ? HtmlUtils.htmlUnescape(value(plain)).trim() : null;
+        return new EmailTemplateSource(templatePath, subject, null, body);
+    }
+
+    public boolean hasSubject() {
+        return staticSubject != null || subjectExpression != null;
+    }
+
+    private static String value(Matcher m) {
+        return m.group(1) != null ? m.group(1) : m.group(2);
+    }
+}
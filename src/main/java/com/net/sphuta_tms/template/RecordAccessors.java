@@ -0,0 +1,76 @@
+package com.net.sphuta_tms.template;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.RecordComponent;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Component accessors of one record class as {@link MethodHandle}s, built once per
+ * class and shared. Reading a template variable is then a map lookup plus an
+ * {@code invokeExact} on the record accessor, with no reflection and no copy of
+ * the record into a map.
+ */
+public final class RecordAccessors {
+
+    private static final MethodType GETTER = MethodType.methodType(Object.class, Object.class);
+
+    private static final ClassValue<RecordAccessors> CACHE = new ClassValue<>() {
+        @Override
+        protected RecordAccessors computeValue(Class<?> type) {
+            return new RecordAccessors(type);
+        }
+    };
+
+    private final Map<String, MethodHandle> getters;
+
+    private RecordAccessors(Class<?> recordClass) {
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        Map<String, MethodHandle> handles = new LinkedHashMap<>();
+        for (RecordComponent component : recordClass.getRecordComponents()) {
+            try {
+                handles.put(component.getName(), lookup.unreflect(component.getAccessor()).asType(GETTER));
+            } catch (IllegalAccessException ex) {
+                throw new IllegalArgumentException("Record component not accessible: "
+                        + recordClass.getSimpleName() + "." + component.getName(), ex);
+            }
+        }
+        this.getters = Map.copyOf(handles);
+    }
+
+    /**
+     * Accessors for {@code recordClass}; throws IllegalArgumentException if it is not a public record.
+     */
+    public static RecordAccessors of(Class<?> recordClass) {
+        if (!recordClass.isRecord()) {
+            throw new IllegalArgumentException(recordClass.getName() + " is not a record");
+        }
+        return CACHE.get(recordClass);
+    }
+
+    public boolean has(String name) {
+        return getters.containsKey(name);
+    }
+
+    public Set<String> names() {
+        return getters.keySet();
+    }
+
+    /**
+     * Value of component {@code name} of {@code target}, or null if the record has no such component.
+     */
+    public Object get(Object target, String name) {
+        MethodHandle getter = getters.get(name);
+        if (getter == null) return null;
+        try {
+            return (Object) getter.invokeExact(target);
+        } catch (RuntimeException | Error ex) {
+            throw ex;
+        } catch (Throwable ex) {
+            throw new IllegalStateException("Accessor " + name + " failed", ex);
+        }
+    }
+}
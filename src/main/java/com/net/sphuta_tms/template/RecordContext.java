@@ -0,0 +1,57 @@
+package com.net.sphuta_tms.template;
+
+import org.thymeleaf.context.IContext;
+
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Thymeleaf {@link IContext} whose variables are the components of a record DTO
+ * ({@code EmployeeReminderDto}, {@code ManagerApprovalDto}, ...), read through
+ * {@link RecordAccessors} on demand instead of being copied into a map first.
+ *
+ * <p>{@link RecordEngineContextFactory} keeps it that way inside the engine.</p>
+ */
+public final class RecordContext implements IContext {
+
+    private final Object record;
+    private final RecordAccessors accessors;
+    private final Locale locale;
+
+    public RecordContext(Object record, Locale locale) {
+        this.record = record;
+        this.accessors = RecordAccessors.of(record.getClass());
+        this.locale = locale;
+    }
+
+    /**
+     * True for DTOs this context can bind directly.
+     */
+    public static boolean supports(Object dto) {
+        return dto != null && dto.getClass().isRecord();
+    }
+
+    public Object getRecord() {
+        return record;
+    }
+
+    @Override
+    public Locale getLocale() {
+        return locale;
+    }
+
+    @Override
+    public boolean containsVariable(String name) {
+        return accessors.has(name);
+    }
+
+    @Override
+    public Set<String> getVariableNames() {
+        return accessors.names();
+    }
+
+    @Override
+    public Object getVariable(String name) {
+        return accessors.get(record, name);
+    }
+}
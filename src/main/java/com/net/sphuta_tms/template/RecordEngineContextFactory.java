@@ -0,0 +1,67 @@
+package com.net.sphuta_tms.template;
+
+import org.thymeleaf.IEngineConfiguration;
+import org.thymeleaf.context.EngineContext;
+import org.thymeleaf.context.IContext;
+import org.thymeleaf.context.IEngineContext;
+import org.thymeleaf.context.IEngineContextFactory;
+import org.thymeleaf.context.StandardEngineContextFactory;
+import org.thymeleaf.engine.TemplateData;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Engine context factory installed on the template engine.
+ *
+ * <p>The standard factory copies every variable of the incoming {@link IContext}
+ * into the engine context's own map. For a {@link RecordContext} that copy is
+ * skipped: the engine context starts empty and falls back to the record's
+ * accessors for any name not set locally by the template ({@code th:with},
+ * {@code th:each}). Other contexts go to the standard factory unchanged.</p>
+ */
+public class RecordEngineContextFactory implements IEngineContextFactory {
+
+    private final IEngineContextFactory standard = new StandardEngineContextFactory();
+
+    @Override
+    public IEngineContext createEngineContext(IEngineConfiguration configuration, TemplateData templateData,
+                                              Map<String, Object> templateResolutionAttributes, IContext context) {
+        if (context instanceof RecordContext recordContext) {
+            return new RecordEngineContext(configuration, templateData, templateResolutionAttributes, recordContext);
+        }
+        return standard.createEngineContext(configuration, templateData, templateResolutionAttributes, context);
+    }
+
+    static final class RecordEngineContext extends EngineContext {
+
+        private final RecordContext record;
+
+        RecordEngineContext(IEngineConfiguration configuration, TemplateData templateData,
+                            Map<String, Object> templateResolutionAttributes, RecordContext record) {
+            super(configuration, templateData, templateResolutionAttributes, record.getLocale(), Collections.emptyMap());
+            this.record = record;
+        }
+
+        @Override
+        public boolean containsVariable(String name) {
+            return super.containsVariable(name) || record.containsVariable(name);
+        }
+
+        @Override
+        public Object getVariable(String name) {
+            Object local = super.getVariable(name);
+            if (local != null || super.containsVariable(name)) return local;
+            return record.getVariable(name);
+        }
+
+        @Override
+        public Set<String> getVariableNames() {
+            Set<String> names = new HashSet<>(record.getVariableNames());
+            names.addAll(super.getVariableNames());
+            return names;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.net.sphuta_tms.template;
+
+import com.net.sphuta_tms.dto.RenderedEmail;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * ==========================================================
+ * {@code RenderedEmailCache}
+ * ==========================================================
+ *
+ * <p>Optional cache of rendered emails (subject + body) so that a reminder
+ * re-triggered with the same data skips Thymeleaf entirely.</p>
+ *
+ * <p>Rules:
+ * <ul>
+ *   <li>Key is the template path plus the DTO record. Records have value-based
+ *       {@code equals}/{@code hashCode}, so the key is a stable fingerprint of the
+ *       payload and a hash collision can never return another recipient's email.
+ *       Non-record DTOs are not cached.</li>
+ *   <li>Entries live for {@code ttl-ms} at most.</li>
+ *   <li>The estimated size of all entries stays under {@code max-bytes}; the least
+ *       recently used entries are evicted first.</li>
+ *   <li>{@link TemplateWatcher} drops a template's entries when its file changes.</li>
+ * </ul>
+ *
+ * <p>Enabled with {@code sphuta.mail.render-cache.enabled=true}.</p>
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "sphuta.mail.render-cache", name = "enabled", havingValue = "true")
+public class RenderedEmailCache implements MeterBinder {
+
+    private record Key(String templatePath, Object dto) { }
+
+    private record Entry(RenderedEmail email, long bytes, long expiresAt) { }
+
+    // object headers, the key and the RenderedEmail wrapper; strings are added per entry
+    private static final long ENTRY_OVERHEAD_BYTES = 160;
+
+    private final long maxBytes;
+    private final long ttlMs;
+    private final LongSupplier clock;
+
+    // access-ordered: iteration starts at the least recently used entry
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long bytes;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+
+    @Autowired
+    public RenderedEmailCache(@Value("${sphuta.mail.render-cache.max-bytes:33554432}") long maxBytes,
+                              @Value("${sphuta.mail.render-cache.ttl-ms:600000}") long ttlMs) {
+        this(maxBytes, ttlMs, System::currentTimeMillis);
+    }
+
+    RenderedEmailCache(long maxBytes, long ttlMs, LongSupplier clock) {
+        if (maxBytes <= 0 || ttlMs <= 0) {
+            throw new IllegalArgumentException("render-cache max-bytes and ttl-ms must be positive");
+        }
+        this.maxBytes = maxBytes;
+        this.ttlMs = ttlMs;
+        this.clock = clock;
+    }
+
+    /**
+     * True if emails rendered from this DTO can be cached.
+     */
+    public static boolean cacheable(Object dto) {
+        return dto != null && dto.getClass().isRecord();
+    }
+
+    /**
+     * Previously rendered email for this template and DTO, or null.
+     */
+    public synchronized RenderedEmail get(String templatePath, Object dto) {
+        Key key = new Key(templatePath, dto);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (entry.expiresAt() - clock.getAsLong() <= 0) {
+            remove(key);
+            expirations++;
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.email();
+    }
+
+    public synchronized void put(String templatePath, Object dto, RenderedEmail email) {
+        long size = estimateBytes(email);
+        if (size > maxBytes) {
+            log.debug("Rendered email for '{}' ({} bytes) exceeds the render cache; not cached", templatePath, size);
+            return;
+        }
+        Key key = new Key(templatePath, dto);
+        remove(key);
+        entries.put(key, new Entry(email, size, clock.getAsLong() + ttlMs));
+        bytes += size;
+
+        Iterator<Map.Entry<Key, Entry>> lru = entries.entrySet().iterator();
+        while (bytes > maxBytes && lru.hasNext()) {
+            Map.Entry<Key, Entry> eldest = lru.next();
+            lru.remove();
+            bytes -= eldest.getValue().bytes();
+            evictions++;
+        }
+    }
+
+    /**
+     * Drop every cached email rendered from {@code templatePath}.
+     */
+    public synchronized void invalidate(String templatePath) {
+        Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Key, Entry> e = it.next();
+            if (e.getKey().templatePath().equals(templatePath)) {
+                bytes -= e.getValue().bytes();
+                it.remove();
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long bytes() {
+        return bytes;
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    public synchronized long expirations() {
+        return expirations;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("sphuta.render.cache.size", this, RenderedEmailCache::size)
+                .description("Rendered emails currently cached")
+                .register(registry);
+        Gauge.builder("sphuta.render.cache.bytes", this, RenderedEmailCache::bytes)
+                .description("Estimated memory held by cached rendered emails")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("sphuta.render.cache.max.bytes", this, c -> c.maxBytes)
+                .description("Memory cap of the rendered email cache")
+                .baseUnit("bytes")
+                .register(registry);
+        FunctionCounter.builder("sphuta.render.cache.hits", this, RenderedEmailCache::hits)
+                .description("Sends that reused a rendered email")
+                .register(registry);
+        FunctionCounter.builder("sphuta.render.cache.misses", this, RenderedEmailCache::misses)
+                .description("Sends that had to render")
+                .register(registry);
+        FunctionCounter.builder("sphuta.render.cache.evictions", this, RenderedEmailCache::evictions)
+                .description("Entries evicted to stay under the memory cap")
+                .register(registry);
+        FunctionCounter.builder("sphuta.render.cache.expirations", this, RenderedEmailCache::expirations)
+                .description("Entries dropped because their TTL elapsed")
+                .register(registry);
+    }
+
+    private void remove(Key key) {
+        Entry old = entries.remove(key);
+        if (old != null) bytes -= old.bytes();
+    }
+
+    // Java strings are at most 2 bytes per char; good enough for a cap
+    private static long estimateBytes(RenderedEmail email) {
+        return ENTRY_OVERHEAD_BYTES
+                + 2L * (length(email.templatePath()) + length(email.to()) + length(email.subject()) + length(email.html()));
+    }
+
+    private static int length(String s) {
+        return s == null ? 0 : s.length();
+    }
+}
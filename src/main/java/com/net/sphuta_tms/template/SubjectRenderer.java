@@ -0,0 +1,135 @@
+package com.net.sphuta_tms.template;
+
+import com.net.sphuta_tms.constants.TemplateRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.thymeleaf.IEngineConfiguration;
+import org.thymeleaf.context.ExpressionContext;
+import org.thymeleaf.context.IContext;
+import org.thymeleaf.context.IExpressionContext;
+import org.thymeleaf.expression.ExpressionObjects;
+import org.thymeleaf.expression.IExpressionObjects;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.standard.expression.IStandardExpression;
+import org.thymeleaf.standard.expression.IStandardExpressionParser;
+import org.thymeleaf.standard.expression.StandardExpressions;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Produces email subjects without rendering or scanning the HTML body.
+ *
+ * <p>Static subjects come straight from {@link EmailTemplateSource}. Dynamic ones
+ * ({@code th:content} on the subject meta tag) are parsed into Thymeleaf standard
+ * expressions once at startup and evaluated against the send's context, the
+ * same {@link IContext} (e.g. a {@link RecordContext}) the body is rendered with.</p>
+ */
+@Slf4j
+@Component
+public class SubjectRenderer {
+
+    @Autowired
+    private SpringTemplateEngine templateEngine;
+
+    @Autowired
+    private TemplateRegistry templateRegistry;
+
+    private final Map<String, IStandardExpression> expressions = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        templateRegistry.getSources().forEach(this::parse);
+        log.info("SubjectRenderer: pre-parsed {} subject expressions", expressions.size());
+    }
+
+    /**
+     * True when the template was split by {@link TemplateRegistry}, i.e. its
+     * subject comes from here and its body carries no subject meta tag.
+     */
+    public boolean handles(String templatePath) {
+        return templateRegistry.getSource(templatePath) != null;
+    }
+
+    /**
+     * Drop the parsed expression for a template whose source was reloaded;
+     * it is parsed again from the new source on next use.
+     */
+    public void invalidate(String templatePath) {
+        expressions.remove(templatePath);
+    }
+
+    /**
+     * Subject for one send, or null when the template declares none.
+     */
+    public String render(String templatePath, IContext context) {
+        EmailTemplateSource source = templateRegistry.getSource(templatePath);
+        if (source == null || !source.hasSubject()) return null;
+        if (source.staticSubject() != null) return source.staticSubject();
+
+        IStandardExpression expression = expressions.get(templatePath);
+        if (expression == null) expression = parse(source);
+
+        Object value = expression.execute(new BoundExpressionContext(templateEngine.getConfiguration(), context));
+        return value == null ? null : value.toString().trim();
+    }
+
+    private IStandardExpression parse(EmailTemplateSource source) {
+        if (source.subjectExpression() == null) return null;
+        IEngineConfiguration configuration = templateEngine.getConfiguration();
+        IStandardExpressionParser parser = StandardExpressions.getExpressionParser(configuration);
+        IStandardExpression expression = parser.parseExpression(new ExpressionContext(configuration), source.subjectExpression());
+        expressions.put(source.templatePath(), expression);
+        return expression;
+    }
+
+    // evaluates against the caller's context as-is, without copying its variables into a map
+    private static final class BoundExpressionContext implements IExpressionContext {
+
+        private final IEngineConfiguration configuration;
+        private final IContext context;
+        private IExpressionObjects expressionObjects;
+
+        BoundExpressionContext(IEngineConfiguration configuration, IContext context) {
+            this.configuration = configuration;
+            this.context = context;
+        }
+
+        @Override
+        public IEngineConfiguration getConfiguration() {
+            return configuration;
+        }
+
+        @Override
+        public IExpressionObjects getExpressionObjects() {
+            if (expressionObjects == null) {
+                expressionObjects = new ExpressionObjects(this, configuration.getExpressionObjectFactory());
+            }
+            return expressionObjects;
+        }
+
+        @Override
+        public Locale getLocale() {
+            return context.getLocale();
+        }
+
+        @Override
+        public boolean containsVariable(String name) {
+            return context.containsVariable(name);
+        }
+
+        @Override
+        public Set<String> getVariableNames() {
+            return context.getVariableNames();
+        }
+
+        @Override
+        public Object getVariable(String name) {
+            return context.getVariable(name);
+        }
+    }
+}
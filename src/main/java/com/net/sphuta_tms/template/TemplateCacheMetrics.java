@@ -0,0 +1,81 @@
+package com.net.sphuta_tms.template;
+
+import com.net.sphuta_tms.constants.TemplateRegistry;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Micrometer bindings for the compiled template cache, hot reload and template sizes.
+ * Like the SMTP metrics, every meter reads existing counters lazily.
+ */
+public final class TemplateCacheMetrics {
+
+    private TemplateCacheMetrics() {
+    }
+
+    public static void bind(EmailTemplateCacheManager cacheManager, TemplateWatcher watcher, MeterRegistry registry) {
+        BoundedCache<?, ?> templates = cacheManager.templates();
+
+        Gauge.builder("sphuta.template.cache.size", templates, BoundedCache::size)
+                .description("Compiled templates currently cached")
+                .register(registry);
+        Gauge.builder("sphuta.template.cache.max", templates, BoundedCache::maxSize)
+                .description("Maximum number of compiled templates kept")
+                .register(registry);
+        FunctionCounter.builder("sphuta.template.cache.hits", templates, BoundedCache::hits)
+                .description("Renders served from a compiled template")
+                .register(registry);
+        FunctionCounter.builder("sphuta.template.cache.misses", templates, BoundedCache::misses)
+                .description("Renders that had to resolve and parse the template")
+                .register(registry);
+        FunctionCounter.builder("sphuta.template.cache.evictions", templates, BoundedCache::evictions)
+                .description("Compiled templates dropped to stay within the size bound")
+                .register(registry);
+        Gauge.builder("sphuta.template.cache.hit.ratio", templates, TemplateCacheMetrics::hitRatio)
+                .description("Share of template lookups served from the cache")
+                .register(registry);
+
+        if (watcher == null) return;
+
+        FunctionCounter.builder("sphuta.template.reloads", watcher, TemplateWatcher::reloads)
+                .description("Templates reloaded after their file changed")
+                .register(registry);
+        FunctionCounter.builder("sphuta.template.reload.failures", watcher, TemplateWatcher::reloadFailures)
+                .description("Changed templates that could not be re-read; the previous version stays in use")
+                .register(registry);
+    }
+
+    /**
+     * Body size per registered template, before ({@code stage=source}) and after
+     * ({@code stage=optimized}) {@link TemplateOptimizer}; both equal when not optimizing.
+     */
+    public static void bind(TemplateRegistry templates, MeterRegistry registry) {
+        for (EmailTemplateSource source : templates.getSources()) {
+            String path = source.templatePath();
+            Gauge.builder("sphuta.template.bytes", templates, t -> bodyBytes(t, path, false))
+                    .description("UTF-8 size of the template body")
+                    .tags("template", path, "stage", "source")
+                    .register(registry);
+            Gauge.builder("sphuta.template.bytes", templates, t -> bodyBytes(t, path, true))
+                    .description("UTF-8 size of the template body")
+                    .tags("template", path, "stage", "optimized")
+                    .register(registry);
+        }
+    }
+
+    private static double bodyBytes(TemplateRegistry templates, String path, boolean optimized) {
+        TemplateOptimizer.Result result = templates.getOptimization(path);
+        if (result != null) return optimized ? result.optimizedBytes() : result.originalBytes();
+        EmailTemplateSource source = templates.getSource(path);
+        return source == null ? 0 : source.body().getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static double hitRatio(BoundedCache<?, ?> cache) {
+        long hits = cache.hits();
+        long total = hits + cache.misses();
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+}
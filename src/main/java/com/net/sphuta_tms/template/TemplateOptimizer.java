@@ -0,0 +1,517 @@
+package com.net.sphuta_tms.template;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Shrinks an email template body once, when it is loaded, before the engine parses it.
+ *
+ * <p>Steps:
+ * <ul>
+ *   <li>CSS from {@code <style>} blocks is copied into the {@code style} attribute of every
+ *       element it applies to; an element's own {@code style} declarations win. Only
+ *       type, class and id selectors (and combinations like {@code a.button}) are inlined;
+ *       anything else, including {@code @media} rules, stays in a minified
+ *       {@code <style>} block. A declaration is not inlined when a kept rule sets the same
+ *       property on an element the inlined rule may also match (e.g. {@code a:hover} against
+ *       {@code a.cta}), since an inline style would override the kept rule; it stays in the
+ *       {@code <style>} block in its original position instead. Templates that set classes or styles through Thymeleaf
+ *       attributes ({@code th:class}, {@code th:style}, ...) are not inlined, because the
+ *       final classes are only known per send.</li>
+ *   <li>HTML comments are dropped, except conditional comments and Thymeleaf
+ *       prototype-only comment blocks, whose content the engine processes. Parser-level
+ *       comment blocks are dropped with their content, as the engine would.</li>
+ *   <li>Runs of whitespace become a single newline (when they contained one) or space,
+ *       outside {@code pre}, {@code textarea} and {@code script}, quoted attribute values
+ *       and inline expressions. Lines stay short, so bodies can still go out as 7bit.</li>
+ * </ul>
+ */
+public final class TemplateOptimizer {
+
+    /**
+     * Optimised body and the size of the body before and after, in UTF-8 bytes.
+     */
+    public record Result(String html, int originalBytes, int optimizedBytes, int inlinedRules, int keptRules) {
+        public int savedBytes() {
+            return originalBytes - optimizedBytes;
+        }
+
+        public double savedRatio() {
+            return originalBytes == 0 ? 0.0 : (double) savedBytes() / originalBytes;
+        }
+    }
+
+    private static final Pattern STYLE_BLOCK =
+            Pattern.compile("<style(\\s[^>]*)?>(.*?)</style\\s*>", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    private static final Pattern DYNAMIC_STYLING =
+            Pattern.compile("\\b(?:th|data-th):(?:class|classappend|style|styleappend|attr|attrappend)\\s*=",
+                    Pattern.CASE_INSENSITIVE);
+    private static final Pattern CSS_COMMENT = Pattern.compile("/\\*.*?\\*/", Pattern.DOTALL);
+    private static final Pattern SIMPLE_SELECTOR = Pattern.compile("([a-zA-Z][a-zA-Z0-9]*)?((?:[.#][-\\w]+)*)");
+    private static final Pattern PSEUDO_OR_ATTRIBUTE = Pattern.compile("\\[[^\\]]*\\]|::?[-\\w]+(?:\\([^)]*\\))?");
+    private static final Pattern NESTED_RULE = Pattern.compile("([^{}]+)\\{([^{}]*)\\}");
+    private static final Set<String> RAW_TEXT_ELEMENTS = Set.of("pre", "textarea", "script");
+
+    private TemplateOptimizer() {
+    }
+
+    public static Result optimize(String html) {
+        String css = null;
+        List<Rule> rules = new ArrayList<>();
+        StringBuilder kept = new StringBuilder();
+        String body = html;
+
+        if (!DYNAMIC_STYLING.matcher(html).find()) {
+            Matcher block = STYLE_BLOCK.matcher(html);
+            StringBuilder withoutStyles = new StringBuilder();
+            int firstBlock = -1;
+            int last = 0;
+            while (block.find()) {
+                // <style media="..."> only applies conditionally and cannot be inlined
+                if (block.group(1) != null && !block.group(1).isBlank()) continue;
+                withoutStyles.append(html, last, block.start());
+                if (firstBlock < 0) firstBlock = withoutStyles.length();
+                css = css == null ? block.group(2) : css + "\n" + block.group(2);
+                last = block.end();
+            }
+            if (css != null) {
+                withoutStyles.append(html, last, html.length());
+                parseRules(css, rules, kept);
+                if (!kept.isEmpty()) withoutStyles.insert(firstBlock, "<style>" + kept + "</style>");
+                body = inline(withoutStyles.toString(), rules);
+            }
+        }
+
+        String minified = minify(body);
+        int inlined = (int) rules.stream().filter(rule -> !rule.declarations().isEmpty()).count();
+        return new Result(minified, utf8Length(html), utf8Length(minified), inlined, countRules(kept));
+    }
+
+    // --- CSS ---
+
+    private record Rule(String selector, String tag, List<String> classes, String id, int specificity, int order,
+                        Map<String, String> declarations) {
+
+        boolean matches(String tagName, Set<String> elementClasses, String elementId) {
+            if (tag != null && !tag.equalsIgnoreCase(tagName)) return false;
+            if (id != null && !id.equals(elementId)) return false;
+            return elementClasses.containsAll(classes);
+        }
+
+        // some element could match both; classes never rule that out
+        boolean overlaps(Rule other) {
+            return (tag == null || other.tag == null || tag.equalsIgnoreCase(other.tag))
+                    && (id == null || other.id == null || id.equals(other.id));
+        }
+    }
+
+    private static void parseRules(String css, List<Rule> rules, StringBuilder kept) {
+        String text = CSS_COMMENT.matcher(css).replaceAll("");
+        List<Object> blocks = new ArrayList<>(); // kept CSS text or an inlined Rule, in source order
+        List<Rule> keptRules = new ArrayList<>(); // the element each kept rule lands on, and what it sets
+        int i = 0;
+        while (i < text.length()) {
+            int open = text.indexOf('{', i);
+            if (open < 0) break;
+            String selectors = text.substring(i, open).trim();
+            if (selectors.startsWith("@")) {
+                // at-rule with a block, e.g. @media: keep it whole, nested braces included
+                int end = matchingBrace(text, open);
+                String inner = text.substring(open + 1, end);
+                blocks.add(selectors + "{" + minifyCss(inner) + "}");
+                Matcher nested = NESTED_RULE.matcher(inner);
+                while (nested.find()) {
+                    Map<String, String> declared = parseDeclarations(nested.group(2));
+                    for (String selector : nested.group(1).split(",")) {
+                        if (!selector.isBlank()) keptRules.add(subjectRule(selector.trim(), declared));
+                    }
+                }
+                i = end + 1;
+                continue;
+            }
+            int close = text.indexOf('}', open);
+            if (close < 0) close = text.length();
+            String declarations = text.substring(open + 1, close);
+            i = close + 1;
+
+            List<String> unsupported = new ArrayList<>();
+            for (String selector : selectors.split(",")) {
+                Rule rule = selector.isBlank() ? null : simpleRule(selector.trim(), rules.size(), declarations);
+                if (rule != null) {
+                    rules.add(rule);
+                    blocks.add(rule);
+                } else if (!selector.isBlank()) {
+                    unsupported.add(selector.trim());
+                }
+            }
+            if (!unsupported.isEmpty()) {
+                blocks.add(String.join(",", unsupported) + "{" + minifyCss(declarations) + "}");
+                Map<String, String> declared = parseDeclarations(declarations);
+                for (String selector : unsupported) keptRules.add(subjectRule(selector, declared));
+            }
+        }
+
+        Map<Integer, Map<String, String>> stay = keepContested(rules, keptRules);
+        for (Object block : blocks) {
+            if (!(block instanceof Rule rule)) {
+                kept.append(block);
+            } else if (stay.containsKey(rule.order())) {
+                kept.append(rule.selector()).append('{').append(stay.get(rule.order()).entrySet().stream()
+                        .map(e -> e.getKey() + ":" + e.getValue())
+                        .collect(Collectors.joining(";"))).append('}');
+            }
+        }
+    }
+
+    /*
+     * Takes out of the inlined rules every declaration that would override a kept rule setting the
+     * same property on the same element. Declarations that could meet one taken out are taken out
+     * as well, so the style block alone decides between them. Returns them by rule order.
+     */
+    private static Map<Integer, Map<String, String>> keepContested(List<Rule> rules, List<Rule> keptRules) {
+        Map<Integer, Map<String, String>> stay = new HashMap<>();
+        boolean changed = !keptRules.isEmpty();
+        while (changed) {
+            changed = false;
+            for (Rule rule : rules) {
+                for (Iterator<Map.Entry<String, String>> it = rule.declarations().entrySet().iterator(); it.hasNext(); ) {
+                    Map.Entry<String, String> declaration = it.next();
+                    String property = declaration.getKey();
+                    boolean contested = keptRules.stream()
+                            .anyMatch(k -> k.declarations().containsKey(property) && rule.overlaps(k))
+                            || rules.stream().anyMatch(r -> stay.getOrDefault(r.order(), Map.of()).containsKey(property)
+                            && rule.overlaps(r));
+                    if (!contested) continue;
+                    stay.computeIfAbsent(rule.order(), o -> new LinkedHashMap<>()).put(property, declaration.getValue());
+                    it.remove();
+                    changed = true;
+                }
+            }
+        }
+        return stay;
+    }
+
+    // the compound a kept selector ends in, without pseudo-classes and attributes; any element if that is not simple
+    private static Rule subjectRule(String selector, Map<String, String> declarations) {
+        String[] compounds = selector.split("\\s*[\\s>+~]\\s*");
+        String subject = PSEUDO_OR_ATTRIBUTE.matcher(compounds[compounds.length - 1]).replaceAll("");
+        Rule simple = subject.isEmpty() ? null : simpleRule(subject, -1, "");
+        return simple == null
+                ? new Rule(selector, null, List.of(), null, 0, -1, declarations)
+                : new Rule(selector, simple.tag(), simple.classes(), simple.id(), simple.specificity(), -1, declarations);
+    }
+
+    private static Rule simpleRule(String selector, int order, String declarations) {
+        Matcher m = SIMPLE_SELECTOR.matcher(selector);
+        if (!m.matches() || selector.isEmpty()) return null;
+        String tag = m.group(1);
+        List<String> classes = new ArrayList<>();
+        String id = null;
+        int specificity = tag == null ? 0 : 1;
+        for (String part : m.group(2).split("(?=[.#])")) {
+            if (part.isEmpty()) continue;
+            if (part.charAt(0) == '.') {
+                classes.add(part.substring(1));
+                specificity += 10;
+            } else {
+                if (id != null) return null;
+                id = part.substring(1);
+                specificity += 100;
+            }
+        }
+        return new Rule(selector, tag, classes, id, specificity, order, parseDeclarations(declarations));
+    }
+
+    private static Map<String, String> parseDeclarations(String declarations) {
+        Map<String, String> result = new LinkedHashMap<>();
+        for (String declaration : splitOutsideQuotes(declarations, ';')) {
+            int colon = declaration.indexOf(':');
+            if (colon <= 0) continue;
+            String property = declaration.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            String value = declaration.substring(colon + 1).trim().replaceAll("\\s+", " ");
+            if (!property.isEmpty() && !value.isEmpty()) {
+                result.remove(property); // keep the declaration order of the last occurrence
+                result.put(property, value);
+            }
+        }
+        return result;
+    }
+
+    private static String inline(String html, List<Rule> rules) {
+        if (rules.isEmpty()) return html;
+        List<Rule> ordered = rules.stream()
+                .sorted(Comparator.comparingInt(Rule::specificity).thenComparingInt(Rule::order))
+                .toList();
+
+        StringBuilder out = new StringBuilder(html.length() + 256);
+        int i = 0;
+        while (i < html.length()) {
+            int lt = html.indexOf('<', i);
+            if (lt < 0 || lt + 1 >= html.length() || !Character.isLetter(html.charAt(lt + 1))) {
+                int next = lt < 0 ? html.length() : lt + 1;
+                out.append(html, i, next);
+                i = next;
+                continue;
+            }
+            int end = tagEnd(html, lt);
+            out.append(html, i, lt);
+            out.append(inlineTag(html.substring(lt, end + 1), ordered));
+            i = end + 1;
+        }
+        return out.toString();
+    }
+
+    private static String inlineTag(String tag, List<Rule> rules) {
+        int nameEnd = 1;
+        while (nameEnd < tag.length() && (Character.isLetterOrDigit(tag.charAt(nameEnd)) || tag.charAt(nameEnd) == '-')) nameEnd++;
+        String name = tag.substring(1, nameEnd);
+
+        Map<String, int[]> attributes = attributes(tag, nameEnd);
+        String classAttr = value(tag, attributes.get("class"));
+        Set<String> classes = classAttr == null ? Set.of()
+                : Arrays.stream(classAttr.trim().split("\\s+")).filter(s -> !s.isEmpty()).collect(Collectors.toSet());
+        String id = value(tag, attributes.get("id"));
+
+        Map<String, String> merged = new LinkedHashMap<>();
+        for (Rule rule : rules) {
+            if (rule.matches(name, classes, id)) merged.putAll(rule.declarations());
+        }
+        if (merged.isEmpty()) return tag;
+
+        int[] style = attributes.get("style");
+        String own = value(tag, style);
+        if (own != null) {
+            // the element's own declarations win, as they would in the browser
+            parseDeclarations(own).forEach((property, value) -> {
+                merged.remove(property);
+                merged.put(property, value);
+            });
+        }
+        String attr = "style=\"" + merged.entrySet().stream()
+                .map(e -> e.getKey() + ":" + e.getValue().replace('"', '\''))
+                .collect(Collectors.joining(";")) + "\"";
+        if (style != null) {
+            return tag.substring(0, style[0]) + attr + tag.substring(style[1]);
+        }
+        int insertAt = tag.endsWith("/>") ? tag.length() - 2 : tag.length() - 1;
+        return tag.substring(0, insertAt).stripTrailing() + " " + attr + tag.substring(insertAt);
+    }
+
+    // attribute name -> [start of attribute, end of attribute, start of value, end of value]
+    static Map<String, int[]> attributes(String tag, int from) {
+        Map<String, int[]> attributes = new LinkedHashMap<>();
+        int i = from;
+        int n = tag.length();
+        while (i < n) {
+            while (i < n && (Character.isWhitespace(tag.charAt(i)) || tag.charAt(i) == '/')) i++;
+            if (i >= n || tag.charAt(i) == '>') break;
+            int start = i;
+            while (i < n && !Character.isWhitespace(tag.charAt(i)) && "=>/".indexOf(tag.charAt(i)) < 0) i++;
+            String name = tag.substring(start, i).toLowerCase(Locale.ROOT);
+            int j = i;
+            while (j < n && Character.isWhitespace(tag.charAt(j))) j++;
+            if (j >= n || tag.charAt(j) != '=') {
+                attributes.putIfAbsent(name, new int[]{start, i, i, i});
+                continue;
+            }
+            j++;
+            while (j < n && Character.isWhitespace(tag.charAt(j))) j++;
+            int valueStart;
+            int valueEnd;
+            if (j < n && (tag.charAt(j) == '"' || tag.charAt(j) == '\'')) {
+                int q = tag.indexOf(tag.charAt(j), j + 1);
+                valueStart = j + 1;
+                valueEnd = q < 0 ? n - 1 : q;
+                i = valueEnd + 1;
+            } else {
+                valueStart = j;
+                while (j < n && !Character.isWhitespace(tag.charAt(j)) && tag.charAt(j) != '>') j++;
+                valueEnd = j;
+                i = j;
+            }
+            attributes.putIfAbsent(name, new int[]{start, i, valueStart, valueEnd});
+        }
+        return attributes;
+    }
+
+    private static String value(String tag, int[] attribute) {
+        return attribute == null ? null : tag.substring(attribute[2], attribute[3]);
+    }
+
+    static String minifyCss(String css) {
+        String text = CSS_COMMENT.matcher(css).replaceAll("").trim().replaceAll("\\s+", " ");
+        return text.replaceAll("\\s*([{};,>])\\s*", "$1").replaceAll(":\\s+", ":").replace(";}", "}");
+    }
+
+    // --- HTML ---
+
+    static String minify(String html) {
+        StringBuilder out = new StringBuilder(html.length());
+        int i = 0;
+        int n = html.length();
+        while (i < n) {
+            char c = html.charAt(i);
+            if (c == '<' && html.startsWith("<!--", i)) {
+                i = comment(html, i, out);
+            } else if (c == '<' && i + 1 < n && (Character.isLetter(html.charAt(i + 1)) || html.charAt(i + 1) == '/'
+                    || html.charAt(i + 1) == '!')) {
+                int end = tagEnd(html, i);
+                appendTag(html, i, end + 1, out);
+                String name = tagName(html, i);
+                i = end + 1;
+                if (RAW_TEXT_ELEMENTS.contains(name) || name.equals("style")) {
+                    int close = indexOfIgnoreCase(html, "</" + name, i);
+                    if (close < 0) close = n;
+                    String content = html.substring(i, close);
+                    out.append(name.equals("style") ? minifyCss(content) : content);
+                    i = close;
+                }
+            } else if (c == '[' && i + 1 < n && (html.charAt(i + 1) == '[' || html.charAt(i + 1) == '(')) {
+                // inline expression: string literals inside keep their spacing
+                int close = html.indexOf(html.charAt(i + 1) == '[' ? "]]" : ")]", i + 2);
+                int end = close < 0 ? n : close + 2;
+                out.append(html, i, end);
+                i = end;
+            } else if (Character.isWhitespace(c)) {
+                boolean newline = false;
+                while (i < n && Character.isWhitespace(html.charAt(i))) {
+                    newline |= html.charAt(i) == '\n';
+                    i++;
+                }
+                if (out.isEmpty() || i >= n) continue;
+                char previous = out.charAt(out.length() - 1);
+                if (previous != ' ' && previous != '\n') out.append(newline ? '\n' : ' ');
+                else if (newline) out.setCharAt(out.length() - 1, '\n'); // run split by a dropped comment
+            } else {
+                out.append(c);
+                i++;
+            }
+        }
+        return out.toString();
+    }
+
+    private static int comment(String html, int start, StringBuilder out) {
+        if (html.startsWith("<!--/*/", start)) {
+            // prototype-only block: its content is processed by the engine, keep it
+            int end = html.indexOf("/*/-->", start + 7);
+            end = end < 0 ? html.length() : end + 6;
+            out.append(html, start, end);
+            return end;
+        }
+        if (html.startsWith("<!--/*", start)) {
+            // parser-level comment: removed with everything up to */-->
+            int end = html.indexOf("*/-->", start + 6);
+            return end < 0 ? html.length() : end + 5;
+        }
+        int end = html.indexOf("-->", start + 4);
+        end = end < 0 ? html.length() : end + 3;
+        if (html.startsWith("<!--[", start)) out.append(html, start, end); // conditional comment
+        return end;
+    }
+
+    // whitespace between attributes collapsed, none before the closing bracket; quoted values untouched
+    private static void appendTag(String html, int start, int end, StringBuilder out) {
+        char quote = 0;
+        boolean pendingSpace = false;
+        for (int i = start; i < end; i++) {
+            char c = html.charAt(i);
+            if (quote != 0) {
+                out.append(c);
+                if (c == quote) quote = 0;
+            } else if (Character.isWhitespace(c)) {
+                pendingSpace = true;
+            } else {
+                if (pendingSpace && c != '>' && !(c == '/' && i + 1 < end && html.charAt(i + 1) == '>')) out.append(' ');
+                pendingSpace = false;
+                if (c == '"' || c == '\'') quote = c;
+                out.append(c);
+            }
+        }
+    }
+
+    // index of the '>' closing the tag at start, skipping quoted attribute values
+    static int tagEnd(String html, int start) {
+        char quote = 0;
+        for (int i = start + 1; i < html.length(); i++) {
+            char c = html.charAt(i);
+            if (quote != 0) {
+                if (c == quote) quote = 0;
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '>') {
+                return i;
+            }
+        }
+        return html.length() - 1;
+    }
+
+    private static String tagName(String html, int start) {
+        int i = start + 1;
+        while (i < html.length() && Character.isLetterOrDigit(html.charAt(i))) i++;
+        return html.substring(start + 1, i).toLowerCase(Locale.ROOT);
+    }
+
+    private static int matchingBrace(String text, int open) {
+        int depth = 0;
+        for (int i = open; i < text.length(); i++) {
+            if (text.charAt(i) == '{') depth++;
+            else if (text.charAt(i) == '}' && --depth == 0) return i;
+        }
+        return text.length() - 1;
+    }
+
+    private static List<String> splitOutsideQuotes(String text, char separator) {
+        List<String> parts = new ArrayList<>();
+        char quote = 0;
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quote != 0) {
+                if (c == quote) quote = 0;
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == separator && depth == 0) {
+                parts.add(text.substring(start, i));
+                start = i + 1;
+            }
+        }
+        parts.add(text.substring(start));
+        return parts;
+    }
+
+    static int indexOfIgnoreCase(String text, String needle, int from) {
+        for (int i = from; i <= text.length() - needle.length(); i++) {
+            if (text.regionMatches(true, i, needle, 0, needle.length())) return i;
+        }
+        return -1;
+    }
+
+    private static int countRules(CharSequence css) {
+        int count = 0;
+        for (int i = 0; i < css.length(); i++) {
+            if (css.charAt(i) == '}') count++;
+        }
+        return count;
+    }
+
+    private static int utf8Length(String s) {
+        return s.getBytes(StandardCharsets.UTF_8).length;
+    }
+}
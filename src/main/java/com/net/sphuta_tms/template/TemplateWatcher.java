@@ -0,0 +1,200 @@
+package com.net.sphuta_tms.template;
+
+import com.net.sphuta_tms.constants.TemplateRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.stereotype.Component;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * ==========================================================
+ * {@code TemplateWatcher}
+ * ==========================================================
+ *
+ * <p>Hot reload for the email templates. Watches {@code templates/emails/**} under
+ * {@code sphuta.mail.templates.watch.dir} and, for each changed file, only:</p>
+ * <ol>
+ *   <li>re-reads that template into {@link TemplateRegistry},</li>
+ *   <li>drops its pre-parsed subject in {@link SubjectRenderer},</li>
+ *   <li>evicts its compiled form from the engine cache,</li>
+ *   <li>drops emails rendered from it in {@link RenderedEmailCache}, if enabled.</li>
+ * </ol>
+ *
+ * <p>Other templates stay compiled. Events are collected for
+ * {@code debounce-ms} before reloading so an editor's save burst is one reload.
+ * When the directory does not exist (packaged jar) the watcher stays off.</p>
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "sphuta.mail.templates.watch", name = "enabled", havingValue = "true")
+public class TemplateWatcher {
+
+    @Autowired
+    private TemplateRegistry templateRegistry;
+
+    @Autowired
+    private SubjectRenderer subjectRenderer;
+
+    @Autowired
+    private SpringTemplateEngine templateEngine;
+
+    @Autowired(required = false)
+    private RenderedEmailCache renderCache;
+
+    @Value("${sphuta.mail.templates.watch.dir:src/main/resources/templates}")
+    private String watchDir;
+
+    @Value("${spring.thymeleaf.suffix:.html}")
+    private String templateSuffix;
+
+    @Value("${sphuta.mail.templates.watch.debounce-ms:200}")
+    private long debounceMs;
+
+    private final AtomicLong reloads = new AtomicLong();
+    private final AtomicLong reloadFailures = new AtomicLong();
+
+    private Path root;
+    private WatchService watchService;
+    private Thread thread;
+
+    @PostConstruct
+    public void init() throws IOException {
+        root = Paths.get(watchDir).toAbsolutePath().normalize();
+        Path emails = root.resolve("emails");
+        if (!Files.isDirectory(emails)) {
+            log.info("TemplateWatcher: {} not found, template hot reload disabled", emails);
+            return;
+        }
+        watchService = FileSystems.getDefault().newWatchService();
+        registerTree(emails);
+
+        thread = new Thread(this::watchLoop, "template-watcher");
+        thread.setDaemon(true);
+        thread.start();
+        log.info("TemplateWatcher: watching {}", emails);
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        if (watchService != null) watchService.close();
+        if (thread != null) thread.interrupt();
+    }
+
+    /**
+     * Reload one template by path relative to the watch root, e.g.
+     * {@code emails/employee/timesheet-reminder.html}.
+     */
+    public void reload(Path relative) {
+        String name = relative.toString().replace('\\', '/');
+        if (!name.endsWith(templateSuffix)) return;
+        String templatePath = name.substring(0, name.length() - templateSuffix.length());
+
+        if (templateRegistry.reload(templatePath, new FileSystemResource(root.resolve(relative)))) {
+            subjectRenderer.invalidate(templatePath);
+            reloads.incrementAndGet();
+            log.info("TemplateWatcher: reloaded '{}'", templatePath);
+        } else if (templateRegistry.getSource(templatePath) != null) {
+            reloadFailures.incrementAndGet();
+            return; // keep serving the last good version
+        }
+        templateEngine.clearTemplateCacheFor(templatePath);
+        if (renderCache != null) renderCache.invalidate(templatePath);
+    }
+
+    public long reloads() {
+        return reloads.get();
+    }
+
+    public long reloadFailures() {
+        return reloadFailures.get();
+    }
+
+    private void watchLoop() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = watchService.take();
+                Thread.sleep(debounceMs);
+
+                Set<Path> changed = new LinkedHashSet<>();
+                do {
+                    collect(key, changed);
+                } while ((key = watchService.poll()) != null);
+
+                changed.forEach(this::reload);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException ex) {
+            // shutting down
+        }
+    }
+
+    private void collect(WatchKey key, Set<Path> changed) {
+        Path dir = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                log.warn("TemplateWatcher: event overflow in {}, reloading all templates there", dir);
+                listFiles(dir).forEach(file -> changed.add(root.relativize(file)));
+                continue;
+            }
+            Path file = dir.resolve((Path) event.context());
+            if (Files.isDirectory(file)) {
+                if (event.kind() == ENTRY_CREATE) {
+                    registerTree(file);
+                    listFiles(file).forEach(f -> changed.add(root.relativize(f)));
+                }
+            } else {
+                changed.add(root.relativize(file));
+            }
+        }
+        key.reset();
+    }
+
+    // WatchService is not recursive: register every directory below emails/
+    private void registerTree(Path start) {
+        try (Stream<Path> dirs = Files.walk(start)) {
+            dirs.filter(Files::isDirectory).forEach(dir -> {
+                try {
+                    dir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+                } catch (IOException ex) {
+                    log.warn("TemplateWatcher: cannot watch {}: {}", dir, ex.getMessage());
+                }
+            });
+        } catch (IOException ex) {
+            log.warn("TemplateWatcher: cannot walk {}: {}", start, ex.getMessage());
+        }
+    }
+
+    private static Set<Path> listFiles(Path dir) {
+        Set<Path> files = new LinkedHashSet<>();
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.filter(Files::isRegularFile).forEach(files::add);
+        } catch (IOException ex) {
+            log.warn("TemplateWatcher: cannot list {}: {}", dir, ex.getMessage());
+        }
+        return files;
+    }
+}
@@ -2,6 +2,7 @@ package com.net.sphuta_tms.util;
 
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.net.sphuta_tms.dto.EmployeeReminderDto;
 import com.net.sphuta_tms.dto.HrEscalationDto;
 import com.net.sphuta_tms.dto.ManagerApprovalDto;
@@ -12,6 +13,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -21,6 +24,7 @@ import java.util.Map;
  * Responsibilities:
  *  - Know which DTO class corresponds to each ReminderType
  *  - Convert an incoming payload Map -> DTO record using ObjectMapper
+ *  - Parse a JSON request body straight into the DTO record (no intermediate Map)
  *
  * Benefits:
  *  - Keeps the controller free from heavy switch/case logic
@@ -35,6 +39,9 @@ public class ReminderPayloadMapper {
 
     private final Map<ReminderType, Class<?>> registry = new HashMap<>();
 
+    // ReminderType -> reader bound to its DTO class; ObjectReader is immutable and thread-safe
+    private final Map<ReminderType, ObjectReader> readers = new HashMap<>();
+
     @PostConstruct
     private void init() {
         // Register mapping: ReminderType -> DTO class
@@ -49,6 +56,8 @@ public class ReminderPayloadMapper {
 
         registry.put(ReminderType.ADMIN_ESCALATION, AdminEscalationDto.class);
         registry.put(ReminderType.HR_ESCALATION, HrEscalationDto.class);
+
+        registry.forEach((type, dtoClass) -> readers.put(type, objectMapper.readerFor(dtoClass)));
     }
 
     /**
@@ -74,4 +83,34 @@ public class ReminderPayloadMapper {
             throw new IllegalArgumentException(msg, ex);
         }
     }
+
+    /**
+     * Parse a JSON body directly into the DTO for the reminder type.
+     * Jackson's streaming parser feeds the record's constructor, so no Map is built
+     * and no second conversion pass runs. Throws IllegalArgumentException on
+     * unknown types and on empty or malformed bodies.
+     */
+    public Object readDto(ReminderType type, InputStream body) {
+        ObjectReader reader = readers.get(type);
+        if (reader == null) {
+            String msg = "No DTO registered for ReminderType: " + type;
+            log.error(msg);
+            throw new IllegalArgumentException(msg);
+        }
+
+        String dtoName = registry.get(type).getSimpleName();
+        Object dto;
+        try {
+            dto = reader.readValue(body);
+        } catch (IOException ex) {
+            String msg = "Failed to parse payload as " + dtoName + " for type " + type + ": " + ex.getMessage();
+            log.warn(msg);
+            throw new IllegalArgumentException(msg, ex);
+        }
+        if (dto == null) {
+            throw new IllegalArgumentException("Payload must be a JSON object for type " + type);
+        }
+        log.debug("Parsed request body into DTO {} for type {}", dtoName, type);
+        return dto;
+    }
 }
@@ -0,0 +1,108 @@
+package com.net.sphuta_tms.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.net.sphuta_tms.constants.TemplateRegistry;
+import com.net.sphuta_tms.dto.AdminEscalationDto;
+import com.net.sphuta_tms.dto.EmployeeReminderDto;
+import com.net.sphuta_tms.dto.HrEscalationDto;
+import com.net.sphuta_tms.dto.ManagerApprovalDto;
+import com.net.sphuta_tms.template.EmailTemplateResolver;
+import com.net.sphuta_tms.template.RecordContext;
+import com.net.sphuta_tms.template.RecordEngineContextFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.context.IContext;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Map-based vs record-backed template context, per DTO type.
+ *
+ * <p>"map" is the previous path: {@code objectMapper.convertValue(dto, Map.class)}
+ * into a {@link Context}, which the standard engine context factory copies again.
+ * "record" is {@link RecordContext} with {@link RecordEngineContextFactory}. Both
+ * render the same template; the table shows ns and bytes allocated per render.</p>
+ *
+ * <p>Skipped unless {@code -Dbenchmark=true}:</p>
+ * <pre>
+ * mvn test -Dtest=ContextBindingBenchmarkTest -Dbenchmark=true -Dbenchmark.iterations=50000
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ContextBindingBenchmarkTest {
+
+    private final int iterations = Integer.getInteger("benchmark.iterations", 20_000);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void compareBindings() {
+        SpringTemplateEngine engine = newEngine();
+
+        Map<String, Object> samples = new LinkedHashMap<>();
+        samples.put("emails/employee/timesheet-reminder", new EmployeeReminderDto("employee@example.com", "John Doe",
+                "Jan 15-21, 2024", "https://sphuta-app.com/timesheet", "5:00 PM", "support-number",
+                "https://help.example", "it-support@example.com"));
+        samples.put("emails/manager/timesheet-ready-approval", new ManagerApprovalDto("manager@example.com",
+                "Sarah Wilson", "Development Team", "John Doe", "Jan 15-21, 2024", "Jan 22, 2024, 3:00 PM",
+                "https://sphuta-app.com/manager", "Jan 22, 2024, 5:00 PM"));
+        samples.put("emails/admin/timesheet-admin-escalation", new AdminEscalationDto("admin@example.com", "Admin",
+                "John Doe", "Sarah Wilson", "Development Team", "Jan 15-21, 2024", "Jan 22, 2024",
+                "https://sphuta-app.com/admin"));
+        samples.put("emails/hr/timesheet-hr-escalation", new HrEscalationDto("hr@example.com", "HR Team",
+                "John Doe", "Jan 15-21, 2024", "https://sphuta-app.com/hr"));
+
+        System.out.printf("%-42s %-7s %10s %10s %12s%n", "template", "binding", "ns/op", "B/op", "renders/s");
+        samples.forEach((path, dto) -> {
+            Function<Object, IContext> mapBinding = d -> new Context(Locale.ENGLISH, objectMapper.convertValue(d, Map.class));
+            Function<Object, IContext> recordBinding = d -> new RecordContext(d, Locale.ENGLISH);
+
+            assertEquals(engine.process(path, mapBinding.apply(dto)), engine.process(path, recordBinding.apply(dto)));
+
+            report(path, "map", measure(() -> engine.process(path, mapBinding.apply(dto))));
+            report(path, "record", measure(() -> engine.process(path, recordBinding.apply(dto))));
+        });
+    }
+
+    private long[] measure(Runnable op) {
+        for (int i = 0; i < iterations / 2; i++) op.run(); // warm-up
+        long tid = Thread.currentThread().getId();
+        long bytesBefore = threads.getThreadAllocatedBytes(tid);
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) op.run();
+        long ns = System.nanoTime() - start;
+        long bytes = threads.getThreadAllocatedBytes(tid) - bytesBefore;
+        return new long[]{ns / iterations, bytes / iterations};
+    }
+
+    private static void report(String path, String binding, long[] result) {
+        System.out.printf("%-42s %-7s %10d %10d %12.0f%n", path, binding, result[0], result[1], 1e9 / result[0]);
+    }
+
+    private static SpringTemplateEngine newEngine() {
+        TemplateRegistry registry = new TemplateRegistry();
+        ReflectionTestUtils.setField(registry, "resourceLoader", new DefaultResourceLoader());
+        ReflectionTestUtils.setField(registry, "templatePrefix", "classpath:/templates/");
+        ReflectionTestUtils.setField(registry, "templateSuffix", ".html");
+        registry.init();
+
+        EmailTemplateResolver resolver = new EmailTemplateResolver();
+        ReflectionTestUtils.setField(resolver, "templateRegistry", registry);
+        SpringTemplateEngine engine = new SpringTemplateEngine();
+        engine.setTemplateResolver(resolver);
+        engine.setEngineContextFactory(new RecordEngineContextFactory());
+        return engine;
+    }
+}
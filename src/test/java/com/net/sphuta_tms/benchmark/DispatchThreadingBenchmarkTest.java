@@ -0,0 +1,133 @@
+package com.net.sphuta_tms.benchmark;
+
+import com.net.sphuta_tms.loadtest.SmtpSink;
+import com.net.sphuta_tms.mail.SmtpMailSender;
+import com.net.sphuta_tms.mail.SmtpTransportPool;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.mail.javamail.MimeMessageHelper;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Platform-thread vs virtual-thread comparison for blocking SMTP dispatch.
+ *
+ * <p>Both runs send through a real {@link SmtpMailSender} to an in-process {@link SmtpSink}
+ * that answers each message after {@code latencyMs}, with the same session cap: the platform
+ * run uses a fixed pool of {@code sessions} threads, the virtual run one virtual thread per
+ * send bounded by the sender's per-host cap of {@code sessions}. The difference is then the
+ * threading mode only.</p>
+ *
+ * <p>Skipped unless {@code -Dbenchmark=true}. Needs Java 21 for the virtual run:</p>
+ * <pre>
+ * mvn -Pjava21 test -Dtest=DispatchThreadingBenchmarkTest -Dbenchmark=true \
+ *     -Dbenchmark.messages=5000 -Dbenchmark.latencyMs=80 -Dbenchmark.sessions=16 -Dbenchmark.pooled=true
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class DispatchThreadingBenchmarkTest {
+
+    private static final String DOMAIN = "@bench.test";
+
+    private final int messages = Integer.getInteger("benchmark.messages", 2_000);
+    private final int latencyMs = Integer.getInteger("benchmark.latencyMs", 50);
+    private final int sessions = Integer.getInteger("benchmark.sessions", 16);
+    private final boolean pooled = Boolean.parseBoolean(System.getProperty("benchmark.pooled", "true"));
+
+    @Test
+    void compareDispatchModes() throws Exception {
+        System.out.printf("messages=%d latencyMs=%d sessions=%d pooled=%s java=%s%n",
+                messages, latencyMs, sessions, pooled, Runtime.version());
+
+        try (SmtpSink sink = SmtpSink.start(latencyMs, 0, "554 unused", DOMAIN)) {
+            ExecutorService platform = Executors.newFixedThreadPool(sessions);
+            try {
+                report("platform", run(platform, sink));
+            } finally {
+                platform.shutdownNow();
+            }
+
+            if (Runtime.version().feature() < 21) {
+                System.out.println("virtual  : skipped (requires Java 21, use -Pjava21)");
+                return;
+            }
+            SimpleAsyncTaskExecutor virtual = new SimpleAsyncTaskExecutor("bench-vt-");
+            virtual.setVirtualThreads(true);
+            report("virtual", run(virtual, sink));
+        }
+    }
+
+    private Result run(Executor executor, SmtpSink sink) throws Exception {
+        SmtpMailSender sender = newSender(sink.port());
+        try {
+            send(sender, "warmup" + DOMAIN); // first connect and class loading outside the measurement
+
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            threads.resetPeakThreadCount();
+            AtomicInteger failures = new AtomicInteger();
+            CountDownLatch done = new CountDownLatch(messages);
+
+            long start = System.nanoTime();
+            for (int i = 0; i < messages; i++) {
+                String to = "user" + i + DOMAIN;
+                executor.execute(() -> {
+                    try {
+                        send(sender, to);
+                    } catch (Exception ex) {
+                        failures.incrementAndGet();
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            assertTrue(done.await(10, TimeUnit.MINUTES), "benchmark did not finish");
+            long elapsedNanos = System.nanoTime() - start;
+            return new Result(elapsedNanos, threads.getPeakThreadCount(), failures.get());
+        } finally {
+            sender.destroy();
+        }
+    }
+
+    private SmtpMailSender newSender(int port) {
+        SmtpMailSender sender = new SmtpMailSender(sessions);
+        sender.setHost("127.0.0.1");
+        sender.setPort(port);
+        Properties props = new Properties();
+        props.put("mail.smtp.auth", "false");
+        props.put("mail.smtp.starttls.enable", "false");
+        sender.setJavaMailProperties(props);
+        if (pooled) sender.enablePooling(new SmtpTransportPool.Settings(sessions, 1_000, 300_000, 30_000));
+        return sender;
+    }
+
+    private static void send(SmtpMailSender sender, String to) throws Exception {
+        MimeMessage message = sender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, false, StandardCharsets.UTF_8.name());
+        helper.setFrom("bench" + DOMAIN);
+        helper.setTo(to);
+        helper.setSubject("Timesheet reminder");
+        helper.setText("<p>Please submit your timesheet.</p>", true);
+        sender.send(message);
+    }
+
+    private void report(String mode, Result r) {
+        double seconds = r.elapsedNanos() / 1e9;
+        System.out.printf("%-9s: %8.1f msg/s  wall=%.2fs  failed=%d  peakPlatformThreads=%d%n",
+                mode, messages / seconds, seconds, r.failures(), r.peakThreads());
+    }
+
+    private record Result(long elapsedNanos, int peakThreads, int failures) { }
+}
@@ -0,0 +1,126 @@
+package com.net.sphuta_tms.benchmark;
+
+import com.net.sphuta_tms.constants.TemplateRegistry;
+import com.net.sphuta_tms.dto.TemplateInfo;
+import com.net.sphuta_tms.template.EmailTemplateResolver;
+import com.net.sphuta_tms.template.SubjectRenderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Per-message cost of producing (subject, body) for all registered templates:
+ * full render + META_SUBJECT regex + replaceAll (old path) versus rendering the
+ * pre-split body + evaluating the pre-parsed subject expression (current path).
+ *
+ * <p>Skipped unless {@code -Dbenchmark=true}:</p>
+ * <pre>
+ * mvn test -Dtest=SubjectRenderingBenchmarkTest -Dbenchmark=true -Dbenchmark.iterations=20000
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class SubjectRenderingBenchmarkTest {
+
+    // copies of the patterns EmailService used on every send before templates were pre-split
+    private static final Pattern META_SUBJECT =
+            Pattern.compile("<meta\\s+[^>]*name\\s*=\\s*['\"]subject['\"][^>]*content\\s*=\\s*['\"](.*?)['\"][^>]*/?>",
+                    Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    private final int iterations = Integer.getInteger("benchmark.iterations", 10_000);
+
+    @Test
+    void compareSubjectPaths() {
+        SpringTemplateEngine rawEngine = new SpringTemplateEngine();
+        ClassLoaderTemplateResolver rawResolver = new ClassLoaderTemplateResolver();
+        rawResolver.setPrefix("templates/");
+        rawResolver.setSuffix(".html");
+        rawResolver.setTemplateMode(TemplateMode.HTML);
+        rawResolver.setCharacterEncoding("UTF-8");
+        rawEngine.setTemplateResolver(rawResolver);
+
+        TemplateRegistry registry = new TemplateRegistry();
+        ReflectionTestUtils.setField(registry, "resourceLoader", new DefaultResourceLoader());
+        ReflectionTestUtils.setField(registry, "templatePrefix", "classpath:/templates/");
+        ReflectionTestUtils.setField(registry, "templateSuffix", ".html");
+        registry.init();
+
+        SpringTemplateEngine splitEngine = new SpringTemplateEngine();
+        EmailTemplateResolver splitResolver = new EmailTemplateResolver();
+        ReflectionTestUtils.setField(splitResolver, "templateRegistry", registry);
+        splitEngine.setTemplateResolver(splitResolver);
+
+        SubjectRenderer subjects = new SubjectRenderer();
+        ReflectionTestUtils.setField(subjects, "templateEngine", splitEngine);
+        ReflectionTestUtils.setField(subjects, "templateRegistry", registry);
+        subjects.init();
+
+        Map<String, Object> vars = sampleVariables();
+        System.out.printf("%-45s %12s %12s %8s%n", "template", "old ns/msg", "new ns/msg", "saving");
+        for (TemplateInfo info : registry.getAll().values()) {
+            String path = info.getTemplatePath();
+
+            assertEquals(oldPath(rawEngine, path, vars), subjects.render(path, new Context(Locale.getDefault(), vars)),
+                    "subject mismatch for " + path);
+
+            long oldNs = measure(() -> oldPath(rawEngine, path, vars));
+            long newNs = measure(() -> {
+                Context ctx = new Context(Locale.getDefault(), vars);
+                splitEngine.process(path, ctx);
+                return subjects.render(path, ctx);
+            });
+            System.out.printf("%-45s %12d %12d %7.1f%%%n", path, oldNs, newNs, 100.0 * (oldNs - newNs) / oldNs);
+        }
+    }
+
+    private static String oldPath(SpringTemplateEngine engine, String path, Map<String, Object> vars) {
+        String html = engine.process(path, new Context(Locale.getDefault(), vars));
+        Matcher m = META_SUBJECT.matcher(html);
+        String subject = m.find() ? m.group(1).trim() : null;
+        html.replaceAll("(?i)<meta[^>]*?name\\s*=\\s*['\"]subject['\"][^>]*?>", "");
+        return subject;
+    }
+
+    private long measure(Supplier<String> op) {
+        for (int i = 0; i < iterations / 2; i++) op.get(); // warm-up
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) op.get();
+        return (System.nanoTime() - start) / iterations;
+    }
+
+    private static Map<String, Object> sampleVariables() {
+        Map<String, Object> vars = new HashMap<>();
+        vars.put("to", "employee@example.com");
+        vars.put("employeeName", "John Doe");
+        vars.put("managerName", "Sarah Wilson");
+        vars.put("adminName", "Admin");
+        vars.put("hrContactName", "HR Team");
+        vars.put("teamName", "Development Team");
+        vars.put("weekDate", "Jan 15-21, 2024");
+        vars.put("deadlineDate", "Jan 22, 2024");
+        vars.put("deadlineTime", "5:00 PM");
+        vars.put("deadlineDateTime", "Jan 22, 2024, 5:00 PM");
+        vars.put("managerApprovalDeadline", "Jan 22, 2024, 3:00 PM");
+        vars.put("timesheetLink", "https://sphuta-app.com/timesheet");
+        vars.put("managerDashboardLink", "https://sphuta-app.com/manager");
+        vars.put("adminDashboardLink", "https://sphuta-app.com/admin");
+        vars.put("hrDashboardLink", "https://sphuta-app.com/hr");
+        vars.put("supportContact", "support-number");
+        vars.put("helpLink", "https://help.example");
+        vars.put("itSupportEmail", "it-support@example.com");
+        return vars;
+    }
+}
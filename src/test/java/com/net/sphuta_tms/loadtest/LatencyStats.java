@@ -0,0 +1,37 @@
+package com.net.sphuta_tms.loadtest;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency percentiles and throughput of one load-test run.
+ */
+record LatencyStats(String name, int operations, int failures, long elapsedNanos,
+                    long p50Nanos, long p99Nanos, long maxNanos) {
+
+    static LatencyStats of(String name, long[] latencyNanos, int failures, long elapsedNanos) {
+        long[] sorted = latencyNanos.clone();
+        Arrays.sort(sorted);
+        return new LatencyStats(name, sorted.length, failures, elapsedNanos,
+                percentile(sorted, 0.50), percentile(sorted, 0.99), sorted.length == 0 ? 0 : sorted[sorted.length - 1]);
+    }
+
+    double throughputPerSecond() {
+        return elapsedNanos == 0 ? 0 : operations / (elapsedNanos / 1e9);
+    }
+
+    void print() {
+        System.out.printf("%-24s ops=%-7d failed=%-6d %9.1f msg/s  p50=%7.2f ms  p99=%7.2f ms  max=%7.2f ms%n",
+                name, operations, failures, throughputPerSecond(), millis(p50Nanos), millis(p99Nanos), millis(maxNanos));
+    }
+
+    private static long percentile(long[] sorted, double q) {
+        if (sorted.length == 0) return 0;
+        int index = (int) Math.ceil(q * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
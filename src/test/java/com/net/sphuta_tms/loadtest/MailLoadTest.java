@@ -0,0 +1,202 @@
+package com.net.sphuta_tms.loadtest;
+
+import com.net.sphuta_tms.scheduler.TimesheetEmailScheduler;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * End-to-end load test: the whole application against an in-process {@link SmtpSink},
+ * through the REST endpoint and through a scheduled campaign. Runs offline.
+ *
+ * <p>Skipped unless {@code -Dloadtest=true}:</p>
+ * <pre>
+ * mvn test -Dtest=MailLoadTest -Dloadtest=true \
+ *     -Dloadtest.requests=5000 -Dloadtest.concurrency=32 -Dloadtest.recipients=20000 \
+ *     -Dloadtest.smtp.latencyMs=20 -Dloadtest.smtp.failureRate=0.01 -Dloadtest.smtp.ratePerSecond=0
+ * </pre>
+ *
+ * <p>Runs with the {@code tuned} profile, as in production. REST latency is measured per request at the client. The campaign is measured
+ * from the trigger to the last message answered by the sink, as throughput only.</p>
+ */
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("tuned")
+class MailLoadTest {
+
+    private static final String DOMAIN = "@load.test";
+
+    private static final int requests = Integer.getInteger("loadtest.requests", 2_000);
+    private static final int concurrency = Integer.getInteger("loadtest.concurrency", 16);
+    private static final int recipients = Integer.getInteger("loadtest.recipients", 5_000);
+    private static final long smtpLatencyMs = Long.getLong("loadtest.smtp.latencyMs", 0);
+    private static final double smtpFailureRate = Double.parseDouble(System.getProperty("loadtest.smtp.failureRate", "0"));
+    private static final String smtpFailureReply = System.getProperty("loadtest.smtp.failureReply", "554 5.0.0 Injected failure");
+    private static final String smtpRatePerSecond = System.getProperty("loadtest.smtp.ratePerSecond", "0");
+
+    private static final SmtpSink sink;
+    private static final Path workDir;
+
+    static {
+        try {
+            sink = SmtpSink.start(smtpLatencyMs, smtpFailureRate, smtpFailureReply, DOMAIN);
+            workDir = Files.createTempDirectory("mail-load-test");
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) throws IOException {
+        registry.add("spring.mail.host", () -> "127.0.0.1");
+        registry.add("spring.mail.port", () -> {
+            try {
+                return sink.port();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+        registry.add("spring.mail.username", () -> "");
+        registry.add("spring.mail.password", () -> "");
+        registry.add("spring.mail.properties.mail.smtp.auth", () -> "false");
+        registry.add("spring.mail.properties.mail.smtp.starttls.enable", () -> "false");
+
+        registry.add("sphuta.mail.smtp.rate.per-second", () -> smtpRatePerSecond);
+        registry.add("sphuta.mail.outbox.dir", () -> workDir.resolve("outbox").toString());
+        registry.add("sphuta.mail.digest.enabled", () -> "false");
+        registry.add("sphuta.mail.templates.watch.enabled", () -> "false");
+        registry.add("sphuta.scheduler.sharding.enabled", () -> "false");
+
+        Path csv = writeRecipients(workDir.resolve("recipients.csv"), recipients);
+        registry.add("sphuta.scheduler.jobs.week-end.source", csv::toString);
+        registry.add("sphuta.scheduler.jobs.week-end.reminder-number", () -> "1");
+    }
+
+    @AfterAll
+    static void stopSink() throws IOException {
+        sink.close();
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TimesheetEmailScheduler scheduler;
+
+    /*
+     * Load test for POST /api/mail/send/{n}.
+     * Verifies that every request is answered and reports client latency and throughput.
+     */
+    @Test
+    void restEndpoint() throws Exception {
+        System.out.printf("REST: requests=%d concurrency=%d smtpLatencyMs=%d failureRate=%.3f rate=%s/s%n",
+                requests, concurrency, smtpLatencyMs, smtpFailureRate, smtpRatePerSecond);
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        URI uri = URI.create("http://127.0.0.1:" + port + "/api/mail/send/1");
+
+        // warm-up: compile templates, open pooled SMTP connections
+        for (int i = 0; i < Math.min(100, requests); i++) post(client, uri, "warmup" + i);
+        long before = sink.accepted() + sink.rejected();
+
+        long[] latencies = new long[requests];
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger failures = new AtomicInteger();
+        ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+        long start = System.nanoTime();
+        for (int c = 0; c < concurrency; c++) {
+            clients.execute(() -> {
+                int i;
+                while ((i = next.getAndIncrement()) < requests) {
+                    long t0 = System.nanoTime();
+                    int status = post(client, uri, "rest" + i);
+                    latencies[i] = System.nanoTime() - t0;
+                    if (status != 200) failures.incrementAndGet();
+                }
+            });
+        }
+        clients.shutdown();
+        assertTrue(clients.awaitTermination(30, TimeUnit.MINUTES), "load run did not finish");
+        LatencyStats stats = LatencyStats.of("rest /send/1", latencies, failures.get(), System.nanoTime() - start);
+
+        stats.print();
+        printSink();
+        assertTrue(sink.awaitMessages(before + requests, 60_000), "sink did not see every message");
+    }
+
+    /*
+     * Load test for a scheduled campaign streamed from a CSV recipient source.
+     * Verifies that every recipient reaches the sink and reports throughput.
+     */
+    @Test
+    void scheduledCampaign() throws Exception {
+        System.out.printf("Campaign: recipients=%d smtpLatencyMs=%d failureRate=%.3f rate=%s/s%n",
+                recipients, smtpLatencyMs, smtpFailureRate, smtpRatePerSecond);
+        long before = sink.accepted() + sink.rejected();
+        long rejectedBefore = sink.rejected();
+
+        long start = System.nanoTime();
+        scheduler.sendWeekEndReminder();
+        assertTrue(sink.awaitMessages(before + recipients, 600_000), "sink did not see every recipient");
+        long elapsed = System.nanoTime() - start;
+
+        System.out.printf("%-24s ops=%-7d failed=%-6d %9.1f msg/s  elapsed=%.1f s%n", "scheduled week-end",
+                recipients, sink.rejected() - rejectedBefore, recipients / (elapsed / 1e9), elapsed / 1e9);
+        printSink();
+    }
+
+    private static int post(HttpClient client, URI uri, String id) {
+        String json = "{\"to\":\"" + id + DOMAIN + "\",\"employeeName\":\"Load " + id + "\",\"weekDate\":\"Jan 15-21, 2024\","
+                + "\"timesheetLink\":\"https://sphuta-app.com/timesheet\",\"deadlineTime\":\"5:00 PM\"}";
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+        try {
+            return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (IOException ex) {
+            return -1;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return -1;
+        }
+    }
+
+    private static void printSink() {
+        System.out.printf("%-24s accepted=%d rejected=%d smtpSessions=%d%n",
+                "smtp sink", sink.accepted(), sink.rejected(), sink.sessions());
+    }
+
+    private static Path writeRecipients(Path file, int count) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("to,employeeName,weekDate,timesheetLink,deadlineTime\n");
+            for (int i = 0; i < count; i++) {
+                out.write("campaign" + i + DOMAIN + ",Employee " + i + ",Jan 15-21 2024,https://sphuta-app.com/timesheet,5:00 PM\n");
+            }
+        }
+        return file;
+    }
+}
@@ -0,0 +1,157 @@
+package com.net.sphuta_tms.loadtest;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Minimal in-process SMTP server for load tests: accepts any sender and recipient,
+ * discards the message and answers the end of DATA after {@code latencyMs}, with
+ * {@code failureReply} instead of 250 for a {@code failureRate} share of messages.
+ *
+ * <p>No STARTTLS or AUTH is advertised, so clients must connect with
+ * {@code mail.smtp.auth=false} and {@code mail.smtp.starttls.enable=false}.
+ * Only messages with a recipient ending in {@code countedDomain} are counted.</p>
+ */
+public final class SmtpSink implements AutoCloseable {
+
+    private final ServerSocketChannel server;
+    private final ExecutorService connections = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "smtp-sink");
+        t.setDaemon(true);
+        return t;
+    });
+    private final long latencyMs;
+    private final double failureRate;
+    private final String failureReply;
+    private final String countedDomain;
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong sessions = new AtomicLong();
+
+    private SmtpSink(long latencyMs, double failureRate, String failureReply, String countedDomain) throws IOException {
+        this.latencyMs = latencyMs;
+        this.failureRate = failureRate;
+        this.failureReply = failureReply;
+        this.countedDomain = countedDomain.toLowerCase(Locale.ROOT);
+        this.server = ServerSocketChannel.open().bind(new InetSocketAddress("127.0.0.1", 0));
+        Thread acceptor = new Thread(this::acceptLoop, "smtp-sink-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public static SmtpSink start(long latencyMs, double failureRate, String failureReply, String countedDomain) throws IOException {
+        return new SmtpSink(latencyMs, failureRate, failureReply, countedDomain);
+    }
+
+    public int port() throws IOException {
+        return ((InetSocketAddress) server.getLocalAddress()).getPort();
+    }
+
+    public long accepted() {
+        return accepted.get();
+    }
+
+    public long rejected() {
+        return rejected.get();
+    }
+
+    public long sessions() {
+        return sessions.get();
+    }
+
+    /**
+     * Wait until {@code count} counted messages have been answered (accepted or rejected).
+     */
+    public boolean awaitMessages(long count, long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (accepted.get() + rejected.get() < count) {
+            if (System.currentTimeMillis() > deadline) return false;
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+        connections.shutdownNow();
+    }
+
+    private void acceptLoop() {
+        try {
+            while (server.isOpen()) {
+                SocketChannel client = server.accept();
+                connections.execute(() -> serve(client));
+            }
+        } catch (ClosedChannelException ex) {
+            // closed
+        } catch (IOException ex) {
+            System.err.println("smtp-sink: accept failed: " + ex.getMessage());
+        }
+    }
+
+    private void serve(SocketChannel channel) {
+        sessions.incrementAndGet();
+        try (channel;
+             BufferedReader in = new BufferedReader(new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.ISO_8859_1));
+             OutputStream out = Channels.newOutputStream(channel)) {
+
+            reply(out, "220 sink ESMTP ready");
+            boolean counted = false;
+            String line;
+            while ((line = in.readLine()) != null) {
+                String command = line.length() >= 4 ? line.substring(0, 4).toUpperCase(Locale.ROOT) : line.toUpperCase(Locale.ROOT);
+                switch (command) {
+                    case "EHLO" -> reply(out, "250-sink\r\n250-8BITMIME\r\n250 SMTPUTF8");
+                    case "HELO", "NOOP" -> reply(out, "250 OK");
+                    case "MAIL", "RSET" -> {
+                        counted = false;
+                        reply(out, "250 OK");
+                    }
+                    case "RCPT" -> {
+                        counted |= line.toLowerCase(Locale.ROOT).contains(countedDomain + ">");
+                        reply(out, "250 OK");
+                    }
+                    case "DATA" -> {
+                        reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                        while ((line = in.readLine()) != null && !line.equals(".")) {
+                            // discard
+                        }
+                        if (latencyMs > 0) Thread.sleep(latencyMs);
+                        boolean fail = failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate;
+                        if (counted) (fail ? rejected : accepted).incrementAndGet();
+                        reply(out, fail ? failureReply : "250 OK queued");
+                    }
+                    case "QUIT" -> {
+                        reply(out, "221 Bye");
+                        return;
+                    }
+                    default -> reply(out, "502 Command not implemented");
+                }
+            }
+        } catch (IOException ex) {
+            // client went away
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void reply(OutputStream out, String text) throws IOException {
+        out.write((text + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+}
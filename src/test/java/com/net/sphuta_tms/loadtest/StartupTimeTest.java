@@ -0,0 +1,176 @@
+package com.net.sphuta_tms.loadtest;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Startup benchmark: time from launching the packaged application in a new JVM to its
+ * first successful {@code POST /api/mail/send/1}, answered by an in-process {@link SmtpSink}.
+ *
+ * <p>Compares the plain executable jar with the extracted, AOT-processed application
+ * built by the {@code cds} Maven profile, without and with its AppCDS archive. Each
+ * mode is started {@code loadtest.startups} times; min and median are reported.</p>
+ *
+ * <p>Needs the {@code cds} build and is skipped unless {@code -Dloadtest=true}:</p>
+ * <pre>
+ * mvn -Pcds package -DskipTests
+ * mvn test -Dtest=StartupTimeTest -Dloadtest=true -Dloadtest.startups=5
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+class StartupTimeTest {
+
+    private static final String DOMAIN = "@startup.test";
+
+    private final int startups = Integer.getInteger("loadtest.startups", 5);
+    private final long timeoutMs = Long.getLong("loadtest.startupTimeoutMs", 120_000);
+    private final Path appDir = Paths.get(System.getProperty("loadtest.appDir", "target/application"));
+    // must match cds.app.profiles of the build, which the AOT-processed modes were built with
+    private final String profiles = System.getProperty("loadtest.profiles", "tuned");
+
+    private static SmtpSink sink;
+    private static Path workDir;
+
+    @BeforeAll
+    static void startSink() throws IOException {
+        sink = SmtpSink.start(0, 0, "", DOMAIN);
+        workDir = Files.createTempDirectory("startup-time-test");
+    }
+
+    @AfterAll
+    static void stopSink() throws IOException {
+        sink.close();
+    }
+
+    /*
+     * Benchmark for startup to first send.
+     * Verifies that every mode gets a message through and reports min and median time per mode.
+     */
+    @Test
+    void timeToFirstSend() throws Exception {
+        Path jar = applicationJar();
+        Path fatJar = appDir.resolveSibling(jar.getFileName());
+        Path archive = appDir.resolve("application.jsa");
+        assertTrue(Files.isRegularFile(archive), archive + " not found, build it with mvn -Pcds package");
+        System.out.printf("startups=%d java=%s app=%s%n", startups, Runtime.version(), jar);
+
+        if (Files.isRegularFile(fatJar)) {
+            report("jar", measure(fatJar.getParent(), List.of("-jar", fatJar.getFileName().toString())));
+        }
+        report("aot", measure(appDir, List.of("-Dspring.aot.enabled=true", "-jar", jar.getFileName().toString())));
+        report("aot+cds", measure(appDir, List.of("-XX:SharedArchiveFile=application.jsa", "-Xshare:auto",
+                "-Dspring.aot.enabled=true", "-jar", jar.getFileName().toString())));
+    }
+
+    private long[] measure(Path dir, List<String> launch) throws Exception {
+        long[] millis = new long[startups];
+        for (int i = 0; i < startups; i++) {
+            millis[i] = startAndSend(dir, launch, i);
+        }
+        return millis;
+    }
+
+    // one JVM: launch, poll until the first send succeeds, stop
+    private long startAndSend(Path dir, List<String> launch, int run) throws Exception {
+        int port = freePort();
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(launch);
+        command.addAll(List.of(
+                "--server.port=" + port,
+                "--spring.profiles.active=" + profiles,
+                "--spring.mail.host=127.0.0.1",
+                "--spring.mail.port=" + sink.port(),
+                "--spring.mail.username=",
+                "--spring.mail.password=",
+                "--spring.mail.properties.mail.smtp.auth=false",
+                "--spring.mail.properties.mail.smtp.starttls.enable=false",
+                "--sphuta.mail.outbox.dir=" + workDir.resolve("outbox" + run),
+                "--sphuta.mail.templates.watch.dir=" + workDir.resolve("templates")));
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        URI uri = URI.create("http://127.0.0.1:" + port + "/api/mail/send/1");
+        long acceptedBefore = sink.accepted();
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .directory(dir.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(workDir.resolve("startup" + run + ".log").toFile())
+                .start();
+        try {
+            long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+            while (System.nanoTime() < deadline) {
+                if (!process.isAlive()) throw new IllegalStateException("application exited, see " + workDir);
+                if (post(client, uri, "run" + run) == 200) {
+                    long elapsed = System.nanoTime() - start;
+                    assertTrue(sink.accepted() > acceptedBefore, "send answered 200 but the sink saw no message");
+                    return TimeUnit.NANOSECONDS.toMillis(elapsed);
+                }
+                Thread.sleep(10);
+            }
+            throw new IllegalStateException("no successful send within " + timeoutMs + " ms, see " + workDir);
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) process.destroyForcibly();
+        }
+    }
+
+    private Path applicationJar() throws IOException {
+        assertTrue(Files.isDirectory(appDir), appDir + " not found, build it with mvn -Pcds package");
+        try (Stream<Path> files = Files.list(appDir)) {
+            return files.filter(f -> f.getFileName().toString().endsWith(".jar")).findFirst()
+                    .orElseThrow(() -> new IllegalStateException("no application jar in " + appDir));
+        }
+    }
+
+    private static int post(HttpClient client, URI uri, String id) {
+        String json = "{\"to\":\"" + id + DOMAIN + "\",\"employeeName\":\"Startup " + id + "\",\"weekDate\":\"Jan 15-21, 2024\","
+                + "\"timesheetLink\":\"https://sphuta-app.com/timesheet\",\"deadlineTime\":\"5:00 PM\"}";
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+        try {
+            return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (IOException ex) {
+            return -1; // not listening yet
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return -1;
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static void report(String mode, long[] millis) {
+        long[] sorted = millis.clone();
+        Arrays.sort(sorted);
+        System.out.printf("%-10s first send: min=%6d ms  median=%6d ms  runs=%s%n",
+                mode, sorted[0], sorted[sorted.length / 2], Arrays.toString(millis));
+    }
+}
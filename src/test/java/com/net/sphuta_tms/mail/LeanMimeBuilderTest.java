@@ -0,0 +1,72 @@
+package com.net.sphuta_tms.mail;
+
+import jakarta.mail.Message;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link LeanMimeBuilder}, reading the built messages back
+ * through Jakarta Mail.
+ */
+class LeanMimeBuilderTest {
+
+    private final JavaMailSenderImpl sender = new JavaMailSenderImpl();
+    private final LeanMimeBuilder builder = new LeanMimeBuilder(2, 262_144);
+
+    /*
+     * Test for a plain ASCII body.
+     * Verifies that the message is a single text/html part sent as 7bit with CRLF line breaks.
+     */
+    @Test
+    void build_AsciiBody_SinglePartSevenBit() throws Exception {
+        MimeMessage message = builder.build(sender, "emails/employee/timesheet-reminder",
+                "a@example.com", "Timesheet reminder", "<p>Hi A</p>\n<p>Please submit</p>");
+
+        assertNotNull(message);
+        message.saveChanges();
+        assertEquals("Timesheet reminder", message.getSubject());
+        assertEquals("a@example.com", message.getRecipients(Message.RecipientType.TO)[0].toString());
+        assertTrue(message.isMimeType("text/html"));
+        assertEquals("7bit", message.getEncoding());
+        assertEquals("<p>Hi A</p>\r\n<p>Please submit</p>", message.getContent());
+        assertEquals(1, builder.builtMessages());
+    }
+
+    /*
+     * Test for a non-ASCII body and subject.
+     * Verifies that both survive the quoted-printable and encoded-word round trip, including
+     * long lines, trailing spaces and characters outside the BMP.
+     */
+    @Test
+    void build_Utf8Body_QuotedPrintableRoundTrip() throws Exception {
+        String html = "<p>Grüße, Zoë 👋 = done </p>\n" + "<p>" + "ä".repeat(200) + "</p>";
+        MimeMessage message = builder.build(sender, "emails/manager/approval", "b@example.com", "Prüfung für Woche 3", html);
+
+        assertNotNull(message);
+        assertEquals("quoted-printable", message.getEncoding());
+        assertEquals("Prüfung für Woche 3", message.getSubject());
+        assertEquals(html.replace("\n", "\r\n"), message.getContent());
+
+        ByteArrayOutputStream raw = new ByteArrayOutputStream();
+        message.writeTo(raw);
+        for (String line : raw.toString(StandardCharsets.US_ASCII).split("\r\n")) {
+            assertTrue(line.length() <= 998, "line too long");
+        }
+    }
+
+    /*
+     * Test for a body referencing an inline image.
+     * Verifies that it is left to the multipart helper.
+     */
+    @Test
+    void build_InlineImageReference_ReturnsNull() throws Exception {
+        assertNull(builder.build(sender, "emails/hr/escalation", "c@example.com", "Escalation", "<img src=\"CID:logo\">"));
+        assertEquals(1, builder.fallbacks());
+    }
+}
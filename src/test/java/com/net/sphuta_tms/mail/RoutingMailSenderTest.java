@@ -0,0 +1,113 @@
+package com.net.sphuta_tms.mail;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.Test;
+import org.springframework.lang.Nullable;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link RoutingMailSender} with fake relays, a fake clock and
+ * a fixed random pick (always the first healthy relay).
+ */
+class RoutingMailSenderTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    /*
+     * Test for failover on a relay that cannot be reached.
+     * Verifies that each message goes out through the second relay, and that the first
+     * relay is taken out of rotation after three failed sessions until its cooldown ends.
+     */
+    @Test
+    void send_RelayConnectionFails_FailsOverAndMarksUnhealthy() throws Exception {
+        FakeRelay primary = new FakeRelay(new MessagingException("Connection refused"));
+        FakeRelay backup = new FakeRelay(null);
+        RoutingMailSender router = newRouter(primary, backup);
+        RoutingMailSender.Relay first = router.getRelays().get(0);
+
+        for (int i = 0; i < 3; i++) router.send(message(router));
+
+        assertEquals(3, backup.delivered.size());
+        assertEquals(3, router.failovers(first));
+        assertFalse(router.isHealthy(first));
+
+        router.send(message(router));
+        assertEquals(3, primary.attempts); // skipped during the cooldown
+        assertEquals(4, backup.delivered.size());
+
+        now.addAndGet(30_000);
+        assertTrue(router.isHealthy(first));
+    }
+
+    /*
+     * Test for a permanent rejection.
+     * Verifies that a 5xx reply is reported without trying another relay and does not
+     * count against the relay's health.
+     */
+    @Test
+    void send_PermanentRejection_NotFailedOver() throws Exception {
+        FakeRelay primary = new FakeRelay(new SendFailedException("550 5.1.1 User unknown"));
+        FakeRelay backup = new FakeRelay(null);
+        RoutingMailSender router = newRouter(primary, backup);
+        MimeMessage message = message(router);
+
+        MailSendException ex = assertThrows(MailSendException.class, () -> router.send(message));
+
+        assertTrue(ex.getFailedMessages().containsKey(message));
+        assertTrue(backup.delivered.isEmpty());
+        assertTrue(router.isHealthy(router.getRelays().get(0)));
+        assertEquals(0, router.failedSessions(router.getRelays().get(0)));
+    }
+
+    private RoutingMailSender newRouter(FakeRelay primary, FakeRelay backup) {
+        RoutingMailSender router = new RoutingMailSender(
+                List.of(new RoutingMailSender.Relay("primary", 1, primary), new RoutingMailSender.Relay("backup", 1, backup)),
+                new RoutingMailSender.Settings(3, 30_000, 3, 0.2), now::get, () -> 0.0);
+        router.setHost("smtp.test");
+        return router;
+    }
+
+    private static MimeMessage message(RoutingMailSender router) throws MessagingException {
+        MimeMessage message = router.createMimeMessage();
+        message.setFrom(new InternetAddress("noreply@sphuta.test"));
+        message.setRecipient(MimeMessage.RecipientType.TO, new InternetAddress("manager@sphuta.test"));
+        message.setSubject("Reminder");
+        message.setText("body");
+        return message;
+    }
+
+    private static final class FakeRelay extends SmtpMailSender {
+        @Nullable private final Exception failure;
+        final List<MimeMessage> delivered = new ArrayList<>();
+        int attempts;
+
+        FakeRelay(@Nullable Exception failure) {
+            super(4);
+            this.failure = failure;
+        }
+
+        @Override
+        protected void doSend(MimeMessage[] mimeMessages, @Nullable Object[] originalMessages) throws MailException {
+            attempts++;
+            if (failure == null) {
+                delivered.addAll(List.of(mimeMessages));
+                return;
+            }
+            Map<Object, Exception> failed = new LinkedHashMap<>();
+            for (MimeMessage message : mimeMessages) failed.put(message, failure);
+            throw new MailSendException(failed);
+        }
+    }
+}
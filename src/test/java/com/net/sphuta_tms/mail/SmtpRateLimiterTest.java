@@ -0,0 +1,179 @@
+package com.net.sphuta_tms.mail;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.AddressException;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.MailSendException;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for {@link SmtpRateLimiter} on a fake clock, and for the
+ * throttling retry in {@link SmtpMailSender} with a mocked transport.
+ */
+class SmtpRateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    /*
+     * Test for the burst allowance.
+     * Verifies that up to burst tokens are free and the next one waits 1/rate.
+     */
+    @Test
+    void reserve_BeyondBurst_WaitsForRefill() {
+        SmtpRateLimiter limiter = newLimiter(10, 3);
+
+        assertEquals(0, limiter.reserve(3));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), limiter.reserve(1));
+        assertEquals(1, limiter.waits());
+    }
+
+    /*
+     * Test for the multiplicative decrease and additive increase.
+     * Verifies that a throttle halves the rate and idle time brings it back up to the configured rate.
+     */
+    @Test
+    void onThrottle_HalvesRate_ThenRecovers() {
+        SmtpRateLimiter limiter = newLimiter(10, 5);
+
+        limiter.onThrottle();
+        assertEquals(5.0, limiter.currentRate(), 1e-9);
+        limiter.onThrottle();
+        limiter.onThrottle();
+        limiter.onThrottle();
+        assertEquals(1.0, limiter.currentRate(), 1e-9); // floored at min rate
+        assertEquals(4, limiter.throttles());
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(5));
+        assertEquals(6.0, limiter.currentRate(), 1e-9);
+        now.addAndGet(TimeUnit.SECONDS.toNanos(60));
+        assertEquals(10.0, limiter.currentRate(), 1e-9);
+    }
+
+    /*
+     * Test for recognising server throttling.
+     * Verifies that 4xx replies count as temporary, also when wrapped, and 5xx do not.
+     */
+    @Test
+    void isTemporaryFailure_ClassifiesReplyCodes() {
+        assertTrue(SmtpRateLimiter.isTemporaryFailure(new SendFailedException("421 4.7.0 Try again later")));
+        assertTrue(SmtpRateLimiter.isTemporaryFailure(
+                new MessagingException("send failed", new MessagingException("454-4.7.0 Too many login attempts"))));
+        assertFalse(SmtpRateLimiter.isTemporaryFailure(new SendFailedException("550 5.1.1 User unknown")));
+        assertFalse(SmtpRateLimiter.isTemporaryFailure(new MessagingException("Connection reset")));
+    }
+
+    /*
+     * Test for recognising rejections that will not go away on a retry.
+     * Verifies that 5xx replies and bad addresses are permanent, also inside a MailSendException,
+     * and that throttling and connection errors are not.
+     */
+    @Test
+    void isPermanentFailure_ClassifiesReplyCodes() {
+        assertTrue(SmtpRateLimiter.isPermanentFailure(new SendFailedException("550 5.1.1 User unknown")));
+        assertTrue(SmtpRateLimiter.isPermanentFailure(new AddressException("Missing final '@domain'")));
+        assertTrue(SmtpRateLimiter.isPermanentFailure(new MailSendException(
+                Map.<Object, Exception>of("msg", new SendFailedException("554 5.7.1 Rejected")))));
+        assertFalse(SmtpRateLimiter.isPermanentFailure(new SendFailedException("421 4.7.0 Try again later")));
+        assertFalse(SmtpRateLimiter.isPermanentFailure(new MessagingException("Connection reset")));
+        assertFalse(SmtpRateLimiter.isPermanentFailure(null));
+    }
+
+    /*
+     * Test for retrying a throttled message.
+     * Verifies that a 421 lowers the rate and the message is sent on the second attempt.
+     */
+    @Test
+    void send_ThrottledOnce_RetriesAndSucceeds() throws Exception {
+        Transport transport = connectedTransport();
+        doThrow(new SendFailedException("421 4.7.0 Try again later"))
+                .doNothing()
+                .when(transport).sendMessage(any(), any());
+        SmtpMailSender sender = newSender(transport);
+
+        sender.send(message(sender));
+
+        verify(transport, times(2)).sendMessage(any(), any());
+        assertEquals(1, sender.getRateLimiter().throttles());
+    }
+
+    /*
+     * Test for a permanent rejection.
+     * Verifies that a 5xx reply is reported right away without a retry or a rate change.
+     */
+    @Test
+    void send_PermanentFailure_NotRetried() throws Exception {
+        Transport transport = connectedTransport();
+        doThrow(new SendFailedException("550 5.1.1 User unknown")).when(transport).sendMessage(any(), any());
+        SmtpMailSender sender = newSender(transport);
+        MimeMessage message = message(sender);
+
+        MailSendException ex = assertThrows(MailSendException.class, () -> sender.send(message));
+
+        assertTrue(ex.getFailedMessages().containsKey(message));
+        verify(transport, times(1)).sendMessage(any(), any());
+        assertEquals(0, sender.getRateLimiter().throttles());
+    }
+
+    /*
+     * Test for pacing a chunk without a connection pool.
+     * Verifies that each message of a multi-message send takes its own token on one connection
+     * instead of the whole chunk being reserved up front and sent as a burst.
+     */
+    @Test
+    void send_ChunkWithoutPool_TakesTokenPerMessage() throws Exception {
+        Transport transport = connectedTransport();
+        SmtpMailSender sender = newSender(transport, new SmtpRateLimiter.Settings(10, 1, 1, 0.5, 1.0, 3));
+
+        sender.send(message(sender), message(sender), message(sender));
+
+        verify(transport, times(3)).sendMessage(any(), any());
+        verify(transport, times(1)).close();
+        assertEquals(2, sender.getRateLimiter().waits()); // burst of 1: the 2nd and 3rd message each wait
+    }
+
+    private SmtpRateLimiter newLimiter(double rate, int burst) {
+        return new SmtpRateLimiter("smtp.test", new SmtpRateLimiter.Settings(rate, burst, 1.0, 0.5, 1.0, 3), now::get);
+    }
+
+    private static Transport connectedTransport() {
+        Transport transport = mock(Transport.class);
+        when(transport.isConnected()).thenReturn(true);
+        return transport;
+    }
+
+    private static SmtpMailSender newSender(Transport transport) {
+        return newSender(transport, new SmtpRateLimiter.Settings(1000, 10, 100, 0.5, 1.0, 3));
+    }
+
+    private static SmtpMailSender newSender(Transport transport, SmtpRateLimiter.Settings settings) {
+        SmtpMailSender sender = new SmtpMailSender(1) {
+            @Override
+            protected Transport connectTransport() {
+                return transport;
+            }
+        };
+        sender.setHost("smtp.test");
+        sender.enableRateLimit(settings);
+        return sender;
+    }
+
+    private static MimeMessage message(SmtpMailSender sender) throws MessagingException {
+        MimeMessage message = sender.createMimeMessage();
+        message.setFrom(new InternetAddress("noreply@sphuta.test"));
+        message.setRecipient(MimeMessage.RecipientType.TO, new InternetAddress("manager@sphuta.test"));
+        message.setSubject("Reminder");
+        message.setText("body");
+        return message;
+    }
+}
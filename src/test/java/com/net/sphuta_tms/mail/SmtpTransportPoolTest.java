@@ -0,0 +1,187 @@
+package com.net.sphuta_tms.mail;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.AddressException;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.MailSendException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for {@link SmtpTransportPool} and the pooled send path of
+ * {@link SmtpMailSender} with mocked transports.
+ */
+class SmtpTransportPoolTest {
+
+    private SmtpTransportPool pool;
+    private int connects;
+
+    @AfterEach
+    void tearDown() {
+        if (pool != null) pool.close();
+    }
+
+    /*
+     * Test for reusing a returned connection.
+     * Verifies that the second borrow is a hit and does not connect again.
+     */
+    @Test
+    void borrow_AfterGiveBack_ReusesConnection() throws Exception {
+        pool = newPool(2, 100);
+
+        SmtpTransportPool.PooledTransport first = pool.borrow();
+        first.markUsed();
+        pool.giveBack(first, false);
+        SmtpTransportPool.PooledTransport second = pool.borrow();
+
+        assertSame(first, second);
+        assertEquals(1, connects);
+        assertEquals(1, pool.hits());
+        assertEquals(1, pool.misses());
+    }
+
+    /*
+     * Test for the per-connection message cap.
+     * Verifies that an exhausted connection is closed instead of reused.
+     */
+    @Test
+    void giveBack_MessageCapReached_ClosesConnection() throws Exception {
+        pool = newPool(2, 1);
+
+        SmtpTransportPool.PooledTransport pt = pool.borrow();
+        pt.markUsed();
+        pool.giveBack(pt, false);
+
+        verify(pt.transport()).close();
+        assertEquals(0, pool.idleCount());
+        assertNotSame(pt, pool.borrow());
+        assertEquals(2, connects);
+    }
+
+    /*
+     * Test for returning a connection that failed.
+     * Verifies that broken connections are never pooled.
+     */
+    @Test
+    void giveBack_Broken_ClosesConnection() throws Exception {
+        pool = newPool(2, 100);
+
+        SmtpTransportPool.PooledTransport pt = pool.borrow();
+        pool.giveBack(pt, true);
+
+        verify(pt.transport()).close();
+        assertEquals(0, pool.idleCount());
+    }
+
+    /*
+     * Test for reconnecting after a dropped connection.
+     * Verifies that the old transport is closed and the reconnect is counted.
+     */
+    @Test
+    void reconnect_ClosesOldAndOpensNew() throws Exception {
+        pool = newPool(2, 100);
+
+        SmtpTransportPool.PooledTransport old = pool.borrow();
+        SmtpTransportPool.PooledTransport fresh = pool.reconnect(old);
+
+        verify(old.transport()).close();
+        assertNotSame(old, fresh);
+        assertEquals(1, pool.reconnects());
+    }
+
+    /*
+     * Test for returning more connections than the pool holds.
+     * Verifies that the surplus connection is closed and the pool stays at its size.
+     */
+    @Test
+    void giveBack_PoolFull_ClosesSurplus() throws Exception {
+        pool = newPool(1, 100);
+
+        SmtpTransportPool.PooledTransport first = pool.borrow();
+        SmtpTransportPool.PooledTransport second = pool.borrow();
+        pool.giveBack(first, false);
+        pool.giveBack(second, false);
+
+        assertEquals(1, pool.idleCount());
+        verify(second.transport()).close();
+        verify(first.transport(), never()).close();
+    }
+
+    /*
+     * Test for the background check of idle connections.
+     * Verifies that a dropped connection is closed and a live one stays pooled.
+     */
+    @Test
+    void validateIdle_DroppedConnection_ClosedOthersKept() throws Exception {
+        pool = new SmtpTransportPool("smtp.test", () -> {
+            connects++;
+            return mock(Transport.class);
+        }, new SmtpTransportPool.Settings(2, 100, 60_000, 0));
+        SmtpTransportPool.PooledTransport live = pool.borrow();
+        SmtpTransportPool.PooledTransport dropped = pool.borrow();
+        when(live.transport().isConnected()).thenReturn(true);
+        when(dropped.transport().isConnected()).thenReturn(false);
+        pool.giveBack(live, false);
+        pool.giveBack(dropped, false);
+        Thread.sleep(5);
+
+        ReflectionTestUtils.invokeMethod(pool, "validateIdle");
+
+        assertEquals(1, pool.idleCount());
+        verify(dropped.transport()).close();
+        assertSame(live, pool.borrow());
+    }
+
+    /*
+     * Test for a malformed message in a pooled session.
+     * Verifies that only that message fails and the connection goes back to the pool.
+     */
+    @Test
+    void send_PooledBadAddress_FailsOnlyThatMessage() throws Exception {
+        Transport transport = mock(Transport.class);
+        SmtpMailSender sender = new SmtpMailSender(1) {
+            @Override
+            protected Transport connectTransport() {
+                return transport;
+            }
+        };
+        sender.setHost("smtp.test");
+        sender.enablePooling(new SmtpTransportPool.Settings(1, 100, 60_000, 30_000));
+        pool = sender.getPool();
+        MimeMessage first = message(sender);
+        MimeMessage bad = mock(MimeMessage.class);
+        when(bad.getAllRecipients()).thenThrow(new AddressException("Illegal address"));
+        MimeMessage last = message(sender);
+
+        MailSendException ex = assertThrows(MailSendException.class, () -> sender.send(first, bad, last));
+
+        assertEquals(Set.of(bad), ex.getFailedMessages().keySet());
+        verify(transport, times(2)).sendMessage(any(), any());
+        assertEquals(1, pool.idleCount());
+    }
+
+    private static MimeMessage message(SmtpMailSender sender) throws MessagingException {
+        MimeMessage message = sender.createMimeMessage();
+        message.setFrom(new InternetAddress("noreply@sphuta.test"));
+        message.setRecipient(MimeMessage.RecipientType.TO, new InternetAddress("manager@sphuta.test"));
+        message.setSubject("Reminder");
+        message.setText("body");
+        return message;
+    }
+
+    private SmtpTransportPool newPool(int size, int maxMessages) {
+        return new SmtpTransportPool("smtp.test", () -> {
+            connects++;
+            return mock(Transport.class);
+        }, new SmtpTransportPool.Settings(size, maxMessages, 60_000, 30_000));
+    }
+}
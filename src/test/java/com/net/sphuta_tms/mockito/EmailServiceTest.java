@@ -1,13 +1,26 @@
 package com.net.sphuta_tms.mockito;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.net.sphuta_tms.dto.BatchSendReport;
+import com.net.sphuta_tms.dto.ReminderRequest;
+import com.net.sphuta_tms.dto.SendOutcome;
 import com.net.sphuta_tms.dto.TemplateInfo;
 import com.net.sphuta_tms.dto.EmployeeReminderDto;
+import com.net.sphuta_tms.dto.HrEscalationDto;
 import com.net.sphuta_tms.dto.ManagerApprovalDto;
+import com.net.sphuta_tms.enums.DeliveryStatus;
 import com.net.sphuta_tms.enums.ReminderType;
+import com.net.sphuta_tms.exceptions.SendInProgressException;
 import com.net.sphuta_tms.constants.TemplateRegistry;
+import com.net.sphuta_tms.outbox.MailOutbox;
 import com.net.sphuta_tms.service.EmailService;
+import com.net.sphuta_tms.service.IdempotencyStore;
+import com.net.sphuta_tms.service.ReminderCoalescer;
+import com.net.sphuta_tms.service.SendPipelineMetrics;
+import com.net.sphuta_tms.template.RenderedEmailCache;
+import com.net.sphuta_tms.template.SubjectRenderer;
 import com.net.sphuta_tms.util.ReminderPayloadMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
 import org.junit.jupiter.api.Test;
@@ -19,11 +32,20 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockedStatic;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.thymeleaf.context.Context;
+import org.thymeleaf.context.IContext;
 import org.thymeleaf.spring6.SpringTemplateEngine;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.Map;
 import java.util.stream.Stream;
 
@@ -56,6 +78,9 @@ class EmailServiceTest {
     @Mock
     private TemplateRegistry templateRegistry;
 
+    @Mock
+    private SubjectRenderer subjectRenderer;
+
     @Mock
     private MimeMessage mimeMessage;
 
@@ -94,14 +119,15 @@ class EmailServiceTest {
             typeMock.when(() -> ReminderType.fromCode(reminderNumber)).thenReturn(expectedType);
 
             when(payloadMapper.toDto(expectedType, payload)).thenReturn(mockDto);
-            when(templateEngine.process(eq(expectedTemplate), any(Context.class))).thenReturn(renderedHtml);
+            when(templateEngine.process(eq(expectedTemplate), any(IContext.class))).thenReturn(renderedHtml);
             when(mailSender.createMimeMessage()).thenReturn(mimeMessage);
-            when(objectMapper.convertValue(mockDto, Map.class)).thenReturn(payload);
+            // only used for non-record DTOs; records are bound without conversion
+            lenient().when(objectMapper.convertValue(mockDto, Map.class)).thenReturn(payload);
 
             emailService.sendReminderByNumber(reminderNumber, payload);
 
             verify(payloadMapper).toDto(expectedType, payload);
-            verify(templateEngine).process(eq(expectedTemplate), any(Context.class));
+            verify(templateEngine).process(eq(expectedTemplate), any(IContext.class));
             verify(mailSender).send(mimeMessage);
         }
     }
@@ -144,12 +170,12 @@ class EmailServiceTest {
             typeMock.when(() -> ReminderType.fromCode(reminderNumber)).thenReturn(expectedType);
 
             when(payloadMapper.toDto(expectedType, payload)).thenReturn(mockDto);
-            when(templateEngine.process(anyString(), any(Context.class))).thenReturn(renderedHtml);
+            when(templateEngine.process(anyString(), any(IContext.class))).thenReturn(renderedHtml);
             when(mailSender.createMimeMessage()).thenReturn(mimeMessage);
-            when(objectMapper.convertValue(mockDto, Map.class)).thenReturn(payload);
 
             emailService.sendReminderByNumber(reminderNumber, payload);
 
+            verify(objectMapper, never()).convertValue(any(), eq(Map.class));
             verify(mailSender).send(mimeMessage);
         }
     }
@@ -173,11 +199,12 @@ class EmailServiceTest {
                 "subject", "Timesheets Ready for Approval"
         );
 
-        // ManagerApprovalDto record has 7 components — supply dummy values for all
+        // ManagerApprovalDto record has 8 components — supply dummy values for all
         ManagerApprovalDto mockDto = new ManagerApprovalDto(
                 "manager@company.com",
                 "Sarah Wilson",
                 "Development Team",
+                "John Doe",
                 "Jan 15-21, 2024",
                 "Jan 22, 2024, 3:00 PM",
                 "https://sphuta-app.com/manager/approvals",
@@ -194,12 +221,12 @@ class EmailServiceTest {
             typeMock.when(() -> ReminderType.fromCode(reminderNumber)).thenReturn(expectedType);
 
             when(payloadMapper.toDto(expectedType, payload)).thenReturn(mockDto);
-            when(templateEngine.process(anyString(), any(Context.class))).thenReturn(renderedHtml);
+            when(templateEngine.process(anyString(), any(IContext.class))).thenReturn(renderedHtml);
             when(mailSender.createMimeMessage()).thenReturn(mimeMessage);
-            when(objectMapper.convertValue(mockDto, Map.class)).thenReturn(payload);
 
             emailService.sendReminderByNumber(reminderNumber, payload);
 
+            verify(objectMapper, never()).convertValue(any(), eq(Map.class));
             verify(mailSender).send(mimeMessage);
         }
     }
@@ -293,6 +320,28 @@ class EmailServiceTest {
         verify(mailSender).send(mimeMessage);
     }
 
+    /*
+     * Test for sendUsingTemplate with a template pre-parsed by the registry.
+     * Verifies that the subject comes from SubjectRenderer and not from the rendered HTML.
+     */
+    @Test
+    void sendUsingTemplate_PreparsedTemplate_UsesSubjectRenderer() throws Exception {
+        String templatePath = "emails/employee/timesheet-reminder";
+        Object dto = new Object();
+        Map<String, Object> vars = Map.of("to", "test@example.com");
+
+        when(objectMapper.convertValue(dto, Map.class)).thenReturn(vars);
+        when(templateEngine.process(eq(templatePath), any(Context.class))).thenReturn("<html><body>Body only</body></html>");
+        when(subjectRenderer.handles(templatePath)).thenReturn(true);
+        when(subjectRenderer.render(eq(templatePath), any(IContext.class))).thenReturn("Pre-parsed Subject");
+        when(mailSender.createMimeMessage()).thenReturn(mimeMessage);
+
+        emailService.sendUsingTemplate(templatePath, dto);
+
+        verify(mimeMessage).setSubject("Pre-parsed Subject", "UTF-8");
+        verify(mailSender).send(mimeMessage);
+    }
+
     // ------------------  private method tests (reflection) ------------------
     /*
      * Test for private method extractSubject using reflection.
@@ -332,6 +381,141 @@ class EmailServiceTest {
         assertNull(result);
     }
 
+    /*
+     * Test for sendReminderBatch splitting recipients into chunks.
+     * Verifies that each chunk is handed to the mail sender in a single call.
+     */
+    @Test
+    void sendReminderBatch_ValidPayloads_SendsInChunks() throws Exception {
+        int reminderNumber = 1;
+        ReflectionTestUtils.setField(emailService, "batchChunkSize", 2);
+
+        List<Map<String, Object>> payloads = List.of(
+                Map.of("to", "a@example.com"),
+                Map.of("to", "b@example.com"),
+                Map.of("to", "c@example.com")
+        );
+        Object dto = new Object();
+        TemplateInfo tinfo = new TemplateInfo(reminderNumber, "Employee Reminder", "emails/employee/timesheet-reminder");
+
+        when(templateRegistry.getByReminderNumber(reminderNumber)).thenReturn(tinfo);
+        when(payloadMapper.toDto(eq(ReminderType.EMPLOYEE_REMINDER), any())).thenReturn(dto);
+        when(objectMapper.convertValue(dto, Map.class)).thenReturn(Map.of("to", "a@example.com"));
+        when(templateEngine.process(anyString(), any(Context.class))).thenReturn(createHtmlWithSubject("Batch Subject"));
+        when(mailSender.createMimeMessage()).thenReturn(mimeMessage);
+
+        BatchSendReport report = emailService.sendReminderBatch(reminderNumber, payloads);
+
+        assertEquals(3, report.total());
+        assertEquals(3, report.sent());
+        assertEquals(0, report.failed());
+        verify(mailSender, times(2)).send(any(MimeMessage[].class));
+    }
+
+    /*
+     * Test for sendReminderBatch when the server rejects one message of a chunk.
+     * Verifies that only the rejected recipient is reported as failed.
+     */
+    @Test
+    void sendReminderBatch_OneMessageRejected_ReportsPerRecipient() throws Exception {
+        int reminderNumber = 1;
+        ReflectionTestUtils.setField(emailService, "batchChunkSize", 10);
+
+        List<Map<String, Object>> payloads = List.of(
+                Map.of("to", "a@example.com"),
+                Map.of("to", "b@example.com")
+        );
+        Object dto = new Object();
+        MimeMessage rejected = mock(MimeMessage.class);
+        TemplateInfo tinfo = new TemplateInfo(reminderNumber, "Employee Reminder", "emails/employee/timesheet-reminder");
+
+        when(templateRegistry.getByReminderNumber(reminderNumber)).thenReturn(tinfo);
+        when(payloadMapper.toDto(eq(ReminderType.EMPLOYEE_REMINDER), any())).thenReturn(dto);
+        when(objectMapper.convertValue(dto, Map.class)).thenReturn(Map.of("to", "a@example.com"));
+        when(templateEngine.process(anyString(), any(Context.class))).thenReturn(createHtmlWithSubject("Batch Subject"));
+        when(mailSender.createMimeMessage()).thenReturn(mimeMessage, rejected);
+        doThrow(new MailSendException(Map.<Object, Exception>of(rejected, new MessagingException("550 mailbox unavailable"))))
+                .when(mailSender).send(any(MimeMessage[].class));
+
+        BatchSendReport report = emailService.sendReminderBatch(reminderNumber, payloads);
+
+        assertEquals(1, report.sent());
+        assertEquals(1, report.failed());
+        assertEquals(DeliveryStatus.SENT, report.results().get(0).status());
+        assertEquals(DeliveryStatus.FAILED, report.results().get(1).status());
+        assertTrue(report.results().get(1).detail().contains("550"));
+    }
+
+    /*
+     * Test for sendReminderBatch when the outbox cannot record the batch.
+     * Verifies that nothing is sent, every recipient is reported as failed and their claims are
+     * released, so a retry of the batch is sent instead of skipped as a duplicate.
+     */
+    @Test
+    void sendReminderBatch_OutboxAppendFails_ReportsFailedAndReleasesClaims() throws Exception {
+        int reminderNumber = 1;
+        MailOutbox outbox = mock(MailOutbox.class);
+        ReflectionTestUtils.setField(emailService, "outbox", outbox);
+        ReflectionTestUtils.setField(emailService, "idempotency", new IdempotencyStore(60_000, 100, 1_000, 0.0001));
+        String templatePath = "emails/employee/timesheet-reminder";
+        List<Map<String, Object>> payloads = List.of(Map.of("to", "a@example.com"), Map.of("to", "b@example.com"));
+
+        when(templateRegistry.getByReminderNumber(reminderNumber)).thenReturn(new TemplateInfo(reminderNumber, "Employee Reminder", templatePath));
+        when(payloadMapper.toDto(eq(ReminderType.EMPLOYEE_REMINDER), any())).thenAnswer(inv -> {
+            Map<String, Object> payload = inv.getArgument(1);
+            return new EmployeeReminderDto(payload.get("to").toString(), "John", "Jan 15-21, 2024", null, null, null, null, null);
+        });
+        when(templateEngine.process(eq(templatePath), any(IContext.class))).thenReturn(createHtmlWithSubject("Subject"));
+        when(mailSender.createMimeMessage()).thenReturn(mimeMessage);
+        when(outbox.appendAll(anyList()))
+                .thenThrow(new UncheckedIOException("Mail outbox append failed", new IOException("No space left on device")))
+                .thenReturn(List.of(1L, 2L));
+
+        BatchSendReport failed = emailService.sendReminderBatch(reminderNumber, payloads);
+        verify(mailSender, never()).send(any(MimeMessage[].class));
+        BatchSendReport retry = emailService.sendReminderBatch(reminderNumber, payloads);
+
+        assertEquals(2, failed.failed());
+        assertTrue(failed.results().get(0).detail().contains("No space left on device"));
+        assertEquals(2, retry.sent());
+        verify(outbox).markDelivered(1L);
+        verify(outbox).markDelivered(2L);
+    }
+
+    /*
+     * Test for sendReminderBatch when the mail sender throws something other than a MailException.
+     * Verifies that only that chunk is reported as failed and the other chunks are still sent.
+     */
+    @Test
+    void sendReminderBatch_UnexpectedSenderError_FailsOnlyThatChunk() throws Exception {
+        int reminderNumber = 1;
+        ReflectionTestUtils.setField(emailService, "batchChunkSize", 1);
+
+        List<Map<String, Object>> payloads = List.of(
+                Map.of("to", "a@example.com"),
+                Map.of("to", "b@example.com")
+        );
+        Object dto = new Object();
+        MimeMessage broken = mock(MimeMessage.class);
+        TemplateInfo tinfo = new TemplateInfo(reminderNumber, "Employee Reminder", "emails/employee/timesheet-reminder");
+
+        when(templateRegistry.getByReminderNumber(reminderNumber)).thenReturn(tinfo);
+        when(payloadMapper.toDto(eq(ReminderType.EMPLOYEE_REMINDER), any())).thenReturn(dto);
+        when(objectMapper.convertValue(dto, Map.class)).thenReturn(Map.of("to", "a@example.com"));
+        when(templateEngine.process(anyString(), any(Context.class))).thenReturn(createHtmlWithSubject("Batch Subject"));
+        when(mailSender.createMimeMessage()).thenReturn(broken, mimeMessage);
+        doThrow(new IllegalStateException("connection pool shut down"))
+                .when(mailSender).send(new MimeMessage[] { broken });
+
+        BatchSendReport report = emailService.sendReminderBatch(reminderNumber, payloads);
+
+        assertEquals(1, report.sent());
+        assertEquals(1, report.failed());
+        assertEquals(DeliveryStatus.FAILED, report.results().get(0).status());
+        assertEquals(DeliveryStatus.SENT, report.results().get(1).status());
+        verify(mailSender).send(new MimeMessage[] { mimeMessage });
+    }
+
     // ==================== ❌ INVALID TEST CASES ====================
 
     /*
@@ -395,6 +579,161 @@ class EmailServiceTest {
         verify(templateEngine, never()).process(anyString(), any(Context.class));
     }
 
+    /*
+     * Test for sendUsingTemplate with the render cache enabled.
+     * Verifies that a repeated send with an equal DTO reuses the rendered email.
+     */
+    @Test
+    void sendUsingTemplate_RenderCacheEnabled_RendersOnce() throws Exception {
+        ReflectionTestUtils.setField(emailService, "renderCache", new RenderedEmailCache(1_000_000, 60_000));
+        String templatePath = "emails/hr/timesheet-hr-escalation";
+
+        when(templateEngine.process(eq(templatePath), any(IContext.class))).thenReturn(createHtmlWithSubject("Cached Subject"));
+        when(mailSender.createMimeMessage()).thenReturn(mimeMessage);
+
+        emailService.sendUsingTemplate(templatePath, new HrEscalationDto("hr@example.com", "HR", "John", "Week", "https://hr"));
+        emailService.sendUsingTemplate(templatePath, new HrEscalationDto("hr@example.com", "HR", "John", "Week", "https://hr"));
+
+        verify(templateEngine, times(1)).process(eq(templatePath), any(IContext.class));
+        verify(mailSender, times(2)).send(mimeMessage);
+    }
+
+    /*
+     * Test for the per-stage send metrics.
+     * Verifies that render, subject and deliver are timed and the sent and skipped counters are tagged by template.
+     */
+    @Test
+    void sendUsingTemplate_RecordsStageTimersAndOutcomes() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ReflectionTestUtils.setField(emailService, "metrics", new SendPipelineMetrics(registry, templateRegistry));
+        String templatePath = "emails/hr/timesheet-hr-escalation";
+
+        when(templateEngine.process(eq(templatePath), any(IContext.class))).thenReturn(createHtmlWithSubject("Subject"));
+        when(mailSender.createMimeMessage()).thenReturn(mimeMessage);
+
+        emailService.sendUsingTemplate(templatePath, new HrEscalationDto("hr@example.com", "HR", "John", "Week", "https://hr"));
+        emailService.sendUsingTemplate(templatePath, new HrEscalationDto(null, "HR", "John", "Week", "https://hr"));
+
+        for (String stage : List.of("render", "subject")) {
+            assertEquals(2, registry.get("sphuta.mail.stage").tags("stage", stage, "template", templatePath).timer().count());
+        }
+        assertEquals(1, registry.get("sphuta.mail.stage").tags("stage", "deliver", "template", templatePath).timer().count());
+        assertEquals(1.0, registry.get("sphuta.mail.messages").tags("outcome", "sent", "template", templatePath).counter().count());
+        assertEquals(1.0, registry.get("sphuta.mail.messages").tags("outcome", "skipped_missing_to", "template", templatePath).counter().count());
+        assertEquals(0.0, registry.get("sphuta.mail.messages").tags("outcome", "failed", "template", templatePath).counter().count());
+    }
+
+    /*
+     * Test for sendPrepared with idempotency enabled.
+     * Verifies that a repeat of the same reminder, recipient and week returns the earlier
+     * result without rendering or sending, while a different caller key is sent.
+     */
+    @Test
+    void sendPrepared_RepeatedReminder_ReplaysWithoutSending() throws Exception {
+        ReflectionTestUtils.setField(emailService, "idempotency", new IdempotencyStore(60_000, 100, 1_000, 0.0001));
+        String templatePath = "emails/hr/timesheet-hr-escalation";
+        ReminderRequest request = new ReminderRequest(8, ReminderType.HR_ESCALATION, templatePath,
+                new HrEscalationDto("hr@example.com", "HR", "John", "Jan 15-21, 2024", "https://hr"));
+
+        when(templateEngine.process(eq(templatePath), any(IContext.class))).thenReturn(createHtmlWithSubject("Subject"));
+        when(mailSender.createMimeMessage()).thenReturn(mimeMessage);
+
+        SendOutcome first = emailService.sendPrepared(request, null);
+        SendOutcome repeat = emailService.sendPrepared(request, null);
+        SendOutcome keyed = emailService.sendPrepared(request, "upstream-42");
+
+        assertFalse(first.replayed());
+        assertTrue(repeat.replayed());
+        assertEquals(first.message(), repeat.message());
+        assertFalse(keyed.replayed());
+        verify(templateEngine, times(2)).process(eq(templatePath), any(IContext.class));
+        verify(mailSender, times(2)).send(mimeMessage);
+    }
+
+    /*
+     * Test for sendPrepared with a manager reminder taken into a digest.
+     * Verifies that it is recorded in the outbox and handed to the coalescer with its claim,
+     * which stays in progress until the digest is sent, and that the outcome says it was buffered.
+     */
+    @Test
+    void sendPrepared_BufferedForDigest_RecordedAndClaimHeld() throws Exception {
+        ReminderCoalescer coalescer = mock(ReminderCoalescer.class);
+        MailOutbox outbox = mock(MailOutbox.class);
+        ReflectionTestUtils.setField(emailService, "coalescer", coalescer);
+        ReflectionTestUtils.setField(emailService, "outbox", outbox);
+        ReflectionTestUtils.setField(emailService, "idempotency", new IdempotencyStore(60_000, 100, 1_000, 0.0001));
+        String templatePath = "emails/manager/timesheet-approval-overdue";
+        ReminderRequest request = new ReminderRequest(5, ReminderType.MANAGER_APPROVAL_OVERDUE, templatePath,
+                new ManagerApprovalDto("manager@example.com", "Sarah", "Dev", "John", "Jan 15-21, 2024",
+                        "Jan 22, 2024", "https://sphuta-app.com/manager", null));
+
+        when(coalescer.accepts(request)).thenReturn(true);
+        when(templateEngine.process(eq(templatePath), any(IContext.class))).thenReturn(createHtmlWithSubject("Subject"));
+        when(outbox.append(any())).thenReturn(7L);
+
+        SendOutcome outcome = emailService.sendPrepared(request, "digest-1");
+
+        assertTrue(outcome.buffered());
+        assertEquals("Queued reminder 5 for a digest", outcome.message());
+        verify(outbox).append(any());
+        verify(coalescer).offer(eq(request), eq(7L), notNull());
+        verify(mailSender, never()).send(any(MimeMessage.class));
+        assertThrows(SendInProgressException.class, () -> emailService.sendPrepared(request, "digest-1"));
+    }
+
+    /*
+     * Test for sendPrepared when the SMTP send fails.
+     * Verifies that the outbox entry is abandoned instead of left for replay and the claim is
+     * released, so the client's retry with the same key is the only re-send.
+     */
+    @Test
+    void sendPrepared_SendFails_AbandonsEntryAndReleasesClaim() throws Exception {
+        MailOutbox outbox = mock(MailOutbox.class);
+        ReflectionTestUtils.setField(emailService, "outbox", outbox);
+        ReflectionTestUtils.setField(emailService, "idempotency", new IdempotencyStore(60_000, 100, 1_000, 0.0001));
+        String templatePath = "emails/hr/timesheet-hr-escalation";
+        ReminderRequest request = new ReminderRequest(8, ReminderType.HR_ESCALATION, templatePath,
+                new HrEscalationDto("hr@example.com", "HR", "John", "Jan 15-21, 2024", "https://hr"));
+
+        when(templateEngine.process(eq(templatePath), any(IContext.class))).thenReturn(createHtmlWithSubject("Subject"));
+        when(mailSender.createMimeMessage()).thenReturn(mimeMessage);
+        when(outbox.append(any())).thenReturn(9L, 10L);
+        doThrow(new MailSendException("421 4.3.2 Service not available"))
+                .doNothing()
+                .when(mailSender).send(mimeMessage);
+
+        assertThrows(MailSendException.class, () -> emailService.sendPrepared(request, "client-7"));
+        SendOutcome retry = emailService.sendPrepared(request, "client-7");
+
+        assertFalse(retry.replayed());
+        verify(outbox).abandon(9L);
+        verify(outbox, never()).recordFailure(anyLong(), anyBoolean(), any());
+        verify(outbox).markDelivered(10L);
+        verify(mailSender, times(2)).send(mimeMessage);
+    }
+
+    /*
+     * Test for prepareReminder with a streamed request body.
+     * Verifies that the DTO is parsed from the body and the Map conversion is not used.
+     */
+    @Test
+    void prepareReminder_StreamedBody_ParsesDtoDirectly() {
+        int reminderNumber = 8;
+        InputStream body = new ByteArrayInputStream("{\"to\":\"hr@example.com\"}".getBytes(StandardCharsets.UTF_8));
+        HrEscalationDto dto = new HrEscalationDto("hr@example.com", "HR Team", "John Doe", "Jan 15-21, 2024", "https://hr");
+        TemplateInfo tinfo = new TemplateInfo(8, "HR Escalation", "emails/hr/timesheet-hr-escalation");
+
+        when(templateRegistry.getByReminderNumber(reminderNumber)).thenReturn(tinfo);
+        when(payloadMapper.readDto(ReminderType.HR_ESCALATION, body)).thenReturn(dto);
+
+        ReminderRequest request = emailService.prepareReminder(reminderNumber, body);
+
+        assertSame(dto, request.dto());
+        assertEquals(ReminderType.HR_ESCALATION, request.type());
+        assertEquals("emails/hr/timesheet-hr-escalation", request.templatePath());
+        verify(payloadMapper, never()).toDto(any(), any());
+    }
+
     /*
      * Test for sendReminderByNumber when template is not found in registry.
      * Verifies that an exception is thrown when no template is configured.
@@ -498,6 +837,41 @@ class EmailServiceTest {
         verify(mailSender, never()).send(any(MimeMessage.class));
     }
 
+    /*
+     * Test for sendReminderBatch with an empty list of payloads.
+     * Verifies that the batch is rejected before any lookup or send.
+     */
+    @Test
+    void sendReminderBatch_EmptyPayloads_ThrowsException() {
+        assertThrows(IllegalArgumentException.class,
+                () -> emailService.sendReminderBatch(1, List.of()));
+
+        verify(templateRegistry, never()).getByReminderNumber(anyInt());
+        verify(mailSender, never()).send(any(MimeMessage[].class));
+    }
+
+    /*
+     * Test for sendReminderBatch when an entry has no recipient.
+     * Verifies that the entry is skipped and nothing is sent.
+     */
+    @Test
+    void sendReminderBatch_MissingToField_SkipsEntry() throws Exception {
+        int reminderNumber = 1;
+        Object dto = new Object();
+        TemplateInfo tinfo = new TemplateInfo(reminderNumber, "Employee Reminder", "emails/employee/timesheet-reminder");
+
+        when(templateRegistry.getByReminderNumber(reminderNumber)).thenReturn(tinfo);
+        when(payloadMapper.toDto(eq(ReminderType.EMPLOYEE_REMINDER), any())).thenReturn(dto);
+        when(objectMapper.convertValue(dto, Map.class)).thenReturn(Map.of("name", "John Doe"));
+        when(templateEngine.process(anyString(), any(Context.class))).thenReturn(createHtmlWithSubject("Batch Subject"));
+
+        BatchSendReport report = emailService.sendReminderBatch(reminderNumber, List.of(Map.of("name", "John Doe")));
+
+        assertEquals(1, report.skipped());
+        assertEquals(DeliveryStatus.SKIPPED, report.results().get(0).status());
+        verify(mailSender, never()).send(any(MimeMessage[].class));
+    }
+
     // ==================== 🔧 HELPER METHODS ====================
 
     private static Stream<Arguments> validReminderScenarios() {
@@ -531,6 +905,7 @@ class EmailServiceTest {
                         "manager@example.com",
                         "Sarah",
                         "Team",
+                        "John Doe",
                         "2024-01-15",
                         "Deadline",
                         "https://example.com/dashboard",
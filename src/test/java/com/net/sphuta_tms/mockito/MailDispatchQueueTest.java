@@ -0,0 +1,121 @@
+package com.net.sphuta_tms.mockito;
+
+import com.net.sphuta_tms.dto.DispatchJobStatus;
+import com.net.sphuta_tms.dto.ReminderRequest;
+import com.net.sphuta_tms.enums.DispatchState;
+import com.net.sphuta_tms.enums.ReminderType;
+import com.net.sphuta_tms.exceptions.DispatchQueueFullException;
+import com.net.sphuta_tms.service.EmailService;
+import com.net.sphuta_tms.service.MailDispatchQueue;
+import jakarta.mail.MessagingException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for {@link MailDispatchQueue} using Mockito.
+ *
+ * The queue is started with real worker threads; {@link EmailService} is mocked.
+ */
+@ExtendWith(MockitoExtension.class)
+class MailDispatchQueueTest {
+
+    @Mock
+    private EmailService emailService;
+
+    @InjectMocks
+    private MailDispatchQueue dispatchQueue;
+
+    private final ReminderRequest request =
+            new ReminderRequest(1, ReminderType.EMPLOYEE_REMINDER, "emails/employee/timesheet-reminder", new Object());
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(dispatchQueue, "workers", 1);
+        ReflectionTestUtils.setField(dispatchQueue, "queueCapacity", 1);
+        ReflectionTestUtils.setField(dispatchQueue, "retainedJobs", 100);
+        dispatchQueue.init();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        dispatchQueue.shutdown();
+    }
+
+    /*
+     * Test for a successful asynchronous send.
+     * Verifies that the job is accepted as QUEUED and ends as SENT.
+     */
+    @Test
+    void submit_ValidRequest_JobEndsAsSent() throws Exception {
+        DispatchJobStatus accepted = dispatchQueue.submit(request);
+
+        assertEquals(DispatchState.QUEUED, accepted.state());
+        assertEquals(DispatchState.SENT, awaitFinished(accepted.jobId()).state());
+        verify(emailService).sendPrepared(request);
+    }
+
+    /*
+     * Test for an asynchronous send that fails in the worker.
+     * Verifies that the job ends as FAILED with the error message.
+     */
+    @Test
+    void submit_SendFails_JobEndsAsFailed() throws Exception {
+        doThrow(new MessagingException("421 try again later")).when(emailService).sendPrepared(any());
+
+        DispatchJobStatus finished = awaitFinished(dispatchQueue.submit(request).jobId());
+
+        assertEquals(DispatchState.FAILED, finished.state());
+        assertTrue(finished.detail().contains("421"));
+        assertNotNull(finished.finishedAt());
+    }
+
+    /*
+     * Test for submitting while the single worker is busy and the queue is full.
+     * Verifies that the extra job is rejected instead of queued.
+     */
+    @Test
+    void submit_QueueFull_ThrowsQueueFullException() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(inv -> {
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(emailService).sendPrepared(any());
+
+        dispatchQueue.submit(request); // taken by the worker
+        dispatchQueue.submit(request); // waits in the queue
+
+        assertThrows(DispatchQueueFullException.class, () -> dispatchQueue.submit(request));
+        release.countDown();
+    }
+
+    /*
+     * Test for looking up a job id that was never issued.
+     */
+    @Test
+    void getStatus_UnknownJob_ReturnsNull() {
+        assertNull(dispatchQueue.getStatus("does-not-exist"));
+    }
+
+    private DispatchJobStatus awaitFinished(String jobId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        DispatchJobStatus status = dispatchQueue.getStatus(jobId);
+        while (!status.state().isFinished() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            status = dispatchQueue.getStatus(jobId);
+        }
+        return status;
+    }
+}
@@ -0,0 +1,204 @@
+package com.net.sphuta_tms.mockito;
+
+import com.net.sphuta_tms.constants.TemplateRegistry;
+import com.net.sphuta_tms.dto.BatchSendReport;
+import com.net.sphuta_tms.dto.PreparedMessage;
+import com.net.sphuta_tms.dto.RecipientResult;
+import com.net.sphuta_tms.dto.ReminderRequest;
+import com.net.sphuta_tms.dto.SendOutcome;
+import com.net.sphuta_tms.dto.TemplateInfo;
+import com.net.sphuta_tms.enums.DeliveryStatus;
+import com.net.sphuta_tms.enums.ReminderType;
+import com.net.sphuta_tms.service.EmailService;
+import com.net.sphuta_tms.service.ReactiveEmailService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for {@link ReactiveEmailService} using Mockito.
+ *
+ * The facade runs on its real schedulers; {@link EmailService} is mocked.
+ */
+@ExtendWith(MockitoExtension.class)
+class ReactiveEmailServiceTest {
+
+    private static final String TEMPLATE = "emails/employee/timesheet-reminder";
+
+    @Mock
+    private EmailService emailService;
+
+    @Mock
+    private TemplateRegistry templateRegistry;
+
+    @InjectMocks
+    private ReactiveEmailService reactiveEmailService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(reactiveEmailService, "renderThreads", 2);
+        ReflectionTestUtils.setField(reactiveEmailService, "smtpThreads", 2);
+        ReflectionTestUtils.setField(reactiveEmailService, "queuedTasks", 1000);
+        ReflectionTestUtils.setField(reactiveEmailService, "maxChunksInFlight", 1);
+        ReflectionTestUtils.setField(reactiveEmailService, "chunkLingerMs", 50L);
+        ReflectionTestUtils.setField(reactiveEmailService, "chunkSize", 10);
+        reactiveEmailService.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        reactiveEmailService.shutdown();
+    }
+
+    /*
+     * Test for a single reactive send.
+     * Verifies that the reminder is staged on the render scheduler and handed to SMTP on the smtp scheduler.
+     */
+    @Test
+    void send_ValidRequest_StagesAndDeliversOnSeparateSchedulers() throws Exception {
+        ReminderRequest request = new ReminderRequest(1, ReminderType.EMPLOYEE_REMINDER, TEMPLATE, new Object());
+        EmailService.StagedSend staged = mock(EmailService.StagedSend.class);
+        AtomicReference<String> stagedOn = new AtomicReference<>();
+        AtomicReference<String> deliveredOn = new AtomicReference<>();
+        when(emailService.stageSend(request, "key-1")).thenAnswer(inv -> {
+            stagedOn.set(Thread.currentThread().getName());
+            return staged;
+        });
+        when(emailService.completeSend(staged)).thenAnswer(inv -> {
+            deliveredOn.set(Thread.currentThread().getName());
+            return SendOutcome.sent("Triggered reminder 1");
+        });
+
+        SendOutcome outcome = reactiveEmailService.send(request, "key-1").block(Duration.ofSeconds(5));
+
+        assertEquals("Triggered reminder 1", outcome.message());
+        assertTrue(stagedOn.get().startsWith("mail-render"), stagedOn.get());
+        assertTrue(deliveredOn.get().startsWith("mail-smtp"), deliveredOn.get());
+        assertEquals(1, reactiveEmailService.sends());
+    }
+
+    /*
+     * Test for a single reactive send cancelled while it is being staged.
+     * Verifies that the staged send is still completed, so its claim and outbox entry are settled.
+     */
+    @Test
+    void send_CancelledWhileStaging_StillCompleted() throws Exception {
+        ReminderRequest request = new ReminderRequest(1, ReminderType.EMPLOYEE_REMINDER, TEMPLATE, new Object());
+        EmailService.StagedSend staged = mock(EmailService.StagedSend.class);
+        CountDownLatch staging = new CountDownLatch(1);
+        CountDownLatch cancelled = new CountDownLatch(1);
+        CountDownLatch completed = new CountDownLatch(1);
+        when(emailService.stageSend(request, "key-1")).thenAnswer(inv -> {
+            staging.countDown();
+            cancelled.await(5, TimeUnit.SECONDS);
+            return staged;
+        });
+        when(emailService.completeSend(staged)).thenAnswer(inv -> {
+            completed.countDown();
+            return SendOutcome.sent("Triggered reminder 1");
+        });
+
+        reactiveEmailService.send(request, "key-1").subscribe().dispose();
+        assertTrue(staging.await(5, TimeUnit.SECONDS));
+        cancelled.countDown();
+
+        assertTrue(completed.await(5, TimeUnit.SECONDS), "staged send was not completed after cancel");
+    }
+
+    /*
+     * Test for a send stream against a stalled relay.
+     * Verifies that payloads are only pulled as chunks are delivered, and that every payload
+     * gets its result in order, a payload without recipient as skipped.
+     */
+    @Test
+    void sendStream_StalledRelay_PullsPayloadsOnDemand() throws Exception {
+        when(templateRegistry.getByReminderNumber(1)).thenReturn(new TemplateInfo(1, "reminder", TEMPLATE));
+        when(emailService.renderMessage(eq(1), anyMap())).thenAnswer(inv -> {
+            Map<String, Object> payload = inv.getArgument(1);
+            Object to = payload.get("to");
+            return to == null ? null : new PreparedMessage(to.toString(), TEMPLATE, null, null);
+        });
+        CountDownLatch relayReached = new CountDownLatch(1);
+        CountDownLatch relayReleased = new CountDownLatch(1);
+        when(emailService.deliverPrepared(eq(1), anyList())).thenAnswer(inv -> {
+            relayReached.countDown();
+            relayReleased.await(10, TimeUnit.SECONDS);
+            List<PreparedMessage> messages = inv.getArgument(1);
+            List<RecipientResult> results = new ArrayList<>();
+            for (int i = 0; i < messages.size(); i++) results.add(RecipientResult.sent(i, messages.get(i).to()));
+            return BatchSendReport.of(1, results);
+        });
+
+        int total = 500;
+        AtomicInteger pulled = new AtomicInteger();
+        Flux<Map<String, Object>> payloads = Flux.range(0, total)
+                .map(ReactiveEmailServiceTest::payload)
+                .doOnNext(p -> pulled.incrementAndGet());
+
+        CompletableFuture<List<RecipientResult>> results =
+                reactiveEmailService.sendStream(1, payloads).collectList().toFuture();
+
+        assertTrue(relayReached.await(5, TimeUnit.SECONDS));
+        Thread.sleep(200);
+        assertTrue(pulled.get() < 100, "pulled " + pulled.get() + " payloads while the relay was stalled");
+        relayReleased.countDown();
+
+        List<RecipientResult> delivered = results.get(10, TimeUnit.SECONDS);
+        assertEquals(total, delivered.size());
+        for (int i = 0; i < total; i++) assertEquals(i, delivered.get(i).index());
+        assertEquals(DeliveryStatus.SKIPPED, delivered.get(7).status());
+        assertEquals(DeliveryStatus.SENT, delivered.get(8).status());
+        assertEquals("user8@example.com", delivered.get(8).to());
+        assertEquals(total, reactiveEmailService.streamed());
+        assertEquals(0, reactiveEmailService.pending());
+    }
+
+    /*
+     * Test for a send stream with an unknown reminder number.
+     * Verifies that it is rejected before any payload is read.
+     */
+    @Test
+    void sendStream_UnknownReminder_RejectedAtOnce() throws Exception {
+        AtomicInteger pulled = new AtomicInteger();
+        Flux<Map<String, Object>> payloads = Flux.range(0, 10)
+                .map(ReactiveEmailServiceTest::payload)
+                .doOnNext(p -> pulled.incrementAndGet());
+
+        assertThrows(IllegalArgumentException.class, () -> reactiveEmailService.sendStream(99, payloads));
+
+        assertEquals(0, pulled.get());
+        verify(emailService, never()).renderMessage(anyInt(), any());
+    }
+
+    // payloads 7, 17, 27, ... have no recipient
+    private static Map<String, Object> payload(int i) {
+        Map<String, Object> payload = new HashMap<>();
+        if (i % 10 != 7) payload.put("to", "user" + i + "@example.com");
+        payload.put("employeeName", "Employee " + i);
+        return payload;
+    }
+}
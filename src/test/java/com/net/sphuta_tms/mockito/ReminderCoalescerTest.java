@@ -0,0 +1,191 @@
+package com.net.sphuta_tms.mockito;
+
+import com.net.sphuta_tms.constants.TemplateRegistry;
+import com.net.sphuta_tms.dto.EmployeeReminderDto;
+import com.net.sphuta_tms.dto.ManagerApprovalDto;
+import com.net.sphuta_tms.dto.ManagerDigestDto;
+import com.net.sphuta_tms.dto.ReminderRequest;
+import com.net.sphuta_tms.enums.ReminderType;
+import com.net.sphuta_tms.outbox.MailOutbox;
+import com.net.sphuta_tms.service.EmailService;
+import com.net.sphuta_tms.service.IdempotencyStore;
+import com.net.sphuta_tms.service.ReminderCoalescer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.mail.MailSendException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for {@link ReminderCoalescer} with a mocked {@link EmailService}
+ * and a controllable clock.
+ */
+class ReminderCoalescerTest {
+
+    private static final long WINDOW_MS = 60_000;
+
+    private final AtomicLong now = new AtomicLong(0);
+    private EmailService emailService;
+    private MailOutbox outbox;
+    private ReminderCoalescer coalescer;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        emailService = mock(EmailService.class);
+        ObjectProvider<EmailService> provider = mock(ObjectProvider.class);
+        when(provider.getObject()).thenReturn(emailService);
+
+        outbox = mock(MailOutbox.class);
+
+        coalescer = new ReminderCoalescer();
+        ReflectionTestUtils.setField(coalescer, "emailService", provider);
+        ReflectionTestUtils.setField(coalescer, "outbox", outbox);
+        ReflectionTestUtils.setField(coalescer, "windowMs", WINDOW_MS);
+        ReflectionTestUtils.setField(coalescer, "maxItems", 3);
+        ReflectionTestUtils.setField(coalescer, "clock", (LongSupplier) now::get);
+    }
+
+    /*
+     * Test for several reminders to one manager within the window.
+     * Verifies that they are sent as one digest listing every employee.
+     */
+    @Test
+    void flushDue_SeveralRemindersForManager_SendsOneDigest() throws Exception {
+        assertTrue(coalescer.offer(manager(4, "Manager@Example.com", "Alice")));
+        assertTrue(coalescer.offer(manager(5, "manager@example.com", "Bob")));
+
+        coalescer.flushDue(); // window still open
+        verifyNoInteractions(emailService);
+
+        now.addAndGet(WINDOW_MS);
+        coalescer.flushDue();
+
+        ArgumentCaptor<Object> dto = ArgumentCaptor.forClass(Object.class);
+        verify(emailService).sendBuffered(eq(TemplateRegistry.MANAGER_DIGEST_TEMPLATE), dto.capture());
+        ManagerDigestDto digest = assertInstanceOf(ManagerDigestDto.class, dto.getValue());
+        assertEquals(2, digest.itemCount());
+        assertEquals("Alice", digest.items().get(0).employeeName());
+        assertEquals("Approval overdue", digest.items().get(1).status());
+        assertEquals(0, coalescer.openDigests());
+    }
+
+    /*
+     * Test for a single buffered reminder.
+     * Verifies that it is sent with its own template, not as a digest.
+     */
+    @Test
+    void flushDue_SingleReminder_SendsOriginalTemplate() throws Exception {
+        ReminderRequest request = manager(6, "manager@example.com", "Alice");
+        coalescer.offer(request);
+
+        now.addAndGet(WINDOW_MS);
+        coalescer.flushDue();
+
+        verify(emailService).sendBuffered(request.templatePath(), request.dto());
+    }
+
+    /*
+     * Test for a repeated reminder about the same employee and week.
+     * Verifies that the later status replaces the earlier one.
+     */
+    @Test
+    void offer_SameEmployeeTwice_KeepsLatestStatus() throws Exception {
+        coalescer.offer(manager(4, "manager@example.com", "Alice"));
+        coalescer.offer(manager(4, "manager@example.com", "Bob"));
+        coalescer.offer(manager(6, "manager@example.com", "Alice"));
+
+        coalescer.flushAll();
+
+        ArgumentCaptor<Object> dto = ArgumentCaptor.forClass(Object.class);
+        verify(emailService).sendBuffered(eq(TemplateRegistry.MANAGER_DIGEST_TEMPLATE), dto.capture());
+        ManagerDigestDto digest = (ManagerDigestDto) dto.getValue();
+        assertEquals(2, digest.itemCount());
+        assertEquals("Alice", digest.items().get(1).employeeName());
+        assertEquals("Escalated", digest.items().get(1).status());
+    }
+
+    /*
+     * Test for the max-items cap.
+     * Verifies that a full buffer is sent without waiting for the window.
+     */
+    @Test
+    void offer_MaxItemsReached_SendsImmediately() throws Exception {
+        coalescer.offer(manager(4, "manager@example.com", "Alice"));
+        coalescer.offer(manager(4, "manager@example.com", "Bob"));
+        coalescer.offer(manager(4, "manager@example.com", "Carol"));
+
+        verify(emailService).sendBuffered(eq(TemplateRegistry.MANAGER_DIGEST_TEMPLATE), any(ManagerDigestDto.class));
+        assertEquals(0, coalescer.openDigests());
+    }
+
+    /*
+     * Test for settling a sent digest.
+     * Verifies that every buffered reminder's outbox entry is delivered and its claim completed.
+     */
+    @Test
+    void flushAll_DigestSent_SettlesEntriesAndClaims() throws Exception {
+        IdempotencyStore store = new IdempotencyStore(86_400_000, 100, 1_000, 0.001);
+        coalescer.offer(manager(4, "manager@example.com", "Alice"), 11, store.claim("alice"));
+        coalescer.offer(manager(4, "manager@example.com", "Bob"), 12, store.claim("bob"));
+
+        assertTrue(store.claim("alice").inProgress()); // nothing acknowledged while buffered
+        coalescer.flushAll();
+
+        verify(outbox).markDelivered(11);
+        verify(outbox).markDelivered(12);
+        IdempotencyStore.Claim repeat = store.claim("bob");
+        assertTrue(repeat.isDuplicate());
+        assertFalse(repeat.inProgress());
+    }
+
+    /*
+     * Test for a digest that could not be sent.
+     * Verifies that the entries are left to the outbox replay and the claims stay taken,
+     * while a dead-lettered entry gives its key back for a retry.
+     */
+    @Test
+    void flushAll_DigestFailed_LeavesEntriesToReplay() throws Exception {
+        IdempotencyStore store = new IdempotencyStore(86_400_000, 100, 1_000, 0.001);
+        coalescer.offer(manager(4, "manager@example.com", "Alice"), 11, store.claim("alice"));
+        coalescer.offer(manager(4, "manager@example.com", "Bob"), 12, store.claim("bob"));
+        doThrow(new MailSendException("Connection refused"))
+                .when(emailService).sendBuffered(eq(TemplateRegistry.MANAGER_DIGEST_TEMPLATE), any());
+        when(outbox.recordFailure(eq(11L), anyBoolean(), any())).thenReturn(false);
+        when(outbox.recordFailure(eq(12L), anyBoolean(), any())).thenReturn(true);
+
+        coalescer.flushAll();
+
+        verify(outbox, never()).markDelivered(anyLong());
+        assertTrue(store.claim("alice").isDuplicate());
+        assertFalse(store.claim("bob").isDuplicate());
+    }
+
+    /*
+     * Test for reminders outside the manager group.
+     * Verifies that they are not buffered.
+     */
+    @Test
+    void offer_EmployeeReminder_NotBuffered() {
+        ReminderRequest employee = new ReminderRequest(1, ReminderType.EMPLOYEE_REMINDER, "emails/employee/timesheet-reminder",
+                new EmployeeReminderDto("e@example.com", "Alice", "Week", null, null, null, null, null));
+
+        assertFalse(coalescer.offer(employee));
+        assertEquals(0, coalescer.openDigests());
+    }
+
+    private static ReminderRequest manager(int number, String to, String employee) {
+        ReminderType type = ReminderType.fromCode(number);
+        ManagerApprovalDto dto = new ManagerApprovalDto(to, "Sarah", "Dev", employee, "Jan 15-21, 2024",
+                "Jan 22, 2024", "https://sphuta-app.com/manager", null);
+        return new ReminderRequest(number, type, "emails/manager/template-" + number, dto);
+    }
+}
@@ -0,0 +1,268 @@
+package com.net.sphuta_tms.outbox;
+
+import com.net.sphuta_tms.dto.RenderedEmail;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link MailOutbox} against a real temporary directory.
+ *
+ * Each test closes the outbox and opens a new instance on the same
+ * directory to simulate a restart.
+ */
+class MailOutboxTest {
+
+    @TempDir
+    Path dir;
+
+    private MailOutbox outbox;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (outbox != null) outbox.close();
+    }
+
+    /*
+     * Test for recovery after a restart.
+     * Verifies that only entries without a delivered marker are pending again.
+     */
+    @Test
+    void reopen_AfterPartialDelivery_KeepsUndeliveredEntries() throws Exception {
+        outbox = open(64 * 1024 * 1024);
+        List<Long> ids = outbox.appendAll(List.of(email("a@example.com"), email("b@example.com"), email("c@example.com")));
+        outbox.markDelivered(ids.get(1));
+        outbox.close();
+
+        outbox = open(64 * 1024 * 1024);
+
+        assertEquals(2, outbox.pendingCount());
+        List<OutboxEntry> replay = outbox.claimPending(10);
+        assertEquals(List.of("a@example.com", "c@example.com"), replay.stream().map(e -> e.email().to()).toList());
+        assertEquals("<p>Hello</p>", replay.get(0).email().html());
+    }
+
+    /*
+     * Test for recovery when the last record was only partly written.
+     * Verifies that the torn tail is dropped and earlier entries survive.
+     */
+    @Test
+    void reopen_WithTornTail_TruncatesAndRecovers() throws Exception {
+        outbox = open(64 * 1024 * 1024);
+        outbox.append(email("a@example.com"));
+        outbox.close();
+
+        Path segment = segments().get(segments().size() - 1);
+        Files.write(segment, new byte[]{0, 0, 1, 0, 42}, StandardOpenOption.APPEND);
+
+        outbox = open(64 * 1024 * 1024);
+
+        assertEquals(1, outbox.pendingCount());
+    }
+
+    /*
+     * Test for a group commit that fails after part of a record reached the file.
+     * Verifies that the torn bytes are cut off, so records acknowledged afterwards survive a restart.
+     */
+    @Test
+    void reopen_AfterFailedPartialWrite_KeepsLaterRecords() throws Exception {
+        outbox = open(64 * 1024 * 1024, file -> new TornWriteChannel(
+                FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND), 2));
+        long a = outbox.append(email("a@example.com"));
+        assertThrows(UncheckedIOException.class, () -> outbox.append(email("b@example.com")));
+        long c = outbox.append(email("c@example.com"));
+        outbox.markDelivered(a);
+        outbox.close();
+
+        outbox = open(64 * 1024 * 1024);
+
+        List<OutboxEntry> replay = outbox.claimPending(10);
+        assertEquals(List.of(c), replay.stream().map(OutboxEntry::id).toList());
+        assertEquals("c@example.com", replay.get(0).email().to());
+    }
+
+    /*
+     * Test for an entry whose failure was reported to the caller.
+     * Verifies that an abandoned entry is not handed out again, before or after a restart.
+     */
+    @Test
+    void abandon_FailureOwnedByCaller_NotReplayed() throws Exception {
+        outbox = open(64 * 1024 * 1024);
+        List<Long> ids = outbox.appendAll(List.of(email("a@example.com"), email("b@example.com")));
+        outbox.abandon(ids.get(0));
+        outbox.release(ids.get(1));
+
+        assertEquals(List.of("b@example.com"), outbox.claimPending(10).stream().map(e -> e.email().to()).toList());
+        outbox.close();
+
+        outbox = open(64 * 1024 * 1024);
+
+        assertEquals(1, outbox.pendingCount());
+        assertEquals("b@example.com", outbox.claimPending(10).get(0).email().to());
+    }
+
+    /*
+     * Test for compaction of delivered segments.
+     * Verifies that rolled segments are removed once everything in them is delivered.
+     */
+    @Test
+    void compaction_AllDelivered_RemovesOldSegments() throws Exception {
+        outbox = open(1); // roll after every group commit
+        for (int i = 0; i < 5; i++) {
+            outbox.markDelivered(outbox.append(email("user" + i + "@example.com")));
+        }
+        outbox.close();
+
+        outbox = open(1);
+
+        assertEquals(0, outbox.pendingCount());
+        assertEquals(1, outbox.segmentCount());
+    }
+
+    /*
+     * Test for claiming entries.
+     * Verifies that an entry being sent is not handed out twice until released.
+     */
+    @Test
+    void claimPending_ClaimedEntry_IsNotReturnedUntilReleased() throws Exception {
+        outbox = open(64 * 1024 * 1024);
+        long id = outbox.append(email("a@example.com"));
+
+        assertTrue(outbox.claimPending(10).isEmpty());
+
+        outbox.release(id);
+        assertEquals(1, outbox.claimPending(10).size());
+    }
+
+    /*
+     * Test for a failed send attempt.
+     * Verifies that the entry is held back for its backoff and keeps its attempt count across a restart.
+     */
+    @Test
+    void recordFailure_Temporary_BacksOffAndKeepsAttempts() throws Exception {
+        outbox = open(64 * 1024 * 1024);
+        long id = outbox.append(email("a@example.com"));
+
+        assertFalse(outbox.recordFailure(id, false, "421 try again later"));
+        assertTrue(outbox.claimPending(10).isEmpty());
+        assertEquals(1, outbox.pendingCount());
+        outbox.close();
+
+        outbox = open(64 * 1024 * 1024);
+
+        List<OutboxEntry> replay = outbox.claimPending(10);
+        assertEquals(1, replay.size());
+        assertEquals(1, replay.get(0).attempts());
+    }
+
+    /*
+     * Test for dead-lettering.
+     * Verifies that a permanent failure and the last allowed attempt both end the entry
+     * and write it to the dead-letter file, also after a restart.
+     */
+    @Test
+    void recordFailure_PermanentOrOutOfAttempts_DeadLetters() throws Exception {
+        outbox = open(64 * 1024 * 1024);
+        ReflectionTestUtils.setField(outbox, "maxAttempts", 2);
+        ReflectionTestUtils.setField(outbox, "backoffInitialMs", 0L);
+        long rejected = outbox.append(email("a@example.com"));
+        long flaky = outbox.append(email("b@example.com"));
+
+        assertTrue(outbox.recordFailure(rejected, true, "550 mailbox unavailable"));
+        assertFalse(outbox.recordFailure(flaky, false, "421 try again later"));
+        assertEquals(List.of(flaky), outbox.claimPending(10).stream().map(OutboxEntry::id).toList());
+        assertTrue(outbox.recordFailure(flaky, false, "421 try again later"));
+
+        assertEquals(0, outbox.pendingCount());
+        assertEquals(2, outbox.deadLetterCount());
+        assertTrue(Files.size(dir.resolve("dead-letters.log")) > 0);
+        outbox.close();
+
+        outbox = open(64 * 1024 * 1024);
+
+        assertEquals(0, outbox.pendingCount());
+    }
+
+    private MailOutbox open(long segmentMaxBytes) throws Exception {
+        return open(segmentMaxBytes, null);
+    }
+
+    private MailOutbox open(long segmentMaxBytes, MailOutbox.SegmentChannels channels) throws Exception {
+        MailOutbox o = new MailOutbox();
+        if (channels != null) ReflectionTestUtils.setField(o, "segmentChannels", channels);
+        ReflectionTestUtils.setField(o, "dir", dir.toString());
+        ReflectionTestUtils.setField(o, "segmentMaxBytes", segmentMaxBytes);
+        ReflectionTestUtils.setField(o, "groupCommitMaxRecords", 64);
+        ReflectionTestUtils.setField(o, "compactionLiveRatio", 0.1);
+        ReflectionTestUtils.setField(o, "maxAttempts", 5);
+        ReflectionTestUtils.setField(o, "backoffInitialMs", 60_000L);
+        ReflectionTestUtils.setField(o, "backoffMaxMs", 3_600_000L);
+        o.init();
+        return o;
+    }
+
+    private List<Path> segments() throws Exception {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.sorted().toList();
+        }
+    }
+
+    private static RenderedEmail email(String to) {
+        return new RenderedEmail("emails/employee/timesheet-reminder", to, "Subject", "<p>Hello</p>");
+    }
+
+    // writes only half of the failAt-th buffer it is given and then fails, like a full disk
+    private static final class TornWriteChannel extends FileChannel {
+        private final FileChannel delegate;
+        private final int failAt;
+        private int writes;
+
+        TornWriteChannel(FileChannel delegate, int failAt) {
+            this.delegate = delegate;
+            this.failAt = failAt;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            if (++writes != failAt) return delegate.write(src);
+            ByteBuffer half = src.duplicate();
+            half.limit(half.position() + half.remaining() / 2);
+            delegate.write(half);
+            throw new IOException("No space left on device");
+        }
+
+        @Override public int read(ByteBuffer dst) throws IOException { return delegate.read(dst); }
+        @Override public long read(ByteBuffer[] dsts, int offset, int length) throws IOException { return delegate.read(dsts, offset, length); }
+        @Override public long write(ByteBuffer[] srcs, int offset, int length) throws IOException { return delegate.write(srcs, offset, length); }
+        @Override public long position() throws IOException { return delegate.position(); }
+        @Override public FileChannel position(long newPosition) throws IOException { delegate.position(newPosition); return this; }
+        @Override public long size() throws IOException { return delegate.size(); }
+        @Override public FileChannel truncate(long size) throws IOException { delegate.truncate(size); return this; }
+        @Override public void force(boolean metaData) throws IOException { delegate.force(metaData); }
+        @Override public long transferTo(long position, long count, WritableByteChannel target) throws IOException { return delegate.transferTo(position, count, target); }
+        @Override public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException { return delegate.transferFrom(src, position, count); }
+        @Override public int read(ByteBuffer dst, long position) throws IOException { return delegate.read(dst, position); }
+        @Override public int write(ByteBuffer src, long position) throws IOException { return delegate.write(src, position); }
+        @Override public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException { return delegate.map(mode, position, size); }
+        @Override public FileLock lock(long position, long size, boolean shared) throws IOException { return delegate.lock(position, size, shared); }
+        @Override public FileLock tryLock(long position, long size, boolean shared) throws IOException { return delegate.tryLock(position, size, shared); }
+        @Override protected void implCloseChannel() throws IOException { delegate.close(); }
+    }
+}
@@ -0,0 +1,76 @@
+package com.net.sphuta_tms.recipient;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the streaming CSV and JSONL {@link RecipientSource} implementations.
+ */
+class RecipientSourceTest {
+
+    @TempDir
+    Path dir;
+
+    /*
+     * Test for reading a CSV export.
+     * Verifies that header names become payload keys, quoted cells are unescaped and empty cells dropped.
+     */
+    @Test
+    void csv_HeaderAndQuotedCells_MappedToPayload() throws Exception {
+        Path file = Files.writeString(dir.resolve("employees.csv"), """
+                to,employeeName,weekDate
+                alice@example.com,"Doe, Alice",2025-01-06
+
+                bob@example.com,"Bob ""B"" Smith",
+                """);
+
+        List<Map<String, Object>> records;
+        try (Stream<Map<String, Object>> stream = RecipientSource.forPath(file, new ObjectMapper()).open()) {
+            records = stream.toList();
+        }
+
+        assertEquals(2, records.size());
+        assertEquals(Map.of("to", "alice@example.com", "employeeName", "Doe, Alice", "weekDate", "2025-01-06"), records.get(0));
+        assertEquals("Bob \"B\" Smith", records.get(1).get("employeeName"));
+        assertFalse(records.get(1).containsKey("weekDate"));
+    }
+
+    /*
+     * Test for reading a JSON Lines export.
+     * Verifies that each line is one payload and a malformed line is skipped.
+     */
+    @Test
+    void jsonl_MalformedLine_Skipped() throws Exception {
+        Path file = Files.writeString(dir.resolve("employees.jsonl"), """
+                {"to":"alice@example.com","employeeName":"Alice"}
+                {"to":"broken@example.com",
+                {"to":"bob@example.com","employeeName":"Bob"}
+                """);
+
+        List<Map<String, Object>> records;
+        try (Stream<Map<String, Object>> stream = RecipientSource.forPath(file, new ObjectMapper()).open()) {
+            records = stream.toList();
+        }
+
+        assertEquals(List.of("alice@example.com", "bob@example.com"), records.stream().map(r -> r.get("to")).toList());
+    }
+
+    /*
+     * Test for an unsupported file type.
+     * Verifies that it is rejected with IllegalArgumentException.
+     */
+    @Test
+    void forPath_UnknownExtension_Throws() {
+        assertThrows(IllegalArgumentException.class,
+                () -> RecipientSource.forPath(dir.resolve("employees.xlsx"), new ObjectMapper()));
+    }
+}
@@ -0,0 +1,183 @@
+package com.net.sphuta_tms.scheduler;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.net.sphuta_tms.constants.TemplateRegistry;
+import com.net.sphuta_tms.dto.BatchSendReport;
+import com.net.sphuta_tms.dto.PreparedMessage;
+import com.net.sphuta_tms.dto.RecipientResult;
+import com.net.sphuta_tms.dto.TemplateInfo;
+import com.net.sphuta_tms.recipient.RecipientSource;
+import com.net.sphuta_tms.service.EmailService;
+import com.net.sphuta_tms.template.EmailTemplateSource;
+import jakarta.mail.Message;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for {@link CampaignSpool} with a mocked {@link EmailService}
+ * and a CSV recipient source in a temporary directory.
+ */
+class CampaignSpoolTest {
+
+    private static final String TEMPLATE = "emails/employee/timesheet-reminder";
+    private static final LocalDateTime RUN_AT = LocalDateTime.of(2024, 1, 19, 17, 0);
+    private static final Session SESSION = Session.getInstance(new Properties());
+
+    @TempDir
+    Path dir;
+
+    private Path csv;
+    private EmailService emailService;
+    private CampaignSpool spool;
+    private final List<PreparedMessage> delivered = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        csv = Files.writeString(dir.resolve("employees.csv"),
+                "to,employeeName,weekDate\na@example.com,A,Jan 15-21\nbad@example.com,B,Jan 15-21\n"
+                        + "c@example.com,C,Jan 15-21\nd@example.com,D,Jan 15-21\n");
+
+        emailService = mock(EmailService.class);
+        when(emailService.renderMessage(eq(1), anyMap())).thenAnswer(inv -> {
+            String to = (String) inv.<Map<String, Object>>getArgument(1).get("to");
+            if (to.startsWith("bad")) throw new IllegalArgumentException("weekDate missing");
+            return new PreparedMessage(to, TEMPLATE, "d:1|" + to, message(to));
+        });
+        when(emailService.deliverPrepared(eq(1), anyList())).thenAnswer(inv -> {
+            List<PreparedMessage> chunk = new ArrayList<>(inv.getArgument(1));
+            delivered.addAll(chunk);
+            return BatchSendReport.of(1, IntStream.range(0, chunk.size())
+                    .mapToObj(i -> RecipientResult.sent(i, chunk.get(i).to())).toList());
+        });
+
+        JavaMailSender mailSender = mock(JavaMailSender.class);
+        when(mailSender.createMimeMessage(any(InputStream.class)))
+                .thenAnswer(inv -> new MimeMessage(SESSION, inv.<InputStream>getArgument(0)));
+
+        TemplateRegistry templateRegistry = mock(TemplateRegistry.class);
+        when(templateRegistry.getByReminderNumber(1)).thenReturn(new TemplateInfo(1, "Reminder", TEMPLATE));
+        when(templateRegistry.getSource(TEMPLATE)).thenReturn(new EmailTemplateSource(TEMPLATE, "Reminder", null, "<p>Hi</p>"));
+
+        spool = new CampaignSpool();
+        ReflectionTestUtils.setField(spool, "emailService", emailService);
+        ReflectionTestUtils.setField(spool, "mailSender", mailSender);
+        ReflectionTestUtils.setField(spool, "templateRegistry", templateRegistry);
+        ReflectionTestUtils.setField(spool, "dir", dir.resolve("spool").toString());
+        ReflectionTestUtils.setField(spool, "retentionMs", 86_400_000L);
+    }
+
+    /*
+     * Test for a pre-rendered run delivered in chunks.
+     * Verifies that stored messages come back intact, only owned recipients are sent,
+     * render failures are reported and nothing is rendered at send time.
+     */
+    @Test
+    void deliver_PreparedRun_StreamsStoredMessages() throws Exception {
+        assertEquals(4, spool.prepare("week-end", RUN_AT, 1, csv, source()));
+        assertTrue(spool.isReady("week-end", RUN_AT, 1, csv));
+        clearInvocations(emailService);
+
+        CampaignSpool.Totals totals = spool.deliver("week-end", RUN_AT, 1, csv, 1,
+                to -> !to.startsWith("d"), () -> true);
+
+        assertNotNull(totals);
+        assertEquals(2, totals.sent());
+        assertEquals(1, totals.failed());
+        assertEquals(List.of("a@example.com", "c@example.com"), delivered.stream().map(PreparedMessage::to).toList());
+        assertEquals("Reminder for c@example.com", delivered.get(1).message().getSubject());
+        assertEquals("d:1|c@example.com", delivered.get(1).idempotencyKey());
+        verify(emailService, times(2)).deliverPrepared(eq(1), anyList());
+        verify(emailService, never()).renderMessage(anyInt(), anyMap());
+    }
+
+    /*
+     * Test for a recipient source edited after pre-rendering.
+     * Verifies that the spool is discarded so the run renders live.
+     */
+    @Test
+    void deliver_SourceChangedAfterPrepare_ReturnsNull() throws Exception {
+        spool.prepare("week-end", RUN_AT, 1, csv, source());
+        Files.writeString(csv, "e@example.com,E,Jan 15-21\n", StandardOpenOption.APPEND);
+        Files.setLastModifiedTime(csv, FileTime.fromMillis(System.currentTimeMillis() + 60_000));
+
+        assertNull(spool.deliver("week-end", RUN_AT, 1, csv, 10, to -> true, () -> true));
+        assertEquals(1, spool.discardedSpools());
+        assertTrue(delivered.isEmpty());
+    }
+
+    /*
+     * Test for spooled messages the relay did not accept.
+     * Verifies that a temporary failure is re-sent from the spool on the next retry pass
+     * and a permanent rejection is given up on instead of retried.
+     */
+    @Test
+    void retryFailed_TemporaryFailure_ResentFromSpool() throws Exception {
+        ReflectionTestUtils.setField(spool, "retryMaxAttempts", 5);
+        ReflectionTestUtils.setField(spool, "retryBackoffMs", 0L);
+        Set<String> failOnce = new HashSet<>(Set.of("c@example.com"));
+        doAnswer(inv -> {
+            List<PreparedMessage> chunk = new ArrayList<>(inv.getArgument(1));
+            List<RecipientResult> results = new ArrayList<>();
+            for (int i = 0; i < chunk.size(); i++) {
+                String to = chunk.get(i).to();
+                if (to.startsWith("d")) {
+                    results.add(RecipientResult.failed(i, to, "550 5.1.1 User unknown"));
+                } else if (failOnce.remove(to)) {
+                    results.add(RecipientResult.failed(i, to, "421 4.7.0 Try again later"));
+                } else {
+                    delivered.add(chunk.get(i));
+                    results.add(RecipientResult.sent(i, to));
+                }
+            }
+            return BatchSendReport.of(1, results);
+        }).when(emailService).deliverPrepared(eq(1), anyList());
+        spool.prepare("week-end", RUN_AT, 1, csv, source());
+
+        CampaignSpool.Totals totals = spool.deliver("week-end", RUN_AT, 1, csv, 10, to -> true, () -> true);
+        CampaignSpool.Totals retried = spool.retryFailed();
+
+        assertEquals(1, totals.sent());
+        assertEquals(3, totals.failed()); // render failure, 421 and 550
+        assertEquals(1, retried.sent());
+        assertEquals(List.of("a@example.com", "c@example.com"), delivered.stream().map(PreparedMessage::to).toList());
+        assertEquals("Reminder for c@example.com", delivered.get(1).message().getSubject());
+        assertEquals("d:1|c@example.com", delivered.get(1).idempotencyKey());
+        assertEquals(1, spool.abandonedMessages());
+        assertEquals(0, spool.retryFailed().sent()); // nothing left to retry
+    }
+
+    private RecipientSource source() {
+        return RecipientSource.forPath(csv, new ObjectMapper());
+    }
+
+    private static MimeMessage message(String to) throws Exception {
+        MimeMessage message = new MimeMessage(SESSION);
+        message.setRecipients(Message.RecipientType.TO, to);
+        message.setSubject("Reminder for " + to);
+        message.setText("<p>Hi</p>", "UTF-8", "html");
+        return message;
+    }
+}
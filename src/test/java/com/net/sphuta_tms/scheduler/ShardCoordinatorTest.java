@@ -0,0 +1,211 @@
+package com.net.sphuta_tms.scheduler;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link ShardCoordinator} with two simulated nodes sharing a
+ * {@link FileShardLeaseStore} in a temporary directory.
+ */
+class ShardCoordinatorTest {
+
+    private static final int SHARDS = 4;
+    private static final long TTL_MS = 10_000;
+    private static final LocalDateTime FIRED_AT = LocalDateTime.of(2024, 11, 15, 17, 0);
+
+    @TempDir
+    Path leaseDir;
+
+    private final AtomicLong now = new AtomicLong(1_700_000_000_000L);
+
+    /*
+     * Test for two nodes firing the same run, one of them starting it late.
+     * Verifies that every recipient is sent exactly once across both nodes.
+     */
+    @Test
+    void run_TwoNodes_SplitRecipients() {
+        FileShardLeaseStore store = new FileShardLeaseStore(leaseDir, 86_400_000L, now::get);
+        ShardCoordinator nodeA = coordinator(store, "node-a");
+        ShardCoordinator nodeB = coordinator(store, "node-b");
+        List<String> recipients = IntStream.range(0, 40).mapToObj(i -> "user" + i + "@example.com").toList();
+
+        List<String> sentByA = new ArrayList<>();
+        List<String> sentByB = new ArrayList<>();
+        nodeA.run("week-end", FIRED_AT, (shard, lease) -> recipients.stream().filter(r -> nodeA.owns(shard, r)).forEach(sentByA::add));
+        now.addAndGet(90_000); // node-b's scheduling thread was busy; it starts in the next minute
+        nodeB.run("week-end", FIRED_AT, (shard, lease) -> recipients.stream().filter(r -> nodeB.owns(shard, r)).forEach(sentByB::add));
+
+        Set<String> all = new HashSet<>(sentByA);
+        all.addAll(sentByB);
+        assertEquals(recipients.size(), sentByA.size() + sentByB.size());
+        assertEquals(new HashSet<>(recipients), all);
+        assertEquals(SHARDS, nodeA.shardsProcessed() + nodeB.shardsProcessed());
+    }
+
+    /*
+     * Test for rebalancing after a node dies.
+     * Verifies that a shard leased by a dead node is taken over once its lease expires.
+     */
+    @Test
+    void rebalance_LeaseExpired_TakesOverShard() {
+        FileShardLeaseStore store = new FileShardLeaseStore(leaseDir, 86_400_000L, now::get);
+        String runId = "month-end@" + FIRED_AT;
+        assertTrue(store.tryAcquire(runId, 2, "dead-node", TTL_MS)); // claimed, never completed
+
+        ShardCoordinator survivor = coordinator(store, "node-a");
+        Set<Integer> processed = new HashSet<>();
+        survivor.run("month-end", FIRED_AT, (shard, lease) -> processed.add(shard));
+
+        assertEquals(Set.of(0, 1, 3), processed);
+        assertEquals(1, survivor.pendingRuns());
+
+        survivor.rebalance(); // lease still valid
+        assertFalse(processed.contains(2));
+
+        now.addAndGet(TTL_MS + 1);
+        survivor.rebalance();
+
+        assertTrue(processed.contains(2));
+        assertEquals(1, survivor.shardsTakenOver());
+        assertEquals(0, survivor.pendingRuns());
+        assertTrue(store.isComplete(runId, 2));
+    }
+
+    /*
+     * Test for a lease that runs out while its shard is processed.
+     * Verifies that the slow node does not mark complete a shard another node has taken over.
+     */
+    @Test
+    void run_LeaseLostDuringShard_NotCompleted() {
+        FileShardLeaseStore store = new FileShardLeaseStore(leaseDir, 86_400_000L, now::get);
+        String runId = "week-end@" + FIRED_AT;
+        ShardCoordinator slow = coordinator(store, "node-a");
+        List<Integer> takenOver = new ArrayList<>();
+
+        slow.run("week-end", FIRED_AT, (shard, lease) -> {
+            if (!takenOver.isEmpty()) return;
+            now.addAndGet(TTL_MS + 1); // stalls past its lease without calling keepAlive
+            assertTrue(store.tryAcquire(runId, shard, "node-b", TTL_MS));
+            takenOver.add(shard);
+        });
+
+        int shard = takenOver.get(0);
+        assertFalse(store.isComplete(runId, shard));
+        assertEquals(1, slow.pendingRuns());
+        assertTrue(store.complete(runId, shard, "node-b"));
+    }
+
+    /*
+     * Test for shard tasks that throw.
+     * Verifies that a failed shard is released instead of completed, retried by rebalancing,
+     * and given up after max-attempts failures.
+     */
+    @Test
+    void rebalance_ShardFailed_RetriedUpToMaxAttempts() {
+        FileShardLeaseStore store = new FileShardLeaseStore(leaseDir, 86_400_000L, now::get);
+        String runId = "week-end@" + FIRED_AT;
+        ShardCoordinator node = coordinator(store, "node-a");
+        ReflectionTestUtils.setField(node, "maxAttempts", 2);
+        List<Integer> attempts = new ArrayList<>();
+
+        ShardCoordinator.ShardTask task = (shard, lease) -> {
+            attempts.add(shard);
+            if (shard == 1) throw new IllegalStateException("recipient file missing");
+            if (shard == 2 && attempts.stream().filter(s -> s == 2).count() == 1) throw new IllegalStateException("outbox full");
+        };
+        node.run("week-end", FIRED_AT, task);
+
+        assertFalse(store.isComplete(runId, 1));
+        assertFalse(store.isComplete(runId, 2));
+        assertTrue(store.tryAcquire(runId, 2, "node-b", TTL_MS)); // released, not left to expire
+        assertTrue(store.release(runId, 2, "node-b"));
+        assertEquals(1, node.pendingRuns());
+
+        node.rebalance();
+
+        assertTrue(store.isComplete(runId, 2));
+        assertFalse(store.isComplete(runId, 1));
+        assertEquals(2, attempts.stream().filter(s -> s == 1).count());
+        assertEquals(0, node.pendingRuns());
+        assertEquals(3, node.shardsProcessed());
+    }
+
+    /*
+     * Test for a chunk that takes longer than the lease TTL.
+     * Verifies that the heartbeat keeps the lease while the chunk is sent, so another node
+     * cannot take the shard over, and the shard is completed afterwards.
+     */
+    @Test
+    void run_ChunkLongerThanTtl_LeaseKeptByHeartbeat() throws Exception {
+        long ttlMs = 400;
+        FileShardLeaseStore store = new FileShardLeaseStore(leaseDir, 86_400_000L, System::currentTimeMillis);
+        ShardCoordinator slow = coordinator(store, "node-a");
+        ReflectionTestUtils.setField(slow, "shards", 1);
+        ReflectionTestUtils.setField(slow, "leaseTtlMs", ttlMs);
+        ReflectionTestUtils.setField(slow, "clock", (LongSupplier) System::currentTimeMillis);
+        String runId = "week-end@" + FIRED_AT;
+        List<Boolean> takeoverAttempts = new ArrayList<>();
+
+        try {
+            slow.run("week-end", FIRED_AT, (shard, lease) -> {
+                Thread.sleep(3 * ttlMs); // one sendReminderBatch call against a slow relay, no keepAlive
+                takeoverAttempts.add(store.tryAcquire(runId, shard, "node-b", ttlMs));
+            });
+        } finally {
+            slow.shutdown();
+        }
+
+        assertEquals(List.of(false), takeoverAttempts);
+        assertTrue(store.isComplete(runId, 0));
+        assertEquals(0, slow.pendingRuns());
+    }
+
+    /*
+     * Test for lease semantics in the file store.
+     * Verifies that a held lease blocks other owners, only the unexpired owner can complete it,
+     * and a completed shard is never re-acquired.
+     */
+    @Test
+    void fileStore_HeldAndCompletedLeases() {
+        FileShardLeaseStore store = new FileShardLeaseStore(leaseDir, 86_400_000L, now::get);
+
+        assertTrue(store.tryAcquire("run", 0, "a", TTL_MS));
+        assertFalse(store.tryAcquire("run", 0, "b", TTL_MS));
+        assertTrue(store.renew("run", 0, "a", TTL_MS));
+        assertFalse(store.renew("run", 0, "b", TTL_MS));
+
+        assertFalse(store.complete("run", 0, "b"));
+        assertTrue(store.complete("run", 0, "a"));
+        now.addAndGet(TTL_MS * 2);
+        assertTrue(store.isComplete("run", 0));
+        assertFalse(store.tryAcquire("run", 0, "b", TTL_MS));
+
+        assertTrue(store.tryAcquire("run", 1, "a", TTL_MS));
+        now.addAndGet(TTL_MS + 1);
+        assertFalse(store.complete("run", 1, "a")); // expired: another node may already have it
+    }
+
+    private ShardCoordinator coordinator(ShardLeaseStore store, String nodeId) {
+        ShardCoordinator coordinator = new ShardCoordinator();
+        ReflectionTestUtils.setField(coordinator, "leaseStore", store);
+        ReflectionTestUtils.setField(coordinator, "shards", SHARDS);
+        ReflectionTestUtils.setField(coordinator, "leaseTtlMs", TTL_MS);
+        ReflectionTestUtils.setField(coordinator, "maxRunMs", 3_600_000L);
+        ReflectionTestUtils.setField(coordinator, "nodeId", nodeId);
+        ReflectionTestUtils.setField(coordinator, "clock", (LongSupplier) now::get);
+        return coordinator;
+    }
+}
@@ -0,0 +1,115 @@
+package com.net.sphuta_tms.service;
+
+import com.net.sphuta_tms.dto.EmployeeReminderDto;
+import com.net.sphuta_tms.dto.ManagerApprovalDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link IdempotencyStore} with a controllable clock.
+ */
+class IdempotencyStoreTest {
+
+    private static final long WINDOW_MS = 60_000;
+
+    private final AtomicLong now = new AtomicLong(1_000);
+
+    /*
+     * Test for a repeated key after a completed send.
+     * Verifies that the repeat is a duplicate carrying the earlier result.
+     */
+    @Test
+    void claim_CompletedKey_ReturnsEarlierResult() {
+        IdempotencyStore store = store(100);
+        IdempotencyStore.Claim first = store.claim("k1");
+        assertFalse(first.isDuplicate());
+        first.complete("Triggered reminder 1");
+
+        IdempotencyStore.Claim repeat = store.claim("k1");
+        assertTrue(repeat.isDuplicate());
+        assertFalse(repeat.inProgress());
+        assertEquals("Triggered reminder 1", repeat.previousResult());
+        assertFalse(store.claim("k2").isDuplicate());
+        assertEquals(1, store.duplicates());
+    }
+
+    /*
+     * Test for a repeat while the first send is running, and after it failed.
+     * Verifies that it is reported in progress, and that a released key can be claimed again.
+     */
+    @Test
+    void claim_InFlightThenReleased_AllowsRetry() {
+        IdempotencyStore store = store(100);
+        IdempotencyStore.Claim first = store.claim("k1");
+
+        assertTrue(store.claim("k1").inProgress());
+
+        first.release();
+        IdempotencyStore.Claim retry = store.claim("k1");
+        assertFalse(retry.isDuplicate());
+    }
+
+    /*
+     * Test for the time window.
+     * Verifies that a key is accepted again once window-ms has passed.
+     */
+    @Test
+    void claim_AfterWindow_AcceptsKeyAgain() {
+        IdempotencyStore store = store(100);
+        store.claim("k1").complete("sent");
+
+        now.addAndGet(WINDOW_MS - 1);
+        assertTrue(store.claim("k1").isDuplicate());
+
+        now.addAndGet(WINDOW_MS);
+        assertFalse(store.claim("k1").isDuplicate());
+    }
+
+    /*
+     * Test for the exact-key cap.
+     * Verifies that a key evicted from the exact map is still caught by the Bloom filter.
+     */
+    @Test
+    void claim_EvictedKey_CaughtByBloomFilter() {
+        IdempotencyStore store = store(2);
+        store.claim("k1").complete("sent");
+        store.claim("k2").complete("sent");
+        store.claim("k3").complete("sent");
+        assertEquals(2, store.retainedKeys());
+
+        IdempotencyStore.Claim repeat = store.claim("k1");
+        assertTrue(repeat.isDuplicate());
+        assertEquals(IdempotencyStore.RESULT_NOT_RETAINED, repeat.previousResult());
+        assertEquals(1, store.bloomDuplicates());
+    }
+
+    /*
+     * Test for derived keys.
+     * Verifies that recipient case is ignored and that a manager gets one key per employee.
+     */
+    @Test
+    void deriveKey_UsesReminderRecipientWeekAndEmployee() {
+        EmployeeReminderDto employee = new EmployeeReminderDto("John@Example.com", "John", "Jan 15-21, 2024",
+                null, null, null, null, null);
+        EmployeeReminderDto same = new EmployeeReminderDto("john@example.com", "John", "Jan 15-21, 2024",
+                "https://other", null, null, null, null);
+        assertEquals(IdempotencyStore.deriveKey(1, employee), IdempotencyStore.deriveKey(1, same));
+        assertNotEquals(IdempotencyStore.deriveKey(1, employee), IdempotencyStore.deriveKey(2, employee));
+
+        ManagerApprovalDto alice = new ManagerApprovalDto("m@example.com", "Mia", "Core", "Alice", "Jan 15-21, 2024",
+                null, null, null);
+        ManagerApprovalDto bob = new ManagerApprovalDto("m@example.com", "Mia", "Core", "Bob", "Jan 15-21, 2024",
+                null, null, null);
+        assertNotEquals(IdempotencyStore.deriveKey(4, alice), IdempotencyStore.deriveKey(4, bob));
+
+        assertNull(IdempotencyStore.deriveKey(1, new EmployeeReminderDto(" ", "John", "Jan 15-21, 2024",
+                null, null, null, null, null)));
+    }
+
+    private IdempotencyStore store(int maxKeys) {
+        return new IdempotencyStore(WINDOW_MS, maxKeys, 1_000, 0.0001, now::get);
+    }
+}
@@ -0,0 +1,153 @@
+package com.net.sphuta_tms.template;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.net.sphuta_tms.constants.TemplateRegistry;
+import com.net.sphuta_tms.dto.EmployeeReminderDto;
+import com.net.sphuta_tms.dto.TemplateInfo;
+import com.net.sphuta_tms.enums.ReminderType;
+import com.net.sphuta_tms.util.ReminderPayloadMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link CompiledTemplate} and {@link CompiledTemplates}, checked
+ * against the template engine on the registered templates.
+ */
+class CompiledTemplateTest {
+
+    private TemplateRegistry registry;
+    private SpringTemplateEngine engine;
+    private ReminderPayloadMapper payloadMapper;
+
+    @BeforeEach
+    void setUp() {
+        registry = new TemplateRegistry();
+        ReflectionTestUtils.setField(registry, "resourceLoader", new DefaultResourceLoader());
+        ReflectionTestUtils.setField(registry, "templatePrefix", "classpath:/templates/");
+        ReflectionTestUtils.setField(registry, "templateSuffix", ".html");
+        registry.init();
+
+        EmailTemplateResolver resolver = new EmailTemplateResolver();
+        ReflectionTestUtils.setField(resolver, "templateRegistry", registry);
+        engine = new SpringTemplateEngine();
+        engine.setTemplateResolver(resolver);
+        engine.setEngineContextFactory(new RecordEngineContextFactory());
+
+        payloadMapper = new ReminderPayloadMapper();
+        ReflectionTestUtils.setField(payloadMapper, "objectMapper",
+                new ObjectMapper().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES));
+        ReflectionTestUtils.invokeMethod(payloadMapper, "init");
+    }
+
+    /*
+     * Test for every registered reminder template.
+     * Verifies that the compiled renderer produces exactly the engine's output, including
+     * escaping of markup characters in text and attributes.
+     */
+    @Test
+    void render_RegisteredTemplates_MatchEngineOutput() {
+        for (TemplateInfo info : registry.getAll().values()) {
+            String path = info.getTemplatePath();
+            Object dto = payloadMapper.toDto(ReminderType.fromCode(info.getTemplateId()), payload());
+
+            CompiledTemplate compiled = CompiledTemplate.compile(path, registry.getSource(path).body());
+
+            assertEquals(engine.process(path, new RecordContext(dto, Locale.getDefault())), compiled.render(dto), path);
+        }
+    }
+
+    /*
+     * Test for links missing from the payload.
+     * Verifies that a th:href whose value is null is left out, as the engine does, instead of
+     * being written as an empty href.
+     */
+    @Test
+    void render_NullLink_OmitsHrefLikeEngine() {
+        Map<String, Object> vars = payload();
+        vars.keySet().removeIf(key -> key.endsWith("Link"));
+        for (TemplateInfo info : registry.getAll().values()) {
+            String path = info.getTemplatePath();
+            Object dto = payloadMapper.toDto(ReminderType.fromCode(info.getTemplateId()), vars);
+
+            String rendered = CompiledTemplate.compile(path, registry.getSource(path).body()).render(dto);
+
+            assertEquals(engine.process(path, new RecordContext(dto, Locale.getDefault())), rendered, path);
+            assertFalse(rendered.contains("href=\"\""), path);
+        }
+    }
+
+    /*
+     * Test for a template outside the compiled subset.
+     * Verifies that compiling fails and the engine keeps rendering it.
+     */
+    @Test
+    void render_IterationTemplate_LeftToEngine() {
+        String digest = TemplateRegistry.MANAGER_DIGEST_TEMPLATE;
+        assertThrows(IllegalArgumentException.class,
+                () -> CompiledTemplate.compile(digest, registry.getSource(digest).body()));
+
+        CompiledTemplates compiledTemplates = new CompiledTemplates();
+        ReflectionTestUtils.setField(compiledTemplates, "templateRegistry", registry);
+        ReflectionTestUtils.setField(compiledTemplates, "verifyRenders", 1);
+        compiledTemplates.init();
+
+        assertNull(compiledTemplates.get(digest));
+        assertEquals("engine", compiledTemplates.render(digest, sampleEmployee(), () -> "engine"));
+        assertEquals(1, compiledTemplates.engineRenders());
+    }
+
+    /*
+     * Test for the verification renders.
+     * Verifies that a compiled template whose output differs from the engine's is dropped.
+     */
+    @Test
+    void render_OutputDiffersFromEngine_FallsBackForGood() {
+        String path = "emails/employee/timesheet-reminder";
+        CompiledTemplates compiledTemplates = new CompiledTemplates();
+        ReflectionTestUtils.setField(compiledTemplates, "templateRegistry", registry);
+        ReflectionTestUtils.setField(compiledTemplates, "verifyRenders", 1);
+        compiledTemplates.init();
+
+        assertEquals("engine", compiledTemplates.render(path, sampleEmployee(), () -> "engine"));
+
+        assertNull(compiledTemplates.get(path));
+        assertEquals(1, compiledTemplates.mismatches());
+    }
+
+    private static Map<String, Object> payload() {
+        Map<String, Object> vars = new HashMap<>();
+        vars.put("to", "employee@example.com");
+        vars.put("employeeName", "O'Neil <Jr> & \"Co\"");
+        vars.put("managerName", "Sarah Wilson");
+        vars.put("adminName", "Admin");
+        vars.put("hrContactName", "HR Team");
+        vars.put("teamName", "R&D Team");
+        vars.put("weekDate", "Jan 15–21, 2024");
+        vars.put("deadlineDate", "Jan 22, 2024");
+        vars.put("deadlineTime", "5:00 PM");
+        vars.put("managerApprovalDeadline", "Jan 22, 2024, 3:00 PM");
+        vars.put("timesheetLink", "https://sphuta-app.com/timesheet?week=3&user=7");
+        vars.put("managerDashboardLink", "https://sphuta-app.com/manager");
+        vars.put("adminDashboardLink", "https://sphuta-app.com/admin");
+        vars.put("hrDashboardLink", "https://sphuta-app.com/hr");
+        vars.put("helpLink", "https://sphuta-app.com/help");
+        vars.put("supportContact", "support@sphuta.com");
+        vars.put("itSupportEmail", "itsupport@sphuta.com");
+        vars.put("deadlineDateTime", "Jan 22, 2024, 5:00 PM");
+        return vars;
+    }
+
+    private static EmployeeReminderDto sampleEmployee() {
+        return new EmployeeReminderDto("a@example.com", "A", "Jan 15-21", "https://t", "5 PM", "s@x", "https://h", "it@x");
+    }
+}
@@ -0,0 +1,69 @@
+package com.net.sphuta_tms.template;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link EmailTemplateSource#parse}.
+ */
+class EmailTemplateSourceTest {
+
+    /*
+     * Test for a template with a fixed subject.
+     * Verifies that the subject is taken as-is and the meta tag leaves the body.
+     */
+    @Test
+    void parse_StaticSubject_ExtractsSubjectAndStripsTag() {
+        String html = "<html><head>\n    <meta charset=\"UTF-8\"/>\n"
+                + "    <meta name=\"subject\" content=\"Timesheets Pending Approval &amp; Review\"/>\n"
+                + "</head><body>Hi</body></html>";
+
+        EmailTemplateSource source = EmailTemplateSource.parse("emails/x", html);
+
+        assertEquals("Timesheets Pending Approval & Review", source.staticSubject());
+        assertNull(source.subjectExpression());
+        assertFalse(source.body().contains("name=\"subject\""));
+        assertTrue(source.body().contains("<meta charset=\"UTF-8\"/>"));
+    }
+
+    /*
+     * Test for a template whose subject is a Thymeleaf expression.
+     * Verifies that the expression is kept for evaluation and not treated as text.
+     */
+    @Test
+    void parse_ThContentSubject_KeepsExpression() {
+        String html = "<head><meta name=\"subject\" th:content=\"'URGENT – Approval for ' + ${teamName} + ' is Overdue'\" /></head>";
+
+        EmailTemplateSource source = EmailTemplateSource.parse("emails/x", html);
+
+        assertNull(source.staticSubject());
+        assertEquals("'URGENT – Approval for ' + ${teamName} + ' is Overdue'", source.subjectExpression());
+        assertEquals("<head></head>", source.body());
+    }
+
+    /*
+     * Test for a literal-substitution subject expression.
+     */
+    @Test
+    void parse_LiteralSubstitutionSubject_KeepsExpression() {
+        String html = "<meta name=\"subject\" th:content=\"|Escalation – Timesheet Pending for ${employeeName}|\" />";
+
+        EmailTemplateSource source = EmailTemplateSource.parse("emails/x", html);
+
+        assertEquals("|Escalation – Timesheet Pending for ${employeeName}|", source.subjectExpression());
+    }
+
+    /*
+     * Test for a template without a subject meta tag.
+     */
+    @Test
+    void parse_NoSubject_LeavesBodyUntouched() {
+        String html = "<html><body>No subject</body></html>";
+
+        EmailTemplateSource source = EmailTemplateSource.parse("emails/x", html);
+
+        assertFalse(source.hasSubject());
+        assertEquals(html, source.body());
+    }
+}
@@ -0,0 +1,122 @@
+package com.net.sphuta_tms.template;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.net.sphuta_tms.constants.TemplateRegistry;
+import com.net.sphuta_tms.dto.EmployeeReminderDto;
+import com.net.sphuta_tms.dto.ManagerApprovalDto;
+import com.net.sphuta_tms.dto.ManagerDigestDto;
+import com.net.sphuta_tms.dto.ManagerDigestItem;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for binding record DTOs through {@link RecordContext} and
+ * {@link RecordEngineContextFactory}, compared with the map-based context.
+ */
+class RecordContextTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private SpringTemplateEngine engine;
+    private SubjectRenderer subjectRenderer;
+
+    @BeforeEach
+    void setUp() {
+        TemplateRegistry registry = new TemplateRegistry();
+        ReflectionTestUtils.setField(registry, "resourceLoader", new DefaultResourceLoader());
+        ReflectionTestUtils.setField(registry, "templatePrefix", "classpath:/templates/");
+        ReflectionTestUtils.setField(registry, "templateSuffix", ".html");
+        registry.init();
+
+        EmailTemplateResolver resolver = new EmailTemplateResolver();
+        ReflectionTestUtils.setField(resolver, "templateRegistry", registry);
+        engine = new SpringTemplateEngine();
+        engine.setTemplateResolver(resolver);
+        engine.setEngineContextFactory(new RecordEngineContextFactory());
+
+        subjectRenderer = new SubjectRenderer();
+        ReflectionTestUtils.setField(subjectRenderer, "templateEngine", engine);
+        ReflectionTestUtils.setField(subjectRenderer, "templateRegistry", registry);
+        subjectRenderer.init();
+    }
+
+    /*
+     * Test for variable lookup on a record.
+     * Verifies that components are exposed by name and unknown names resolve to null.
+     */
+    @Test
+    void getVariable_RecordComponents_ResolvedThroughAccessors() {
+        RecordContext ctx = new RecordContext(employee(), Locale.ENGLISH);
+
+        assertEquals("employee@example.com", ctx.getVariable("to"));
+        assertEquals("John Doe", ctx.getVariable("employeeName"));
+        assertTrue(ctx.containsVariable("itSupportEmail"));
+        assertFalse(ctx.containsVariable("managerName"));
+        assertNull(ctx.getVariable("managerName"));
+        assertEquals(8, ctx.getVariableNames().size());
+    }
+
+    /*
+     * Test for rendering with a record-backed context.
+     * Verifies that body and subject match the previous map-based binding.
+     */
+    @Test
+    void process_RecordContext_MatchesMapContext() {
+        assertSameOutput("emails/employee/timesheet-reminder", employee());
+        assertSameOutput("emails/manager/timesheet-escalation", new ManagerApprovalDto(
+                "manager@example.com", "Sarah Wilson", "Development Team", "John Doe",
+                "Jan 15-21, 2024", "Jan 22, 2024, 3:00 PM", "https://sphuta-app.com/manager", "Jan 22, 2024, 5:00 PM"));
+    }
+
+    /*
+     * Test for rendering the manager digest.
+     * Verifies that every buffered employee is listed and the subject carries the count.
+     */
+    @Test
+    void process_ManagerDigest_ListsEveryItem() {
+        ManagerDigestDto digest = new ManagerDigestDto("manager@example.com", "Sarah Wilson", "https://sphuta-app.com/manager", 2,
+                List.of(new ManagerDigestItem("Ready for approval", "Alice", "Dev", "Jan 15-21, 2024", "Jan 22, 2024"),
+                        new ManagerDigestItem("Escalated", "Bob", "Dev", "Jan 15-21, 2024", "Jan 22, 2024")));
+        RecordContext ctx = new RecordContext(digest, Locale.ENGLISH);
+
+        String html = engine.process(TemplateRegistry.MANAGER_DIGEST_TEMPLATE, ctx);
+
+        assertTrue(html.contains("<td>Alice</td>"));
+        assertTrue(html.contains("<b>Escalated</b>"));
+        assertEquals("2 Timesheets Need Your Attention in SPHUTA", subjectRenderer.render(TemplateRegistry.MANAGER_DIGEST_TEMPLATE, ctx));
+    }
+
+    /*
+     * Test for a DTO that is not a record.
+     * Verifies that it is rejected, so callers fall back to map conversion.
+     */
+    @Test
+    void recordAccessors_NotARecord_ThrowsException() {
+        assertFalse(RecordContext.supports(new Object()));
+        assertThrows(IllegalArgumentException.class, () -> RecordAccessors.of(String.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void assertSameOutput(String templatePath, Object dto) {
+        Context mapContext = new Context(Locale.ENGLISH, objectMapper.convertValue(dto, Map.class));
+        RecordContext recordContext = new RecordContext(dto, Locale.ENGLISH);
+
+        assertEquals(engine.process(templatePath, mapContext), engine.process(templatePath, recordContext));
+        assertEquals(subjectRenderer.render(templatePath, mapContext), subjectRenderer.render(templatePath, recordContext));
+    }
+
+    private static EmployeeReminderDto employee() {
+        return new EmployeeReminderDto("employee@example.com", "John Doe", "Jan 15-21, 2024",
+                "https://sphuta-app.com/timesheet", "5:00 PM", "support-number",
+                "https://help.example", "it-support@example.com");
+    }
+}
@@ -0,0 +1,97 @@
+package com.net.sphuta_tms.template;
+
+import com.net.sphuta_tms.dto.HrEscalationDto;
+import com.net.sphuta_tms.dto.RenderedEmail;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link RenderedEmailCache} with a controllable clock.
+ */
+class RenderedEmailCacheTest {
+
+    private static final String HR = "emails/hr/timesheet-hr-escalation";
+
+    private final AtomicLong now = new AtomicLong(1_000);
+
+    /*
+     * Test for a repeated payload.
+     * Verifies that an equal DTO (not the same instance) hits the cache.
+     */
+    @Test
+    void get_EqualDto_ReturnsCachedEmail() {
+        RenderedEmailCache cache = new RenderedEmailCache(1_000_000, 60_000, now::get);
+        RenderedEmail email = email("a@example.com", 100);
+        cache.put(HR, dto("a@example.com"), email);
+
+        assertSame(email, cache.get(HR, dto("a@example.com")));
+        assertNull(cache.get(HR, dto("b@example.com")));
+        assertNull(cache.get("emails/other", dto("a@example.com")));
+        assertEquals(1, cache.hits());
+        assertEquals(2, cache.misses());
+    }
+
+    /*
+     * Test for the TTL.
+     * Verifies that an entry older than ttl-ms is dropped and counted as expired.
+     */
+    @Test
+    void get_AfterTtl_ReturnsNull() {
+        RenderedEmailCache cache = new RenderedEmailCache(1_000_000, 60_000, now::get);
+        cache.put(HR, dto("a@example.com"), email("a@example.com", 100));
+
+        now.addAndGet(60_000);
+
+        assertNull(cache.get(HR, dto("a@example.com")));
+        assertEquals(1, cache.expirations());
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.bytes());
+    }
+
+    /*
+     * Test for the memory cap.
+     * Verifies that least recently used entries are evicted to stay under max-bytes.
+     */
+    @Test
+    void put_OverByteCap_EvictsLeastRecentlyUsed() {
+        RenderedEmailCache cache = new RenderedEmailCache(5_000, 60_000, now::get);
+        cache.put(HR, dto("a@example.com"), email("a@example.com", 1_000));
+        cache.put(HR, dto("b@example.com"), email("b@example.com", 1_000));
+        cache.get(HR, dto("a@example.com"));
+        cache.put(HR, dto("c@example.com"), email("c@example.com", 1_000));
+
+        assertTrue(cache.bytes() <= 5_000);
+        assertEquals(1, cache.evictions());
+        assertNotNull(cache.get(HR, dto("a@example.com")));
+        assertNull(cache.get(HR, dto("b@example.com")));
+        assertNotNull(cache.get(HR, dto("c@example.com")));
+    }
+
+    /*
+     * Test for invalidating a template.
+     * Verifies that only entries rendered from that template are dropped.
+     */
+    @Test
+    void invalidate_Template_DropsOnlyItsEntries() {
+        RenderedEmailCache cache = new RenderedEmailCache(1_000_000, 60_000, now::get);
+        cache.put(HR, dto("a@example.com"), email("a@example.com", 100));
+        cache.put("emails/other", dto("a@example.com"), email("a@example.com", 100));
+
+        cache.invalidate(HR);
+
+        assertEquals(1, cache.size());
+        assertNull(cache.get(HR, dto("a@example.com")));
+        assertNotNull(cache.get("emails/other", dto("a@example.com")));
+    }
+
+    private static HrEscalationDto dto(String to) {
+        return new HrEscalationDto(to, "HR Team", "John Doe", "Jan 15-21, 2024", "https://sphuta-app.com/hr");
+    }
+
+    private static RenderedEmail email(String to, int htmlChars) {
+        return new RenderedEmail(HR, to, "Subject", "x".repeat(htmlChars));
+    }
+}
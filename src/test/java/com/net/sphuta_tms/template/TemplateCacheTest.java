@@ -0,0 +1,141 @@
+package com.net.sphuta_tms.template;
+
+import com.net.sphuta_tms.constants.TemplateRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the compiled template cache ({@link BoundedCache},
+ * {@link EmailTemplateCacheManager}) and {@link TemplateWatcher} reloads.
+ */
+class TemplateCacheTest {
+
+    private static final String REMINDER = "emails/employee/timesheet-reminder";
+
+    @TempDir
+    Path watchRoot;
+
+    private TemplateRegistry registry;
+    private EmailTemplateCacheManager cacheManager;
+    private SpringTemplateEngine engine;
+    private SubjectRenderer subjectRenderer;
+    private TemplateWatcher watcher;
+
+    @BeforeEach
+    void setUp() {
+        registry = new TemplateRegistry();
+        ReflectionTestUtils.setField(registry, "resourceLoader", new DefaultResourceLoader());
+        ReflectionTestUtils.setField(registry, "templatePrefix", "classpath:/templates/");
+        ReflectionTestUtils.setField(registry, "templateSuffix", ".html");
+        registry.init();
+
+        EmailTemplateResolver resolver = new EmailTemplateResolver();
+        ReflectionTestUtils.setField(resolver, "templateRegistry", registry);
+        cacheManager = new EmailTemplateCacheManager(8, 100);
+        engine = new SpringTemplateEngine();
+        engine.setTemplateResolver(resolver);
+        engine.setCacheManager(cacheManager);
+
+        subjectRenderer = mock(SubjectRenderer.class);
+        watcher = new TemplateWatcher();
+        ReflectionTestUtils.setField(watcher, "templateRegistry", registry);
+        ReflectionTestUtils.setField(watcher, "subjectRenderer", subjectRenderer);
+        ReflectionTestUtils.setField(watcher, "templateEngine", engine);
+        ReflectionTestUtils.setField(watcher, "templateSuffix", ".html");
+        ReflectionTestUtils.setField(watcher, "root", watchRoot);
+    }
+
+    /*
+     * Test for rendering the same template twice.
+     * Verifies that the second render is served from the compiled cache.
+     */
+    @Test
+    void process_SameTemplateTwice_SecondIsCacheHit() {
+        engine.process(REMINDER, context());
+        long missesAfterFirst = cacheManager.templates().misses();
+        engine.process(REMINDER, context());
+
+        assertEquals(1, cacheManager.templates().size());
+        assertEquals(missesAfterFirst, cacheManager.templates().misses());
+        assertTrue(cacheManager.templates().hits() >= 1);
+    }
+
+    /*
+     * Test for a changed template file.
+     * Verifies that only that template is reloaded and the next render uses the new source.
+     */
+    @Test
+    void reload_ChangedFile_InvalidatesOnlyThatTemplate() throws Exception {
+        String other = "emails/manager/timesheet-escalation";
+        engine.process(REMINDER, context());
+        engine.process(other, context());
+        assertEquals(2, cacheManager.templates().size());
+
+        Path file = watchRoot.resolve(REMINDER + ".html");
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, "<html><head><meta name=\"subject\" content=\"Updated\"/></head>"
+                + "<body>v2 <span th:text=\"${employeeName}\">x</span></body></html>", StandardCharsets.UTF_8);
+
+        watcher.reload(watchRoot.relativize(file));
+
+        assertEquals(1, watcher.reloads());
+        assertEquals(1, cacheManager.templates().size());
+        verify(subjectRenderer).invalidate(REMINDER);
+        assertEquals("Updated", registry.getSource(REMINDER).staticSubject());
+        assertTrue(engine.process(REMINDER, context()).contains("v2 <span>John</span>"));
+    }
+
+    /*
+     * Test for a template file that cannot be read.
+     * Verifies that the previous version stays cached and a failure is counted.
+     */
+    @Test
+    void reload_UnreadableFile_KeepsLastGoodVersion() {
+        engine.process(REMINDER, context());
+        EmailTemplateSource before = registry.getSource(REMINDER);
+
+        watcher.reload(Path.of(REMINDER + ".html")); // not present under the watch root
+
+        assertEquals(0, watcher.reloads());
+        assertEquals(1, watcher.reloadFailures());
+        assertSame(before, registry.getSource(REMINDER));
+        assertEquals(1, cacheManager.templates().size());
+        verifyNoInteractions(subjectRenderer);
+    }
+
+    /*
+     * Test for the size bound.
+     * Verifies that the least recently read entry is evicted first.
+     */
+    @Test
+    void boundedCache_OverCapacity_EvictsLeastRecentlyRead() {
+        BoundedCache<String, String> cache = new BoundedCache<>(2, null);
+        cache.put("a", "A");
+        cache.put("b", "B");
+        cache.get("a");
+        cache.put("c", "C");
+
+        assertEquals(2, cache.size());
+        assertEquals("A", cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals(1, cache.evictions());
+    }
+
+    private static Context context() {
+        return new Context(Locale.ENGLISH, Map.of("employeeName", "John"));
+    }
+}
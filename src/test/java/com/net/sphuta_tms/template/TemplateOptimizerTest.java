@@ -0,0 +1,81 @@
+package com.net.sphuta_tms.template;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link TemplateOptimizer#optimize}.
+ */
+class TemplateOptimizerTest {
+
+    /*
+     * Test for CSS inlining.
+     * Verifies that simple rules move into style attributes with the element's own declarations
+     * winning, rules that cannot be inlined stay in a style block, and declarations a kept rule
+     * could override on the same element (here color, against a:hover) stay there too.
+     */
+    @Test
+    void optimize_StyleBlock_InlinesSimpleRules() {
+        String html = "<head>\n    <style>\n        body { color:#222; padding:16px; }\n"
+                + "        a.cta, #help { color: #2b6cb0; }\n        a:hover { color: red; }\n    </style>\n</head>\n"
+                + "<body style=\"padding: 8px\">\n    <a class=\"cta\" th:href=\"${link}\">Open</a>\n    <a id=\"help\" href=\"/h\"/>\n</body>";
+
+        TemplateOptimizer.Result result = TemplateOptimizer.optimize(html);
+
+        assertEquals("<head>\n<style>body{color:#222}a.cta{color:#2b6cb0}#help{color:#2b6cb0}a:hover{color:red}</style>\n</head>\n"
+                + "<body style=\"padding:8px\">\n"
+                + "<a class=\"cta\" th:href=\"${link}\">Open</a>\n"
+                + "<a id=\"help\" href=\"/h\"/>\n</body>", result.html());
+        assertEquals(1, result.inlinedRules());
+        assertEquals(4, result.keptRules());
+        assertTrue(result.savedBytes() > 0);
+    }
+
+    /*
+     * Test for a media query overriding an inlinable rule.
+     * Verifies that the overridden property stays in the style block ahead of the media query,
+     * so the query still wins on small screens, while the other properties are inlined.
+     */
+    @Test
+    void optimize_MediaQueryOverride_KeepsContestedProperty() {
+        String html = "<style>\n  .cta { color: blue; padding: 4px }\n"
+                + "  @media (max-width: 600px) { .cta { color: red } }\n</style>\n<a class=\"cta\">Go</a>";
+
+        TemplateOptimizer.Result result = TemplateOptimizer.optimize(html);
+
+        assertEquals("<style>.cta{color:blue}@media (max-width:600px){.cta{color:red}}</style>\n"
+                + "<a class=\"cta\" style=\"padding:4px\">Go</a>", result.html());
+        assertEquals(1, result.inlinedRules());
+    }
+
+    /*
+     * Test for comment and whitespace removal.
+     * Verifies that comments and indentation go, while quoted attribute values, inline
+     * expressions, pre blocks and prototype-only comments are left as they are.
+     */
+    @Test
+    void optimize_CommentsAndWhitespace_CollapsedOutsideLiterals() {
+        String html = "<p   th:text=\"'Due:   ' + ${date}\"  >x</p>\n\n    <!-- note -->\n    <p>Hi   [[${'a   b'}]]</p>"
+                + "<!--/* dev only */--><!--/*/ <b th:text=\"${x}\">x</b> /*/--><pre>  keep  </pre>";
+
+        String optimized = TemplateOptimizer.optimize(html).html();
+
+        assertEquals("<p th:text=\"'Due:   ' + ${date}\">x</p>\n<p>Hi [[${'a   b'}]]</p>"
+                + "<!--/*/ <b th:text=\"${x}\">x</b> /*/--><pre>  keep  </pre>", optimized);
+    }
+
+    /*
+     * Test for a template that sets classes per send.
+     * Verifies that its style block is minified but not inlined.
+     */
+    @Test
+    void optimize_DynamicClasses_KeepsStyleBlock() {
+        String html = "<style>\n  .late { color: red; }\n</style>\n<p th:classappend=\"${late} ? 'late'\">x</p>";
+
+        TemplateOptimizer.Result result = TemplateOptimizer.optimize(html);
+
+        assertEquals("<style>.late{color:red}</style>\n<p th:classappend=\"${late} ? 'late'\">x</p>", result.html());
+        assertEquals(0, result.inlinedRules());
+    }
+}
@@ -0,0 +1,86 @@
+package com.net.sphuta_tms.util;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.net.sphuta_tms.dto.EmployeeReminderDto;
+import com.net.sphuta_tms.dto.HrEscalationDto;
+import com.net.sphuta_tms.enums.ReminderType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link ReminderPayloadMapper} with a real ObjectMapper
+ * configured like Boot's (unknown properties ignored).
+ */
+class ReminderPayloadMapperTest {
+
+    private ReminderPayloadMapper mapper;
+
+    @BeforeEach
+    void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        mapper = new ReminderPayloadMapper();
+        ReflectionTestUtils.setField(mapper, "objectMapper", objectMapper);
+        ReflectionTestUtils.invokeMethod(mapper, "init");
+    }
+
+    /*
+     * Test for streaming a JSON body into the DTO.
+     * Verifies that it yields the same record as converting the equivalent payload Map.
+     */
+    @Test
+    void readDto_ValidBody_MatchesMapConversion() {
+        String json = "{\"to\":\"employee@example.com\",\"employeeName\":\"John Doe\",\"weekDate\":\"Jan 15-21, 2024\","
+                + "\"timesheetLink\":\"https://sphuta-app.com/timesheet\",\"subject\":\"ignored\"}";
+
+        Object streamed = mapper.readDto(ReminderType.EMPLOYEE_REMINDER, body(json));
+        Object converted = mapper.toDto(ReminderType.EMPLOYEE_REMINDER, Map.of(
+                "to", "employee@example.com",
+                "employeeName", "John Doe",
+                "weekDate", "Jan 15-21, 2024",
+                "timesheetLink", "https://sphuta-app.com/timesheet",
+                "subject", "ignored"));
+
+        assertInstanceOf(EmployeeReminderDto.class, streamed);
+        assertEquals(converted, streamed);
+    }
+
+    /*
+     * Test for the DTO class chosen by reminder type.
+     * Verifies that an HR escalation body becomes an HrEscalationDto.
+     */
+    @Test
+    void readDto_HrEscalation_UsesHrDto() {
+        Object dto = mapper.readDto(ReminderType.HR_ESCALATION, body("{\"to\":\"hr@example.com\",\"hrContactName\":\"HR Team\"}"));
+
+        HrEscalationDto hr = assertInstanceOf(HrEscalationDto.class, dto);
+        assertEquals("HR Team", hr.hrContactName());
+        assertNull(hr.employeeName());
+    }
+
+    /*
+     * Test for malformed and empty bodies.
+     * Verifies that both are reported as IllegalArgumentException (400).
+     */
+    @Test
+    void readDto_InvalidBody_ThrowsIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class,
+                () -> mapper.readDto(ReminderType.EMPLOYEE_REMINDER, body("{\"to\": ")));
+        assertThrows(IllegalArgumentException.class,
+                () -> mapper.readDto(ReminderType.EMPLOYEE_REMINDER, body("")));
+        assertThrows(IllegalArgumentException.class,
+                () -> mapper.readDto(ReminderType.EMPLOYEE_REMINDER, body("null")));
+    }
+
+    private static InputStream body(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}